@@ -52,20 +52,22 @@ public static final byte[] methodToBytes(String method, Object... parameters) {
   }
 
   public static final byte[] methodToBytesGZ(String method, Object... parameters) {
+    return compress(methodToBytes(method, parameters));
+  }
 
+  /**
+   * Compresses a serialized call with GZIP.
+   *
+   * @param data the call, as returned by {@link #methodToBytes(String, Object...)}.
+   * @return the compressed call.
+   */
+  public static final byte[] compress(byte[] data) {
     ByteArrayOutputStream bout = new ByteArrayOutputStream();
 
     try {
-
-      ByteArrayOutputStream hessianBytes = new ByteArrayOutputStream();
-      HessianOutput hout = new HessianOutput(hessianBytes);
-      hout.getSerializerFactory().setAllowNonSerializable(true);
-      hout.call(method, parameters);
-
       GZIPOutputStream gzip = new GZIPOutputStream(bout);
-      gzip.write(hessianBytes.toByteArray());
+      gzip.write(data);
       gzip.close();
-
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -0,0 +1,134 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.hessian;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls sent and handled by a server, per method. The counters only ever grow, so the
+ * traffic of a period is the difference between two readings.
+ */
+public class MethodStatistics {
+
+  /** The counters of a method. */
+  public static class Counters {
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder serializedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder serializeTime = new LongAdder();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder handleTime = new LongAdder();
+    private final LongAdder handleCpuTime = new LongAdder();
+
+    /** @return the number of calls sent, a broadcast counting once. */
+    public long getSent() {
+      return sent.sum();
+    }
+
+    /** @return the number of messages queued to the clients for the calls sent. */
+    public long getMessages() {
+      return messages.sum();
+    }
+
+    /** @return the size of the calls sent before they were compressed, in bytes. */
+    public long getSerializedBytes() {
+      return serializedBytes.sum();
+    }
+
+    /** @return the size of the messages queued to the clients, in bytes. */
+    public long getCompressedBytes() {
+      return compressedBytes.sum();
+    }
+
+    /** @return the time spent serializing and compressing calls, in nanoseconds. */
+    public long getSerializeTime() {
+      return serializeTime.sum();
+    }
+
+    /** @return the number of calls received and handled. */
+    public long getHandled() {
+      return handled.sum();
+    }
+
+    /** @return the time spent handling calls, in nanoseconds. */
+    public long getHandleTime() {
+      return handleTime.sum();
+    }
+
+    /** @return the CPU time spent handling calls, in nanoseconds. */
+    public long getHandleCpuTime() {
+      return handleCpuTime.sum();
+    }
+  }
+
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  private Counters getCounters(String method) {
+    return counters.computeIfAbsent(method, m -> new Counters());
+  }
+
+  /**
+   * Records a call sent to one or more clients.
+   *
+   * @param method the method called.
+   * @param recipients the number of clients the call is sent to.
+   * @param serializedBytes the size of the call before it was compressed.
+   * @param compressedBytes the size of the message sent to each client.
+   * @param serializeTime the time spent serializing and compressing the call, in nanoseconds.
+   */
+  public void recordSent(
+      String method, int recipients, int serializedBytes, int compressedBytes, long serializeTime) {
+    Counters methodCounters = getCounters(method);
+    methodCounters.sent.increment();
+    methodCounters.messages.add(recipients);
+    methodCounters.serializedBytes.add(serializedBytes);
+    methodCounters.compressedBytes.add((long) compressedBytes * recipients);
+    methodCounters.serializeTime.add(serializeTime);
+  }
+
+  /**
+   * Records a call received from a client.
+   *
+   * @param method the method called.
+   * @param handleTime the time spent handling the call, in nanoseconds.
+   * @param handleCpuTime the CPU time spent handling the call, in nanoseconds.
+   */
+  public void recordHandled(String method, long handleTime, long handleCpuTime) {
+    Counters methodCounters = getCounters(method);
+    methodCounters.handled.increment();
+    methodCounters.handleTime.add(handleTime);
+    methodCounters.handleCpuTime.add(handleCpuTime);
+  }
+
+  /** @return the number of calls received and handled, for all the methods. */
+  public long getHandled() {
+    return counters.values().stream().mapToLong(Counters::getHandled).sum();
+  }
+
+  /** @return the CPU time spent handling calls, for all the methods, in nanoseconds. */
+  public long getHandleCpuTime() {
+    return counters.values().stream().mapToLong(Counters::getHandleCpuTime).sum();
+  }
+
+  /** @return the counters of the methods that were sent or handled, by method name. */
+  public SortedMap<String, Counters> getCounters() {
+    return new TreeMap<>(counters);
+  }
+}
@@ -15,10 +15,12 @@
 package net.rptools.clientserver.hessian.client;
 
 import java.io.IOException;
+import java.util.Map;
 import net.rptools.clientserver.ActivityListener;
 import net.rptools.clientserver.hessian.HessianUtils;
 import net.rptools.clientserver.simple.DisconnectHandler;
 import net.rptools.clientserver.simple.MessageHandler;
+import net.rptools.clientserver.simple.MessageQueue;
 import net.rptools.clientserver.simple.client.ClientConnection;
 import org.apache.log4j.Logger;
 
@@ -116,4 +118,14 @@ public void close() {
   public boolean isAlive() {
     return connection.isAlive();
   }
+
+  @Override
+  public void setBandwidthCap(Object channel, long bytesPerSecond) {
+    connection.setBandwidthCap(channel, bytesPerSecond);
+  }
+
+  @Override
+  public Map<Object, MessageQueue.Statistics> getChannelStatistics() {
+    return connection.getChannelStatistics();
+  }
 }
@@ -14,6 +14,7 @@
  */
 package net.rptools.clientserver.hessian.server;
 
+import net.rptools.clientserver.hessian.MethodStatistics;
 import net.rptools.clientserver.simple.server.ServerConnection;
 
 public interface MethodServerConnection extends ServerConnection {
@@ -21,7 +22,12 @@ public interface MethodServerConnection extends ServerConnection {
 
   void broadcastCallMethod(String[] exclude, String method, Object... parameters);
 
+  void broadcastCallMethod(Object channel, String[] exclude, String method, Object... parameters);
+
   void callMethod(String id, String method, Object... parameters);
 
   void callMethod(String id, Object channel, String method, Object... parameters);
+
+  /** @return the statistics of the calls sent, and of those handled for the server. */
+  MethodStatistics getStatistics();
 }
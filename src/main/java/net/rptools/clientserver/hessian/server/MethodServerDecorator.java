@@ -15,8 +15,10 @@
 package net.rptools.clientserver.hessian.server;
 
 import java.io.IOException;
+import java.util.function.ToIntFunction;
 import net.rptools.clientserver.ActivityListener;
 import net.rptools.clientserver.hessian.HessianUtils;
+import net.rptools.clientserver.hessian.MethodStatistics;
 import net.rptools.clientserver.simple.AbstractConnection;
 import net.rptools.clientserver.simple.DisconnectHandler;
 import net.rptools.clientserver.simple.MessageHandler;
@@ -29,6 +31,7 @@ public class MethodServerDecorator implements MethodServerConnection {
   private static final Logger log = Logger.getLogger(MethodServerDecorator.class);
 
   private ServerConnection connection;
+  private final MethodStatistics statistics = new MethodStatistics();
 
   public MethodServerDecorator(ServerConnection connection) {
     this.connection = connection;
@@ -36,25 +39,55 @@ public MethodServerDecorator(ServerConnection connection) {
 
   public void broadcastCallMethod(String method, Object... parameters) {
     log.debug("will broadcast " + method);
-    broadcastMessage(HessianUtils.methodToBytesGZ(method, parameters));
+    send(method, parameters, this::broadcastMessage);
   }
 
   public void broadcastCallMethod(String[] exclude, String method, Object... parameters) {
     log.debug("will broadcast " + method);
-    byte[] data = HessianUtils.methodToBytesGZ(method, parameters);
-    broadcastMessage(exclude, data);
+    send(method, parameters, data -> broadcastMessage(exclude, data));
+  }
+
+  public void broadcastCallMethod(
+      Object channel, String[] exclude, String method, Object... parameters) {
+    log.debug("will broadcast " + method + "(" + channel + ")");
+    send(method, parameters, data -> broadcastMessage(channel, exclude, data));
   }
 
   public void callMethod(String id, String method, Object... parameters) {
-    log.debug("will call " + method + " to " + id);
-    byte[] data = HessianUtils.methodToBytesGZ(method, parameters);
-    sendMessage(id, null, data);
+    callMethod(id, null, method, parameters);
   }
 
   public void callMethod(String id, Object channel, String method, Object... parameters) {
     log.debug("will call " + method + " to " + id + "(" + channel + ")");
-    byte[] data = HessianUtils.methodToBytesGZ(method, parameters);
-    sendMessage(id, channel, data);
+    send(
+        method,
+        parameters,
+        data -> {
+          sendMessage(id, channel, data);
+          return 1;
+        });
+  }
+
+  /**
+   * Serializes and compresses a call, then queues it and records its size, the time it took and
+   * the number of clients it was queued for.
+   *
+   * @param method the method called.
+   * @param parameters the parameters of the call.
+   * @param queue queues the message and returns the number of clients it was queued for.
+   */
+  private void send(String method, Object[] parameters, ToIntFunction<byte[]> queue) {
+    long start = System.nanoTime();
+    byte[] serialized = HessianUtils.methodToBytes(method, parameters);
+    byte[] data = HessianUtils.compress(serialized);
+    long serializeTime = System.nanoTime() - start;
+    int recipients = queue.applyAsInt(data);
+    statistics.recordSent(method, recipients, serialized.length, data.length, serializeTime);
+  }
+
+  @Override
+  public MethodStatistics getStatistics() {
+    return statistics;
   }
 
   @Override
@@ -138,13 +171,23 @@ public void removeObserver(ServerObserver observer) {
   }
 
   @Override
-  public void broadcastMessage(byte[] message) {
-    connection.broadcastMessage(message);
+  public int broadcastMessage(byte[] message) {
+    return connection.broadcastMessage(message);
+  }
+
+  @Override
+  public int broadcastMessage(String[] exclude, byte[] message) {
+    return connection.broadcastMessage(exclude, message);
+  }
+
+  @Override
+  public int broadcastMessage(Object channel, String[] exclude, byte[] message) {
+    return connection.broadcastMessage(channel, exclude, message);
   }
 
   @Override
-  public void broadcastMessage(String[] exclude, byte[] message) {
-    connection.broadcastMessage(exclude, message);
+  public int getClientCount() {
+    return connection.getClientCount();
   }
 
   @Override
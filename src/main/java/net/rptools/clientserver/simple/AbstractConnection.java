@@ -18,10 +18,6 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -36,11 +32,15 @@
  *     Java - Code Style - Code Templates
  */
 public abstract class AbstractConnection implements Connection {
-  // We don't need to make each list synchronized since the class is synchronized
-
   private static final Logger log = Logger.getLogger(AbstractConnection.class);
-  protected Map<Object, List<byte[]>> outQueueMap = new HashMap<Object, List<byte[]>>();
-  protected List<List<byte[]>> outQueueList = new LinkedList<List<byte[]>>();
+
+  /**
+   * How long a send thread waits, in milliseconds, when all the channels with messages are waiting
+   * for their bandwidth cap to refill.
+   */
+  protected static final int THROTTLE_WAIT = 20;
+
+  private final MessageQueue outQueue = new MessageQueue();
   protected List<MessageHandler> messageHandlers = new CopyOnWriteArrayList<MessageHandler>();
   protected List<ActivityListener> listeners = new CopyOnWriteArrayList<ActivityListener>();
   protected List<DisconnectHandler> disconnectHandlers =
@@ -68,44 +68,37 @@ public synchronized void addMessage(byte[] message) {
     addMessage(null, message);
   }
 
-  public synchronized void addMessage(Object channel, byte[] message) {
-    List<byte[]> queue = getOutQueue(channel);
-    queue.add(message);
-    // Queue up for sending
-    outQueueList.add(queue);
+  public void addMessage(Object channel, byte[] message) {
+    outQueue.add(channel, message);
   }
 
-  protected List<byte[]> getOutQueue(Object channel) {
-    // Ordinarily I would synchronize this method, but I imagine the channels will be initialized
-    // once
-    // at the beginning of execution.  Thus get(channel) will only return once right at the
-    // beginning
-    // no sense incurring the cost of synchronizing the method on the class for that.
-    List<byte[]> queue = outQueueMap.get(channel);
-    if (queue == null) {
-      queue = Collections.synchronizedList(new ArrayList<byte[]>());
-      outQueueMap.put(channel, queue);
-    }
-    return queue;
+  public boolean hasMoreMessages() {
+    return !outQueue.isEmpty();
   }
 
-  public synchronized boolean hasMoreMessages() {
-    return !outQueueList.isEmpty();
+  /**
+   * Returns the next message to send, see {@link MessageQueue} for the order they are sent in.
+   *
+   * @return the message, or null if there are none or the channels with messages are capped and
+   *     have to wait.
+   */
+  public byte[] nextMessage() {
+    return outQueue.poll();
   }
 
-  public synchronized byte[] nextMessage() {
-    if (!hasMoreMessages()) {
-      return null;
-    }
-    List<byte[]> queue = outQueueList.remove(0);
-
-    if (queue.isEmpty()) return null;
+  /**
+   * Caps the bytes per second sent on a channel.
+   *
+   * @param channel the channel.
+   * @param bytesPerSecond the cap, 0 for no cap.
+   */
+  public void setBandwidthCap(Object channel, long bytesPerSecond) {
+    outQueue.setBandwidthCap(channel, bytesPerSecond);
+  }
 
-    byte[] message = queue.remove(0);
-    if (!queue.isEmpty()) {
-      outQueueList.add(queue);
-    }
-    return message;
+  /** @return the number of messages sent and the time they waited, by channel. */
+  public Map<Object, MessageQueue.Statistics> getChannelStatistics() {
+    return outQueue.getStatistics();
   }
 
   public final void fireDisconnect() {
@@ -0,0 +1,257 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * The messages waiting to be sent on a connection, one queue per channel.
+ *
+ * <p>The channels take turns with deficit round robin: on each turn a channel may send {@link
+ * #QUANTUM} bytes times its {@link WeightedChannel weight}, plus what it didn't use on its previous
+ * turns if it had to wait for a large message. The heaviest channels take their turn first. A
+ * channel can also be capped to a number of bytes per second, it then waits once it has used its
+ * cap until the cap refills.
+ *
+ * <p>The time each message waited in the queue is recorded per channel, see {@link
+ * #getStatistics()}.
+ */
+public class MessageQueue {
+
+  /** The bytes a channel of weight 1 may send on each turn. */
+  static final int QUANTUM = 1024;
+
+  /** The statistics of a channel, as returned by {@link #getStatistics()}. */
+  public static class Statistics {
+    private final int queued;
+    private final long messages;
+    private final long bytes;
+    private final long totalWait;
+    private final long maxWait;
+
+    Statistics(int queued, long messages, long bytes, long totalWait, long maxWait) {
+      this.queued = queued;
+      this.messages = messages;
+      this.bytes = bytes;
+      this.totalWait = totalWait;
+      this.maxWait = maxWait;
+    }
+
+    /** @return the number of messages waiting to be sent. */
+    public int getQueued() {
+      return queued;
+    }
+
+    /** @return the number of messages sent. */
+    public long getMessages() {
+      return messages;
+    }
+
+    /** @return the number of bytes sent. */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /** @return the mean time the sent messages waited in the queue, in nanoseconds. */
+    public long getMeanWait() {
+      return messages == 0 ? 0 : totalWait / messages;
+    }
+
+    /** @return the longest time a sent message waited in the queue, in nanoseconds. */
+    public long getMaxWait() {
+      return maxWait;
+    }
+  }
+
+  private static class QueuedMessage {
+    private final byte[] data;
+    private final long queueTime;
+
+    private QueuedMessage(byte[] data, long queueTime) {
+      this.data = data;
+      this.queueTime = queueTime;
+    }
+  }
+
+  private static class ChannelQueue {
+    private final Object channel;
+    private final int weight;
+    private final Queue<QueuedMessage> messages = new ArrayDeque<>();
+    private long deficit;
+    private boolean inTurn;
+
+    /** The bytes per second the channel may send, 0 if it isn't capped. */
+    private long cap;
+    /** The bytes the channel may still send before it has to wait, when capped. */
+    private double allowance;
+    private long lastRefill;
+
+    private long sentMessages;
+    private long sentBytes;
+    private long totalWait;
+    private long maxWait;
+
+    private ChannelQueue(Object channel) {
+      this.channel = channel;
+      this.weight =
+          channel instanceof WeightedChannel
+              ? Math.max(1, ((WeightedChannel) channel).getWeight())
+              : WeightedChannel.DEFAULT_WEIGHT;
+    }
+
+    private void refill(long now) {
+      if (cap > 0) {
+        // At most a second worth of sending is kept
+        allowance = Math.min(cap, allowance + cap * (now - lastRefill) / 1e9);
+      }
+      lastRefill = now;
+    }
+
+    private boolean canSend() {
+      return !messages.isEmpty() && (cap <= 0 || allowance > 0);
+    }
+  }
+
+  /** The queues, heaviest first. */
+  private final List<ChannelQueue> queues = new ArrayList<>();
+
+  private final Map<Object, ChannelQueue> queueMap = new HashMap<>();
+  private int current;
+  private int size;
+
+  private ChannelQueue getQueue(Object channel) {
+    ChannelQueue queue = queueMap.get(channel);
+    if (queue == null) {
+      queue = new ChannelQueue(channel);
+      queue.lastRefill = System.nanoTime();
+      queueMap.put(channel, queue);
+      // Stable sort, so channels of the same weight keep the order they were added in
+      ChannelQueue currentQueue = queues.isEmpty() ? null : queues.get(current);
+      queues.add(queue);
+      queues.sort(Comparator.comparingInt((ChannelQueue q) -> q.weight).reversed());
+      // A channel in the middle of its turn finishes it, otherwise the heaviest goes next
+      current = currentQueue != null && currentQueue.inTurn ? queues.indexOf(currentQueue) : 0;
+    }
+    return queue;
+  }
+
+  /**
+   * Adds a message to the queue of a channel.
+   *
+   * @param channel the channel, may be null.
+   * @param message the message.
+   */
+  public synchronized void add(Object channel, byte[] message) {
+    if (size == 0) {
+      // A new round, which starts with the heaviest channel
+      for (ChannelQueue queue : queues) {
+        queue.deficit = 0;
+        queue.inTurn = false;
+      }
+      current = 0;
+    }
+    getQueue(channel).messages.add(new QueuedMessage(message, System.nanoTime()));
+    size++;
+  }
+
+  /** @return true if there are no messages waiting. */
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the next message to send.
+   *
+   * @return the message, or null if there are none or all channels with messages are waiting for
+   *     their cap to refill.
+   */
+  public synchronized byte[] poll() {
+    long now = System.nanoTime();
+    boolean canSend = false;
+    for (ChannelQueue queue : queues) {
+      queue.refill(now);
+      canSend |= queue.canSend();
+    }
+    if (!canSend) {
+      return null;
+    }
+
+    // Ends as the deficit of a channel that can send grows on each of its turns
+    while (true) {
+      ChannelQueue queue = queues.get(current);
+      if (queue.canSend()) {
+        if (!queue.inTurn) {
+          queue.deficit += (long) queue.weight * QUANTUM;
+          queue.inTurn = true;
+        }
+        QueuedMessage message = queue.messages.peek();
+        if (message.data.length <= queue.deficit) {
+          queue.messages.remove();
+          size--;
+          queue.deficit -= message.data.length;
+          if (queue.cap > 0) {
+            queue.allowance -= message.data.length;
+          }
+          long wait = now - message.queueTime;
+          queue.sentMessages++;
+          queue.sentBytes += message.data.length;
+          queue.totalWait += wait;
+          queue.maxWait = Math.max(queue.maxWait, wait);
+          return message.data;
+        }
+      } else if (queue.messages.isEmpty()) {
+        // An idle channel doesn't save up for later
+        queue.deficit = 0;
+      }
+      queue.inTurn = false;
+      current = (current + 1) % queues.size();
+    }
+  }
+
+  /**
+   * Caps the bandwidth of a channel.
+   *
+   * @param channel the channel, may be null.
+   * @param bytesPerSecond the bytes the channel may send per second, 0 to remove the cap.
+   */
+  public synchronized void setBandwidthCap(Object channel, long bytesPerSecond) {
+    ChannelQueue queue = getQueue(channel);
+    queue.cap = Math.max(0, bytesPerSecond);
+    queue.allowance = queue.cap;
+  }
+
+  /** @return the statistics of each channel that had a message, by channel. */
+  public synchronized Map<Object, Statistics> getStatistics() {
+    Map<Object, Statistics> statistics = new LinkedHashMap<>();
+    for (ChannelQueue queue : queues) {
+      statistics.put(
+          queue.channel,
+          new Statistics(
+              queue.messages.size(),
+              queue.sentMessages,
+              queue.sentBytes,
+              queue.totalWait,
+              queue.maxWait));
+    }
+    return statistics;
+  }
+}
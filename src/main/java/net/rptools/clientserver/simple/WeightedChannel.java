@@ -0,0 +1,29 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+/**
+ * A channel messages are sent on. Channels share a connection in proportion to their weight, so a
+ * burst of messages on a light channel doesn't hold up the messages of a heavier one. Channels that
+ * don't implement this interface have the weight {@link #DEFAULT_WEIGHT}.
+ */
+public interface WeightedChannel {
+
+  /** The weight of channels without one, including the {@code null} channel. */
+  int DEFAULT_WEIGHT = 4;
+
+  /** @return the share of the connection the channel gets, relative to the other channels. */
+  int getWeight();
+}
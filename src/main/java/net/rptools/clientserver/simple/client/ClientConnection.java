@@ -14,7 +14,9 @@
  */
 package net.rptools.clientserver.simple.client;
 
+import java.util.Map;
 import net.rptools.clientserver.simple.Connection;
+import net.rptools.clientserver.simple.MessageQueue;
 
 public interface ClientConnection extends Connection {
   void sendMessage(byte[] message);
@@ -24,4 +26,15 @@ public interface ClientConnection extends Connection {
   boolean isAlive();
 
   String getId();
+
+  /**
+   * Caps the bytes per second sent on a channel.
+   *
+   * @param channel the channel.
+   * @param bytesPerSecond the cap, 0 for no cap.
+   */
+  void setBandwidthCap(Object channel, long bytesPerSecond);
+
+  /** @return the number of messages sent and the time they waited, by channel. */
+  Map<Object, MessageQueue.Statistics> getChannelStatistics();
 }
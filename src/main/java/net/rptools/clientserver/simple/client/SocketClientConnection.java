@@ -135,7 +135,8 @@ public void run() {
               try {
                 byte[] message = conn.nextMessage();
                 if (message == null) {
-                  continue;
+                  // The channels with messages wait for their bandwidth cap
+                  break;
                 }
                 conn.writeMessage(out, message);
               } catch (IndexOutOfBoundsException e) {
@@ -144,7 +145,7 @@ public void run() {
             }
             synchronized (this) {
               if (!stopRequested) {
-                this.wait();
+                this.wait(conn.hasMoreMessages() ? THROTTLE_WAIT : 0);
               }
             }
           } catch (InterruptedException e) {
@@ -508,7 +508,8 @@ public void run() {
           while (connection.hasMoreMessages()) {
             byte[] message = connection.nextMessage();
             if (message == null) {
-              continue;
+              // The channels with messages wait for their bandwidth cap
+              break;
             }
 
             ByteBuffer buffer = ByteBuffer.allocate(message.length + Integer.BYTES);
@@ -539,7 +540,7 @@ public void run() {
             if (!stopRequested) {
               try {
                 log.debug(prefix() + "sendThread -> sleep");
-                this.wait();
+                this.wait(connection.hasMoreMessages() ? THROTTLE_WAIT : 0);
                 log.debug(prefix() + "sendThread -> woke up");
               } catch (InterruptedException e) {
                 log.debug(prefix() + "sendThread -> interrupted");
@@ -53,26 +53,34 @@ public void handleMessage(String id, byte[] message) {
     dispatchMessage(id, message);
   }
 
-  public void broadcastMessage(byte[] message) {
+  public int broadcastMessage(byte[] message) {
     synchronized (clients) {
       for (ClientConnection conn : clients.values()) {
         conn.sendMessage(message);
       }
+      return clients.size();
     }
   }
 
-  public void broadcastMessage(String[] exclude, byte[] message) {
+  public int broadcastMessage(String[] exclude, byte[] message) {
+    return broadcastMessage(null, exclude, message);
+  }
+
+  public int broadcastMessage(Object channel, String[] exclude, byte[] message) {
     Set<String> excludeSet = new HashSet<String>();
     for (String e : exclude) {
       excludeSet.add(e);
     }
+    int recipients = 0;
     synchronized (clients) {
       for (Map.Entry<String, ClientConnection> entry : clients.entrySet()) {
         if (!excludeSet.contains(entry.getKey())) {
-          entry.getValue().sendMessage(message);
+          entry.getValue().sendMessage(channel, message);
+          recipients++;
         }
       }
     }
+    return recipients;
   }
 
   public void sendMessage(String id, byte[] message) {
@@ -84,6 +92,10 @@ public void sendMessage(String id, Object channel, byte[] message) {
     client.sendMessage(channel, message);
   }
 
+  public int getClientCount() {
+    return clients.size();
+  }
+
   public void close() {
     synchronized (clients) {
       for (ClientConnection conn : clients.values()) {
@@ -0,0 +1,51 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple.server;
+
+import java.util.concurrent.ExecutionException;
+import net.rptools.clientserver.simple.client.ClientConnection;
+
+/**
+ * A server connection without a socket of its own. Clients are accepted by a listener shared by
+ * several servers, which hands each one to the server it asks for with {@link
+ * #addConnection(ClientConnection)}.
+ */
+public class RoutedServerConnection extends AbstractServerConnection {
+
+  public RoutedServerConnection(HandshakeProvider handshake) {
+    super(handshake);
+  }
+
+  /**
+   * Starts the handshake of a client routed to this server.
+   *
+   * @param conn the connection to the client.
+   * @throws ExecutionException if the handshake can't be started.
+   * @throws InterruptedException if the handshake can't be started.
+   */
+  public void addConnection(ClientConnection conn) throws ExecutionException, InterruptedException {
+    handleConnection(conn);
+  }
+
+  @Override
+  public void open() {
+    // The listener is opened by the owner of the shared socket
+  }
+
+  @Override
+  public String getError() {
+    return null;
+  }
+}
@@ -26,11 +26,19 @@ public interface ServerConnection extends Connection {
 
   void removeObserver(ServerObserver observer);
 
-  void broadcastMessage(byte[] message);
+  /** @return the number of clients the message was queued for. */
+  int broadcastMessage(byte[] message);
 
-  void broadcastMessage(String[] exclude, byte[] message);
+  /** @return the number of clients the message was queued for. */
+  int broadcastMessage(String[] exclude, byte[] message);
+
+  /** @return the number of clients the message was queued for. */
+  int broadcastMessage(Object channel, String[] exclude, byte[] message);
 
   void sendMessage(String id, byte[] message);
 
   void sendMessage(String id, Object channel, byte[] message);
+
+  /** @return the number of clients connected. */
+  int getClientCount();
 }
@@ -0,0 +1,217 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an opaque RGB PNG image a few rows at a time, so that images far larger than the memory
+ * can be written. Only the rows being compressed and the previous row are held, the compressed
+ * data is written out in IDAT chunks as it is produced.
+ */
+public class PngStreamWriter implements Closeable {
+
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+  /** The most bytes of compressed data written in one IDAT chunk. */
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private static final int BYTES_PER_PIXEL = 3;
+
+  private final DataOutputStream out;
+  private final int width;
+  private final int height;
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  private final byte[] chunk = new byte[CHUNK_SIZE];
+
+  private byte[] previousRow;
+  private byte[] currentRow;
+  /** The filtered rows, one for each filter type, each starting with the filter type byte. */
+  private final byte[][] filtered = new byte[5][];
+
+  private int rowsWritten;
+
+  /**
+   * Writes the header of the image.
+   *
+   * @param out the stream to write to, which is not closed by this writer.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @throws IOException if the header cannot be written.
+   */
+  public PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+    }
+    this.out = new DataOutputStream(out);
+    this.width = width;
+    this.height = height;
+    int rowBytes = width * BYTES_PER_PIXEL;
+    previousRow = new byte[rowBytes];
+    currentRow = new byte[rowBytes];
+    for (int i = 0; i < filtered.length; i++) {
+      filtered[i] = new byte[rowBytes + 1];
+      filtered[i][0] = (byte) i;
+    }
+
+    this.out.write(SIGNATURE);
+    ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+    DataOutputStream data = new DataOutputStream(header);
+    data.writeInt(width);
+    data.writeInt(height);
+    data.writeByte(8); // bit depth
+    data.writeByte(2); // color type RGB
+    data.writeByte(0); // compression
+    data.writeByte(0); // filter
+    data.writeByte(0); // interlace
+    writeChunk("IHDR", header.toByteArray(), header.size());
+  }
+
+  /**
+   * Writes the next rows of the image.
+   *
+   * @param argb the pixels of the rows, alpha is ignored.
+   * @param offset the index of the first pixel of the first row.
+   * @param scansize the distance between the rows in {@code argb}.
+   * @param rows the number of rows to write.
+   * @throws IOException if the rows cannot be written.
+   */
+  public void writeRows(int[] argb, int offset, int scansize, int rows) throws IOException {
+    if (rowsWritten + rows > height) {
+      throw new IllegalStateException("More rows than the image height " + height);
+    }
+    for (int row = 0; row < rows; row++) {
+      int start = offset + row * scansize;
+      for (int x = 0, i = 0; x < width; x++) {
+        int pixel = argb[start + x];
+        currentRow[i++] = (byte) (pixel >> 16);
+        currentRow[i++] = (byte) (pixel >> 8);
+        currentRow[i++] = (byte) pixel;
+      }
+      deflater.setInput(filter());
+      while (!deflater.needsInput()) {
+        int length = deflater.deflate(chunk);
+        if (length > 0) {
+          writeChunk("IDAT", chunk, length);
+        }
+      }
+
+      byte[] swap = previousRow;
+      previousRow = currentRow;
+      currentRow = swap;
+      rowsWritten++;
+    }
+  }
+
+  /** @return the number of rows written so far. */
+  public int getRowsWritten() {
+    return rowsWritten;
+  }
+
+  /**
+   * Finishes the image. All rows must have been written.
+   *
+   * @throws IOException if the end of the image cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (rowsWritten != height) {
+        throw new IOException("Only " + rowsWritten + " of " + height + " rows were written");
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        int length = deflater.deflate(chunk);
+        if (length > 0) {
+          writeChunk("IDAT", chunk, length);
+        }
+      }
+      writeChunk("IEND", chunk, 0);
+      out.flush();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Gives up on the image, releasing the compressor without writing the end of the image. Used
+   * instead of {@link #close()} when the rows cannot all be written.
+   */
+  public void abort() {
+    deflater.end();
+  }
+
+  /**
+   * Filters the current row with each filter type and picks the one with the smallest sum of
+   * absolute differences, as suggested by the PNG specification.
+   */
+  private byte[] filter() {
+    int bpp = BYTES_PER_PIXEL;
+    byte[] none = filtered[0], sub = filtered[1], up = filtered[2];
+    byte[] average = filtered[3], paeth = filtered[4];
+    long[] sums = new long[5];
+    for (int i = 0; i < currentRow.length; i++) {
+      int x = currentRow[i] & 0xff;
+      int a = i >= bpp ? currentRow[i - bpp] & 0xff : 0;
+      int b = previousRow[i] & 0xff;
+      int c = i >= bpp ? previousRow[i - bpp] & 0xff : 0;
+
+      none[i + 1] = (byte) x;
+      sub[i + 1] = (byte) (x - a);
+      up[i + 1] = (byte) (x - b);
+      average[i + 1] = (byte) (x - ((a + b) >> 1));
+      paeth[i + 1] = (byte) (x - paethPredictor(a, b, c));
+      for (int f = 0; f < 5; f++) {
+        sums[f] += Math.abs((int) filtered[f][i + 1]);
+      }
+    }
+    int best = 0;
+    for (int f = 1; f < 5; f++) {
+      if (sums[f] < sums[best]) {
+        best = f;
+      }
+    }
+    return filtered[best];
+  }
+
+  private static int paethPredictor(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  private void writeChunk(String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+}
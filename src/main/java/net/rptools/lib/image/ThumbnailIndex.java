@@ -0,0 +1,337 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.image;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Index of the thumbnails of a directory, stored in a single pack file. Each record of the pack
+ * holds the path, modification time and length of the original file, the size the thumbnail was
+ * made for and the PNG data of the thumbnail. The index of the records is read when the pack is
+ * opened, after which a thumbnail is found without touching the disk and read from the pack with a
+ * single positional read.
+ *
+ * <p>Records are only ever appended, a thumbnail made again replaces the earlier record in the
+ * index. When more than half of the pack is taken by replaced records it is compacted the next time
+ * it is opened. Packs are named by a generation number, so that a new pack can be written next to
+ * the old one. Thumbnail files of earlier versions, named by the MD5 sum of the path of their file,
+ * are deleted when the pack is opened.
+ */
+class ThumbnailIndex {
+  private static final Logger log = LogManager.getLogger(ThumbnailIndex.class);
+
+  private static final String PACK_PREFIX = "thumbnails-";
+  private static final String PACK_SUFFIX = ".pack";
+  private static final int RECORD_MAGIC = 0x54484d42;
+
+  /** The names of the thumbnail files of earlier versions, one file per thumbnail. */
+  private static final Pattern OLD_THUMBNAIL_NAME = Pattern.compile("[0-9a-fA-F]{32}");
+
+  /** Packs smaller than this are never compacted. */
+  private static final long MIN_COMPACT_SIZE = 4 * 1024 * 1024;
+
+  /** The indexes opened so far, by directory, so that each pack is only written by one index. */
+  private static final Map<File, ThumbnailIndex> indexes = new HashMap<>();
+
+  /** The details of a thumbnail record. */
+  record Entry(long lastModified, long length, int width, int height, long offset, int size) {}
+
+  private final File directory;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private int generation;
+  private FileChannel channel;
+  private long liveBytes;
+
+  private ThumbnailIndex(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the index of the thumbnails in a directory, opening it if needed.
+   *
+   * @param directory the directory of the thumbnails.
+   * @return the index.
+   * @throws IOException if the pack cannot be opened.
+   */
+  static ThumbnailIndex forDirectory(File directory) throws IOException {
+    synchronized (indexes) {
+      ThumbnailIndex index = indexes.get(directory.getAbsoluteFile());
+      if (index == null) {
+        index = open(directory);
+        indexes.put(directory.getAbsoluteFile(), index);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Opens the index of the thumbnails in a directory. Only one index may be open for a directory,
+   * use {@link #forDirectory(File)} to share it.
+   *
+   * @param directory the directory of the thumbnails.
+   * @return the index.
+   * @throws IOException if the pack cannot be opened.
+   */
+  static ThumbnailIndex open(File directory) throws IOException {
+    ThumbnailIndex index = new ThumbnailIndex(directory);
+    index.openPack();
+    return index;
+  }
+
+  /**
+   * Closes the pack. The index must not be used afterwards.
+   *
+   * @throws IOException if the pack cannot be closed.
+   */
+  synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private File getPackFile(int generation) {
+    return new File(directory, PACK_PREFIX + generation + PACK_SUFFIX);
+  }
+
+  private synchronized void openPack() throws IOException {
+    directory.mkdirs();
+    generation = 0;
+    File[] packs = directory.listFiles((dir, name) -> name.startsWith(PACK_PREFIX));
+    if (packs != null) {
+      for (File pack : packs) {
+        String name = pack.getName();
+        try {
+          int packGeneration =
+              Integer.parseInt(
+                  name.substring(PACK_PREFIX.length(), name.length() - PACK_SUFFIX.length()));
+          generation = Math.max(generation, packGeneration);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          // Not one of ours
+        }
+      }
+      // Remove packs left from earlier generations
+      for (File pack : packs) {
+        if (!pack.equals(getPackFile(generation))) {
+          pack.delete();
+        }
+      }
+    }
+    File[] oldThumbnails =
+        directory.listFiles((dir, name) -> OLD_THUMBNAIL_NAME.matcher(name).matches());
+    if (oldThumbnails != null) {
+      for (File oldThumbnail : oldThumbnails) {
+        oldThumbnail.delete();
+      }
+    }
+
+    channel =
+        FileChannel.open(
+            getPackFile(generation).toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    readRecords();
+
+    if (channel.size() > MIN_COMPACT_SIZE && liveBytes * 2 < channel.size()) {
+      compact();
+    }
+  }
+
+  /** Reads the index of the records, dropping an incomplete record at the end of the pack. */
+  private void readRecords() throws IOException {
+    entries.clear();
+    long position = 0;
+    var in =
+        new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+    try {
+      while (position < channel.size()) {
+        if (in.readInt() != RECORD_MAGIC) {
+          break;
+        }
+        int recordLength = in.readInt();
+        String path = in.readUTF();
+        long lastModified = in.readLong();
+        long length = in.readLong();
+        int width = in.readInt();
+        int height = in.readInt();
+        int size = in.readInt();
+        long end = position + 8 + recordLength;
+        if (size < 0 || end > channel.size()) {
+          break;
+        }
+        in.skipNBytes(size);
+        entries.put(path, new Entry(lastModified, length, width, height, end - size, size));
+        position = end;
+      }
+    } catch (EOFException e) {
+      // Incomplete record, dropped below
+    }
+    if (position < channel.size()) {
+      log.warn("Dropping damaged thumbnail records from {}", getPackFile(generation));
+      channel.truncate(position);
+    }
+    liveBytes = 0;
+    for (var e : entries.entrySet()) {
+      liveBytes += recordHeaderSize(e.getKey()) + e.getValue().size();
+    }
+  }
+
+  /** Returns the number of bytes in a record before the thumbnail data. */
+  private static int recordHeaderSize(String path) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      new DataOutputStream(bytes).writeUTF(path);
+      return 8 + bytes.size() + 8 + 8 + 4 + 4 + 4;
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Writes the live records to a pack of the next generation. */
+  private void compact() throws IOException {
+    Map<String, Entry> live = new HashMap<>(entries);
+    FileChannel old = channel;
+    File oldPack = getPackFile(generation);
+    startNextGeneration();
+    for (var e : live.entrySet()) {
+      Entry entry = e.getValue();
+      append(
+          e.getKey(),
+          entry.lastModified(),
+          entry.length(),
+          entry.width(),
+          entry.height(),
+          read(old, oldPack, entry));
+    }
+    old.close();
+    oldPack.delete();
+  }
+
+  private void startNextGeneration() throws IOException {
+    generation++;
+    entries.clear();
+    liveBytes = 0;
+    channel =
+        FileChannel.open(
+            getPackFile(generation).toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Returns the entry for a file.
+   *
+   * @param path the absolute path of the file.
+   * @return the entry, or null if there is no thumbnail of the file.
+   */
+  synchronized Entry get(String path) {
+    return entries.get(path);
+  }
+
+  /**
+   * Reads the data of a thumbnail from the pack.
+   *
+   * @param entry the entry of the thumbnail.
+   * @return the PNG data of the thumbnail.
+   * @throws IOException if the pack cannot be read.
+   */
+  synchronized byte[] read(Entry entry) throws IOException {
+    return read(channel, getPackFile(generation), entry);
+  }
+
+  private static byte[] read(FileChannel channel, File pack, Entry entry) throws IOException {
+    ByteBuffer data = ByteBuffer.allocate(entry.size());
+    while (data.hasRemaining()) {
+      if (channel.read(data, entry.offset() + data.position()) < 0) {
+        throw new EOFException("Thumbnail record past the end of " + pack);
+      }
+    }
+    return data.array();
+  }
+
+  /**
+   * Adds a thumbnail, replacing any earlier thumbnail of the file.
+   *
+   * @param path the absolute path of the file.
+   * @param lastModified the modification time of the file.
+   * @param length the length of the file.
+   * @param width the width the thumbnail was made for.
+   * @param height the height the thumbnail was made for.
+   * @param data the PNG data of the thumbnail.
+   * @throws IOException if the thumbnail cannot be written.
+   */
+  synchronized void put(
+      String path, long lastModified, long length, int width, int height, byte[] data)
+      throws IOException {
+    Entry previous = entries.get(path);
+    if (previous != null) {
+      liveBytes -= recordHeaderSize(path) + previous.size();
+    }
+    append(path, lastModified, length, width, height, data);
+  }
+
+  private void append(
+      String path, long lastModified, long length, int width, int height, byte[] data)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(recordHeaderSize(path) + data.length);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(path);
+    out.writeLong(lastModified);
+    out.writeLong(length);
+    out.writeInt(width);
+    out.writeInt(height);
+    out.writeInt(data.length);
+    int headerSize = 8 + bytes.size();
+    out.write(data);
+
+    ByteBuffer record = ByteBuffer.allocate(8 + bytes.size());
+    record.putInt(RECORD_MAGIC).putInt(bytes.size()).put(bytes.toByteArray()).flip();
+    long position = channel.size();
+    while (record.hasRemaining()) {
+      channel.write(record, position + record.position());
+    }
+    entries.put(
+        path,
+        new Entry(lastModified, length, width, height, position + headerSize, data.length));
+    liveBytes += record.capacity();
+  }
+
+  /**
+   * Removes all thumbnails. A new pack is started and the old one is deleted.
+   *
+   * @throws IOException if the new pack cannot be created.
+   */
+  synchronized void clear() throws IOException {
+    File oldPack = getPackFile(generation);
+    channel.close();
+    startNextGeneration();
+    oldPack.delete();
+  }
+}
@@ -19,16 +19,38 @@
 import java.awt.Image;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
-import net.rptools.lib.MD5Key;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import net.rptools.lib.swing.SwingUtil;
 import org.apache.commons.io.FileUtils;
-
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Makes thumbnails of image files and keeps them in a {@link ThumbnailIndex} in the thumbnail
+ * location. A thumbnail is made again when the modification time or length of the file changes, or
+ * when the thumbnail size changes. Large images are decoded with subsampling so that the full
+ * resolution image is never held in memory.
+ *
+ * <p>This class is thread safe, thumbnails can be made on several threads at once.
+ */
 public class ThumbnailManager {
+  private static final Logger log = LogManager.getLogger(ThumbnailManager.class);
+
+  /** Files smaller than this are used as they are, instead of making a thumbnail. */
+  private static final long MIN_THUMBNAIL_FILE_SIZE = 102400;
+
   private final File thumbnailLocation;
   private final Dimension thumbnailSize;
+  private ThumbnailIndex index;
 
   public ThumbnailManager(File thumbnailLocation, Dimension thumbnailSize) {
     this.thumbnailLocation = thumbnailLocation;
@@ -43,31 +65,41 @@ public Dimension getThumbnailSize() {
     return thumbnailSize;
   }
 
+  private synchronized ThumbnailIndex getIndex() throws IOException {
+    if (index == null) {
+      index = ThumbnailIndex.forDirectory(thumbnailLocation);
+    }
+    return index;
+  }
+
   public Image getThumbnail(File file) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    long length = attributes.size();
+
     // Cache
-    BufferedImage thumbnail = getCachedThumbnail(file);
+    BufferedImage thumbnail = getCachedThumbnail(file, lastModified, length);
     if (thumbnail != null) {
       return thumbnail;
     }
     // Create
-    return createThumbnail(file);
+    return createThumbnail(file, lastModified, length);
   }
 
-  private Image createThumbnail(File file) throws IOException {
-    // Gather info
-    File thumbnailFile = getThumbnailFile(file);
-    if (thumbnailFile.exists()) {
-      return ImageUtil.getImage(thumbnailFile);
+  private Image createThumbnail(File file, long lastModified, long length) throws IOException {
+    // Jamz: New size 100k (was 30k) and put in check so we're not creating thumbnails LARGER than
+    // the original...
+    if (length < MIN_THUMBNAIL_FILE_SIZE) {
+      return ImageUtil.getImage(file);
+    }
+    Image image = readSubsampled(file);
+    if (image == null) {
+      image = ImageUtil.getImage(file);
     }
-
-    Image image = ImageUtil.getImage(file);
     Dimension imgSize = new Dimension(image.getWidth(null), image.getHeight(null));
 
     // Test if we Should we bother making a thumbnail ?
-    // Jamz: New size 100k (was 30k) and put in check so we're not creating thumbnails LARGER than
-    // the original...
-    if (file.length() < 102400
-        || (imgSize.width <= thumbnailSize.width && imgSize.height <= thumbnailSize.height)) {
+    if (imgSize.width <= thumbnailSize.width && imgSize.height <= thumbnailSize.height) {
       return image;
     }
     // Transform the image
@@ -80,53 +112,91 @@ private Image createThumbnail(File file) throws IOException {
 
     Graphics2D g = thumbnailImage.createGraphics();
     g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    g.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
     g.drawImage(image, 0, 0, imgSize.width, imgSize.height, null);
     g.dispose();
 
     // Use png to preserve transparency
-    FileUtils.writeByteArrayToFile(thumbnailFile, ImageUtil.imageToBytes(thumbnailImage, "png"));
+    getIndex()
+        .put(
+            file.getAbsolutePath(),
+            lastModified,
+            length,
+            thumbnailSize.width,
+            thumbnailSize.height,
+            ImageUtil.imageToBytes(thumbnailImage, "png"));
 
     return thumbnailImage;
   }
 
+  /**
+   * Reads an image, skipping rows and columns while keeping at least twice the thumbnail size so
+   * that the scaled down thumbnail stays smooth.
+   *
+   * @param file the image file.
+   * @return the image, or null if no image reader can read the file.
+   * @throws IOException if the file cannot be read.
+   */
+  private BufferedImage readSubsampled(File file) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+      if (in == null) {
+        return null;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int subsampling =
+            Math.max(1, Math.min(width / thumbnailSize.width, height / thumbnailSize.height) / 2);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+      } catch (IOException | RuntimeException e) {
+        log.debug("Unable to read {} with subsampling", file, e);
+        return null;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
   public void clearImageThumbCache() {
     try {
       if (thumbnailLocation != null) {
         FileUtils.cleanDirectory(thumbnailLocation);
       }
     } catch (IOException e) {
-      // TODO Auto-generated catch block
-      e.printStackTrace();
+      // The pack is open for reading, it is deleted when the index is cleared or next opened
+      log.debug("Unable to clear all of {}", thumbnailLocation, e);
+    }
+    try {
+      getIndex().clear();
+    } catch (IOException e) {
+      log.error("Unable to clear the thumbnail index", e);
     }
   }
 
-  private BufferedImage getCachedThumbnail(File file) {
-    File thumbnailFile = getThumbnailFile(file);
-
-    if (!thumbnailFile.exists()) {
-      return null;
-    }
+  private BufferedImage getCachedThumbnail(File file, long lastModified, long length) {
     try {
-      // Check that it hasn't changed on disk
-      if (file.lastModified() > thumbnailFile.lastModified()) {
+      ThumbnailIndex.Entry entry = getIndex().get(file.getAbsolutePath());
+      // Check that it hasn't changed on disk, and that we have the size we want
+      if (entry == null
+          || entry.lastModified() != lastModified
+          || entry.length() != length
+          || entry.width() != thumbnailSize.width
+          || entry.height() != thumbnailSize.height) {
         return null;
       }
       // Get the thumbnail
-      BufferedImage thumbnail = ImageIO.read(thumbnailFile);
-
-      // Check that we have the size we want
-      if (thumbnail.getWidth() != thumbnailSize.width
-          && thumbnail.getHeight() != thumbnailSize.height) {
-        return null;
-      }
-      return thumbnail;
+      return ImageIO.read(new ByteArrayInputStream(getIndex().read(entry)));
     } catch (IOException ioe) {
       return null;
     }
   }
-
-  private File getThumbnailFile(File file) {
-    MD5Key key = new MD5Key(file.getAbsolutePath().getBytes());
-    return new File(thumbnailLocation.getPath(), key.toString());
-  }
 }
@@ -242,7 +242,22 @@ public Object getContent(String fileVersion) throws IOException {
    */
   public Object getContent(ModelVersionManager versionManager, String fileVersion)
       throws IOException {
-    try (Reader r = getFileAsReader(CONTENT_FILE)) {
+    return getFileObject(CONTENT_FILE, versionManager, fileVersion);
+  }
+
+  /**
+   * Same as {@link #getFileObject(String)} except that the transforms of <code>versionManager
+   * </code> for <code>fileVersion</code> are applied to the XML before it is deserialized.
+   *
+   * @param path zip file archive path entry
+   * @param versionManager which set of transforms to apply to older file versions
+   * @param fileVersion such as "1.3.70"
+   * @return the results of the deserialization
+   * @throws IOException If an I/O error occurs
+   */
+  public Object getFileObject(String path, ModelVersionManager versionManager, String fileVersion)
+      throws IOException {
+    try (Reader r = getFileAsReader(path)) {
       if (versionManager != null && versionManager.isTransformationRequired(fileVersion)) {
         String xml = IOUtils.toString(r);
         xml = versionManager.transform(xml, fileVersion);
@@ -250,10 +265,10 @@ public Object getContent(ModelVersionManager versionManager, String fileVersion)
         // classes/fields added.
         return xstream.fromXML(xml);
       } else {
-        return getFileObject(CONTENT_FILE);
+        return getFileObject(path);
       }
     } catch (NullPointerException npe) {
-      log.error("Problem finding/converting content file", npe);
+      log.error("Problem finding/converting " + path, npe);
       return null;
     }
   }
@@ -15,6 +15,7 @@
 package net.rptools.lib.net;
 
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -73,6 +74,11 @@ public void putContent(InputStream content) throws IOException {
     }
   }
 
+  public OutputStream openContentStream() throws IOException {
+    return new BufferedOutputStream(
+        new URL(composeFileLocation()).openConnection().getOutputStream());
+  }
+
   public void putContent(ImageWriter writer, BufferedImage content) throws IOException {
     try (OutputStream os = new URL(composeFileLocation()).openConnection().getOutputStream()) {
       writer.setOutput(os);
@@ -53,6 +53,10 @@ public void putContent(InputStream content) throws IOException {
     }
   }
 
+  public OutputStream openContentStream() throws IOException {
+    return new BufferedOutputStream(new FileOutputStream(getFile()));
+  }
+
   public void putContent(ImageWriter writer, BufferedImage content) throws IOException {
     try (FileImageOutputStream out = new FileImageOutputStream(getFile())) {
       writer.setOutput(out);
@@ -17,6 +17,7 @@
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import javax.imageio.ImageWriter;
 
 public interface Location {
@@ -24,5 +25,13 @@ public interface Location {
 
   public void putContent(InputStream content) throws IOException;
 
+  /**
+   * Opens a stream to write the content to, for content that is too large to be held in memory.
+   *
+   * @return the stream, which must be closed by the caller.
+   * @throws IOException if the location cannot be written.
+   */
+  public OutputStream openContentStream() throws IOException;
+
   public InputStream getContent() throws IOException;
 }
@@ -82,6 +82,7 @@
 import net.rptools.maptool.client.ui.StartServerDialogPreferences;
 import net.rptools.maptool.client.ui.StaticMessageDialog;
 import net.rptools.maptool.client.ui.SysInfoDialog;
+import net.rptools.maptool.client.ui.TrafficStatisticsDialog;
 import net.rptools.maptool.client.ui.assetpanel.AssetPanel;
 import net.rptools.maptool.client.ui.assetpanel.Directory;
 import net.rptools.maptool.client.ui.campaignproperties.CampaignPropertiesDialog;
@@ -712,6 +713,27 @@ protected void executeAction() {
         }
       };
 
+  public static final Action SHOW_TRAFFIC_STATISTICS =
+      new DefaultClientAction() {
+        {
+          init("action.showTrafficStatistics");
+        }
+
+        @Override
+        public boolean isAvailable() {
+          return super.isAvailable() && (MapTool.isPersonalServer() || MapTool.isHostingServer());
+        }
+
+        @Override
+        protected void executeAction() {
+          if (MapTool.getServer() == null) {
+            return;
+          }
+
+          new TrafficStatisticsDialog(MapTool.getServer().getTrafficStatistics()).setVisible(true);
+        }
+      };
+
   public static final Action SHOW_PREFERENCES =
       new DefaultClientAction() {
         {
@@ -2417,6 +2439,14 @@ protected void executeAction() {
                 boolean failed = false;
                 try {
                   ConnectToServerDialogPreferences prefs = new ConnectToServerDialogPreferences();
+                  // A campaign session of a multi campaign server is joined with "host/session"
+                  String hostName = dialog.getServer();
+                  String sessionName = null;
+                  int sessionIndex = hostName.indexOf('/');
+                  if (sessionIndex >= 0) {
+                    sessionName = hostName.substring(sessionIndex + 1);
+                    hostName = hostName.substring(0, sessionIndex);
+                  }
                   ServerConfig config =
                       new ServerConfig(
                           prefs.getUsername(),
@@ -2424,7 +2454,8 @@ protected void executeAction() {
                           "",
                           dialog.getPort(),
                           prefs.getServerName(),
-                          dialog.getServer());
+                          hostName);
+                  config.setSessionName(sessionName);
 
                   String password =
                       prefs.getUsePublicKey()
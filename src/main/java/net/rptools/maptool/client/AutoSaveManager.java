@@ -18,6 +18,7 @@
 import javax.swing.*;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.util.CampaignSnapshots;
 import net.rptools.maptool.util.PersistenceUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,6 +34,9 @@ public class AutoSaveManager {
   private Timer autoSaveTimer;
   private long lastAutoSave = -1;
 
+  /** Keeps the zones captured by the last autosave, to capture only changed zones next time. */
+  private final CampaignSnapshots snapshots = new CampaignSnapshots();
+
   public static final File AUTOSAVE_FILE =
       new File(
           AppUtil.getAppHome("autosave"), // $NON-NLS-1$
@@ -94,15 +98,15 @@ private boolean executeAndContinue() {
     // This occurs on the event dispatch thread, so it's ok to mess with the models.  (XXX Is this
     // true?  What about
     // updates coming in on the network?)
-    // We need to clone the campaign so that we can save in the background, but
-    // not have concurrency issues with the original model.
-    //
-    // NOTE: This is a cheesy way to clone the campaign, but it makes it so that I
-    // don't have to keep all the various models' clone methods updated on each change.
-    final Campaign campaign = new Campaign(MapTool.getCampaign());
+    // We need to capture the campaign so that we can save in the background, but
+    // not have concurrency issues with the original model. Only the zones that changed since the
+    // last autosave are captured again.
+    final Campaign campaign = snapshots.capture(MapTool.getCampaign());
     log.info(
-        "Time to copy Campaign object (ms): "
-            + (System.currentTimeMillis() - startCopy)); // $NON-NLS-1$
+        "Time to capture Campaign object (ms): "
+            + (System.currentTimeMillis() - startCopy)
+            + ", zones captured again: "
+            + snapshots.getChangedZoneCount()); // $NON-NLS-1$
 
     new SaveWorker(campaign).execute();
 
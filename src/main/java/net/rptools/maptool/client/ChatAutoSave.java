@@ -15,7 +15,6 @@
 package net.rptools.maptool.client;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Timer;
@@ -70,9 +69,7 @@ public void run() {
               MapTool.getFrame()
                   .setStatusMessage(
                       I18N.getString("ChatAutoSave.status.chatAutosave")); // $NON-NLS-1$
-              try (FileWriter writer = new FileWriter(chatFile)) {
-                writer.write(chat.getMessageHistory());
-              }
+              chat.saveMessageHistory(chatFile);
               if (log.isInfoEnabled()) log.info("Log saved"); // $NON-NLS-1$
             } catch (IOException e) {
               // If this happens should we track it and turn off the autosave? Perhaps
@@ -28,8 +28,11 @@ public enum COMMAND {
     getAsset,
     removeAsset,
     putToken,
+    putTokens,
     editToken,
     updateTokenProperty,
+    updateTokenProperties,
+    patchToken,
     removeToken,
     removeTokens,
     draw,
@@ -66,6 +69,7 @@ public enum COMMAND {
     updateCampaign,
     updateInitiative,
     updateTokenInitiative,
+    patchInitiative,
     setUseVision,
     updateCampaignMacros,
     updateGmMacros,
@@ -87,7 +91,8 @@ public enum COMMAND {
     updateDataNamespace,
     removeDataStore,
     removeDataNamespace,
-    removeData
+    removeData,
+    updateDataDelta
     // scale a player's view
     // @formatter:on
   };
@@ -45,12 +45,15 @@
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Grid;
 import net.rptools.maptool.model.InitiativeList;
+import net.rptools.maptool.model.InitiativePatch;
 import net.rptools.maptool.model.InitiativeList.TokenInitiative;
 import net.rptools.maptool.model.Label;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Pointer;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.TokenPatch;
+import net.rptools.maptool.model.TokenPropertyUpdate;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.Zone.VisionType;
 import net.rptools.maptool.model.ZonePoint;
@@ -58,8 +61,10 @@
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.drawing.Pen;
 import net.rptools.maptool.model.gamedata.DataStoreManager;
+import net.rptools.maptool.model.gamedata.GameDataDeltaSequences;
 import net.rptools.maptool.model.gamedata.GameDataImporter;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import net.rptools.maptool.model.library.LibraryManager;
@@ -82,6 +87,8 @@
 public class ClientMethodHandler extends AbstractMethodHandler {
   private static final Logger log = Logger.getLogger(ClientMethodHandler.class);
 
+  private final GameDataDeltaSequences dataDeltaSequences = new GameDataDeltaSequences();
+
   public ClientMethodHandler() {}
 
   public void handleMethod(final String id, final String method, final Object... parameters) {
@@ -233,6 +240,18 @@ public void handleMethod(final String id, final String method, final Object... p
               e);
         }
         break;
+
+      case updateDataDelta:
+        try {
+          var delta = GameDataDeltaDto.parseFrom((byte[]) parameters[0]);
+          if (dataDeltaSequences.accept(delta)) {
+            var dataStore = new DataStoreManager().getDefaultDataStoreForRemoteUpdate();
+            new GameDataImporter(dataStore).importData(delta);
+          }
+        } catch (IOException | ExecutionException | InterruptedException e) {
+          MapTool.showError("data.error.receivingUpdate", e);
+        }
+        break;
     }
 
     // Model events need to update on the EDT
@@ -370,6 +389,13 @@ public void handleMethod(final String id, final String method, final Object... p
               MapTool.getFrame().refresh();
               return;
 
+            case putTokens:
+              zoneGUID = (GUID) parameters[0];
+              zone = MapTool.getCampaign().getZone(zoneGUID);
+              zone.putTokens((List<Token>) parameters[1]);
+              MapTool.getFrame().refresh();
+              return;
+
             case putLabel:
               zoneGUID = (GUID) parameters[0];
               zone = MapTool.getCampaign().getZone(zoneGUID);
@@ -389,6 +415,31 @@ public void handleMethod(final String id, final String method, final Object... p
               }
               return;
 
+            case patchToken:
+              zoneGUID = (GUID) parameters[0];
+              zone = MapTool.getCampaign().getZone(zoneGUID);
+              TokenPatch patch = (TokenPatch) parameters[1];
+              token = zone.getToken(patch.getTokenGUID());
+              if (token != null) {
+                token.applyPatch(patch);
+                zone.putToken(token);
+                MapTool.getFrame().refresh();
+              }
+              return;
+
+            case updateTokenProperties:
+              zoneGUID = (GUID) parameters[0];
+              zone = MapTool.getCampaign().getZone(zoneGUID);
+              zone.beginTokenBatch();
+              try {
+                for (TokenPropertyUpdate update : (List<TokenPropertyUpdate>) parameters[1]) {
+                  update.apply(zone);
+                }
+              } finally {
+                zone.endTokenBatch();
+              }
+              return;
+
             case removeToken:
               zoneGUID = (GUID) parameters[0];
               zone = MapTool.getCampaign().getZone(zoneGUID);
@@ -738,6 +789,13 @@ public void handleMethod(final String id, final String method, final Object... p
               ti.update((Boolean) parameters[2], (String) parameters[3]);
               return;
 
+            case patchInitiative:
+              InitiativePatch initiativePatch = (InitiativePatch) parameters[0];
+              zone = MapTool.getCampaign().getZone(initiativePatch.getZoneId());
+              if (zone == null) return;
+              zone.getInitiativeList().applyPatch(initiativePatch);
+              return;
+
             case setUseVision:
               zoneGUID = (GUID) parameters[0];
               VisionType visionType = (VisionType) parameters[1];
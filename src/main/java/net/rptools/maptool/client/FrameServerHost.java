@@ -0,0 +1,49 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client;
+
+import javax.swing.SwingUtilities;
+import net.rptools.maptool.model.TextMessage;
+import net.rptools.maptool.model.player.PlayerAwaitingApproval;
+import net.rptools.maptool.server.ServerHost;
+
+/**
+ * Host of a server started from the MapTool frame. Messages are written to the chat of the host
+ * player and players waiting for approval are shown in the connections panel.
+ */
+public class FrameServerHost implements ServerHost {
+
+  @Override
+  public void showMessage(String message) {
+    SwingUtilities.invokeLater(() -> MapTool.addServerMessage(TextMessage.me(null, message)));
+  }
+
+  @Override
+  public void showWarning(String message, Throwable cause) {
+    SwingUtilities.invokeLater(() -> MapTool.showWarning(message, cause));
+  }
+
+  @Override
+  public void addAwaitingApproval(PlayerAwaitingApproval player) {
+    SwingUtilities.invokeLater(
+        () -> MapTool.getFrame().getConnectionPanel().addAwaitingApproval(player));
+  }
+
+  @Override
+  public void removeAwaitingApproval(String name) {
+    SwingUtilities.invokeLater(
+        () -> MapTool.getFrame().getConnectionPanel().removeAwaitingApproval(name));
+  }
+}
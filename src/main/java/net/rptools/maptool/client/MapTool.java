@@ -74,7 +74,6 @@
 import net.rptools.maptool.client.ui.logger.LogConsoleFrame;
 import net.rptools.maptool.client.ui.zone.PlayerView;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
-import net.rptools.maptool.client.ui.zone.ZoneRendererFactory;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.AssetManager;
 import net.rptools.maptool.model.Campaign;
@@ -231,6 +230,11 @@ public static String generateMessage(String msgKey, Throwable t) {
   public static void showMessage(
       String message, String titleKey, int messageType, Object... params) {
     String title = I18N.getText(titleKey, params);
+    if (GraphicsEnvironment.isHeadless()) {
+      // A headless server has nobody to show a dialog to
+      log.info(title + ": " + I18N.getText(message, params));
+      return;
+    }
     JOptionPane.showMessageDialog(
         clientFrame, "<html>" + I18N.getText(message, params), title, messageType);
   }
@@ -253,6 +257,10 @@ public static void showMessage(
   public static void showMessage(
       Object[] messages, String titleKey, int messageType, Object... params) {
     String title = I18N.getText(titleKey, params);
+    if (GraphicsEnvironment.isHeadless()) {
+      log.info(title + ": " + Arrays.toString(messages));
+      return;
+    }
     JList list = new JList(messages);
     JOptionPane.showMessageDialog(clientFrame, list, title, messageType);
   }
@@ -541,6 +549,9 @@ public static void updateServerPolicy(ServerPolicy policy) {
     if (serverCommand != null) {
       serverCommand.setServerPolicy(policy);
     }
+    if (clientFrame != null) {
+      clientFrame.getToolbox().updateTools();
+    }
   }
 
   public static boolean isInFocus() {
@@ -977,15 +988,20 @@ public static void setCampaign(Campaign campaign, GUID defaultRendererId) {
       return;
     }
 
-    // Install new campaign
-    for (Zone zone : campaign.getZones()) {
-      ZoneRenderer renderer = ZoneRendererFactory.newRenderer(zone);
-      clientFrame.addZoneRenderer(renderer);
-      if ((currRenderer == null || zone.getId().equals(defaultRendererId))
-          && (getPlayer().isGM() || zone.isVisible())) {
+    // Install new campaign. Zones still in the campaign file get their renderers when needed.
+    for (GUID zoneId : campaign.getZoneIds()) {
+      boolean isDefault = zoneId.equals(defaultRendererId);
+      if (currRenderer != null && !isDefault && campaign.isZoneUnloaded(zoneId)) {
+        continue;
+      }
+      ZoneRenderer renderer = clientFrame.getZoneRenderer(zoneId); // creates the renderer
+      if (renderer == null) {
+        continue; // the zone could not be read
+      }
+      if ((currRenderer == null || isDefault)
+          && (getPlayer().isGM() || renderer.getZone().isVisible())) {
         currRenderer = renderer;
       }
-      eventDispatcher.fireEvent(ZoneEvent.Added, campaign, null, zone);
     }
     clientFrame.setCurrentZoneRenderer(currRenderer);
     clientFrame.getInitiativePanel().setOwnerPermissions(campaign.isInitiativeOwnerPermissions());
@@ -1042,7 +1058,7 @@ public static void startServer(
 
     // TODO: the client and server campaign MUST be different objects.
     // Figure out a better init method
-    server = new MapToolServer(config, policy, playerDatabase);
+    server = new MapToolServer(config, policy, playerDatabase, new FrameServerHost());
 
     serverPolicy = server.getPolicy();
     if (copyCampaign) {
@@ -1156,7 +1172,7 @@ public static void addZone(Zone zone) {
   }
 
   public static void addZone(Zone zone, boolean changeZone) {
-    if (getCampaign().getZones().size() == 1) {
+    if (getCampaign().getZoneCount() == 1) {
       // Remove the default map
       Zone singleZone = getCampaign().getZones().get(0);
       if (ZoneFactory.DEFAULT_MAP_NAME.equals(singleZone.getName()) && singleZone.isEmpty()) {
@@ -1165,13 +1181,11 @@ public static void addZone(Zone zone, boolean changeZone) {
     }
     getCampaign().putZone(zone);
     serverCommand().putZone(zone);
-    eventDispatcher.fireEvent(ZoneEvent.Added, getCampaign(), null, zone);
+    ZoneRenderer renderer = clientFrame.getZoneRenderer(zone.getId()); // creates the renderer
 
     // Show the new zone
     if (changeZone) {
-      clientFrame.setCurrentZoneRenderer(ZoneRendererFactory.newRenderer(zone));
-    } else {
-      getFrame().getZoneRenderers().add(ZoneRendererFactory.newRenderer(zone));
+      clientFrame.setCurrentZoneRenderer(renderer);
     }
   }
 
@@ -1384,7 +1398,7 @@ private static void postInitialize() {
    */
   public static boolean isCampaignDirty() {
     // TODO: This is a very naive check, but it's better than nothing
-    if (getCampaign().getZones().size() == 1) {
+    if (getCampaign().getZoneCount() == 1) {
       Zone singleZone = MapTool.getCampaign().getZones().get(0);
       if (ZoneFactory.DEFAULT_MAP_NAME.equals(singleZone.getName()) && singleZone.isEmpty()) {
         return false;
@@ -17,8 +17,10 @@
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import net.rptools.clientserver.ConnectionFactory;
+import net.rptools.clientserver.hessian.HessianUtils;
 import net.rptools.clientserver.hessian.client.MethodClientConnection;
 import net.rptools.maptool.client.ui.ActivityMonitorPanel;
+import net.rptools.maptool.common.MapToolConstants.Channel;
 import net.rptools.maptool.model.player.LocalPlayer;
 import net.rptools.maptool.server.ClientHandshake;
 import net.rptools.maptool.server.Handshake;
@@ -42,7 +44,7 @@ public MapToolConnection(ServerConfig config, LocalPlayer player) throws IOExcep
     this.connection =
         ConnectionFactory.getInstance().createClientConnection(player.getName(), config);
     this.player = player;
-    this.handshake = new ClientHandshake(connection, player);
+    this.handshake = new ClientHandshake(connection, player, config.getSessionName());
     onCompleted = () -> {};
   }
 
@@ -97,6 +99,7 @@ public void close() throws IOException {
   }
 
   public void callMethod(String name, Object[] params) {
-    connection.callMethod(name, params);
+    // Sent on the channel of the command, so that pointers and token drags aren't held up
+    connection.sendMessage(Channel.forMethod(name), HessianUtils.methodToBytesGZ(name, params));
   }
 }
@@ -28,12 +28,12 @@
 import net.rptools.maptool.client.ui.htmlframe.HTMLFrameFactory;
 import net.rptools.maptool.client.ui.htmlframe.HTMLFrameFactory.FrameType;
 import net.rptools.maptool.client.ui.macrobuttons.buttons.MacroButtonPrefs;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.library.LibraryManager;
+import net.rptools.maptool.server.ServerCommand;
 import net.rptools.parser.ParserException;
 import net.rptools.parser.function.Function;
 import org.apache.commons.lang.StringUtils;
@@ -245,6 +245,11 @@ public String parseLine(
       return "";
     }
     Stack<Token> contextTokenStack = new Stack<Token>();
+    // Token changes made by a top level macro are sent to the server in batches.
+    ServerCommand batchCommand = contextStackEmpty() ? MapTool.serverCommand() : null;
+    if (batchCommand != null) {
+      batchCommand.beginTokenBatch();
+    }
     context = enterContext(context);
     MapToolVariableResolver resolver = null;
     boolean resolverInitialized = false;
@@ -993,6 +998,9 @@ public String parseLine(
         // This is the top level call, time to clean up
         resolver.flush();
       }
+      if (batchCommand != null) {
+        batchCommand.endTokenBatch();
+      }
       if (MapTool.getFrame() != null) {
         // Repaint in case macros changed anything.
         MapTool.getFrame().refresh();
@@ -1362,10 +1370,9 @@ public Token getTokenMacroLib(String location) throws ParserException {
     final String libTokenName = location;
     Token libToken = null;
     if (libTokenName.length() > 0) {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
+      for (Zone zone : MapTool.getCampaign().getZonesWithLibTokens()) {
         List<Token> tokenList =
-            zr.getZone().getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
+            zone.getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
 
         for (Token token : tokenList) {
           // If we are not the GM and the token is not visible to players then we don't
@@ -1403,10 +1410,9 @@ public Zone getTokenMacroLibZone(String location) throws ParserException {
     final String libTokenName = location;
     Zone libTokenZone = null;
     if (libTokenName.length() > 0) {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
+      for (Zone zone : MapTool.getCampaign().getZonesWithLibTokens()) {
         List<Token> tokenList =
-            zr.getZone().getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
+            zone.getTokensFiltered(t -> t.getName().equalsIgnoreCase(libTokenName));
 
         for (Token token : tokenList) {
           // If we are not the GM and the token is not visible to players then we don't
@@ -1419,7 +1425,7 @@ public Zone getTokenMacroLibZone(String location) throws ParserException {
             throw new ParserException(I18N.getText("lineParser.duplicateLibTokens", libTokenName));
           }
 
-          libTokenZone = zr.getZone();
+          libTokenZone = zone;
         }
       }
       return libTokenZone;
@@ -193,13 +193,19 @@ public void onResponse(@NotNull Call call, @NotNull Response response)
             });
   }
 
-  public void heartBeat() {
+  /**
+   * Tells the registry that the server is still running.
+   *
+   * @param numberOfPlayers the number of players connected to the server.
+   * @param numberOfMaps the number of maps of the campaign of the server.
+   */
+  public void heartBeat(int numberOfPlayers, int numberOfMaps) {
     JsonObject body = new JsonObject();
     body.addProperty("id", serverRegistrationId);
     body.addProperty("clientId", MapTool.getClientId());
     body.addProperty("address", getAddress());
-    body.addProperty("number_players", MapTool.getPlayerList().size());
-    body.addProperty("number_maps", MapTool.getCampaign().getZones().size());
+    body.addProperty("number_players", numberOfPlayers);
+    body.addProperty("number_maps", numberOfMaps);
 
     OkHttpClient client = new OkHttpClient();
     RequestBody requestBody = RequestBody.create(body.toString(), JSON);
@@ -14,14 +14,24 @@
  */
 package net.rptools.maptool.client;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
 import java.awt.geom.Area;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.functions.ExecFunction;
 import net.rptools.maptool.client.functions.MacroLinkFunction;
@@ -32,11 +42,14 @@
 import net.rptools.maptool.model.ExposedAreaMetaData;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.InitiativeList;
+import net.rptools.maptool.model.InitiativePatch;
 import net.rptools.maptool.model.Label;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Pointer;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.TokenPatch;
+import net.rptools.maptool.model.TokenPropertyUpdate;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.Zone.VisionType;
 import net.rptools.maptool.model.ZonePoint;
@@ -44,6 +57,7 @@
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.drawing.Pen;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import net.rptools.maptool.model.library.addon.TransferableAddOnLibrary;
@@ -60,8 +74,22 @@ public class ServerCommandClientImpl implements ServerCommand {
 
   private final TimedEventQueue movementUpdateQueue = new TimedEventQueue(100);
   private final LinkedBlockingQueue<MD5Key> assetRetrieveQueue = new LinkedBlockingQueue<MD5Key>();
+  private final ThreadLocal<TokenBatch> tokenBatch = ThreadLocal.withInitial(TokenBatch::new);
+  private final GameDataDeltaQueue gameDataDeltaQueue = new GameDataDeltaQueue(50);
+  private final BiConsumer<COMMAND, Object[]> connection;
 
   public ServerCommandClientImpl() {
+    this(ServerCommandClientImpl::callServer);
+  }
+
+  /**
+   * Creates a command sender that hands the commands to the given connection instead of the
+   * connection of MapTool.
+   *
+   * @param connection receives each command with its parameters
+   */
+  ServerCommandClientImpl(BiConsumer<COMMAND, Object[]> connection) {
+    this.connection = connection;
     movementUpdateQueue.start();
     // new AssetRetrievalThread().start();
   }
@@ -79,6 +107,14 @@ public void bootPlayer(String player) {
   }
 
   public void setCampaign(Campaign campaign) {
+    if (MapTool.isPersonalServer()) {
+      // The server gets its own copy, which reads the zones from the campaign file when needed
+      Campaign serverCampaign = new Campaign(campaign);
+      serverCampaign.setId(campaign.getId());
+      MapTool.getServer().setCampaign(serverCampaign);
+      return;
+    }
+    campaign.getZones(); // the server needs every zone, including those not read yet
     try {
       campaign.setBeingSerialized(true);
       makeServerCall(COMMAND.setCampaign, campaign);
@@ -143,6 +179,9 @@ public void restoreZoneView(GUID zoneGUID) {
 
   public void editToken(GUID zoneGUID, Token token) {
     MapTool.getCampaign().getZone(zoneGUID).editToken(token);
+    token.clearChanges();
+    // The whole token is sent, so any queued changes to it are superseded.
+    tokenBatch.get().forget(zoneGUID, List.of(token.getId()));
     makeServerCall(COMMAND.editToken, zoneGUID, token);
   }
 
@@ -150,14 +189,31 @@ public void putToken(GUID zoneGUID, Token token) {
     // Hack to generate zone event. All functions that update tokens call this method
     // after changing the token. But they don't tell the zone about it so classes
     // waiting for the zone change event don't get it.
-    MapTool.getCampaign().getZone(zoneGUID).putToken(token);
+    Zone zone = MapTool.getCampaign().getZone(zoneGUID);
+    token.clearChanges();
+    TokenBatch batch = tokenBatch.get();
+    // New tokens are sent right away as later commands may refer to them.
+    if (batch.isOpen() && zone.getToken(token.getId()) != null) {
+      batch.enterZone(zone);
+      zone.putToken(token);
+      batch.putToken(zoneGUID, token);
+      return;
+    }
+    zone.putToken(token);
     makeServerCall(COMMAND.putToken, zoneGUID, token);
   }
 
+  public void putTokens(GUID zoneGUID, List<Token> tokens) {
+    MapTool.getCampaign().getZone(zoneGUID).putTokens(tokens);
+    tokens.forEach(Token::clearChanges);
+    makeServerCall(COMMAND.putTokens, zoneGUID, tokens);
+  }
+
   @Override
   public void removeToken(GUID zoneGUID, GUID tokenGUID) {
     // delete local token immediately
     MapTool.getCampaign().getZone(zoneGUID).removeToken(tokenGUID);
+    tokenBatch.get().forget(zoneGUID, List.of(tokenGUID));
     makeServerCall(COMMAND.removeToken, zoneGUID, tokenGUID);
   }
 
@@ -165,6 +221,7 @@ public void removeToken(GUID zoneGUID, GUID tokenGUID) {
   public void removeTokens(GUID zoneGUID, List<GUID> tokenGUIDs) {
     // delete local tokens immediately
     MapTool.getCampaign().getZone(zoneGUID).removeTokens(tokenGUIDs);
+    tokenBatch.get().forget(zoneGUID, tokenGUIDs);
     makeServerCall(COMMAND.removeTokens, zoneGUID, tokenGUIDs);
   }
 
@@ -179,6 +236,11 @@ public void removeTokens(GUID zoneGUID, List<GUID> tokenGUIDs) {
    */
   public void updateTokenProperty(
       GUID zoneGUID, GUID tokenGUID, Token.Update update, Object[] parameters) {
+    TokenBatch batch = tokenBatch.get();
+    if (batch.isOpen()) {
+      batch.updateToken(zoneGUID, new TokenPropertyUpdate(tokenGUID, update, parameters));
+      return;
+    }
     makeServerCall(COMMAND.updateTokenProperty, zoneGUID, tokenGUID, update, parameters);
   }
 
@@ -194,10 +256,66 @@ public void updateTokenProperty(Token token, Token.Update update, Object... para
     GUID tokenGUID = token.getId();
     GUID zoneGUID = zone.getId();
 
+    TokenBatch batch = tokenBatch.get();
+    if (batch.isOpen()) {
+      batch.enterZone(zone); // hold back the change events until the batch ends
+    }
     token.updateProperty(zone, update, parameters); // update locally right away
     updateTokenProperty(zoneGUID, tokenGUID, update, parameters);
   }
 
+  public void updateTokenProperties(GUID zoneGUID, List<TokenPropertyUpdate> updates) {
+    makeServerCall(COMMAND.updateTokenProperties, zoneGUID, updates);
+  }
+
+  public void patchToken(GUID zoneGUID, TokenPatch patch) {
+    makeServerCall(COMMAND.patchToken, zoneGUID, patch);
+  }
+
+  /**
+   * Sends the fields of the token changed since it was last sent. The whole token is sent instead
+   * if it is new, is queued in a batch or has untracked changes only.
+   *
+   * @param zoneGUID the GUID of the zone the token is on
+   * @param token the changed token
+   */
+  public void patchToken(GUID zoneGUID, Token token) {
+    Zone zone = MapTool.getCampaign().getZone(zoneGUID);
+    if (tokenBatch.get().isOpen() || zone.getToken(token.getId()) != token) {
+      putToken(zoneGUID, token);
+      return;
+    }
+    TokenPatch patch = token.takePatch();
+    if (patch == null) {
+      putToken(zoneGUID, token);
+      return;
+    }
+    zone.putToken(token); // fire the zone event, see putToken
+    patchToken(zoneGUID, patch);
+  }
+
+  @Override
+  public void beginTokenBatch() {
+    tokenBatch.get().depth++;
+  }
+
+  @Override
+  public void endTokenBatch() {
+    TokenBatch batch = tokenBatch.get();
+    if (batch.depth == 0 || --batch.depth > 0) {
+      return;
+    }
+    tokenBatch.remove();
+    try {
+      batch.flush();
+    } finally {
+      // Let the zones fire their aggregated change events.
+      for (Zone zone : batch.zones.values()) {
+        zone.endTokenBatch();
+      }
+    }
+  }
+
   public void putLabel(GUID zoneGUID, Label label) {
     makeServerCall(COMMAND.putLabel, zoneGUID, label);
   }
@@ -343,6 +461,10 @@ public void updateTokenInitiative(
     makeServerCall(COMMAND.updateTokenInitiative, zone, token, holding, state, index);
   }
 
+  public void patchInitiative(InitiativePatch patch) {
+    makeServerCall(COMMAND.patchInitiative, patch);
+  }
+
   public void updateCampaignMacros(List<MacroButtonProperties> properties) {
     makeServerCall(COMMAND.updateCampaignMacros, properties);
   }
@@ -362,7 +484,15 @@ public void clearExposedArea(GUID zoneGUID, boolean globalOnly) {
     makeServerCall(COMMAND.clearExposedArea, zoneGUID, globalOnly);
   }
 
-  private static void makeServerCall(ServerCommand.COMMAND command, Object... params) {
+  private void makeServerCall(ServerCommand.COMMAND command, Object... params) {
+    // The queued token changes were made before this command, so they have to arrive first.
+    tokenBatch.get().flush();
+    // Likewise for the game data changes, so that no command overtakes an earlier data change.
+    gameDataDeltaQueue.flush();
+    connection.accept(command, params);
+  }
+
+  private static void callServer(ServerCommand.COMMAND command, Object[] params) {
     if (MapTool.getConnection() != null) {
       MapTool.getConnection().callMethod(command.name(), params);
     }
@@ -430,27 +560,198 @@ public void updateDataNamespace(GameDataDto gameData) {
 
   @Override
   public void updateData(String type, String namespace, GameDataValueDto gameData) {
-    try {
-      byte[] bytes = JsonFormat.printer().print(gameData).getBytes(StandardCharsets.UTF_8);
-      makeServerCall(COMMAND.updateData, type, namespace, bytes);
-    } catch (InvalidProtocolBufferException e) {
-      MapTool.showError("data.error.sendingUpdate", e);
-    }
+    gameDataDeltaQueue.update(type, namespace, gameData);
   }
 
   @Override
   public void removeDataStore() {
+    gameDataDeltaQueue.discard();
     makeServerCall(COMMAND.removeDataStore);
   }
 
   @Override
   public void removeDataNamespace(String type, String namespace) {
+    gameDataDeltaQueue.discard(type, namespace);
     makeServerCall(COMMAND.removeDataNamespace, type, namespace);
   }
 
   @Override
   public void removeData(String type, String namespace, String name) {
-    makeServerCall(COMMAND.removeData, type, namespace, name);
+    gameDataDeltaQueue.remove(type, namespace, name);
+  }
+
+  @Override
+  public void updateDataDelta(GameDataDeltaDto delta) {
+    makeServerCall(COMMAND.updateDataDelta, delta.toByteArray());
+  }
+
+  /**
+   * The token changes queued by a thread between beginTokenBatch() and endTokenBatch(). The changes
+   * are sent when the batch ends or before the thread sends any other command. The token events of
+   * the local zones are held back until the batch ends.
+   */
+  private class TokenBatch {
+    private int depth;
+    private final Set<GUID> zoneGUIDs = new LinkedHashSet<>();
+    private final Map<GUID, Zone> zones = new LinkedHashMap<>();
+    private final Map<GUID, Map<GUID, Token>> puts = new HashMap<>();
+    private final Map<GUID, List<TokenPropertyUpdate>> updates = new HashMap<>();
+
+    private boolean isOpen() {
+      return depth > 0;
+    }
+
+    /** Starts a batch on the zone so its token events are held back until the batch ends. */
+    private void enterZone(Zone zone) {
+      if (zones.putIfAbsent(zone.getId(), zone) == null) {
+        zone.beginTokenBatch();
+      }
+    }
+
+    private void putToken(GUID zoneGUID, Token token) {
+      zoneGUIDs.add(zoneGUID);
+      puts.computeIfAbsent(zoneGUID, k -> new LinkedHashMap<>()).put(token.getId(), token);
+    }
+
+    private void updateToken(GUID zoneGUID, TokenPropertyUpdate update) {
+      zoneGUIDs.add(zoneGUID);
+      updates.computeIfAbsent(zoneGUID, k -> new ArrayList<>()).add(update);
+    }
+
+    /** Drops the queued changes of tokens that have been removed or sent in full. */
+    private void forget(GUID zoneGUID, Collection<GUID> tokenGUIDs) {
+      if (!isOpen()) {
+        return;
+      }
+      Map<GUID, Token> zonePuts = puts.get(zoneGUID);
+      if (zonePuts != null) {
+        zonePuts.keySet().removeAll(tokenGUIDs);
+      }
+      List<TokenPropertyUpdate> zoneUpdates = updates.get(zoneGUID);
+      if (zoneUpdates != null) {
+        zoneUpdates.removeIf(u -> tokenGUIDs.contains(u.getTokenGUID()));
+      }
+    }
+
+    /** Sends the queued changes, with at most one put and one update command per zone. */
+    private void flush() {
+      for (GUID zoneGUID : zoneGUIDs) {
+        Map<GUID, Token> zonePuts = puts.getOrDefault(zoneGUID, Map.of());
+        List<TokenPropertyUpdate> zoneUpdates = new ArrayList<>();
+        for (TokenPropertyUpdate update : updates.getOrDefault(zoneGUID, List.of())) {
+          // A token that is put is sent with its current state, which includes the update.
+          if (!zonePuts.containsKey(update.getTokenGUID())) {
+            zoneUpdates.add(update);
+          }
+        }
+        if (zonePuts.size() == 1) {
+          connection.accept(
+              COMMAND.putToken, new Object[] {zoneGUID, zonePuts.values().iterator().next()});
+        } else if (zonePuts.size() > 1) {
+          connection.accept(
+              COMMAND.putTokens, new Object[] {zoneGUID, new ArrayList<>(zonePuts.values())});
+        }
+        if (zoneUpdates.size() == 1) {
+          TokenPropertyUpdate update = zoneUpdates.get(0);
+          connection.accept(
+              COMMAND.updateTokenProperty,
+              new Object[] {
+                zoneGUID, update.getTokenGUID(), update.getUpdate(), update.getParameters()
+              });
+        } else if (zoneUpdates.size() > 1) {
+          connection.accept(COMMAND.updateTokenProperties, new Object[] {zoneGUID, zoneUpdates});
+        }
+      }
+      zoneGUIDs.clear();
+      puts.clear();
+      updates.clear();
+    }
+  }
+
+  /**
+   * Collects the changes to game data properties into one {@link GameDataDeltaDto} per namespace,
+   * sent a short time after the first change so that a macro setting many properties sends a few
+   * messages instead of one per property. Only the last change to each property is sent. The
+   * deltas of each namespace are numbered so that receivers can tell when one is missing.
+   *
+   * <p>The pending changes are sent before any other command, so they keep their order with the
+   * rest of the commands. Commands that clear data call {@link #discard(String, String)} first, so
+   * that pending changes to the cleared data are not sent at all.
+   */
+  private class GameDataDeltaQueue {
+    private record Namespace(String type, String namespace) {}
+
+    private static class PendingDelta {
+      private final Map<String, GameDataValueDto> values = new LinkedHashMap<>();
+      private final Set<String> removedNames = new LinkedHashSet<>();
+    }
+
+    private static final ScheduledExecutorService flushExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("game-data-delta-%d").setDaemon(true).build());
+
+    /** Identifies the deltas of this queue, the sequence numbers start again for each queue. */
+    private final String source = new GUID().toString();
+
+    private final long delay;
+    private final Map<Namespace, PendingDelta> pending = new LinkedHashMap<>();
+    private final Map<Namespace, Long> sequences = new HashMap<>();
+    private boolean flushScheduled;
+
+    private GameDataDeltaQueue(long millidelay) {
+      delay = millidelay;
+    }
+
+    private synchronized void update(String type, String namespace, GameDataValueDto value) {
+      PendingDelta delta = getPendingDelta(type, namespace);
+      delta.removedNames.remove(value.getName());
+      delta.values.put(value.getName(), value);
+    }
+
+    private synchronized void remove(String type, String namespace, String name) {
+      PendingDelta delta = getPendingDelta(type, namespace);
+      delta.values.remove(name);
+      delta.removedNames.add(name);
+    }
+
+    private PendingDelta getPendingDelta(String type, String namespace) {
+      if (!flushScheduled) {
+        flushExecutor.schedule(() -> flush(), delay, TimeUnit.MILLISECONDS);
+        flushScheduled = true;
+      }
+      return pending.computeIfAbsent(new Namespace(type, namespace), k -> new PendingDelta());
+    }
+
+    /** Sends the pending changes of all namespaces. */
+    private synchronized void flush() {
+      flushScheduled = false;
+      pending.forEach(this::send);
+      pending.clear();
+    }
+
+    /** Drops the pending changes of all namespaces, as the data store is being cleared. */
+    private synchronized void discard() {
+      pending.clear();
+    }
+
+    /** Drops the pending changes of a namespace, as the namespace is being cleared. */
+    private synchronized void discard(String type, String namespace) {
+      pending.remove(new Namespace(type, namespace));
+    }
+
+    private void send(Namespace key, PendingDelta delta) {
+      long sequence = sequences.merge(key, 1L, Long::sum);
+      var dto =
+          GameDataDeltaDto.newBuilder()
+              .setType(key.type())
+              .setNamespace(key.namespace())
+              .setSequence(sequence)
+              .setSource(source)
+              .addAllValues(delta.values.values())
+              .addAllRemovedNames(delta.removedNames)
+              .build();
+      connection.accept(COMMAND.updateDataDelta, new Object[] {dto.toByteArray()});
+    }
   }
 
   /**
@@ -459,7 +760,7 @@ public void removeData(String type, String namespace, String name) {
    * some time interval. If a new event arrives before the time interval elapses, it is replaced. In
    * this way, only the most current version of the event is released.
    */
-  private static class TimedEventQueue extends Thread {
+  private class TimedEventQueue extends Thread {
 
     ServerCommand.COMMAND command;
     Object[] params;
@@ -470,6 +771,7 @@ private static class TimedEventQueue extends Thread {
 
     public TimedEventQueue(long millidelay) {
       setName("ServerCommandClientImpl.TimedEventQueue");
+      setDaemon(true);
       delay = millidelay;
     }
 
@@ -69,7 +69,7 @@ public Object childEvaluate(
           MapTool.addLocalMessage(I18N.getText("msg.warning.prerelease.only", functionName));
           FunctionUtil.checkNumberParam(functionName, parameters, 0, 0);
           JsonArray json = new JsonArray();
-          for (String type : dataStore.getPropertyTypes().get()) {
+          for (String type : dataStore.getPropertyTypesSync()) {
             json.add(type);
           }
           return json;
@@ -79,7 +79,7 @@ public Object childEvaluate(
           FunctionUtil.checkNumberParam(functionName, parameters, 1, 1);
           JsonArray json = new JsonArray();
           for (String namespace :
-              dataStore.getPropertyNamespaces(parameters.get(0).toString()).get()) {
+              dataStore.getPropertyNamespacesSync(parameters.get(0).toString())) {
             json.add(namespace);
           }
           return json;
@@ -147,7 +147,7 @@ public Object childEvaluate(
           String namespace = parameters.get(1).toString();
           String name = parameters.get(2).toString();
 
-          var data = dataStore.getProperty(type, namespace, name).get();
+          var data = dataStore.getPropertySync(type, namespace, name);
           return switch (data.getDataType()) {
             case STRING -> data.asString();
             case BOOLEAN -> data.asBoolean() ? BigDecimal.ONE : BigDecimal.ZERO;
@@ -211,35 +211,24 @@ public Object childEvaluate(
     }
   }
 
-  private JsonArray listData(DataStore dataStore, String type, String namespace)
-      throws ParserException {
-    try {
-      var jarray = new JsonArray();
-      dataStore
-          .getProperties(type, namespace)
-          .thenAccept(
-              dataList -> {
-                for (var data : dataList) {
-                  var jobj = new JsonObject();
-                  jobj.addProperty("name", data.getName());
-                  jobj.addProperty("type", data.getDataType().name());
-                  switch (data.getDataType()) {
-                    case STRING -> jobj.addProperty("value", data.asString());
-                    case LONG -> jobj.addProperty("value", data.asLong());
-                    case DOUBLE -> jobj.addProperty("value", data.asDouble());
-                    case BOOLEAN -> jobj.addProperty("value", data.asBoolean());
-                    case JSON_OBJECT -> jobj.add("value", data.asJsonObject());
-                    case JSON_ARRAY -> jobj.add("value", data.asJsonArray());
-                    case ASSET -> jobj.addProperty(
-                        "value", "asset://" + data.asAsset().getMD5Key().toString());
-                  }
-                  jarray.add(jobj);
-                }
-              })
-          .get();
-      return jarray;
-    } catch (InterruptedException | ExecutionException e) {
-      throw new ParserException(e.getCause());
+  private JsonArray listData(DataStore dataStore, String type, String namespace) {
+    var jarray = new JsonArray();
+    for (var data : dataStore.getPropertiesSync(type, namespace)) {
+      var jobj = new JsonObject();
+      jobj.addProperty("name", data.getName());
+      jobj.addProperty("type", data.getDataType().name());
+      switch (data.getDataType()) {
+        case STRING -> jobj.addProperty("value", data.asString());
+        case LONG -> jobj.addProperty("value", data.asLong());
+        case DOUBLE -> jobj.addProperty("value", data.asDouble());
+        case BOOLEAN -> jobj.addProperty("value", data.asBoolean());
+        case JSON_OBJECT -> jobj.add("value", data.asJsonObject());
+        case JSON_ARRAY -> jobj.add("value", data.asJsonArray());
+        case ASSET -> jobj.addProperty(
+            "value", "asset://" + data.asAsset().getMD5Key().toString());
+      }
+      jarray.add(jobj);
     }
+    return jarray;
   }
 }
@@ -219,10 +219,9 @@ protected Layer getLayer(String layer) {
    * @throws ParserException if the map is not found
    */
   protected ZoneRenderer getNamedMap(String functionName, String mapName) throws ParserException {
-    for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-      if (mapName.equals(zr.getZone().getName())) {
-        return zr;
-      }
+    ZoneRenderer zr = MapTool.getFrame().getZoneRenderer(mapName);
+    if (zr != null) {
+      return zr;
     }
     throw new ParserException(
         I18N.getText("macro.function.moveTokenMap.unknownMap", functionName, mapName));
@@ -596,7 +596,13 @@ private static Object getTokenList(
       if (range.has("metric")) {
         metric = range.get("metric").getAsString();
       }
-      List<Token> inrange = new LinkedList<Token>();
+      // Only tokens near enough to the source token can be in range, use the spatial index to
+      // avoid calculating the distance to every token on the map.
+      Rectangle searchBounds = getRangeBounds(zone, token, upto, useDistancePerCell);
+      if (searchBounds != null) {
+        tokenList.retainAll(new HashSet<>(zone.getTokensIntersecting(searchBounds)));
+      }
+      Set<Token> inrange = new HashSet<Token>();
       for (Token targetToken : tokenList) {
         double distance = instance.getDistance(token, targetToken, useDistancePerCell, metric);
         if (distance <= upto && distance >= from && token != targetToken) {
@@ -639,8 +645,7 @@ private static Object getTokenList(
       }
       CellPoint cp = instance.getTokenCell(token);
 
-      Point[] points = new Point[offsets.size()];
-      int ip = 0; // create an array of points for each cell
+      List<CellPoint> cells = new ArrayList<CellPoint>(offsets.size());
       for (Object o : offsets) {
         if (!(o instanceof JsonObject)) {
           throw new ParserException(
@@ -652,15 +657,10 @@ private static Object getTokenList(
               I18N.getText("macro.function.findTokenFunctions.offsetArray", "getTokens"));
         }
         // note: cp.x and cp.y returns the top left cell (pixel for gridless
-        points[ip] = new Point(joff.get("x").getAsInt() + cp.x, joff.get("y").getAsInt() + cp.y);
-        ip += 1;
-      }
-      Set<Token> matching = new HashSet<Token>();
-      for (Token targetToken : tokenList) {
-        if (TokenLocationFunctions.isTokenAtXY(targetToken, zone, points))
-          matching.add(targetToken);
+        cells.add(
+            new CellPoint(joff.get("x").getAsInt() + cp.x, joff.get("y").getAsInt() + cp.y));
       }
-      tokenList.retainAll(matching);
+      tokenList.retainAll(new HashSet<Token>(zone.getTokensAtCells(cells)));
     }
 
     ArrayList<String> values = new ArrayList<String>();
@@ -682,6 +682,44 @@ private static Object getTokenList(
     }
   }
 
+  /**
+   * Calculates the bounds that any token within the range of a source token must intersect. Each
+   * step of every movement metric moves at most one cell width or height, so a token within {@code
+   * upto} cells has its footprint within that many cells of the footprint of the source.
+   *
+   * @param zone the zone of the tokens
+   * @param source the token the range is measured from
+   * @param upto the maximum distance
+   * @param useDistancePerCell is the distance in map units rather than cells?
+   * @return the bounds in zone coordinates, or null if the range is not bounded
+   */
+  private static Rectangle getRangeBounds(
+      Zone zone, Token source, int upto, boolean useDistancePerCell) {
+    if (upto == Integer.MAX_VALUE) {
+      return null;
+    }
+    double cells = upto;
+    if (useDistancePerCell) {
+      if (zone.getUnitsPerCell() <= 0) {
+        return null;
+      }
+      cells = upto / zone.getUnitsPerCell();
+    }
+    Grid grid = zone.getGrid();
+    double cellSize = Math.max(grid.getSize(), Math.max(grid.getCellWidth(), grid.getCellHeight()));
+    double margin = Math.ceil((Math.max(cells, 0) + 1) * cellSize);
+    if (margin > Integer.MAX_VALUE / 4) {
+      return null;
+    }
+    Rectangle bounds = source.getBounds(zone);
+    if (grid.getCapabilities().isPathingSupported()) {
+      CellPoint cell = grid.convert(new ZonePoint(source.getX(), source.getY()));
+      bounds = bounds.union(source.getFootprint(grid).getBounds(grid, cell));
+    }
+    bounds.grow((int) margin, (int) margin);
+    return bounds;
+  }
+
   private static boolean booleanCheck(JsonObject jobj, String searchType) {
     JsonElement jel = jobj.get(searchType);
     if (jel.isJsonPrimitive()) {
@@ -881,14 +919,10 @@ public static Token findToken(String identifier, String zoneName) {
       ZoneRenderer zr = MapTool.getFrame().getCurrentZoneRenderer();
       return zr == null ? null : zr.getZone().resolveToken(identifier);
     } else {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
-        Zone zone = zr.getZone();
-        if (zone.getName().equalsIgnoreCase(zoneName)) {
-          Token token = zone.resolveToken(identifier);
-          if (token != null) {
-            return token;
-          }
+      for (Zone zone : MapTool.getCampaign().getZonesNamed(zoneName)) {
+        Token token = zone.resolveToken(identifier);
+        if (token != null) {
+          return token;
         }
       }
     }
@@ -910,14 +944,10 @@ public static Token findToken(GUID guid, String zoneName) {
       ZoneRenderer zr = MapTool.getFrame().getCurrentZoneRenderer();
       return zr == null ? null : zr.getZone().getToken(guid);
     } else {
-      List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (ZoneRenderer zr : zrenderers) {
-        Zone zone = zr.getZone();
-        if (zone.getName().equalsIgnoreCase(zoneName)) {
-          Token token = zone.getToken(guid);
-          if (token != null) {
-            return token;
-          }
+      for (Zone zone : MapTool.getCampaign().getZonesNamed(zoneName)) {
+        Token token = zone.getToken(guid);
+        if (token != null) {
+          return token;
         }
       }
     }
@@ -934,9 +964,8 @@ public static Token findToken(final String identifier) {
     final Zone currentZone = MapTool.getFrame().getCurrentZoneRenderer().getZone();
     Token token = currentZone.resolveToken(identifier);
     if (token == null) {
-      final List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-      for (final ZoneRenderer zr : zrenderers) {
-        final Zone zone = zr.getZone();
+      // The token may be on any map, so every zone is read
+      for (final Zone zone : MapTool.getCampaign().getZones()) {
         token = zone.resolveToken(identifier);
         if (token != null) {
           return token;
@@ -23,6 +23,7 @@
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.ZoneSummary;
 import net.rptools.maptool.util.FunctionUtil;
 import net.rptools.parser.Parser;
 import net.rptools.parser.ParserException;
@@ -78,17 +79,12 @@ public Object childEvaluate(
           return currentZR.getZone().getPlayerAlias();
         }
       } else {
-        List<ZoneRenderer> rendererList =
-            new LinkedList<ZoneRenderer>(
-                MapTool.getFrame().getZoneRenderers()); // copied from ZoneSelectionPopup
-        if (!MapTool.getPlayer().isGM()) {
-          rendererList.removeIf(renderer -> !renderer.getZone().isVisible());
-        }
+        boolean isGM = MapTool.getPlayer().isGM();
         String searchMap = parameters.get(0).toString();
         String foundMap = null;
-        for (int i = 0; i < rendererList.size(); i++) {
-          if (rendererList.get(i).getZone().getName().equals(searchMap)) {
-            foundMap = rendererList.get(i).getZone().getPlayerAlias();
+        for (ZoneSummary summary : MapTool.getCampaign().getZoneSummaries().values()) {
+          if ((isGM || summary.isVisible()) && summary.getName().equals(searchMap)) {
+            foundMap = summary.getPlayerAlias();
             break;
           }
         }
@@ -194,9 +190,9 @@ public Object childEvaluate(
       if (allMaps) checkTrusted(functionName);
 
       List<String> mapNames = new LinkedList<String>();
-      for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-        if (allMaps || zr.getZone().isVisible()) {
-          mapNames.add(zr.getZone().getName());
+      for (ZoneSummary summary : MapTool.getCampaign().getZoneSummaries().values()) {
+        if (allMaps || summary.isVisible()) {
+          mapNames.add(summary.getName());
         }
       }
       String delim = parameters.size() > 0 ? parameters.get(0).toString() : ",";
@@ -216,9 +212,9 @@ public Object childEvaluate(
       if (allMaps) checkTrusted(functionName);
 
       List<String> mapNames = new LinkedList<String>();
-      for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-        if (allMaps || zr.getZone().isVisible()) {
-          mapNames.add(zr.getZone().getPlayerAlias());
+      for (ZoneSummary summary : MapTool.getCampaign().getZoneSummaries().values()) {
+        if (allMaps || summary.isVisible()) {
+          mapNames.add(summary.getPlayerAlias());
         }
       }
       String delim = parameters.size() > 0 ? parameters.get(0).toString() : ",";
@@ -234,9 +230,9 @@ public Object childEvaluate(
       String dispName = parameters.get(0).toString();
       checkTrusted(functionName);
 
-      for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-        if (zr.getZone().getPlayerAlias().equals(dispName)) {
-          return zr.getZone().getName();
+      for (ZoneSummary summary : MapTool.getCampaign().getZoneSummaries().values()) {
+        if (summary.getPlayerAlias().equals(dispName)) {
+          return summary.getName();
         }
       }
       throw new ParserException(I18N.getText("macro.function.map.notFound", functionName));
@@ -25,7 +25,6 @@
 import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.walker.WalkerMetric;
 import net.rptools.maptool.client.walker.ZoneWalker;
 import net.rptools.maptool.client.walker.astar.AStarSquareEuclideanWalker;
@@ -164,15 +163,8 @@ private String tokenMoveMap(boolean fromCurrentMap, List<Object> args) throws Pa
     } else {
       tokens.add((String) tokenString);
     }
-    Zone zone = null;
-    List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-    for (ZoneRenderer zr : zrenderers) {
-      Zone z = zr.getZone();
-      if (z.getName().equalsIgnoreCase(map)) {
-        zone = z;
-        break;
-      }
-    }
+    List<Zone> named = MapTool.getCampaign().getZonesNamed(map);
+    Zone zone = named.isEmpty() ? null : named.get(0);
     if (zone == null) {
       throw new ParserException(
           I18N.getText("macro.function.moveTokenMap.unknownMap", functionName, map));
@@ -611,14 +603,13 @@ public CellPoint getTokenCell(Token token) {
    * @return the list of maps containing the token.
    */
   private Object getTokenMap(String identifier, String delim) {
-    List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
     List<String> mapList = new ArrayList<>();
 
-    for (final ZoneRenderer zr : zrenderers) {
-      Zone zone = zr.getZone();
+    // The token may be on any map, so every zone is read
+    for (Zone zone : MapTool.getCampaign().getZones()) {
       Token token = zone.resolveToken(identifier);
       if (token != null) {
-        mapList.add(zr.getZone().getName());
+        mapList.add(zone.getName());
       }
     }
 
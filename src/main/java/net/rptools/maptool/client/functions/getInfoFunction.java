@@ -32,7 +32,6 @@
 import net.rptools.maptool.client.ui.htmlframe.HTMLFrame;
 import net.rptools.maptool.client.ui.htmlframe.HTMLOverlayManager;
 import net.rptools.maptool.client.ui.token.*;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Campaign;
 import net.rptools.maptool.model.CampaignProperties;
@@ -234,8 +233,12 @@ private void getInfoOnTokensOfType(
       String versionProperty,
       String unknownVersionText) {
     JsonObject libInfo = new JsonObject();
-    for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-      Zone zone = zr.getZone();
+    // Library tokens are found without reading the other zones, other tokens need every zone
+    List<Zone> zones =
+        "lib:".equals(prefix)
+            ? MapTool.getCampaign().getZonesWithLibTokens()
+            : MapTool.getCampaign().getZones();
+    for (Zone zone : zones) {
       for (Token token : zone.getTokens()) {
         if (token.getName().toLowerCase().startsWith(prefix)) {
           if (token.getProperty(versionProperty) != null) {
@@ -17,6 +17,11 @@
 import com.oracle.truffle.js.scriptengine.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.script.*;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.script.javascript.api.*;
@@ -30,12 +35,56 @@
 
 public class JSScriptEngine {
 
+  /** The number of anonymous contexts kept ready for {@link #evalAnonymous(String)}. */
+  private static final int CONTEXT_POOL_SIZE = 2;
+
+  /** The number of parsed scripts kept so that repeated snippets reuse their compiled code. */
+  private static final int SOURCE_CACHE_SIZE = 256;
+
+  /** Name given to script sources, the same as the one polyglot uses for unnamed sources. */
+  private static final String SOURCE_NAME = "Unnamed";
+
+  /**
+   * The engine shared by every context, which lets contexts reuse the code compiled for a {@link
+   * Source} by any other context.
+   */
+  private static final Engine engine = Engine.create();
+
   private static Context.Builder cbuilder;
   private static final JSScriptEngine jsScriptEngine = new JSScriptEngine();
   private static final Logger log = LogManager.getLogger(JSScriptEngine.class);
   private static final Map<String, JSContext> contexts = new HashMap<String, JSContext>();
   private static final Stack<JSContext> contextStack = new Stack<>();
 
+  /** The API classes to expose in each context, scanned for once. */
+  private final List<Class<?>> apiClasses = new ArrayList<>();
+
+  /**
+   * Pre-initialized contexts for anonymous scripts. Each is used for a single script so that
+   * anonymous scripts can't see each other's globals.
+   */
+  private final BlockingQueue<Context> contextPool = new ArrayBlockingQueue<>(CONTEXT_POOL_SIZE);
+
+  /** Whether a refill of {@link #contextPool} has been submitted and not finished yet. */
+  private final AtomicBoolean refilling = new AtomicBoolean();
+
+  /** Builds the pooled contexts off the calling thread. */
+  private final ExecutorService poolExecutor =
+      Executors.newSingleThreadExecutor(
+          (new com.google.common.util.concurrent.ThreadFactoryBuilder())
+              .setNameFormat("js-context-pool-%d")
+              .setDaemon(true)
+              .build());
+
+  /** Parsed sources keyed by script text, least recently used first. */
+  private final Map<String, Source> sourceCache =
+      new LinkedHashMap<String, Source>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Source> eldest) {
+          return size() > SOURCE_CACHE_SIZE;
+        }
+      };
+
   public static JSContext getCurrentContext() {
     return contextStack.peek();
   }
@@ -63,8 +112,21 @@ private JSScriptEngine() {
     HostAccess access = habuilder.build();
 
     cbuilder = Context.newBuilder("js");
+    cbuilder.engine(engine);
     cbuilder.allowHostAccess(access);
     cbuilder.option("js.ecmascript-version", "2021");
+
+    Reflections reflections = new Reflections("net.rptools.maptool.client.script.javascript.api");
+    for (Class<?> apiClass : reflections.getTypesAnnotatedWith(MapToolJSAPIDefinition.class)) {
+      if (MapToolJSAPIInterface.class.isAssignableFrom(apiClass)) {
+        apiClasses.add(apiClass);
+      } else {
+        LogManager.getLogger(JSScriptEngine.class)
+            .error("Could not add API object " + apiClass.getName() + " (missing interface)");
+      }
+    }
+
+    refillContextPool();
   }
 
   public static JSContext registerContext(String name, boolean trusted, boolean makeTrusted)
@@ -102,19 +164,16 @@ public static void resetContexts() {
   }
 
   public Context makeContext() {
-    Context context = cbuilder.build();
+    Context context;
+    synchronized (cbuilder) {
+      context = cbuilder.build();
+    }
     Value bindings = context.getBindings("js");
 
-    Reflections reflections = new Reflections("net.rptools.maptool.client.script.javascript.api");
-    Set<Class<?>> annotated = reflections.getTypesAnnotatedWith(MapToolJSAPIDefinition.class);
-
-    for (Class<?> apiClass : annotated) {
+    for (Class<?> apiClass : apiClasses) {
       try {
-        if (MapToolJSAPIInterface.class.isAssignableFrom(apiClass)) {
-          registerAPIObject(bindings, (MapToolJSAPIInterface) apiClass.newInstance());
-        } else {
-          log.error("Could not add API object " + apiClass.getName() + " (missing interface)");
-        }
+        registerAPIObject(
+            bindings, (MapToolJSAPIInterface) apiClass.getDeclaredConstructor().newInstance());
       } catch (Exception e) {
         log.error("Could not add API object " + apiClass.getName(), e);
       }
@@ -122,6 +181,50 @@ public Context makeContext() {
     return context;
   }
 
+  /**
+   * Returns a context for a single anonymous script, taken from the pool if one is ready.
+   *
+   * @return a new context with the API objects registered.
+   */
+  private Context takeAnonymousContext() {
+    Context context = contextPool.poll();
+    refillContextPool();
+    return context != null ? context : makeContext();
+  }
+
+  /** Tops up {@link #contextPool} in the background, unless a refill is already under way. */
+  private void refillContextPool() {
+    if (contextPool.remainingCapacity() == 0 || !refilling.compareAndSet(false, true)) {
+      return;
+    }
+    poolExecutor.execute(
+        () -> {
+          try {
+            while (contextPool.remainingCapacity() > 0) {
+              contextPool.offer(makeContext());
+            }
+          } catch (RuntimeException e) {
+            log.error("Could not create JavaScript context", e);
+          } finally {
+            refilling.set(false);
+          }
+        });
+  }
+
+  /**
+   * Returns the source for a script, reusing the one from an earlier evaluation of the same text
+   * so that the shared engine can reuse its compiled code.
+   *
+   * @param script the script text.
+   * @return the source.
+   */
+  private Source getSource(String script) {
+    synchronized (sourceCache) {
+      return sourceCache.computeIfAbsent(
+          script, s -> Source.newBuilder("js", s, SOURCE_NAME).cached(true).buildLiteral());
+    }
+  }
+
   public static JSScriptEngine getJSScriptEngine() {
     return jsScriptEngine;
   }
@@ -144,7 +247,7 @@ public Value evalScript(String contextName, String script)
     }
     contextStack.push(jc);
     try {
-      return jc.context.eval("js", script);
+      return jc.context.eval(getSource(script));
     } finally {
       contextStack.pop();
     }
@@ -166,11 +269,11 @@ public Value evalAnonymous(String script) throws ScriptException {
         .append("(function() { var args = MTScript.getMTScriptCallingArgs(); ")
         .append(script)
         .append("})();");
-    Context c = makeContext();
+    Context c = takeAnonymousContext();
     JSContext jc = new JSContext(MapTool.getParser().isMacroTrusted(), c, "<anonymous>");
     contextStack.push(jc);
     try {
-      return makeContext().eval("js", wrapped.toString());
+      return c.eval(getSource(wrapped.toString()));
     } finally {
       contextStack.pop();
     }
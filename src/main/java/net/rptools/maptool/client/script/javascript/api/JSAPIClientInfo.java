@@ -18,7 +18,6 @@
 import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.functions.UserDefinedMacroFunctions;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.Zone;
 import org.graalvm.polyglot.HostAccess;
@@ -72,8 +71,7 @@ public Date timeDate() {
   @HostAccess.Export
   public Map<String, Object> libraryTokens() {
     Map<String, Object> libInfo = new HashMap<>();
-    for (ZoneRenderer zr : MapTool.getFrame().getZoneRenderers()) {
-      Zone zone = zr.getZone();
+    for (Zone zone : MapTool.getCampaign().getZonesWithLibTokens()) {
       for (Token token : zone.getTokens()) {
         if (token.getName().toLowerCase().startsWith("lib:")) {
           if (token.getProperty("libversion") != null) {
@@ -20,6 +20,7 @@
 import net.rptools.maptool.client.script.javascript.*;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
 import org.graalvm.polyglot.HostAccess;
 
 public class JSAPITokens implements MapToolJSAPIInterface {
@@ -59,12 +60,10 @@ public List<Object> getMapTokens(ZoneRenderer zr) {
   public JSAPIToken getTokenByName(String tokenName) {
     boolean trusted = JSScriptEngine.inTrustedContext();
     String playerId = MapTool.getPlayer().getName();
-    for (ZoneRenderer z : MapTool.getFrame().getZoneRenderers()) {
-      if (trusted || z.getZone().isVisible()) {
-        Token t = z.getZone().getTokenByName(tokenName);
-        if (t != null && (trusted || t.isOwner(playerId))) {
-          return new JSAPIToken(t);
-        }
+    for (Zone zone : MapTool.getCampaign().getZones(s -> trusted || s.isVisible())) {
+      Token t = zone.getTokenByName(tokenName);
+      if (t != null && (trusted || t.isOwner(playerId))) {
+        return new JSAPIToken(t);
       }
     }
     return null;
@@ -335,7 +335,7 @@ public void mouseWheelMoved(MouseWheelEvent e) {
 
         token.setFacing(facing);
 
-        MapTool.serverCommand().putToken(getZone().getId(), token);
+        MapTool.serverCommand().patchToken(getZone().getId(), token);
       }
 
       repaintZone();
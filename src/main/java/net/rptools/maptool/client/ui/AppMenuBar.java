@@ -104,6 +104,7 @@ protected JMenu createFileMenu() {
     fileMenu.add(new JMenuItem(AppActions.DISCONNECT_FROM_SERVER));
     fileMenu.add(new JMenuItem(AppActions.PLAYER_DATABASE));
     fileMenu.add(new JMenuItem(AppActions.SHOW_CONNECTION_INFO));
+    fileMenu.add(new JMenuItem(AppActions.SHOW_TRAFFIC_STATISTICS));
     fileMenu.addSeparator();
     fileMenu.add(createRecentCampaignMenu());
     if (!AppUtil.MAC_OS_X) {
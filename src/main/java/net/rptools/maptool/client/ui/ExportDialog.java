@@ -27,6 +27,7 @@
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -546,8 +547,7 @@ public void screenCapture() throws Exception {
           break;
         case TYPE_ENTIRE_MAP:
           switchToWaitPanel();
-          if (interactPanel.isSelected("METHOD_BUFFERED_IMAGE")
-              || interactPanel.isSelected("METHOD_IMAGE_WRITER")) {
+          if (interactPanel.isSelected("METHOD_BUFFERED_IMAGE")) {
             // Using a buffer in memory for the whole image
             try {
               final PlayerView view = preScreenshot();
@@ -555,24 +555,15 @@ public void screenCapture() throws Exception {
               MapTool.getFrame()
                   .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotStreaming"));
 
-              BufferedImage image;
-              if (interactPanel.isSelected("METHOD_BUFFERED_IMAGE")) {
-                image =
-                    new BufferedImage(
-                        renderer.getWidth(), renderer.getHeight(), Transparency.OPAQUE);
-                final Graphics2D g = image.createGraphics();
-                // g.setClip(0, 0, renderer.getWidth(), renderer.getHeight());
-                renderer.renderZone(g, view);
-                g.dispose();
-              } else {
-                image = new ZoneImageGenerator(renderer, view);
-              }
+              BufferedImage image =
+                  new BufferedImage(renderer.getWidth(), renderer.getHeight(), Transparency.OPAQUE);
+              final Graphics2D g = image.createGraphics();
+              // g.setClip(0, 0, renderer.getWidth(), renderer.getHeight());
+              renderer.renderZone(g, view);
+              g.dispose();
               // putContent() can consume quite a bit of time; really should have a progress
               // meter of some kind here.
               exportLocation.putContent(pngWriter, image);
-              if (image instanceof ZoneImageGenerator) {
-                log.debug("ZoneImageGenerator() stats: " + image.toString());
-              }
               MapTool.getFrame()
                   .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotSaving"));
             } catch (Exception e) {
@@ -584,6 +575,26 @@ public void screenCapture() throws Exception {
               MapTool.getFrame()
                   .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotSaved"));
             }
+          } else if (interactPanel.isSelected("METHOD_IMAGE_WRITER")) {
+            // Render the map in tiles and stream them to the file, so that the memory needed
+            // does not depend on the size of the map
+            try {
+              final PlayerView view = preScreenshot();
+              MapTool.getFrame()
+                  .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotStreaming"));
+              try (OutputStream out = exportLocation.openContentStream()) {
+                new TiledZoneImageWriter(renderer, view).writePng(out);
+              }
+              MapTool.getFrame()
+                  .setStatusMessage(I18N.getString("dialog.screenshot.msg.screenshotSaved"));
+            } catch (Exception e) {
+              log.error("Unable to export the map", e);
+              MapTool.getFrame()
+                  .setStatusMessage(
+                      I18N.getString("dialog.screenshot.error.failedImageGeneration"));
+            } finally {
+              postScreenshot();
+            }
           } else if (interactPanel.isSelected("METHOD_BACKGROUND")) {
             // We must call preScreenshot before creating the ZoneImageGenerator, because
             // ZoneImageGenerator uses the ZoneRenderer's bounds to set itself up
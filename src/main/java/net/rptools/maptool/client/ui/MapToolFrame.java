@@ -84,8 +84,10 @@
 import net.rptools.maptool.client.ui.zone.PointerToolOverlay;
 import net.rptools.maptool.client.ui.zone.ZoneMiniMapPanel;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
+import net.rptools.maptool.client.ui.zone.ZoneRendererFactory;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Asset;
+import net.rptools.maptool.model.Campaign;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.Zone;
@@ -749,7 +751,7 @@ public void showTokenPropertiesDialog(Token token, ZoneRenderer zr) {
         dialog.showDialog(token);
         if (dialog.isTokenSaved()) {
           // Checks if the map still exists. Fixes #1646.
-          if (getZoneRenderers().contains(zr) && zr.getZone().getToken(token.getId()) != null) {
+          if (zoneRendererList.contains(zr) && zr.getZone().getToken(token.getId()) != null) {
             MapTool.serverCommand().editToken(zr.getZone().getId(), token);
           }
         }
@@ -1471,11 +1473,36 @@ public Pen getPen() {
     return pen;
   }
 
+  /**
+   * Returns the renderers that have been created so far. A zone gets its renderer when it is first
+   * looked up, so the zones that have not been read from the campaign file have none. Use {@link
+   * #loadAllZoneRenderers()} when every zone is needed, or the lookups of {@link Campaign} that
+   * read only the zones they find.
+   *
+   * @return the list of renderers.
+   */
   public List<ZoneRenderer> getZoneRenderers() {
     // TODO: This should prob be immutable
     return zoneRendererList;
   }
 
+  /**
+   * Returns the renderers of all zones of the campaign. Zones that have not been read from the
+   * campaign file yet are read first and get their renderer, so this is only to be used when every
+   * zone is needed.
+   *
+   * @return the list of renderers.
+   */
+  public List<ZoneRenderer> loadAllZoneRenderers() {
+    Campaign campaign = MapTool.getCampaign();
+    if (zoneRendererList.size() < campaign.getZoneCount()) {
+      for (Zone zone : campaign.getZones()) {
+        getZoneRenderer(zone);
+      }
+    }
+    return zoneRendererList;
+  }
+
   public ZoneRenderer getCurrentZoneRenderer() {
     return currentRenderer;
   }
@@ -1486,7 +1513,9 @@ public HTMLOverlayPanel getOverlayPanel() {
   }
 
   public void addZoneRenderer(ZoneRenderer renderer) {
-    zoneRendererList.add(renderer);
+    synchronized (zoneRendererList) {
+      zoneRendererList.add(renderer);
+    }
     if (renderer.getZone().getId().equals(this.PreRemoveRenderGUID)) {
       if (MapTool.getPlayer().isGM() || renderer.getZone().isVisible()) {
         this.PreRemoveRenderGUID = null;
@@ -1562,7 +1591,7 @@ public void setCurrentZoneRenderer(ZoneRenderer renderer) {
     Zone oldZone = null;
     if (currentRenderer != null) {
       // Check if the zone still exists. Fix #1568
-      if (MapTool.getFrame().getZoneRenderers().contains(currentRenderer)) {
+      if (zoneRendererList.contains(currentRenderer)) {
         stopTokenDrag(); // if a token is being dragged, stop the drag
       }
       oldZone = currentRenderer.getZone();
@@ -1653,16 +1682,32 @@ public ZoneRenderer getZoneRenderer(Zone zone) {
         return renderer;
       }
     }
+    Campaign campaign = MapTool.getCampaign();
+    if (campaign.getZone(zone.getId()) == zone) {
+      ZoneRenderer renderer = addZoneRenderer(campaign, zone);
+      return renderer.getZone() == zone ? renderer : null;
+    }
     return null;
   }
 
   /**
-   * Return the first ZoneRender for which the zone has the zoneGUID (should be only one).
+   * Return the first ZoneRender for which the zone has the zoneGUID (should be only one). A zone of
+   * the campaign that has no renderer yet, because it has not been needed before, gets one now.
    *
    * @param zoneGUID the zoneGUID of the zone.
    * @return the ZoneRenderer.
    */
   public ZoneRenderer getZoneRenderer(GUID zoneGUID) {
+    ZoneRenderer renderer = findZoneRenderer(zoneGUID);
+    if (renderer != null) {
+      return renderer;
+    }
+    Campaign campaign = MapTool.getCampaign();
+    Zone zone = campaign.getZone(zoneGUID);
+    return zone != null ? addZoneRenderer(campaign, zone) : null;
+  }
+
+  private ZoneRenderer findZoneRenderer(GUID zoneGUID) {
     for (ZoneRenderer renderer : zoneRendererList) {
       if (zoneGUID.equals(renderer.getZone().getId())) {
         return renderer;
@@ -1671,6 +1716,41 @@ public ZoneRenderer getZoneRenderer(GUID zoneGUID) {
     return null;
   }
 
+  /**
+   * Creates the renderer of a zone of the campaign unless it already has one, keeping the renderers
+   * in campaign order, and announces the zone. Lookups run on macro and network threads too, so the
+   * renderer is created under the lock of the list and the zone is announced on the EDT.
+   */
+  private ZoneRenderer addZoneRenderer(Campaign campaign, Zone zone) {
+    ZoneRenderer renderer;
+    synchronized (zoneRendererList) {
+      renderer = findZoneRenderer(zone.getId());
+      if (renderer != null) {
+        return renderer;
+      }
+      int index = 0;
+      for (GUID zoneId : campaign.getZoneIds()) {
+        if (zoneId.equals(zone.getId())) {
+          break;
+        }
+        ZoneRenderer previous = findZoneRenderer(zoneId);
+        if (previous != null) {
+          index = zoneRendererList.indexOf(previous) + 1;
+        }
+      }
+      renderer = ZoneRendererFactory.newRenderer(zone);
+      zoneRendererList.add(index, renderer);
+    }
+    Runnable announce =
+        () -> MapTool.getEventDispatcher().fireEvent(MapTool.ZoneEvent.Added, campaign, null, zone);
+    if (SwingUtilities.isEventDispatchThread()) {
+      announce.run();
+    } else {
+      SwingUtilities.invokeLater(announce);
+    }
+    return renderer;
+  }
+
   /**
    * Return the first ZoneRender for which the zone has the zoneName (could be multiples).
    *
@@ -1678,9 +1758,9 @@ public ZoneRenderer getZoneRenderer(GUID zoneGUID) {
    * @return the ZoneRenderer.
    */
   public ZoneRenderer getZoneRenderer(final String zoneName) {
-    for (ZoneRenderer renderer : zoneRendererList) {
-      if (zoneName.equals(renderer.getZone().getName())) {
-        return renderer;
+    for (Zone zone : MapTool.getCampaign().getZonesNamed(zoneName)) {
+      if (zoneName.equals(zone.getName())) {
+        return getZoneRenderer(zone);
       }
     }
     return null;
@@ -0,0 +1,171 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.rptools.lib.image.PngStreamWriter;
+import net.rptools.maptool.client.ui.zone.PlayerView;
+import net.rptools.maptool.client.ui.zone.ZoneRenderer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the current bounds of a {@link ZoneRenderer} as a PNG image without holding the whole
+ * image in memory. The zone is rendered in tiles of at most {@link #TILE_SIZE} pixels, a strip of
+ * tiles at a time, and each strip is handed to a {@link PngStreamWriter}. The strips are compressed
+ * on a background thread while the next strip is rendered, so at most two strips and one tile are
+ * in memory no matter how large the map is.
+ *
+ * <p>Rendering changes the bounds and scale of the renderer while it runs, so it must be done on
+ * the event dispatch thread like any other use of the renderer.
+ */
+public class TiledZoneImageWriter {
+  private static final Logger log = LogManager.getLogger(TiledZoneImageWriter.class);
+
+  /** The most pixels on either side of a rendered tile. */
+  public static final int TILE_SIZE = 1024;
+
+  /** The most pixels in a strip, 16 MB for most systems. */
+  private static final int MAX_STRIP_PIXELS = 4 * 1024 * 1024;
+
+  private static final ExecutorService encoder =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("zone-png-encoder-%d").setDaemon(true).build());
+
+  private final ZoneRenderer renderer;
+  private final PlayerView view;
+
+  private int tilesRendered;
+
+  /**
+   * @param renderer the renderer, set up to cover the area to write.
+   * @param view the view to render the zone for.
+   */
+  public TiledZoneImageWriter(ZoneRenderer renderer, PlayerView view) {
+    this.renderer = renderer;
+    this.view = view;
+  }
+
+  /**
+   * Renders the zone and writes it as a PNG image.
+   *
+   * @param out the stream to write to, which is not closed.
+   * @throws IOException if the image cannot be written.
+   */
+  public void writePng(OutputStream out) throws IOException {
+    Scale origScale = new Scale(renderer.getZoneScale());
+    Rectangle origBounds = new Rectangle(renderer.getBounds());
+    int width = origBounds.width;
+    int height = origBounds.height;
+    int stripHeight = Math.max(1, Math.min(TILE_SIZE, MAX_STRIP_PIXELS / width));
+
+    long start = System.currentTimeMillis();
+    PngStreamWriter png = new PngStreamWriter(out, width, height);
+    BufferedImage tile =
+        new BufferedImage(Math.min(TILE_SIZE, width), stripHeight, BufferedImage.TYPE_INT_RGB);
+    Future<?> pending = null;
+    boolean written = false;
+    try {
+      for (int y = 0; y < height; y += stripHeight) {
+        int rows = Math.min(stripHeight, height - y);
+        int[] strip = new int[width * rows];
+        for (int x = 0; x < width; x += TILE_SIZE) {
+          Rectangle rect = new Rectangle(x, y, Math.min(TILE_SIZE, width - x), rows);
+          renderTile(tile, rect, origScale);
+          tile.getRGB(0, 0, rect.width, rows, strip, x, width);
+        }
+        // Wait for the previous strip before queueing this one, so only two are ever held
+        waitFor(pending);
+        pending =
+            encoder.submit(
+                () -> {
+                  png.writeRows(strip, 0, width, rows);
+                  return null;
+                });
+      }
+      waitFor(pending);
+      written = true;
+      png.close();
+    } finally {
+      // If rendering failed, don't let the encoder write to the stream once the caller closed it
+      if (pending != null && !pending.isDone()) {
+        try {
+          pending.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          log.debug("Discarding the image after an error", e);
+        }
+      }
+      if (!written && (pending == null || pending.isDone())) {
+        png.abort();
+      }
+      renderer.setBounds(origBounds);
+      renderer.setZoneScale(origScale);
+    }
+    log.debug(
+        "Rendered {}x{} in {} tiles in {} ms",
+        width,
+        height,
+        tilesRendered,
+        System.currentTimeMillis() - start);
+  }
+
+  /** Renders one tile of the zone, at the origin of the tile image. */
+  private void renderTile(BufferedImage tile, Rectangle rect, Scale origScale) {
+    Scale s = new Scale(origScale);
+    s.setOffset(origScale.getOffsetX() - rect.x, origScale.getOffsetY() - rect.y);
+    renderer.setZoneScale(s);
+    renderer.setBounds(rect);
+
+    Graphics2D g = tile.createGraphics();
+    try {
+      g.setColor(Color.black);
+      g.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+      g.setClip(0, 0, rect.width, rect.height);
+      renderer.renderZone(g, view);
+    } finally {
+      g.dispose();
+    }
+    tilesRendered++;
+  }
+
+  private static void waitFor(Future<?> pending) throws IOException {
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing the image", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioe) {
+        throw ioe;
+      }
+      throw new IOException("Unable to write the image", e.getCause());
+    }
+  }
+}
@@ -593,7 +593,7 @@ public void actionPerformed(ActionEvent e) {
         } else {
           token.addOwner(name);
         }
-        MapTool.serverCommand().putToken(zone.getId(), token);
+        MapTool.serverCommand().patchToken(zone.getId(), token);
       }
       MapTool.getFrame().updateTokenTree();
     }
@@ -802,7 +802,7 @@ public void actionPerformed(ActionEvent e) {
           Token token = zone.getToken(tokenGUID);
           BigDecimal val = hide.isSelected() ? null : new BigDecimal(slider.getValue() / 100.0);
           token.setState(name, val);
-          MapTool.serverCommand().putToken(zone.getId(), token);
+          MapTool.serverCommand().patchToken(zone.getId(), token);
         }
       }
     }
@@ -857,7 +857,7 @@ public void actionPerformed(ActionEvent aE) {
               aE.getActionCommand(),
               ((JCheckBoxMenuItem) aE.getSource()).isSelected() ? Boolean.TRUE : null);
         } // endif
-        MapTool.serverCommand().putToken(renderer.getZone().getId(), token);
+        MapTool.serverCommand().patchToken(renderer.getZone().getId(), token);
       } // endfor
       renderer.repaint();
     }
@@ -923,7 +923,7 @@ public void actionPerformed(ActionEvent e) {
         Token token = zone.getToken(tokenGUID);
         if (token != null) {
           token.setOwnedByAll(true);
-          MapTool.serverCommand().putToken(zone.getId(), token);
+          MapTool.serverCommand().patchToken(zone.getId(), token);
         }
       }
     }
@@ -941,7 +941,7 @@ public void actionPerformed(ActionEvent e) {
         Token token = zone.getToken(tokenGUID);
         if (token != null) {
           token.clearAllOwners();
-          MapTool.serverCommand().putToken(zone.getId(), token);
+          MapTool.serverCommand().patchToken(zone.getId(), token);
         }
       }
     }
@@ -1017,7 +1017,7 @@ public void actionPerformed(ActionEvent e) {
         // No more last path
         token.setLastPath(null);
 
-        MapTool.serverCommand().putToken(zone.getId(), token);
+        MapTool.serverCommand().patchToken(zone.getId(), token);
       }
       getRenderer().repaint();
     }
@@ -0,0 +1,175 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import net.rptools.lib.swing.SwingUtil;
+import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.server.TrafficStatistics;
+
+/**
+ * Shows the network traffic of the server hosted by this client: what each command costs to send
+ * and handle, and how long the messages to each client wait. The tables are refreshed every second
+ * while the dialog is open.
+ */
+public class TrafficStatisticsDialog extends JDialog {
+
+  private static final int REFRESH_DELAY = 1000;
+
+  private static final String[] COMMAND_COLUMNS = {
+    "command",
+    "sent",
+    "messages",
+    "serializedBytes",
+    "compressedBytes",
+    "serializeMillis",
+    "handled",
+    "handleMillis",
+    "handleCpuMillis"
+  };
+
+  private static final String[] CLIENT_COLUMNS = {
+    "client", "channel", "queued", "messages", "bytes", "meanWaitMillis", "maxWaitMillis"
+  };
+
+  private final TrafficStatistics statistics;
+  private final JsonTableModel commandModel = new JsonTableModel(COMMAND_COLUMNS);
+  private final JsonTableModel clientModel = new JsonTableModel(CLIENT_COLUMNS);
+  private final Timer timer = new Timer(REFRESH_DELAY, e -> refresh());
+
+  /**
+   * Creates the dialog.
+   *
+   * @param statistics the traffic of the server.
+   */
+  public TrafficStatisticsDialog(TrafficStatistics statistics) {
+    super(MapTool.getFrame(), I18N.getText("TrafficStatisticsDialog.title"), false);
+    this.statistics = statistics;
+    setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+    setSize(800, 500);
+
+    JTable commandTable = new JTable(commandModel);
+    commandTable.setAutoCreateRowSorter(true);
+    JTable clientTable = new JTable(clientModel);
+    clientTable.setAutoCreateRowSorter(true);
+    JSplitPane split =
+        new JSplitPane(
+            JSplitPane.VERTICAL_SPLIT,
+            new JScrollPane(commandTable),
+            new JScrollPane(clientTable));
+    split.setResizeWeight(0.6);
+
+    JButton closeButton = new JButton(I18N.getText("Button.close"));
+    closeButton.addActionListener(e -> dispose());
+    JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    buttons.add(closeButton);
+
+    setLayout(new BorderLayout());
+    ((JComponent) getContentPane()).setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+    add(split, BorderLayout.CENTER);
+    add(buttons, BorderLayout.SOUTH);
+    getRootPane().setDefaultButton(closeButton);
+
+    refresh();
+  }
+
+  @Override
+  public void setVisible(boolean b) {
+    if (b) {
+      SwingUtil.centerOver(this, MapTool.getFrame());
+      timer.start();
+    } else {
+      timer.stop();
+    }
+    super.setVisible(b);
+  }
+
+  @Override
+  public void dispose() {
+    timer.stop();
+    super.dispose();
+  }
+
+  private void refresh() {
+    JsonObject json = statistics.toJson();
+    commandModel.setRows(json.getAsJsonArray("commands"));
+    clientModel.setRows(json.getAsJsonArray("clients"));
+  }
+
+  /** Shows the objects of a JSON array, a row for each object and a column for each named field. */
+  private static class JsonTableModel extends AbstractTableModel {
+    private final String[] columns;
+    private JsonArray rows = new JsonArray();
+
+    private JsonTableModel(String[] columns) {
+      this.columns = columns;
+    }
+
+    private void setRows(JsonArray rows) {
+      this.rows = rows;
+      fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+      return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return I18N.getText("TrafficStatisticsDialog.column." + columns[column]);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+      return column == 0 || columns[column].equals("channel") ? String.class : Number.class;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      JsonElement value = rows.get(rowIndex).getAsJsonObject().get(columns[columnIndex]);
+      if (value == null || value.isJsonNull()) {
+        return null;
+      }
+      if (getColumnClass(columnIndex) == String.class) {
+        return value.getAsString();
+      }
+      // Times are fractions of a millisecond, which only matter for the quick commands
+      return columns[columnIndex].endsWith("Millis")
+          ? Math.round(value.getAsDouble() * 100) / 100.0
+          : value.getAsLong();
+    }
+  }
+}
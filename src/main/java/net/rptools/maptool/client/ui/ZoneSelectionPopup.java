@@ -48,7 +48,7 @@ private JMenuItem createEntries() {
       MapTool.getFrame().getToolbarPanel().getMapselect().setVisible(false);
     } else {
       List<ZoneRenderer> rendererList =
-          new LinkedList<ZoneRenderer>(MapTool.getFrame().getZoneRenderers());
+          new LinkedList<ZoneRenderer>(MapTool.getFrame().loadAllZoneRenderers());
       if (!MapTool.getPlayer().isGM()) {
         rendererList.removeIf(renderer -> !renderer.getZone().isVisible());
       }
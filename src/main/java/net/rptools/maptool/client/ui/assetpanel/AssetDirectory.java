@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.assetpanel;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Image;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
@@ -21,13 +22,16 @@
 import java.io.File;
 import java.io.FilenameFilter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.ImageIcon;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.Token;
@@ -49,12 +53,31 @@ public class AssetDirectory extends Directory {
                   .getResource("net/rptools/maptool/client/image/hero-lab-icon.png"))
           .getImage();
 
-  private final Map<File, FutureTask<Image>> imageMap = new HashMap<File, FutureTask<Image>>();
+  private final Map<File, ImageLoadTask> imageMap = new HashMap<File, ImageLoadTask>();
 
   private static final Image INVALID_IMAGE = new BufferedImage(1, 1, Transparency.OPAQUE);
 
-  private static ExecutorService largeImageLoaderService = Executors.newFixedThreadPool(1);
-  private static ExecutorService smallImageLoaderService = Executors.newFixedThreadPool(2);
+  /**
+   * Loads the thumbnails on all processors. Thumbnails being shown are loaded before prefetched
+   * ones, and the most recently requested first, so that the thumbnails at the current scroll
+   * position come first.
+   */
+  private static final ThreadPoolExecutor imageLoaderService;
+
+  static {
+    int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    imageLoaderService =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("asset-thumbnail-%d").setDaemon(true).build());
+  }
+
+  /** Orders the requests for thumbnails. */
+  private static final AtomicLong requestCount = new AtomicLong();
 
   private AtomicBoolean continueProcessing = new AtomicBoolean(true);
 
@@ -87,7 +110,7 @@ public void refresh() {
    * @return the Image asset
    */
   public Image getImageFor(File imageFile) {
-    FutureTask<Image> future = imageMap.get(imageFile);
+    ImageLoadTask future = imageMap.get(imageFile);
     if (future != null) {
       if (future.isDone()) {
         try {
@@ -97,27 +120,38 @@ public Image getImageFor(File imageFile) {
           return null;
         }
       }
-      // Not done loading yet, don't block
+      // Not done loading yet, don't block. A prefetched thumbnail that is now shown and still
+      // waiting is loaded again ahead of the other prefetched ones.
+      if (future.prefetch && imageLoaderService.remove(future)) {
+        load(imageFile, false);
+      }
       return null;
     }
-    // load the asset in the background
-    future =
-        new FutureTask<Image>(new ImageLoader(imageFile)) {
-          @Override
-          protected void done() {
-            firePropertyChangeEvent(
-                new PropertyChangeEvent(AssetDirectory.this, PROPERTY_IMAGE_LOADED, false, true));
-          }
-        };
-    if (imageFile != null) {
-      if (imageFile.length() < 30 * 1024) {
-        smallImageLoaderService.execute(future);
-      } else {
-        largeImageLoaderService.execute(future);
+    load(imageFile, false);
+    return null;
+  }
+
+  /**
+   * Starts loading the thumbnails of files that are likely to be shown soon, such as the files
+   * after the current scroll position. They are loaded after the thumbnails being shown.
+   *
+   * @param imageFiles the files.
+   */
+  public void prefetch(List<File> imageFiles) {
+    for (File imageFile : imageFiles) {
+      if (!imageMap.containsKey(imageFile)) {
+        load(imageFile, true);
       }
+    }
+  }
+
+  /** Loads the thumbnail of a file in the background. */
+  private void load(File imageFile, boolean prefetch) {
+    if (imageFile != null) {
+      ImageLoadTask future = new ImageLoadTask(imageFile, prefetch);
       imageMap.put(imageFile, future);
+      imageLoaderService.execute(future);
     }
-    return null;
   }
 
   @Override
@@ -125,6 +159,30 @@ protected Directory newDirectory(File directory, FilenameFilter fileFilter) {
     return new AssetDirectory(directory, fileFilter);
   }
 
+  private class ImageLoadTask extends FutureTask<Image> implements Comparable<ImageLoadTask> {
+    private final boolean prefetch;
+    private final long order = requestCount.incrementAndGet();
+
+    public ImageLoadTask(File imageFile, boolean prefetch) {
+      super(new ImageLoader(imageFile));
+      this.prefetch = prefetch;
+    }
+
+    @Override
+    protected void done() {
+      firePropertyChangeEvent(
+          new PropertyChangeEvent(AssetDirectory.this, PROPERTY_IMAGE_LOADED, false, true));
+    }
+
+    @Override
+    public int compareTo(ImageLoadTask other) {
+      if (prefetch != other.prefetch) {
+        return prefetch ? 1 : -1;
+      }
+      return Long.compare(other.order, order);
+    }
+  }
+
   private class ImageLoader implements Callable<Image> {
     private final File imageFile;
 
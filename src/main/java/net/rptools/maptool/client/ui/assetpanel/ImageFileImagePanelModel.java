@@ -63,6 +63,9 @@ public class ImageFileImagePanelModel implements ImagePanelModel {
 
   private static final Logger log = LogManager.getLogger(ImageFileImagePanelModel.class);
   private static final Color TOKEN_BG_COLOR = new Color(215, 215, 215);
+
+  /** The number of thumbnails to load ahead of the ones being shown. */
+  private static final int PREFETCH_COUNT = 32;
   private static Image rptokenDecorationImage;
   private static Image herolabDecorationImage;
 
@@ -166,6 +169,9 @@ public Image getImage(int index) {
         image = ((AssetDirectory) dir).getImageFor(fileList.get(index));
       } else if (dir instanceof AssetDirectory) {
         image = ((AssetDirectory) dir).getImageFor(fileList.get(index));
+        // Start on the thumbnails after this one, so they are ready when scrolled to
+        int prefetchEnd = Math.min(fileList.size(), index + 1 + PREFETCH_COUNT);
+        ((AssetDirectory) dir).prefetch(fileList.subList(index + 1, prefetchEnd));
       } else if (dir instanceof PdfAsDirectory) {
         image = ((PdfAsDirectory) dir).getImageFor(fileList.get(index));
       }
@@ -17,6 +17,7 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
@@ -529,6 +530,17 @@ public String getMessageHistory() {
     return messagePanel.getMessagesText();
   }
 
+  /**
+   * Saves the message history to a chat log. Only the messages added since the last save to the
+   * same file are appended to it.
+   *
+   * @param chatLog the chat log.
+   * @throws IOException if the chat log cannot be written.
+   */
+  public void saveMessageHistory(File chatLog) throws IOException {
+    messagePanel.saveMessages(chatLog);
+  }
+
   public void setCharacterLabel(String label) {
     characterLabel.setText(label);
   }
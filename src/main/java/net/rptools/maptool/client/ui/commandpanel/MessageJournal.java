@@ -0,0 +1,158 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.commandpanel;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of the rendered chat messages. All messages of a session are kept in a file
+ * so that the message panel only needs to hold the latest ones, older messages are read back when
+ * they are needed again. Saving the chat log copies only the messages added since the last save.
+ *
+ * <p>All methods are synchronized, messages are added on the event dispatch thread while the chat
+ * log is saved by a timer.
+ */
+class MessageJournal {
+
+  private final File file;
+  private OutputStream out;
+
+  /** The start of each message in the file, plus the end of the last one. */
+  private final List<Long> offsets = new ArrayList<>();
+
+  /** The file the chat log was last saved to. */
+  private File savedTo;
+
+  /** How much of the journal has been saved to {@link #savedTo}. */
+  private long savedOffset;
+
+  /**
+   * @param file the file of the journal, which is replaced.
+   * @throws IOException if the file cannot be created.
+   */
+  MessageJournal(File file) throws IOException {
+    this.file = file;
+    file.deleteOnExit();
+    open();
+  }
+
+  private void open() throws IOException {
+    out = new BufferedOutputStream(new FileOutputStream(file));
+    offsets.clear();
+    offsets.add(0L);
+  }
+
+  /**
+   * Appends a message.
+   *
+   * @param html the rendered message.
+   * @throws IOException if the message cannot be written.
+   */
+  synchronized void append(String html) throws IOException {
+    byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+    out.write(bytes);
+    offsets.add(offsets.get(offsets.size() - 1) + bytes.length);
+  }
+
+  /** @return the number of messages in the journal. */
+  synchronized int size() {
+    return offsets.size() - 1;
+  }
+
+  /**
+   * Reads messages back.
+   *
+   * @param from the index of the first message.
+   * @param to the index after the last message.
+   * @return the messages, one string each.
+   * @throws IOException if the journal cannot be read.
+   */
+  synchronized List<String> read(int from, int to) throws IOException {
+    out.flush();
+    List<String> messages = new ArrayList<>(to - from);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      raf.seek(offsets.get(from));
+      for (int i = from; i < to; i++) {
+        byte[] bytes = new byte[(int) (offsets.get(i + 1) - offsets.get(i))];
+        raf.readFully(bytes);
+        messages.add(new String(bytes, StandardCharsets.UTF_8));
+      }
+    }
+    return messages;
+  }
+
+  /**
+   * Writes all messages.
+   *
+   * @param target the stream to write to.
+   * @throws IOException if the journal cannot be read or the stream written.
+   */
+  synchronized void copyTo(OutputStream target) throws IOException {
+    copy(0, target);
+  }
+
+  /**
+   * Saves the chat log. The first time a file is saved to, or if the file is gone, the header and
+   * all messages are written to it. Otherwise only the messages added since the last save are
+   * appended, so saving takes time in proportion to the new messages only.
+   *
+   * @param chatLog the chat log file.
+   * @param header written at the start of a new chat log.
+   * @throws IOException if the journal cannot be read or the chat log written.
+   */
+  synchronized void save(File chatLog, String header) throws IOException {
+    boolean append = chatLog.equals(savedTo) && chatLog.exists();
+    try (OutputStream target = new BufferedOutputStream(new FileOutputStream(chatLog, append))) {
+      if (!append) {
+        target.write(header.getBytes(StandardCharsets.UTF_8));
+        savedOffset = 0;
+      }
+      copy(savedOffset, target);
+    }
+    savedTo = chatLog;
+    savedOffset = offsets.get(offsets.size() - 1);
+  }
+
+  private void copy(long from, OutputStream target) throws IOException {
+    out.flush();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      raf.seek(from);
+      InputStream in = Channels.newInputStream(raf.getChannel());
+      in.transferTo(target);
+    }
+  }
+
+  /**
+   * Removes all messages. The chat log keeps the messages saved so far, later messages are
+   * appended to it.
+   *
+   * @throws IOException if the journal cannot be emptied.
+   */
+  synchronized void clear() throws IOException {
+    out.close();
+    open();
+    savedOffset = 0;
+  }
+}
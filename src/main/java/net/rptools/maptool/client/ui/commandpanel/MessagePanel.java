@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.commandpanel;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.Color;
 import java.awt.EventQueue;
 import java.awt.GridLayout;
@@ -22,13 +23,25 @@
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.JEditorPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.ToolTipManager;
 import javax.swing.event.HyperlinkEvent;
@@ -38,18 +51,58 @@
 import javax.swing.text.html.StyleSheet;
 import net.rptools.lib.sound.SoundManager;
 import net.rptools.maptool.client.AppPreferences;
+import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.functions.MacroLinkFunction;
 import net.rptools.maptool.client.swing.MessagePanelEditorKit;
 import net.rptools.maptool.model.TextMessage;
+import net.rptools.maptool.model.player.Player;
 import net.rptools.maptool.util.MessageUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class MessagePanel extends JPanel {
 
+  private static final Logger log = LogManager.getLogger(MessagePanel.class);
+
+  /** The number of the latest messages kept in the document, older ones are in the journal. */
+  private static final int MAX_RENDERED_MESSAGES = 500;
+
+  /** Messages read back from the journal at once when scrolling to the top of the document. */
+  private static final int MESSAGE_PAGE_SIZE = 100;
+
+  private static final String HISTORY_FOOTER = "</body></html>";
+
+  /**
+   * Renders the messages and writes them to the journal in order, so that neither the patterns nor
+   * the journal run on the EDT.
+   */
+  private static final ExecutorService renderer =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("chat-render-%d").setDaemon(true).build());
+
   private final JScrollPane scrollPane;
   private final HTMLDocument document;
   private final JEditorPane textPane;
 
+  /** All messages of the session, or null if the journal could not be created. */
+  private final MessageJournal journal;
+
+  /** The index in the journal of the first message in the document. */
+  private int firstRenderedMessage;
+
+  /** The number of body elements of each message in the document, oldest first. */
+  private final Deque<Integer> renderedElementCounts = new ArrayDeque<>();
+
+  private int renderedElementTotal;
+
+  private boolean showingOlderMessages;
+
+  /** Counts the times the messages were cleared, so that older pages read before are dropped. */
+  private int clearCount;
+
+  private String trustedPrefixCss = "";
+
   private static final String SND_MESSAGE_RECEIVED = "messageReceived";
 
   /** From ImageView */
@@ -98,6 +151,7 @@ public void componentShown(ComponentEvent e) {}
     ToolTipManager.sharedInstance().registerComponent(textPane);
 
     document = (HTMLDocument) textPane.getDocument();
+    journal = createJournal();
 
     // Initialize and prepare for usage
     refreshRenderer();
@@ -126,17 +180,41 @@ public void mouseDragged(MouseEvent e) {
               }
             });
 
+    scrollPane
+        .getVerticalScrollBar()
+        .addAdjustmentListener(
+            e -> {
+              JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+              if (journal != null
+                  && !showingOlderMessages
+                  && firstRenderedMessage > 0
+                  && scrollBar.getValue() == scrollBar.getMinimum()
+                  && scrollBar.getVisibleAmount() < scrollBar.getMaximum()) {
+                showingOlderMessages = true;
+                showOlderMessages();
+              }
+            });
+
     add(scrollPane);
     clearMessages();
 
     SoundManager.registerSoundEvent(SND_MESSAGE_RECEIVED, SoundManager.getRegisteredSound("Clink"));
   }
 
+  private static MessageJournal createJournal() {
+    try {
+      return new MessageJournal(
+          new File(AppUtil.getTmpDir(), "chat-" + UUID.randomUUID() + ".journal"));
+    } catch (IOException e) {
+      log.error("Unable to create the chat journal, all messages are kept in the chat", e);
+      return null;
+    }
+  }
+
   public void refreshRenderer() {
     // Create the style
     StyleSheet style = document.getStyleSheet();
-    style.addRule(
-        "body { font-family: sans-serif; font-size: " + AppPreferences.getFontSize() + "pt}");
+    style.addRule(getBodyCss());
     style.addRule("div {margin-bottom: 5px}");
     style.addRule(".roll {background:#efefef}");
     setTrustedMacroPrefixColors(
@@ -145,6 +223,19 @@ public void refreshRenderer() {
     repaint();
   }
 
+  private static String getBodyCss() {
+    return "body { font-family: sans-serif; font-size: " + AppPreferences.getFontSize() + "pt}";
+  }
+
+  /** @return the style rules of the messages, for saved message histories. */
+  private String getStyleRules() {
+    return getBodyCss()
+        + "\ndiv {margin-bottom: 5px}\n.roll {background:#efefef}\n"
+        + trustedPrefixCss
+        + "\n"
+        + MessageUtil.getMessageCss();
+  }
+
   public void setTrustedMacroPrefixColors(Color foreground, Color background) {
     StyleSheet style = document.getStyleSheet();
     String css =
@@ -152,112 +243,300 @@ public void setTrustedMacroPrefixColors(Color foreground, Color background) {
             ".trusted-prefix { color: #%06X; background: #%06X }",
             (foreground.getRGB() & 0xFFFFFF), (background.getRGB() & 0xFFFFFF));
     style.addRule(css);
+    trustedPrefixCss = css;
     repaint();
   }
 
   public String getMessagesText() {
+    if (journal == null) {
+      return textPane.getText();
+    }
+    var history = new ByteArrayOutputStream();
+    try {
+      history.write(getHistoryHeader().getBytes(StandardCharsets.UTF_8));
+      journal.copyTo(history);
+      history.write(HISTORY_FOOTER.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.error("Unable to read the chat journal", e);
+      return textPane.getText();
+    }
+    return history.toString(StandardCharsets.UTF_8);
+  }
 
-    return textPane.getText();
+  /**
+   * Saves the messages to a chat log. Only the messages added since the last save to the same file
+   * are appended to it.
+   *
+   * @param chatLog the chat log.
+   * @throws IOException if the chat log cannot be written.
+   */
+  public void saveMessages(File chatLog) throws IOException {
+    if (journal == null) {
+      try (FileWriter writer = new FileWriter(chatLog)) {
+        writer.write(getMessagesText());
+      }
+    } else {
+      journal.save(chatLog, getHistoryHeader());
+    }
+  }
+
+  /** @return the start of a saved message history, up to the opening body tag. */
+  private String getHistoryHeader() {
+    return "<html><head><style type=\"text/css\">" + getStyleRules() + "</style></head><body>";
   }
 
   public void clearMessages() {
-    EventQueue.invokeLater(
+    // Through the renderer so that messages added before are not shown after
+    renderer.execute(
         () -> {
-          textPane.setText("<html><body id=\"body\"></body></html>");
-          ((MessagePanelEditorKit) textPane.getEditorKit()).flush();
+          if (journal != null) {
+            try {
+              journal.clear();
+            } catch (IOException e) {
+              log.error("Unable to clear the chat journal", e);
+            }
+          }
+          EventQueue.invokeLater(
+              () -> {
+                resetDocument();
+                firstRenderedMessage = 0;
+                clearCount++;
+              });
         });
   }
 
+  private void resetDocument() {
+    textPane.setText("<html><body id=\"body\"></body></html>");
+    ((MessagePanelEditorKit) textPane.getEditorKit()).flush();
+    renderedElementCounts.clear();
+    renderedElementTotal = 0;
+  }
+
   /*
    * We use ASCII control characters to mark off the rolls so that there's no limitation on what (printable) characters the output can include Rolls look like "\036roll output\036" or
    * "\036tooltip\037roll output\036" or "\036\001format info\002roll output\036" or "\036\001format info\002tooltip\037roll output\036"
    */
-  private static Pattern roll_pattern =
+  private static final Pattern roll_pattern =
       Pattern.compile("\036(?:\001([^\002]*)\002)?([^\036\037]*)(?:\037([^\036]*))?\036");
 
+  /** Auto inline expansion for {HTTP|HTTPS} URLs. */
+  private static final Pattern AUTO_LINK_PATTERN =
+      Pattern.compile("(^|\\s|>|\002)(https?://[^<>\002\003\\s]+)");
+
+  // TODO change this so 'macro' is case-insensitive
+  private static final Pattern MACRO_LINK_PATTERN =
+      Pattern.compile(
+          "href=([\"'])\\s*(macro://(?:[^/]*)/(?:[^?]*)(?:\\?(?:.*?))?)\\1\\s*",
+          Pattern.CASE_INSENSITIVE);
+
+  // TODO The leading and trailing '.*' are probably not needed -- test this before removing them
+  private static final Pattern EMPTY_OUTPUT_PATTERN = Pattern.compile(".*\002\\s*\003.*");
+
+  private static final Pattern OUTPUT_MARKER_PATTERN = Pattern.compile("\002|\003");
+
+  /**
+   * A message ready to be shown.
+   *
+   * @param html the message, or null if nothing of it is visible to this player.
+   * @param macroLinks the macro links in the message to process.
+   * @param fromOther whether the message comes from another player.
+   */
+  private record RenderedMessage(String html, List<String> macroLinks, boolean fromOther) {}
+
   public void addMessage(final TextMessage message) {
-    EventQueue.invokeLater(
+    Player player = MapTool.getPlayer();
+    renderer.execute(
         () -> {
-          String output;
-
-          {
-            StringBuffer text = new StringBuffer();
-            Matcher m = roll_pattern.matcher(message.getMessage());
-            while (m.find()) {
-              HashSet<String> options = new HashSet<String>();
-              if (m.group(1) != null) {
-                options.addAll(Arrays.asList(m.group(1).split(",")));
-
-                if (!options.contains("w") && !options.contains("g") && !options.contains("s"))
-                  ; // visible for everyone
-                else if (options.contains("w:" + MapTool.getPlayer().getName().toLowerCase()))
-                  ; // visible for this player
-                else if (options.contains("g") && MapTool.getPlayer().isGM())
-                  ; // visible for GMs
-                else if (options.contains("s")
-                    && message.getSource().equals(MapTool.getPlayer().getName()))
-                  ; // visible to the player who sent it
-                else {
-                  m.appendReplacement(text, ""); // not visible for this player
-                  continue;
-                }
-              }
-              String replacement = null;
-              if (m.group(3) != null) {
-                if (!options.contains("st") && !options.contains("gt")
-                    || options.contains("st")
-                        && message.getSource().equals(MapTool.getPlayer().getName())
-                    || options.contains("gt") && MapTool.getPlayer().isGM())
-                  replacement = "<span class='roll' title='&#171; $2 &#187;'>$3</span>";
-                else replacement = "$3";
-              } else if (options.contains("u")) replacement = "&#171; $2 &#187;";
-              else if (options.contains("r")) replacement = "$2";
-              else
-                replacement =
-                    "&#171;<span class='roll' style='color:blue'>&nbsp;$2&nbsp;</span>&#187;";
-              m.appendReplacement(text, replacement);
+          RenderedMessage rendered = render(message, player);
+          if (journal != null && rendered.html() != null) {
+            try {
+              journal.append(rendered.html());
+            } catch (IOException e) {
+              log.error("Unable to write to the chat journal", e);
             }
-            m.appendTail(text);
-            output = text.toString();
           }
-          // Auto inline expansion for {HTTP|HTTPS} URLs
-          // output = output.replaceAll("(^|\\s|>|\002)(https?://[\\w.%-/~?&+#=]+)", "$1<a
-          // href='$2'>$2</a>");
-          output =
-              output.replaceAll(
-                  "(^|\\s|>|\002)(https?://[^<>\002\003\\s]+)", "$1<a href='$2'>$2</a>");
-
-          if (!message.getSource().equals(MapTool.getPlayer().getName())) {
-            // TODO change this so 'macro' is case-insensitive
-            Matcher m =
-                Pattern.compile(
-                        "href=([\"'])\\s*(macro://(?:[^/]*)/(?:[^?]*)(?:\\?(?:.*?))?)\\1\\s*",
-                        Pattern.CASE_INSENSITIVE)
-                    .matcher(output);
-            while (m.find()) {
-              MacroLinkFunction.getInstance().processMacroLink(m.group(2));
-            }
+          EventQueue.invokeLater(() -> showMessage(rendered));
+        });
+  }
+
+  /**
+   * Renders a message for a player.
+   *
+   * @param message the message.
+   * @param player the player the message is shown to.
+   * @return the rendered message.
+   */
+  private static RenderedMessage render(TextMessage message, Player player) {
+    String output;
+
+    {
+      StringBuffer text = new StringBuffer();
+      Matcher m = roll_pattern.matcher(message.getMessage());
+      while (m.find()) {
+        HashSet<String> options = new HashSet<String>();
+        if (m.group(1) != null) {
+          options.addAll(Arrays.asList(m.group(1).split(",")));
+
+          if (!options.contains("w") && !options.contains("g") && !options.contains("s"))
+            ; // visible for everyone
+          else if (options.contains("w:" + player.getName().toLowerCase()))
+            ; // visible for this player
+          else if (options.contains("g") && player.isGM())
+            ; // visible for GMs
+          else if (options.contains("s")
+              && message.getSource().equals(player.getName()))
+            ; // visible to the player who sent it
+          else {
+            m.appendReplacement(text, ""); // not visible for this player
+            continue;
           }
-          // if rolls not being visible to this user result in an empty message, display nothing
-          // TODO The leading and trailing '.*' are probably not needed -- test this before
-          // removing them
-          if (!output.matches(".*\002\\s*\003.*")) {
-            output = output.replaceAll("\002|\003", "");
+        }
+        String replacement = null;
+        if (m.group(3) != null) {
+          if (!options.contains("st") && !options.contains("gt")
+              || options.contains("st") && message.getSource().equals(player.getName())
+              || options.contains("gt") && player.isGM())
+            replacement = "<span class='roll' title='&#171; $2 &#187;'>$3</span>";
+          else replacement = "$3";
+        } else if (options.contains("u")) replacement = "&#171; $2 &#187;";
+        else if (options.contains("r")) replacement = "$2";
+        else
+          replacement = "&#171;<span class='roll' style='color:blue'>&nbsp;$2&nbsp;</span>&#187;";
+        m.appendReplacement(text, replacement);
+      }
+      m.appendTail(text);
+      output = text.toString();
+    }
+    output = AUTO_LINK_PATTERN.matcher(output).replaceAll("$1<a href='$2'>$2</a>");
 
-            try {
-              Element element = document.getElement("body");
-              if (!output.toLowerCase().startsWith("<div") || !output.endsWith("</div>")) {
-                document.insertBeforeEnd(element, "<div>" + output + "</div>");
-              } else {
-                document.insertBeforeEnd(element, output);
-              }
-              if (!message.getSource().equals(MapTool.getPlayer().getName())) {
-                MapTool.playSound(SND_MESSAGE_RECEIVED);
-              }
-            } catch (IOException | BadLocationException ioe) {
-              ioe.printStackTrace();
-            }
+    boolean fromOther = !message.getSource().equals(player.getName());
+    List<String> macroLinks = new ArrayList<>();
+    if (fromOther) {
+      Matcher m = MACRO_LINK_PATTERN.matcher(output);
+      while (m.find()) {
+        macroLinks.add(m.group(2));
+      }
+    }
+    // if rolls not being visible to this user result in an empty message, display nothing
+    if (EMPTY_OUTPUT_PATTERN.matcher(output).matches()) {
+      return new RenderedMessage(null, macroLinks, fromOther);
+    }
+    output = OUTPUT_MARKER_PATTERN.matcher(output).replaceAll("");
+    if (!output.toLowerCase().startsWith("<div") || !output.endsWith("</div>")) {
+      output = "<div>" + output + "</div>";
+    }
+    return new RenderedMessage(output, macroLinks, fromOther);
+  }
+
+  private void showMessage(RenderedMessage message) {
+    for (String macroLink : message.macroLinks()) {
+      MacroLinkFunction.getInstance().processMacroLink(macroLink);
+    }
+    if (message.html() == null) {
+      return;
+    }
+    try {
+      insertMessage(message.html());
+      trimDocument();
+      if (message.fromOther()) {
+        MapTool.playSound(SND_MESSAGE_RECEIVED);
+      }
+    } catch (IOException | BadLocationException ioe) {
+      ioe.printStackTrace();
+    }
+  }
+
+  private void insertMessage(String html) throws IOException, BadLocationException {
+    Element body = document.getElement("body");
+    int before = body.getElementCount();
+    document.insertBeforeEnd(body, html);
+    int count = body.getElementCount() - before;
+    renderedElementCounts.addLast(count);
+    renderedElementTotal += count;
+  }
+
+  /**
+   * Removes the oldest messages from the document once it holds a page more than {@link
+   * #MAX_RENDERED_MESSAGES}. Nothing is removed while scroll lock is on, the user may be reading
+   * them.
+   */
+  private void trimDocument() {
+    if (journal == null
+        || renderedElementCounts.size() < MAX_RENDERED_MESSAGES + MESSAGE_PAGE_SIZE
+        || MapTool.getFrame().getCommandPanel().getScrollLockButton().isSelected()) {
+      return;
+    }
+    Element body = document.getElement("body");
+    while (renderedElementCounts.size() > MAX_RENDERED_MESSAGES) {
+      int count = renderedElementCounts.removeFirst();
+      // The messages are the last elements of the body, it may start with an empty paragraph
+      int first = body.getElementCount() - renderedElementTotal;
+      for (int i = 0; i < count; i++) {
+        document.removeElement(body.getElement(first));
+      }
+      renderedElementTotal -= count;
+      firstRenderedMessage++;
+    }
+  }
+
+  /**
+   * Reads the page of messages before the first one in the document back from the journal, off
+   * the EDT, and inserts it at the start of the document.
+   */
+  private void showOlderMessages() {
+    int to = firstRenderedMessage;
+    int from = Math.max(0, to - MESSAGE_PAGE_SIZE);
+    int cleared = clearCount;
+    renderer.execute(
+        () -> {
+          List<String> messages;
+          try {
+            messages = journal.read(from, to);
+          } catch (IOException e) {
+            log.error("Unable to show older messages", e);
+            messages = List.of();
           }
+          List<String> page = messages;
+          EventQueue.invokeLater(
+              () -> {
+                // Dropped if the document changed since, the next scroll to the top reads again
+                if (cleared == clearCount && to == firstRenderedMessage && !page.isEmpty()) {
+                  insertOlderMessages(from, page);
+                }
+                showingOlderMessages = false;
+              });
         });
   }
+
+  /**
+   * Inserts messages before the first one in the document, keeping the messages that were shown in
+   * view.
+   *
+   * @param from the index in the journal of the first message inserted.
+   * @param messages the messages to insert, oldest first.
+   */
+  private void insertOlderMessages(int from, List<String> messages) {
+    JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+    int fromBottom = scrollBar.getMaximum() - scrollBar.getValue();
+    Element body = document.getElement("body");
+    try {
+      for (int i = messages.size() - 1; i >= 0; i--) {
+        int before = body.getElementCount();
+        // The messages are the last elements of the body, it may start with an empty paragraph
+        int first = before - renderedElementTotal;
+        if (first < before) {
+          document.insertBeforeStart(body.getElement(first), messages.get(i));
+        } else {
+          document.insertBeforeEnd(body, messages.get(i));
+        }
+        int count = body.getElementCount() - before;
+        renderedElementCounts.addFirst(count);
+        renderedElementTotal += count;
+        firstRenderedMessage--;
+      }
+    } catch (IOException | BadLocationException e) {
+      log.error("Unable to show older messages", e);
+    }
+    EventQueue.invokeLater(() -> scrollBar.setValue(scrollBar.getMaximum() - fromBottom));
+  }
 }
@@ -73,6 +73,11 @@ public DrawPanelTreeModel(JTree tree) {
     update();
   }
 
+  @Override
+  public Dispatch getDispatch() {
+    return Dispatch.COALESCED_EDT;
+  }
+
   @Override
   public void modelChanged(ModelChangeEvent event) {
     update();
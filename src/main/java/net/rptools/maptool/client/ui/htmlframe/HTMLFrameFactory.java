@@ -198,6 +198,11 @@ public Listener() {
       MapTool.getFrame().getCurrentZoneRenderer().getZone().addModelChangeListener(this);
     }
 
+    @Override
+    public Dispatch getDispatch() {
+      return Dispatch.COALESCED_EDT;
+    }
+
     public void modelChanged(ModelChangeEvent event) {
       if (event.eventType == Event.TOKEN_CHANGED) {
         for (Token token : event.getTokensAsList()) {
@@ -190,6 +190,11 @@ public void mouseExited(MouseEvent event) {}
 
   // currently only used for Impersonate/Selection panels to refresh when the token is removed or a
   // macro changes
+  @Override
+  public Dispatch getDispatch() {
+    return Dispatch.COALESCED_EDT;
+  }
+
   @Override
   public void modelChanged(ModelChangeEvent event) {}
 
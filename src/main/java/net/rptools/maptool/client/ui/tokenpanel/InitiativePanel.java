@@ -541,6 +541,11 @@ public void propertyChange(PropertyChangeEvent evt) {
    * ModelChangeListener Interface Methods
    *-------------------------------------------------------------------------------------------*/
 
+  @Override
+  public Dispatch getDispatch() {
+    return Dispatch.COALESCED_EDT;
+  }
+
   /**
    * @see
    *     net.rptools.maptool.model.ModelChangeListener#modelChanged(net.rptools.maptool.model.ModelChangeEvent)
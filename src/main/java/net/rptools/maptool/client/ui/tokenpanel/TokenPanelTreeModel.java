@@ -436,6 +436,11 @@ protected boolean accept(Token token) {
 
   ////
   // MODEL CHANGE LISTENER
+  @Override
+  public Dispatch getDispatch() {
+    return Dispatch.COALESCED_EDT;
+  }
+
   public void modelChanged(ModelChangeEvent event) {
     update();
   }
@@ -16,14 +16,22 @@
 
 import java.awt.Graphics;
 import java.awt.Rectangle;
-import java.util.List;
-import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.DrawnElementIndex;
 
 /** */
 public interface DrawableRenderer {
 
+  /**
+   * Renders the drawables of a layer.
+   *
+   * @param g the graphics to render to.
+   * @param index the index of the drawables of the layer.
+   * @param viewport the part of the zone to render, in screen coordinates.
+   * @param scale the scale of the zone.
+   * @param complete true to wait until all drawables are rendered, as when exporting the zone.
+   */
   public void renderDrawables(
-      Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale);
+      Graphics g, DrawnElementIndex index, Rectangle viewport, double scale, boolean complete);
 
   public void flush();
 
@@ -14,6 +14,7 @@
  */
 package net.rptools.maptool.client.ui.zone;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
@@ -26,77 +27,117 @@
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.swing.SwingUtilities;
 import net.rptools.lib.CodeTimer;
 import net.rptools.lib.image.ImageUtil;
 import net.rptools.maptool.model.drawing.Drawable;
 import net.rptools.maptool.model.drawing.DrawablesGroup;
 import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.DrawnElementIndex;
 import net.rptools.maptool.model.drawing.Pen;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-/** */
+/**
+ * Renders drawables in square chunks that are kept between frames. The drawables crossing a chunk
+ * are found with the {@link DrawnElementIndex} of the layer, and missing chunks are drawn in
+ * parallel on background threads. A frame waits a short time for its chunks, chunks that take
+ * longer are shown when they are ready.
+ *
+ * <p>Chunks are kept for the last few scales, so that zooming back to an earlier scale reuses them.
+ * When the drawables change the chunks are drawn again, the old chunks are shown until then.
+ *
+ * <p>The chunks are only stored and flushed on the EDT, the background threads just draw them.
+ */
 public class PartitionedDrawableRenderer implements DrawableRenderer {
   private static Logger log = LogManager.getLogger(PartitionedDrawableRenderer.class);
   private static boolean messageLogged = false;
 
   private static final int CHUNK_SIZE = 256;
-  private static List<BufferedImage> unusedChunkList = new LinkedList<BufferedImage>();
 
-  private final Set<String> noImageSet = new HashSet<String>();
-  private final List<Tuple> chunkList = new LinkedList<Tuple>();
-  private int maxChunks;
+  /** The number of scales that chunks are kept for, counted in screens of chunks. */
+  private static final int SCALE_LEVELS = 3;
+
+  /** How long a frame waits for its chunks to be drawn. */
+  private static final long FRAME_WAIT_MILLIS = 50;
+
+  private static final List<BufferedImage> unusedChunkList = new LinkedList<BufferedImage>();
+
+  private static final ExecutorService chunkExecutor =
+      Executors.newFixedThreadPool(
+          Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+          new ThreadFactoryBuilder().setNameFormat("drawable-chunk-%d").setDaemon(true).build());
+
+  /** Identifies a chunk by the scale it is drawn at and its position in the chunk grid. */
+  private record ChunkKey(double scale, int x, int y) {}
+
+  /** A drawn chunk. The image is null if nothing is drawn in the chunk. */
+  private record Chunk(BufferedImage image, int generation) {}
 
-  private double lastScale;
+  /** A chunk being drawn in the background. */
+  private record PendingChunk(CompletableFuture<BufferedImage> image, int generation) {}
+
+  /** The chunks drawn so far, least recently used first. */
+  private final LinkedHashMap<ChunkKey, Chunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The chunks being drawn in the background. */
+  private final Map<ChunkKey, PendingChunk> pendingChunks = new HashMap<>();
+
+  /** Called when chunks drawn in the background are ready. */
+  private final Runnable repaint;
+
+  /** Increased when the drawables change, chunks of earlier generations are drawn again. */
+  private int generation;
+
+  private int maxChunks;
   private Rectangle lastViewport;
 
   private int horizontalChunkCount;
   private int verticalChunkCount;
 
-  private boolean dirty = false;
-
   private CodeTimer timer;
 
+  /** @param repaint called on the EDT when chunks drawn in the background are ready. */
+  public PartitionedDrawableRenderer(Runnable repaint) {
+    this.repaint = repaint;
+  }
+
   public void flush() {
-    int unusedSize = unusedChunkList.size();
-    for (Tuple tuple : chunkList) {
-      // Reuse the images
-      if (unusedSize < maxChunks && tuple != null) {
-        unusedChunkList.add(tuple.image);
-        unusedSize++;
-      }
+    for (Chunk chunk : chunks.values()) {
+      releaseChunk(chunk.image());
     }
-    chunkList.clear();
-    noImageSet.clear();
-    dirty = false;
+    chunks.clear();
+    generation++;
   }
 
   public void setDirty() {
-    dirty = true;
+    generation++;
   }
 
   public void renderDrawables(
-      Graphics g, List<DrawnElement> drawableList, Rectangle viewport, double scale) {
+      Graphics g, DrawnElementIndex index, Rectangle viewport, double scale, boolean complete) {
     timer = new CodeTimer("Renderer");
     timer.setThreshold(10);
     timer.setEnabled(false);
 
     // NOTHING TO DO
-    if (drawableList == null || drawableList.isEmpty()) {
-      if (dirty) flush();
+    if (index == null || index.isEmpty()) {
+      if (!chunks.isEmpty()) flush();
       return;
     }
-    // View changed ?
-    if (dirty || lastScale != scale) {
-      flush();
-    }
     if (lastViewport == null
         || viewport.width != lastViewport.width
         || viewport.height != lastViewport.height) {
       horizontalChunkCount = (int) Math.ceil(viewport.width / (double) CHUNK_SIZE) + 1;
       verticalChunkCount = (int) Math.ceil(viewport.height / (double) CHUNK_SIZE) + 1;
 
-      maxChunks = (horizontalChunkCount * verticalChunkCount * 2);
+      maxChunks = horizontalChunkCount * verticalChunkCount * SCALE_LEVELS;
     }
     // Compute grid
     int gridx = (int) Math.floor(-viewport.x / (double) CHUNK_SIZE);
@@ -110,35 +151,60 @@ public void renderDrawables(
     gridx += (viewport.x > CHUNK_SIZE && (viewport.x % CHUNK_SIZE == 0) ? -1 : 0);
     gridy += (viewport.y > CHUNK_SIZE && (viewport.y % CHUNK_SIZE == 0) ? -1 : 0);
 
+    // Start drawing the missing chunks, then give them a moment to finish
+    timer.start("render:startChunks");
+    Map<ChunkKey, PendingChunk> started = new HashMap<>();
+    for (int row = 0; row < verticalChunkCount; row++) {
+      for (int col = 0; col < horizontalChunkCount; col++) {
+        ChunkKey key = new ChunkKey(scale, gridx + col, gridy + row);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null || chunk.generation() != generation) {
+          PendingChunk pending = pendingChunks.get(key);
+          if (pending == null || (complete && pending.generation() != generation)) {
+            pending = startChunk(index, key);
+          }
+          if (pending != null) {
+            started.put(key, pending);
+          }
+        }
+      }
+    }
+    timer.stop("render:startChunks");
+    if (!started.isEmpty()) {
+      timer.start("render:waitChunks");
+      CompletableFuture<Void> all =
+          CompletableFuture.allOf(
+              started.values().stream()
+                  .map(PendingChunk::image)
+                  .toArray(CompletableFuture<?>[]::new));
+      try {
+        if (complete) {
+          all.get();
+        } else {
+          all.get(FRAME_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | TimeoutException e) {
+        // Failed chunks are logged and late ones shown when they are ready
+      }
+      for (Map.Entry<ChunkKey, PendingChunk> entry : started.entrySet()) {
+        if (entry.getValue().image().isDone()) {
+          finishChunk(entry.getKey(), entry.getValue());
+        }
+      }
+      timer.stop("render:waitChunks");
+    }
+
     for (int row = 0; row < verticalChunkCount; row++) {
       for (int col = 0; col < horizontalChunkCount; col++) {
         int cellX = gridx + col;
         int cellY = gridy + row;
 
-        String key = getKey(cellX, cellY);
-        if (noImageSet.contains(key)) {
+        Chunk chunk = chunks.get(new ChunkKey(scale, cellX, cellY));
+        if (chunk == null || chunk.image() == null) {
           continue;
         }
-        Tuple chunk = findChunk(chunkList, key);
-        if (chunk == null) {
-          chunk = new Tuple(key, createChunk(drawableList, cellX, cellY, scale));
-
-          if (chunk.image == null) {
-            noImageSet.add(key);
-            continue;
-          }
-        }
-        // Most recently used is at the front
-        chunkList.add(0, chunk);
-
-        // Trim to the right size
-        if (chunkList.size() > maxChunks) {
-          int chunkSize = chunkList.size();
-          // chunkList.subList(maxChunks, chunkSize).clear();
-          while (chunkSize > maxChunks) {
-            chunkList.remove(--chunkSize);
-          }
-        }
         int x =
             col * CHUNK_SIZE
                 - ((CHUNK_SIZE - viewport.x)) % CHUNK_SIZE
@@ -149,7 +215,7 @@ public void renderDrawables(
                 - (gridy < -1 ? CHUNK_SIZE : 0);
 
         timer.start("render:DrawImage");
-        g.drawImage(chunk.image, x, y, null);
+        g.drawImage(chunk.image(), x, y, null);
         timer.stop("render:DrawImage");
 
         // DEBUG: Partition boundaries
@@ -175,13 +241,12 @@ public void renderDrawables(
             }
           }
           g.drawRect(x, y, CHUNK_SIZE - 1, CHUNK_SIZE - 1);
-          g.drawString(key, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
+          g.drawString(cellX + "." + cellY, x + CHUNK_SIZE / 2, y + CHUNK_SIZE / 2);
         }
       }
     }
     // REMEMBER
     lastViewport = viewport;
-    lastScale = scale;
 
     if (timer.isEnabled()) {
       // System.out.println(timer);
@@ -189,22 +254,76 @@ public void renderDrawables(
   }
 
   /**
-   * Given a List and a String key, find the element in the list that matches the key.
+   * Starts drawing a chunk in the background. Chunks that nothing crosses are stored right away.
    *
-   * @param list
-   * @param key
-   * @return
+   * @param index the index of the drawables.
+   * @param key the chunk.
+   * @return the chunk being drawn, or null if there is nothing to draw.
    */
-  private Tuple findChunk(List<Tuple> list, String key) {
-    ListIterator<Tuple> iter = list.listIterator();
-    while (iter.hasNext()) {
-      Tuple tuple = iter.next();
-      if (tuple.key.equals(key)) {
-        iter.remove();
-        return tuple;
-      }
+  private PendingChunk startChunk(DrawnElementIndex index, ChunkKey key) {
+    double chunkSize = CHUNK_SIZE / key.scale();
+    List<DrawnElement> drawableList =
+        index.query(
+            new Rectangle2D.Double(
+                key.x() * chunkSize, key.y() * chunkSize, chunkSize, chunkSize));
+    if (drawableList.isEmpty()) {
+      putChunk(key, new Chunk(null, generation));
+      return null;
+    }
+
+    PendingChunk pending =
+        new PendingChunk(
+            CompletableFuture.supplyAsync(
+                () -> createChunk(drawableList, key.x(), key.y(), key.scale()), chunkExecutor),
+            generation);
+    pendingChunks.put(key, pending);
+    pending
+        .image()
+        .whenComplete(
+            (image, e) ->
+                SwingUtilities.invokeLater(
+                    () -> {
+                      if (finishChunk(key, pending)) {
+                        repaint.run();
+                      }
+                    }));
+    return pending;
+  }
+
+  /**
+   * Stores a chunk drawn in the background, unless it was already stored.
+   *
+   * @param key the chunk.
+   * @param pending the completed drawing of the chunk.
+   * @return true if the chunk was stored.
+   */
+  private boolean finishChunk(ChunkKey key, PendingChunk pending) {
+    if (!pendingChunks.remove(key, pending)) {
+      return false;
+    }
+    BufferedImage image = null;
+    try {
+      image = pending.image().join();
+    } catch (RuntimeException e) {
+      // Keep the chunk empty rather than trying again on every frame
+      log.error("Unable to draw the drawables of a chunk", e);
+    }
+    putChunk(key, new Chunk(image, pending.generation()));
+    return true;
+  }
+
+  private void putChunk(ChunkKey key, Chunk chunk) {
+    Chunk previous = chunks.put(key, chunk);
+    if (previous != null) {
+      releaseChunk(previous.image());
+    }
+
+    // Drop the least recently used chunks
+    Iterator<Chunk> iter = chunks.values().iterator();
+    while (chunks.size() > maxChunks && iter.hasNext()) {
+      releaseChunk(iter.next().image());
+      iter.remove();
     }
-    return null;
   }
 
   private BufferedImage createChunk(
@@ -216,40 +335,21 @@ private BufferedImage createChunk(
     Composite oldComposite = null;
     Graphics2D g = null;
 
+    Rectangle2D chunkBounds =
+        new Rectangle2D.Double(
+            gridx * (CHUNK_SIZE / scale),
+            gridy * (CHUNK_SIZE / scale),
+            CHUNK_SIZE / scale,
+            CHUNK_SIZE / scale);
+
     for (DrawnElement element : drawableList) {
-      timer.start("createChunk:calculate");
       Drawable drawable = element.getDrawable();
-      if (drawable.getBounds() == null) {
-        timer.stop("createChunk:calculate");
+      // The index only knows the bounds of a group as a whole, not those of its members
+      Rectangle2D drawnBounds = DrawnElementIndex.getBounds(element);
+      if (drawnBounds == null || !drawnBounds.intersects(chunkBounds)) {
         continue;
       }
 
-      Rectangle2D drawnBounds = new Rectangle(drawable.getBounds());
-      Rectangle2D chunkBounds =
-          new Rectangle(
-              (int) (gridx * (CHUNK_SIZE / scale)),
-              (int) (gridy * (CHUNK_SIZE / scale)),
-              (int) (CHUNK_SIZE / scale),
-              (int) (CHUNK_SIZE / scale));
-
-      // Handle pen size
-      Pen pen = element.getPen();
-      int penSize = (int) (pen.getThickness() / 2 + 1);
-      drawnBounds.setRect(
-          drawnBounds.getX() - penSize,
-          drawnBounds.getY() - penSize,
-          drawnBounds.getWidth() + pen.getThickness(),
-          drawnBounds.getHeight() + pen.getThickness());
-      timer.stop("createChunk:calculate");
-
-      timer.start("createChunk:BoundsCheck");
-      if (!drawnBounds.intersects(chunkBounds)) {
-        timer.stop("createChunk:BoundsCheck");
-        continue;
-      }
-      timer.stop("createChunk:BoundsCheck");
-
-      timer.start("createChunk:CreateChunk");
       if (image == null) {
         image = getNewChunk();
         g = image.createGraphics();
@@ -263,27 +363,23 @@ private BufferedImage createChunk(
         af.scale(scale, scale);
         g.setTransform(af);
       }
-      timer.stop("createChunk:CreateChunk");
 
+      Pen pen = element.getPen();
       if (pen.getOpacity() != 1 && pen.getOpacity() != 0 /*
 																 * handle legacy pens, besides, it doesn't make sense to have a non visible pen
 																 */) {
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, pen.getOpacity()));
       }
 
-      // g.setColor(Color.red);
-      // g.draw(drawnBounds);
-
-      timer.start("createChunk:Draw");
       if (drawable instanceof DrawablesGroup) {
         DrawablesGroup dg = (DrawablesGroup) drawable;
         BufferedImage groupImage = createChunk(dg.getDrawableList(), gridx, gridy, scale);
         Graphics2D g2 = image.createGraphics();
         g2.drawImage(groupImage, 0, 0, CHUNK_SIZE, CHUNK_SIZE, null);
         g2.dispose();
+        releaseChunk(groupImage);
       } else drawable.draw(g, pen);
       g.setComposite(oldComposite);
-      timer.stop("createChunk:Draw");
     }
     if (g != null) {
       g.dispose();
@@ -293,8 +389,12 @@ private BufferedImage createChunk(
 
   private BufferedImage getNewChunk() {
     BufferedImage image = null;
-    if (unusedChunkList.size() > 0) {
-      image = unusedChunkList.remove(0);
+    synchronized (unusedChunkList) {
+      if (unusedChunkList.size() > 0) {
+        image = unusedChunkList.remove(0);
+      }
+    }
+    if (image != null) {
       ImageUtil.clearImage(image);
     } else {
       image = new BufferedImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.BITMASK);
@@ -303,30 +403,15 @@ private BufferedImage getNewChunk() {
     return image;
   }
 
-  private String getKey(int col, int row) {
-    return col + "." + row;
-  }
-
-  private static class Tuple {
-    String key;
-    BufferedImage image;
-
-    public Tuple(String key, BufferedImage image) {
-      this.key = key;
-      this.image = image;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (o == null || getClass() != o.getClass()) return false;
-      Tuple tuple = (Tuple) o;
-      return Objects.equals(key, tuple.key);
+  /** Keeps the image of a chunk that is no longer used for the next chunk. */
+  private void releaseChunk(BufferedImage image) {
+    if (image == null) {
+      return;
     }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(key);
+    synchronized (unusedChunkList) {
+      if (unusedChunkList.size() < maxChunks) {
+        unusedChunkList.add(image);
+      }
     }
   }
 }
@@ -177,6 +177,11 @@ public void zoneActivated(Zone zone) {
 
   ////
   // ModelChangeListener
+  @Override
+  public Dispatch getDispatch() {
+    return Dispatch.COALESCED_EDT;
+  }
+
   public void modelChanged(ModelChangeEvent event) {
     if (event.getEvent() == Zone.Event.FOG_CHANGED) {
       flush();
@@ -102,10 +102,17 @@ public class ZoneRenderer extends JComponent
   private final ZoneView zoneView;
 
   private Scale zoneScale;
-  private final DrawableRenderer backgroundDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer objectDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer tokenDrawableRenderer = new PartitionedDrawableRenderer();
-  private final DrawableRenderer gmDrawableRenderer = new PartitionedDrawableRenderer();
+  private final DrawableRenderer backgroundDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer objectDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer tokenDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  private final DrawableRenderer gmDrawableRenderer =
+      new PartitionedDrawableRenderer(this::repaint);
+  /** True while the zone is painted on the screen, as opposed to rendered for an export. */
+  private boolean painting;
+
   private final List<ZoneOverlay> overlayList = new ArrayList<ZoneOverlay>();
   private final Map<Zone.Layer, List<TokenLocation>> tokenLocationMap =
       new HashMap<Zone.Layer, List<TokenLocation>>();
@@ -325,6 +332,11 @@ public void setZoneScale(Scale scale) {
    * up, add the drawable renderer as a listener
    */
   public void flushDrawableRenderer() {
+    // Images arrive on loader threads, but the chunks are only changed on the EDT
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(this::flushDrawableRenderer);
+      return;
+    }
     backgroundDrawableRenderer.flush();
     objectDrawableRenderer.flush();
     tokenDrawableRenderer.flush();
@@ -519,7 +531,7 @@ public void commitMoveSelectionSet(GUID keyTokenId) {
         token.setOriginPoint(new ZonePoint(token.getX(), token.getY()));
 
         flush(token);
-        MapTool.serverCommand().putToken(zone.getId(), token);
+        MapTool.serverCommand().patchToken(zone.getId(), token);
 
         // No longer need this version
         // Lee: redundant flush() already did this above
@@ -616,7 +628,7 @@ private void denyMovement(final Token token) {
 
       // No more last path
       token.setLastPath(null);
-      MapTool.serverCommand().putToken(zone.getId(), token);
+      MapTool.serverCommand().patchToken(zone.getId(), token);
 
       // Cache clearing
       flush(token);
@@ -843,7 +855,12 @@ public void paintComponent(Graphics g) {
     PlayerView pl = getPlayerView();
     timer.stop("paintComponent:createView");
 
-    renderZone(g2d, pl);
+    painting = true;
+    try {
+      renderZone(g2d, pl);
+    } finally {
+      painting = false;
+    }
     int noteVPos = 20;
     if (MapTool.getFrame().areFullScreenToolsShown()) noteVPos += 40;
 
@@ -1184,12 +1201,9 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
       timer.stop("board");
     }
     if (Zone.Layer.BACKGROUND.isEnabled()) {
-      List<DrawnElement> drawables = zone.getBackgroundDrawnElements();
-      // if (!drawables.isEmpty()) {
       timer.start("drawableBackground");
-      renderDrawableOverlay(g2d, backgroundDrawableRenderer, view, drawables);
+      renderDrawableOverlay(g2d, backgroundDrawableRenderer, view, Zone.Layer.BACKGROUND);
       timer.stop("drawableBackground");
-      // }
       List<Token> background = zone.getBackgroundStamps(false);
       if (!background.isEmpty()) {
         timer.start("tokensBackground");
@@ -1199,12 +1213,9 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
     }
     if (Zone.Layer.OBJECT.isEnabled()) {
       // Drawables on the object layer are always below the grid, and...
-      List<DrawnElement> drawables = zone.getObjectDrawnElements();
-      // if (!drawables.isEmpty()) {
       timer.start("drawableObjects");
-      renderDrawableOverlay(g2d, objectDrawableRenderer, view, drawables);
+      renderDrawableOverlay(g2d, objectDrawableRenderer, view, Zone.Layer.OBJECT);
       timer.stop("drawableObjects");
-      // }
     }
     timer.start("grid");
     renderGrid(g2d, view);
@@ -1251,20 +1262,14 @@ public void renderZone(Graphics2D g2d, PlayerView view) {
      * </ol>
      */
     if (Zone.Layer.TOKEN.isEnabled()) {
-      List<DrawnElement> drawables = zone.getDrawnElements();
-      // if (!drawables.isEmpty()) {
       timer.start("drawableTokens");
-      renderDrawableOverlay(g2d, tokenDrawableRenderer, view, drawables);
+      renderDrawableOverlay(g2d, tokenDrawableRenderer, view, Zone.Layer.TOKEN);
       timer.stop("drawableTokens");
-      // }
 
       if (view.isGMView() && Zone.Layer.GM.isEnabled()) {
-        drawables = zone.getGMDrawnElements();
-        // if (!drawables.isEmpty()) {
         timer.start("drawableGM");
-        renderDrawableOverlay(g2d, gmDrawableRenderer, view, drawables);
+        renderDrawableOverlay(g2d, gmDrawableRenderer, view, Zone.Layer.GM);
         timer.stop("drawableGM");
-        // }
         List<Token> stamps = zone.getGMStamps(false);
         if (!stamps.isEmpty()) {
           timer.start("tokensGM");
@@ -2015,14 +2020,14 @@ public boolean isLoading() {
   }
 
   protected void renderDrawableOverlay(
-      Graphics g, DrawableRenderer renderer, PlayerView view, List<DrawnElement> drawnElements) {
+      Graphics g, DrawableRenderer renderer, PlayerView view, Zone.Layer layer) {
     Rectangle viewport =
         new Rectangle(
             zoneScale.getOffsetX(), zoneScale.getOffsetY(), getSize().width, getSize().height);
-    // List<DrawnElement> list = new ArrayList<DrawnElement>();
-    // list.addAll(drawnElements);
 
-    renderer.renderDrawables(g, drawnElements, viewport, getScale());
+    // Exports render the zone outside of paintComponent and need every drawable right away
+    renderer.renderDrawables(
+        g, zone.getDrawnElementIndex(layer), viewport, getScale(), !painting);
   }
 
   protected void renderBoard(Graphics2D g, PlayerView view) {
@@ -2946,6 +2951,12 @@ protected void renderTokens(
     double scale = zoneScale.getScale();
     Set<GUID> tempVisTokens = new HashSet<GUID>();
 
+    // Use the spatial index of the zone to find the tokens that can possibly be on screen, so we
+    // don't have to calculate the bounds of every token on the map.
+    timer.start("tokenlist-index");
+    Set<Token> tokensNearViewport = getTokensNearViewport();
+    timer.stop("tokenlist-index");
+
     // calculations
     boolean calculateStacks =
         !tokenList.isEmpty() && !tokenList.get(0).isStamp() && tokenStackMap == null;
@@ -2987,6 +2998,12 @@ protected void renderTokens(
         timer.stop("tokenlist-1");
       }
       timer.start("tokenlist-1.1");
+      if (!tokensNearViewport.contains(token)
+          && !(token.hasFacing() && token.getShape() == Token.TokenShape.TOP_DOWN)) {
+        // Rotated tokens can extend past their footprint, so those are always checked.
+        timer.stop("tokenlist-1.1");
+        continue;
+      }
       TokenLocation location = tokenLocationCache.get(token);
       if (location != null && !location.maybeOnscreen(viewport)) {
         timer.stop("tokenlist-1.1");
@@ -4002,6 +4019,23 @@ public boolean playerOwnsAllSelected() {
     return true;
   }
 
+  /**
+   * Returns the tokens with a footprint near the visible part of the map. A margin of a couple of
+   * grid cells is added to allow for facing arrows, labels and other decorations.
+   *
+   * @return the tokens that may be visible.
+   */
+  private Set<Token> getTokensNearViewport() {
+    ZonePoint topLeft = new ScreenPoint(0, 0).convertToZone(this);
+    ZonePoint bottomRight = new ScreenPoint(getSize().width, getSize().height).convertToZone(this);
+    Rectangle zoneViewport =
+        new Rectangle(
+            topLeft.x, topLeft.y, bottomRight.x - topLeft.x + 1, bottomRight.y - topLeft.y + 1);
+    int margin = Math.max(zone.getGrid().getSize(), 1) * 2;
+    zoneViewport.grow(margin, margin);
+    return new HashSet<Token>(zone.getTokensIntersecting(zoneViewport));
+  }
+
   public Area getTokenBounds(Token token) {
     TokenLocation location = tokenLocationCache.get(token);
     if (location != null
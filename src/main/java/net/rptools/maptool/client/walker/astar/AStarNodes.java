@@ -0,0 +1,237 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import java.util.Arrays;
+
+/**
+ * The nodes of an A* search, stored as parallel primitive arrays indexed by node id, together with
+ * the open list as an indexed binary heap ordered by F cost.
+ *
+ * <p>A node is a cell plus whether the path to it has taken an odd number of 1-2-1 diagonal steps,
+ * since the same cell can be reached both ways at different costs. Node ids are handed out in
+ * creation order and stay valid until {@link #clear()}, which keeps the arrays so that repeated
+ * searches by the same walker (e.g., while dragging a token) do not allocate.
+ */
+final class AStarNodes {
+  static final byte NEW = 0;
+  static final byte OPEN = 1;
+  static final byte CLOSED = 2;
+
+  static final int NONE = -1;
+
+  private final LongIntHashMap evenIndex = new LongIntHashMap(1024);
+  private final LongIntHashMap oddIndex = new LongIntHashMap(1024);
+
+  private int count;
+  private int heapSize;
+
+  int[] x;
+  int[] y;
+  boolean[] odd;
+  double[] g;
+  double[] h;
+  double[] distanceTraveled;
+  double[] distanceTraveledWithoutTerrain;
+  int[] parent;
+  byte[] state;
+
+  /** The open list; heap[0] has the lowest F cost. */
+  private int[] heap;
+
+  /** The position of each node in the heap, only meaningful while the node is open. */
+  private int[] heapPosition;
+
+  AStarNodes() {
+    allocate(1024);
+  }
+
+  /** Forgets all nodes, keeping the allocated capacity. */
+  void clear() {
+    evenIndex.clear();
+    oddIndex.clear();
+    count = 0;
+    heapSize = 0;
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * @param cellX the x coordinate of the cell.
+   * @param cellY the y coordinate of the cell.
+   * @param isOdd whether the path to the node has an odd number of 1-2-1 diagonal steps.
+   * @return the id of the node, or {@link #NONE} if it was never created.
+   */
+  int find(int cellX, int cellY, boolean isOdd) {
+    return (isOdd ? oddIndex : evenIndex).get(LongIntHashMap.cellKey(cellX, cellY));
+  }
+
+  /**
+   * Creates a node in the {@link #NEW} state with no costs and no parent.
+   *
+   * @param cellX the x coordinate of the cell.
+   * @param cellY the y coordinate of the cell.
+   * @param isOdd whether the path to the node has an odd number of 1-2-1 diagonal steps.
+   * @return the id of the new node.
+   */
+  int create(int cellX, int cellY, boolean isOdd) {
+    if (count == x.length) {
+      grow();
+    }
+    int node = count++;
+    x[node] = cellX;
+    y[node] = cellY;
+    odd[node] = isOdd;
+    g[node] = 0;
+    h[node] = 0;
+    distanceTraveled[node] = 0;
+    distanceTraveledWithoutTerrain[node] = 0;
+    parent[node] = NONE;
+    state[node] = NEW;
+    (isOdd ? oddIndex : evenIndex).put(LongIntHashMap.cellKey(cellX, cellY), node);
+    return node;
+  }
+
+  /**
+   * Marks a cell as closed, creating its node if needed.
+   *
+   * @param cellX the x coordinate of the cell.
+   * @param cellY the y coordinate of the cell.
+   * @param isOdd whether the path to the node has an odd number of 1-2-1 diagonal steps.
+   */
+  void close(int cellX, int cellY, boolean isOdd) {
+    int node = find(cellX, cellY, isOdd);
+    if (node == NONE) {
+      node = create(cellX, cellY, isOdd);
+    }
+    state[node] = CLOSED;
+  }
+
+  double fCost(int node) {
+    return g[node] + h[node];
+  }
+
+  boolean isOpenListEmpty() {
+    return heapSize == 0;
+  }
+
+  /**
+   * Adds a node to the open list.
+   *
+   * @param node the id of the node.
+   */
+  void open(int node) {
+    state[node] = OPEN;
+    heap[heapSize] = node;
+    heapPosition[node] = heapSize;
+    siftUp(heapSize++);
+  }
+
+  /**
+   * Removes the node with the lowest F cost from the open list and marks it as closed.
+   *
+   * @return the id of the node.
+   */
+  int poll() {
+    int node = heap[0];
+    int last = heap[--heapSize];
+    if (heapSize > 0) {
+      heap[0] = last;
+      heapPosition[last] = 0;
+      siftDown(0);
+    }
+    state[node] = CLOSED;
+    return node;
+  }
+
+  /**
+   * Restores the heap order after the G cost of an open node was lowered.
+   *
+   * @param node the id of the node.
+   */
+  void decreased(int node) {
+    siftUp(heapPosition[node]);
+  }
+
+  private void siftUp(int position) {
+    int node = heap[position];
+    double f = fCost(node);
+    while (position > 0) {
+      int parentPosition = (position - 1) >>> 1;
+      int parentNode = heap[parentPosition];
+      if (f >= fCost(parentNode)) {
+        break;
+      }
+      heap[position] = parentNode;
+      heapPosition[parentNode] = position;
+      position = parentPosition;
+    }
+    heap[position] = node;
+    heapPosition[node] = position;
+  }
+
+  private void siftDown(int position) {
+    int node = heap[position];
+    double f = fCost(node);
+    int half = heapSize >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      int right = child + 1;
+      if (right < heapSize && fCost(heap[right]) < fCost(heap[child])) {
+        child = right;
+      }
+      int childNode = heap[child];
+      if (f <= fCost(childNode)) {
+        break;
+      }
+      heap[position] = childNode;
+      heapPosition[childNode] = position;
+      position = child;
+    }
+    heap[position] = node;
+    heapPosition[node] = position;
+  }
+
+  private void allocate(int capacity) {
+    x = new int[capacity];
+    y = new int[capacity];
+    odd = new boolean[capacity];
+    g = new double[capacity];
+    h = new double[capacity];
+    distanceTraveled = new double[capacity];
+    distanceTraveledWithoutTerrain = new double[capacity];
+    parent = new int[capacity];
+    state = new byte[capacity];
+    heap = new int[capacity];
+    heapPosition = new int[capacity];
+  }
+
+  private void grow() {
+    int capacity = x.length * 2;
+    x = Arrays.copyOf(x, capacity);
+    y = Arrays.copyOf(y, capacity);
+    odd = Arrays.copyOf(odd, capacity);
+    g = Arrays.copyOf(g, capacity);
+    h = Arrays.copyOf(h, capacity);
+    distanceTraveled = Arrays.copyOf(distanceTraveled, capacity);
+    distanceTraveledWithoutTerrain = Arrays.copyOf(distanceTraveledWithoutTerrain, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    state = Arrays.copyOf(state, capacity);
+    heap = Arrays.copyOf(heap, capacity);
+    heapPosition = Arrays.copyOf(heapPosition, capacity);
+  }
+}
@@ -79,9 +79,9 @@ protected double getDiagonalMultiplier(int[] neighborArray) {
     else return 1;
   }
 
-  private double metricDistance(AStarCellPoint current, CellPoint goal) {
-    int xDist = current.position.x - goal.x;
-    int yDist = current.position.y - goal.y;
+  private double metricDistance(int x, int y, boolean isOddStep, CellPoint goal) {
+    int xDist = x - goal.x;
+    int yDist = y - goal.y;
 
     double distance;
     int crossProductTieBreaker;
@@ -94,15 +94,15 @@ private double metricDistance(AStarCellPoint current, CellPoint goal) {
       default:
       case ONE_ONE_ONE:
       case ONE_TWO_ONE:
-        xDist = Math.abs(current.position.x - goal.x);
-        yDist = Math.abs(current.position.y - goal.y);
+        xDist = Math.abs(x - goal.x);
+        yDist = Math.abs(y - goal.y);
 
         final int remainingDiagonals = Math.min(xDist, yDist);
         final int remainingStraights = Math.abs(xDist - yDist);
         // The floor operation does 1-2-1 for the remaining path; we need to adjust that according
         // to the prior path.
         final int evenOddDiagonalAdjustment =
-            (current.isOddStepOfOneTwoOneMovement() && remainingDiagonals % 2 != 0 ? 1 : 0);
+            (isOddStep && remainingDiagonals % 2 != 0 ? 1 : 0);
         distance =
             evenOddDiagonalAdjustment
                 + Math.floor(diagonalMultiplier * remainingDiagonals)
@@ -113,8 +113,7 @@ private double metricDistance(AStarCellPoint current, CellPoint goal) {
 
     // break ties to prefer better looking paths that are along the straight line from the
     // starting point to the goal
-    if ((goal.x > current.position.x && goal.y > current.position.y)
-        || (goal.x < current.position.x && goal.y < current.position.y)) {
+    if ((goal.x > x && goal.y > y) || (goal.x < x && goal.y < y)) {
       crossProductTieBreaker = Math.abs(xDist * crossY - crossX * yDist);
     } else {
       crossProductTieBreaker = Math.abs(xDist * crossY + crossX * yDist);
@@ -132,7 +131,7 @@ public int[][] getNeighborMap(int x, int y) {
   }
 
   @Override
-  protected double hScore(AStarCellPoint p1, CellPoint p2) {
-    return metricDistance(p1, p2);
+  protected double hScore(int x, int y, boolean isOddStepOfOneTwoOneMovement, CellPoint goal) {
+    return metricDistance(x, y, isOddStepOfOneTwoOneMovement, goal);
   }
 }
@@ -20,40 +20,29 @@
 import java.awt.geom.Area;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.walker.AbstractZoneWalker;
+import net.rptools.maptool.client.walker.astar.NavigationGrid.BlockingLayer;
+import net.rptools.maptool.client.walker.astar.NavigationGrid.TerrainLayer;
+import net.rptools.maptool.client.walker.astar.NavigationGrid.TerrainModifier;
 import net.rptools.maptool.model.CellPoint;
 import net.rptools.maptool.model.Label;
-import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.TokenFootprint;
 import net.rptools.maptool.model.Zone;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.algorithm.ConvexHull;
-import org.locationtech.jts.awt.ShapeReader;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
-import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.prep.PreparedGeometry;
-import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
-import org.locationtech.jts.operation.valid.IsValidOp;
 
 public abstract class AbstractAStarWalker extends AbstractZoneWalker {
-  private record TerrainModifier(Token.TerrainModifierOperation operation, double value) {}
-
   private static boolean isInteger(double d) {
     return (int) d == d;
   }
@@ -64,34 +53,24 @@ private static boolean isInteger(double d) {
   protected int crossX = 0;
   protected int crossY = 0;
   private boolean debugCosts = false; // Manually set this to view H, G & F costs as rendered labels
-  private Area vbl = new Area();
   private double cell_cost = zone.getUnitsPerCell();
   private double distance = -1;
-  private ShapeReader shapeReader = new ShapeReader(geometryFactory);
-  private PreparedGeometry vblGeometry = null;
+  private BlockingLayer blockingLayer = null;
+  private BlockingLayer tokenLayerBase = null;
+  private Area tokenLayerVbl = null;
+  private BlockingLayer tokenLayer = null;
+  private TerrainLayer terrain = null;
   // private long avgRetrieveTime;
   // private long avgTestTime;
   // private long retrievalCount;
   // private long testCount;
   private TokenFootprint footprint = new TokenFootprint();
-  private Map<CellPoint, Map<CellPoint, Boolean>> blockedMovesByGoal = new ConcurrentHashMap<>();
-  private final Map<CellPoint, List<TerrainModifier>> terrainCells = new HashMap<>();
+  private final LongIntHashMap footprintInVbl = new LongIntHashMap(256);
+  private final int[][][] footprintOffsets = new int[4][][];
+  private final AStarNodes nodes = new AStarNodes();
 
   public AbstractAStarWalker(Zone zone) {
     super(zone);
-
-    // Get tokens on map that may affect movement
-    for (Token token : zone.getTokensWithTerrainModifiers()) {
-      // log.info("Token: " + token.getName() + ", " + token.getTerrainModifier());
-      Set<CellPoint> cells = token.getOccupiedCells(zone.getGrid());
-      for (CellPoint cell : cells) {
-        terrainCells
-            .computeIfAbsent(cell, ignored -> new ArrayList<>())
-            .add(
-                new TerrainModifier(
-                    token.getTerrainModifierOperation(), token.getTerrainModifier()));
-      }
-    }
   }
 
   /**
@@ -110,7 +89,17 @@ public AbstractAStarWalker(Zone zone) {
    */
   protected abstract int[][] getNeighborMap(int x, int y);
 
-  protected abstract double hScore(AStarCellPoint p1, CellPoint p2);
+  /**
+   * Estimates the remaining cost from a cell to the goal.
+   *
+   * @param x the x of the cell.
+   * @param y the y of the cell.
+   * @param isOddStepOfOneTwoOneMovement if the movement is 1-2-1 and an odd path was taken so far.
+   * @param goal the goal.
+   * @return the H score of the cell.
+   */
+  protected abstract double hScore(
+      int x, int y, boolean isOddStepOfOneTwoOneMovement, CellPoint goal);
 
   protected abstract double getDiagonalMultiplier(int[] neighborArray);
 
@@ -123,21 +112,15 @@ public double getDistance() {
   }
 
   public Map<CellPoint, Set<CellPoint>> getBlockedMoves() {
-    final Map<CellPoint, Set<CellPoint>> result = new HashMap<>();
-    for (var entry : blockedMovesByGoal.entrySet()) {
-      result.put(
-          entry.getKey(),
-          entry.getValue().entrySet().stream()
-              .filter(Map.Entry::getValue)
-              .map(Map.Entry::getKey)
-              .collect(Collectors.toSet()));
-    }
-    return result;
+    BlockingLayer layer = blockingLayer;
+    return layer == null ? new HashMap<>() : layer.getBlockedMoves();
   }
 
   @Override
   public void setFootprint(TokenFootprint footprint) {
     this.footprint = footprint;
+    Arrays.fill(footprintOffsets, null);
+    footprintInVbl.clear();
   }
 
   @Override
@@ -145,10 +128,9 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
     crossX = start.x - goal.x;
     crossY = start.y - goal.y;
 
-    Queue<AStarCellPoint> openList =
-        new PriorityQueue<>(Comparator.comparingDouble(AStarCellPoint::fCost));
-    Map<AStarCellPoint, AStarCellPoint> openSet = new HashMap<>(); // For faster lookups
-    Set<AStarCellPoint> closedSet = new HashSet<>();
+    // The node arrays are kept between searches so that they are not reallocated each time the
+    // path is recalculated while a token is dragged.
+    nodes.clear();
 
     // Current fail safe... bail out after 10 seconds of searching just in case, shouldn't hang UI
     // as this is off the AWT thread
@@ -158,69 +140,30 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
     // if (start.equals(end))
     // log.info("NO WORK!");
 
-    var startNode = new AStarCellPoint(start, !isInteger(start.distanceTraveledWithoutTerrain));
-    openList.add(startNode);
-    openSet.put(startNode, startNode);
+    int startNode =
+        nodes.create(start.x, start.y, !isInteger(start.distanceTraveledWithoutTerrain));
+    nodes.distanceTraveled[startNode] = start.distanceTraveled;
+    nodes.distanceTraveledWithoutTerrain[startNode] = start.distanceTraveledWithoutTerrain;
+    nodes.open(startNode);
 
-    AStarCellPoint currentNode = null;
+    int currentNode = AStarNodes.NONE;
 
-    // Get current VBL for map...
-    // Using JTS because AWT Area can only intersect with Area and we want to use simple lines here.
-    // Render VBL to Geometry class once and store.
+    // Get the current VBL/MBL for the map, which is shared by all the walkers on the zone.
     // Note: zoneRenderer will be null if map is not visible to players.
-    Area newVbl = new Area();
+    BlockingLayer newLayer = null;
     if (MapTool.getFrame().getCurrentZoneRenderer() != null) {
-      if (MapTool.getServerPolicy().getVblBlocksMove()) {
-        var vbl =
-            MapTool.getFrame().getCurrentZoneRenderer().getZoneView().getTopologyTree().getArea();
-        var hillVbl =
-            MapTool.getFrame().getCurrentZoneRenderer().getZoneView().getHillVblTree().getArea();
-        var pitVbl =
-            MapTool.getFrame().getCurrentZoneRenderer().getZoneView().getPitVblTree().getArea();
-        newVbl.add(vbl);
-        newVbl.add(hillVbl);
-        newVbl.add(pitVbl);
-
-        if (tokenVBL != null) {
-          newVbl.subtract(tokenVBL);
-        }
-
-        // Finally, add the Move Blocking Layer!
-        newVbl.add(zone.getTopologyTerrain());
-      } else {
-        newVbl = zone.getTopologyTerrain();
+      boolean vblBlocksMove = MapTool.getServerPolicy().getVblBlocksMove();
+      newLayer = NavigationGrid.forZone(zone).getBlockingLayer(vblBlocksMove);
+      if (vblBlocksMove && tokenVBL != null) {
+        newLayer = getLayerWithoutTokenVbl(newLayer);
       }
     }
-
-    if (!newVbl.equals(vbl)) {
-      vbl = newVbl;
-
-      // The move cache may no longer accurately reflect the VBL limitations.
-      this.blockedMovesByGoal.clear();
-      // VBL has changed. Let's update the JTS geometry to match.
-      if (vbl.isEmpty()) {
-        this.vblGeometry = null;
-      } else {
-        try {
-          var vblGeometry =
-              shapeReader.read(new ReverseShapePathIterator(vbl.getPathIterator(null)));
-
-          // polygons
-          if (!vblGeometry.isValid()) {
-            log.info(
-                "vblGeometry is invalid! May cause issues. Check for self-intersecting polygons.");
-            log.debug("Invalid vblGeometry: " + new IsValidOp(vblGeometry).getValidationError());
-          }
-
-          vblGeometry = vblGeometry.buffer(1); // .buffer always creates valid geometry.
-          this.vblGeometry = PreparedGeometryFactory.prepare(vblGeometry);
-        } catch (Exception e) {
-          log.info("vblGeometry oh oh: ", e);
-        }
-      }
-
-      // log.info("vblGeometry bounds: " + vblGeometry.toString());
+    if (newLayer != blockingLayer) {
+      blockingLayer = newLayer;
+      // The footprint cache may no longer accurately reflect the VBL limitations.
+      footprintInVbl.clear();
     }
+    terrain = NavigationGrid.forZone(zone).getTerrain();
 
     // Erase previous debug labels, this actually erases ALL labels! Use only when debugging!
     EventQueue.invokeLater(
@@ -241,44 +184,20 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
 
     Rectangle pathfindingBounds = this.getPathfindingBounds(start, goal);
 
-    while (!openList.isEmpty()) {
+    while (!nodes.isOpenListEmpty()) {
       if (System.currentTimeMillis() > timeOut + estimatedTimeoutNeeded) {
         log.info("Timing out after " + estimatedTimeoutNeeded);
         break;
       }
 
-      currentNode = openList.remove();
-      openSet.remove(currentNode);
-      if (currentNode.position.equals(goal)) {
+      // Removing the node from the open list also closes it.
+      currentNode = nodes.poll();
+      if (nodes.x[currentNode] == goal.x && nodes.y[currentNode] == goal.y) {
         break;
       }
 
-      for (AStarCellPoint currentNeighbor :
-          getNeighbors(currentNode, closedSet, pathfindingBounds)) {
-        currentNeighbor.h = hScore(currentNeighbor, goal);
-        showDebugInfo(currentNeighbor);
-
-        if (openSet.containsKey(currentNeighbor)) {
-          // check if it is cheaper to get here the way that we just came, versus the previous path
-          AStarCellPoint oldNode = openSet.get(currentNeighbor);
-          if (currentNeighbor.g < oldNode.g) {
-            // We're about to modify the node cost, so we have to reinsert the node.
-            openList.remove(oldNode);
-
-            oldNode.replaceG(currentNeighbor);
-            oldNode.parent = currentNode;
-
-            openList.add(oldNode);
-          }
-          continue;
-        }
-
-        openList.add(currentNeighbor);
-        openSet.put(currentNeighbor, currentNeighbor);
-      }
-
-      closedSet.add(currentNode);
-      currentNode = null;
+      expandNeighbors(currentNode, goal, pathfindingBounds);
+      currentNode = AStarNodes.NONE;
 
       /*
         We now calculate paths off the main UI thread but only one at a time.
@@ -287,14 +206,19 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
       */
       if (Thread.interrupted()) {
         // log.info("Thread interrupted!");
-        openList.clear();
+        break;
       }
     }
 
-    List<CellPoint> returnedCellPointList = new LinkedList<>();
-    while (currentNode != null) {
-      returnedCellPointList.add(currentNode.position);
-      currentNode = currentNode.parent;
+    List<CellPoint> returnedCellPointList = new ArrayList<>();
+    while (currentNode != AStarNodes.NONE) {
+      returnedCellPointList.add(
+          new CellPoint(
+              nodes.x[currentNode],
+              nodes.y[currentNode],
+              nodes.distanceTraveled[currentNode],
+              nodes.distanceTraveledWithoutTerrain[currentNode]));
+      currentNode = nodes.parent[currentNode];
     }
 
     // We don't need to "calculate" distance after the fact as it's already stored as the G cost...
@@ -314,11 +238,6 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
       log.debug("Time to calculate A* path warning: " + timeOut + "ms");
     }
 
-    // if (retrievalCount > 0)
-    // log.info("avgRetrieveTime: " + Math.floor(avgRetrieveTime / retrievalCount)/1000 + " micro");
-    // if (testCount > 0)
-    // log.info("avgTestTime: " + Math.floor(avgTestTime / testCount)/1000 + " micro");
-
     return returnedCellPointList;
   }
 
@@ -342,10 +261,12 @@ protected List<CellPoint> calculatePath(CellPoint start, CellPoint goal) {
    */
   protected Rectangle getPathfindingBounds(CellPoint start, CellPoint goal) {
     // Bounding box must contain all VBL/MBL ...
-    Rectangle pathfindingBounds = vbl.getBounds();
+    Rectangle pathfindingBounds =
+        blockingLayer == null ? new Rectangle() : blockingLayer.getBounds();
     // ... and the footprints of all terrain tokens ...
-    for (var cellPoint : terrainCells.keySet()) {
-      pathfindingBounds = pathfindingBounds.union(zone.getGrid().getBounds(cellPoint));
+    Rectangle terrainBounds = terrain == null ? null : terrain.getBounds();
+    if (terrainBounds != null) {
+      pathfindingBounds = pathfindingBounds.union(terrainBounds);
     }
     // ... and the original token position ...
     pathfindingBounds = pathfindingBounds.union(zone.getGrid().getBounds(start));
@@ -358,10 +279,21 @@ protected Rectangle getPathfindingBounds(CellPoint start, CellPoint goal) {
     return pathfindingBounds;
   }
 
-  protected List<AStarCellPoint> getNeighbors(
-      AStarCellPoint node, Set<AStarCellPoint> closedSet, Rectangle pathfindingBounds) {
-    List<AStarCellPoint> neighbors = new ArrayList<>();
-    int[][] neighborMap = getNeighborMap(node.position.x, node.position.y);
+  /**
+   * Opens or improves the neighbors of a node.
+   *
+   * @param node the id of the node being expanded.
+   * @param goal the goal of the search.
+   * @param pathfindingBounds the area the search is confined to.
+   */
+  private void expandNeighbors(int node, CellPoint goal, Rectangle pathfindingBounds) {
+    final int nodeX = nodes.x[node];
+    final int nodeY = nodes.y[node];
+    int[][] neighborMap = getNeighborMap(nodeX, nodeY);
+
+    // Checked against the cell we come from, the same for all the neighbors.
+    boolean inBounds =
+        zone.getGrid().getBounds(new CellPoint(nodeX, nodeY)).intersects(pathfindingBounds);
 
     // Find all the neighbors.
     for (int[] neighborArray : neighborMap) {
@@ -374,70 +306,72 @@ protected List<AStarCellPoint> getNeighbors(
       double diagonalMultiplier = getDiagonalMultiplier(neighborArray);
       boolean invertEvenOddDiagonals = !isInteger(diagonalMultiplier);
 
-      AStarCellPoint neighbor =
-          new AStarCellPoint(
-              node.position.x + neighborArray[0],
-              node.position.y + neighborArray[1],
-              node.isOddStepOfOneTwoOneMovement ^ invertEvenOddDiagonals);
-      if (closedSet.contains(neighbor)) {
+      int x = nodeX + neighborArray[0];
+      int y = nodeY + neighborArray[1];
+      boolean odd = nodes.odd[node] ^ invertEvenOddDiagonals;
+      int neighbor = nodes.find(x, y, odd);
+      if (neighbor != AStarNodes.NONE && nodes.state[neighbor] == AStarNodes.CLOSED) {
         continue;
       }
 
-      if (!zone.getGrid().getBounds(node.position).intersects(pathfindingBounds)) {
+      if (!inBounds) {
         // This position is too far out to possibly be part of the optimal path.
-        closedSet.add(neighbor);
+        nodes.close(x, y, odd);
         continue;
       }
 
-      // Add the cell we're coming from
-      neighbor.parent = node;
-
       // Don't count VBL or Terrain Modifiers
       if (restrictMovement) {
-        if (tokenFootprintIntersectsVBL(neighbor.position)) {
+        if (tokenFootprintIntersectsVBL(x, y)) {
           // The token would overlap VBL if moved to this position, so it is not a valid position.
-          closedSet.add(neighbor);
-          blockNode = true;
+          nodes.close(x, y, odd);
           continue;
         }
 
-        Set<CellPoint> occupiedCells = footprint.getOccupiedCells(node.position);
-        for (CellPoint cellPoint : occupiedCells) {
-          // Check whether moving the occupied cell to its new location would be prohibited by VBL.
-          var cellNeighbor =
-              new CellPoint(cellPoint.x + neighborArray[0], cellPoint.y + neighborArray[1]);
-          if (vblBlocksMovement(cellPoint, cellNeighbor)) {
-            blockNode = true;
-            break;
+        if (blockingLayer != null && blockingLayer.getGeometry() != null) {
+          for (int[] offset : getFootprintOffsets(nodeX, nodeY)) {
+            // Check whether moving the occupied cell to its new location would be prohibited by
+            // VBL.
+            if (blockingLayer.blocksMove(
+                zone.getGrid(),
+                nodeX + offset[0],
+                nodeY + offset[1],
+                neighborArray[0],
+                neighborArray[1])) {
+              blockNode = true;
+              break;
+            }
           }
-        }
 
-        if (blockNode) {
-          continue;
+          if (blockNode) {
+            continue;
+          }
         }
 
         // Check for terrain modifiers
-        for (TerrainModifier terrainModifier :
-            terrainCells.getOrDefault(neighbor.position, Collections.emptyList())) {
-          if (!terrainModifiersIgnored.contains(terrainModifier.operation)) {
-            switch (terrainModifier.operation) {
-              case MULTIPLY:
-                terrainMultiplier += terrainModifier.value;
-                break;
-              case ADD:
-                terrainAdder += terrainModifier.value;
-                break;
-              case BLOCK:
-                // Terrain blocking applies equally regardless of even/odd diagonals.
-                closedSet.add(new AStarCellPoint(neighbor.position, false));
-                closedSet.add(new AStarCellPoint(neighbor.position, true));
-                blockNode = true;
-                continue;
-              case FREE:
-                terrainIsFree = true;
-                break;
-              case NONE:
-                break;
+        List<TerrainModifier> terrainModifiers = terrain.getModifiers(x, y);
+        if (terrainModifiers != null) {
+          for (TerrainModifier terrainModifier : terrainModifiers) {
+            if (!terrainModifiersIgnored.contains(terrainModifier.operation())) {
+              switch (terrainModifier.operation()) {
+                case MULTIPLY:
+                  terrainMultiplier += terrainModifier.value();
+                  break;
+                case ADD:
+                  terrainAdder += terrainModifier.value();
+                  break;
+                case BLOCK:
+                  // Terrain blocking applies equally regardless of even/odd diagonals.
+                  nodes.close(x, y, false);
+                  nodes.close(x, y, true);
+                  blockNode = true;
+                  continue;
+                case FREE:
+                  terrainIsFree = true;
+                  break;
+                case NONE:
+                  break;
+              }
             }
           }
         }
@@ -456,41 +390,81 @@ protected List<AStarCellPoint> getNeighbors(
 
       terrainMultiplier = Math.abs(terrainMultiplier); // net negative multipliers screw with the AI
 
+      double g;
+      double distanceTraveled;
+      double distanceTraveledWithoutTerrain;
       if (terrainIsFree) {
-        neighbor.g = node.g;
-        neighbor.position.distanceTraveled = node.position.distanceTraveled;
+        g = nodes.g[node];
+        distanceTraveled = nodes.distanceTraveled[node];
+        distanceTraveledWithoutTerrain = 0;
       } else {
-        neighbor.position.distanceTraveledWithoutTerrain =
-            node.position.distanceTraveledWithoutTerrain + diagonalMultiplier;
+        distanceTraveledWithoutTerrain =
+            nodes.distanceTraveledWithoutTerrain[node] + diagonalMultiplier;
 
-        if (neighbor.isOddStepOfOneTwoOneMovement()) {
-          neighbor.g = node.g + terrainAdder + terrainMultiplier;
-
-          neighbor.position.distanceTraveled =
-              node.position.distanceTraveled + terrainAdder + terrainMultiplier;
-        } else {
-          neighbor.g = node.g + terrainAdder + terrainMultiplier * Math.ceil(diagonalMultiplier);
+        double stepCost =
+            odd ? terrainMultiplier : terrainMultiplier * Math.ceil(diagonalMultiplier);
+        g = nodes.g[node] + terrainAdder + stepCost;
+        distanceTraveled = nodes.distanceTraveled[node] + terrainAdder + stepCost;
+      }
 
-          neighbor.position.distanceTraveled =
-              node.position.distanceTraveled
-                  + terrainAdder
-                  + terrainMultiplier * Math.ceil(diagonalMultiplier);
+      if (neighbor != AStarNodes.NONE && nodes.state[neighbor] == AStarNodes.OPEN) {
+        // check if it is cheaper to get here the way that we just came, versus the previous path
+        if (g < nodes.g[neighbor]) {
+          nodes.g[neighbor] = g;
+          nodes.distanceTraveled[neighbor] = distanceTraveled;
+          nodes.distanceTraveledWithoutTerrain[neighbor] = distanceTraveledWithoutTerrain;
+          nodes.parent[neighbor] = node;
+          nodes.decreased(neighbor);
         }
+        showDebugInfo(neighbor);
+        continue;
       }
 
-      neighbors.add(neighbor);
+      if (neighbor == AStarNodes.NONE) {
+        neighbor = nodes.create(x, y, odd);
+      }
+      nodes.g[neighbor] = g;
+      nodes.h[neighbor] = hScore(x, y, odd, goal);
+      nodes.distanceTraveled[neighbor] = distanceTraveled;
+      nodes.distanceTraveledWithoutTerrain[neighbor] = distanceTraveledWithoutTerrain;
+      // Add the cell we're coming from
+      nodes.parent[neighbor] = node;
+      showDebugInfo(neighbor);
+      nodes.open(neighbor);
     }
+  }
 
-    return neighbors;
+  /**
+   * Returns the cells occupied by the footprint, relative to the cell it is on. Hex footprints
+   * depend on the parity of the cell, so the offsets are cached per parity.
+   */
+  private int[][] getFootprintOffsets(int x, int y) {
+    int parity = ((x & 1) << 1) | (y & 1);
+    int[][] offsets = footprintOffsets[parity];
+    if (offsets == null) {
+      CellPoint origin = new CellPoint(x & 1, y & 1);
+      offsets =
+          footprint.getOccupiedCells(origin).stream()
+              .map(cp -> new int[] {cp.x - origin.x, cp.y - origin.y})
+              .toArray(int[][]::new);
+      footprintOffsets[parity] = offsets;
+    }
+    return offsets;
   }
 
-  private boolean tokenFootprintIntersectsVBL(CellPoint position) {
-    if (vblGeometry == null) {
+  private boolean tokenFootprintIntersectsVBL(int x, int y) {
+    if (blockingLayer == null || blockingLayer.getGeometry() == null) {
       return false;
     }
 
+    long key = LongIntHashMap.cellKey(x, y);
+    int cached = footprintInVbl.get(key);
+    if (cached != LongIntHashMap.NO_VALUE) {
+      return cached != 0;
+    }
+
     var points =
-        footprint.getOccupiedCells(position).stream()
+        footprint.getOccupiedCells(new CellPoint(x, y)).stream()
             .map(
                 cellPoint -> {
                   var bounds = zone.getGrid().getBounds(cellPoint);
@@ -499,78 +473,35 @@ private boolean tokenFootprintIntersectsVBL(CellPoint position) {
             .toArray(Coordinate[]::new);
     Geometry footprintGeometry = new ConvexHull(points, geometryFactory).getConvexHull();
 
-    return vblGeometry.intersects(footprintGeometry);
+    boolean intersects = blockingLayer.intersects(footprintGeometry);
+    footprintInVbl.put(key, intersects ? 1 : 0);
+    return intersects;
   }
 
-  private boolean vblBlocksMovement(CellPoint start, CellPoint goal) {
-    if (vblGeometry == null) {
-      return false;
-    }
-
-    // Stopwatch stopwatch = Stopwatch.createStarted();
-    Map<CellPoint, Boolean> blockedMoves =
-        blockedMovesByGoal.computeIfAbsent(goal, pos -> new HashMap<>());
-    Boolean test = blockedMoves.get(start);
-    // if it's null then the test for that direction hasn't been set yet otherwise just return the
-    // previous result
-    if (test != null) {
-      // log.info("Time to retrieve: " + stopwatch.elapsed(TimeUnit.NANOSECONDS));
-      // avgRetrieveTime += stopwatch.elapsed(TimeUnit.NANOSECONDS);
-      // retrievalCount++;
-      return test;
-    }
-
-    Rectangle startBounds = zone.getGrid().getBounds(start);
-    Rectangle goalBounds = zone.getGrid().getBounds(goal);
-
-    if (goalBounds.isEmpty() || startBounds.isEmpty()) {
-      return false;
-    }
-
-    // If the goal center point is in vbl, allow to maintain path through vbl (should be GM only?)
-    /*
-    if (vbl.contains(goal.toPoint())) {
-      // Allow GM to move through VBL
-       return !MapTool.getPlayer().isGM();
-    }
-    */
-
-    // NEW WAY - use polygon test
-    double x1 = startBounds.getCenterX();
-    double y1 = startBounds.getCenterY();
-    double x2 = goalBounds.getCenterX();
-    double y2 = goalBounds.getCenterY();
-    LineString centerRay =
-        geometryFactory.createLineString(
-            new Coordinate[] {new Coordinate(x1, y1), new Coordinate(x2, y2)});
-
-    boolean blocksMovement;
-    try {
-      blocksMovement = vblGeometry.intersects(centerRay);
-    } catch (Exception e) {
-      log.info("clipped.intersects oh oh: ", e);
-      return true;
+  /**
+   * Returns the blocking layer without the VBL of the token being moved, reusing the previous one
+   * while neither the layer nor the token VBL changed.
+   */
+  private BlockingLayer getLayerWithoutTokenVbl(BlockingLayer layer) {
+    if (layer != tokenLayerBase || tokenVBL != tokenLayerVbl) {
+      tokenLayerBase = layer;
+      tokenLayerVbl = tokenVBL;
+      tokenLayer = layer.without(tokenVBL);
     }
-
-    // avgTestTime += stopwatch.elapsed(TimeUnit.NANOSECONDS);
-    // testCount++;
-
-    blockedMoves.put(start, blocksMovement);
-
-    return blocksMovement;
+    return tokenLayer;
   }
 
-  protected void showDebugInfo(AStarCellPoint node) {
+  protected void showDebugInfo(int node) {
     if (!log.isDebugEnabled() && !debugCosts) {
       return;
     }
 
     final int basis = zone.getGrid().getSize() / 10;
-    final int xOffset = basis * (node.isOddStepOfOneTwoOneMovement ? 7 : 3);
+    final int xOffset = basis * (nodes.odd[node] ? 7 : 3);
 
     // if (debugLabels == null) { debugLabels = new ArrayList<>(); }
 
-    Rectangle cellBounds = zone.getGrid().getBounds(node.position);
+    Rectangle cellBounds = zone.getGrid().getBounds(new CellPoint(nodes.x[node], nodes.y[node]));
     DecimalFormat f = new DecimalFormat("##.00");
 
     Label gScore = new Label();
@@ -578,26 +509,27 @@ protected void showDebugInfo(AStarCellPoint node) {
     Label fScore = new Label();
     Label parent = new Label();
 
-    gScore.setLabel(f.format(node.g));
+    gScore.setLabel(f.format(nodes.g[node]));
     gScore.setX(cellBounds.x + xOffset);
     gScore.setY(cellBounds.y + 1 * basis);
 
-    hScore.setLabel(f.format(node.h));
+    hScore.setLabel(f.format(nodes.h[node]));
     hScore.setX(cellBounds.x + xOffset);
     hScore.setY(cellBounds.y + 3 * basis);
 
-    fScore.setLabel(f.format(node.fCost()));
+    fScore.setLabel(f.format(nodes.fCost(node)));
     fScore.setX(cellBounds.x + xOffset);
     fScore.setY(cellBounds.y + 5 * basis);
     fScore.setForegroundColor(Color.RED);
 
-    if (node.parent != null) {
+    int parentNode = nodes.parent[node];
+    if (parentNode != AStarNodes.NONE) {
       parent.setLabel(
           String.format(
               "(%d, %d | %s)",
-              node.parent.position.x,
-              node.parent.position.y,
-              node.parent.isOddStepOfOneTwoOneMovement() ? "O" : "E"));
+              nodes.x[parentNode],
+              nodes.y[parentNode],
+              nodes.odd[parentNode] ? "O" : "E"));
     } else {
       parent.setLabel("(none)");
     }
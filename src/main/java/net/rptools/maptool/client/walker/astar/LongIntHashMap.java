@@ -0,0 +1,129 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from {@code long} keys to non-negative {@code int} values.
+ *
+ * <p>Used by the A* walkers to look up cells by their packed coordinates (see {@link #cellKey(int,
+ * int)}) without boxing. Clearing the map is constant time, so a single instance can be reused for
+ * every search a walker does.
+ */
+final class LongIntHashMap {
+  /** Returned by {@link #get(long)} for keys that are not in the map. */
+  static final int NO_VALUE = -1;
+
+  private long[] keys;
+  private int[] values;
+
+  /** A slot is in use if its stamp matches the current one, which lets clear() skip the arrays. */
+  private int[] stamps;
+
+  private int stamp = 1;
+  private int size;
+  private int mask;
+
+  LongIntHashMap(int expectedSize) {
+    allocate(Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1);
+  }
+
+  /**
+   * Packs cell coordinates into a key.
+   *
+   * @param x the x coordinate of the cell.
+   * @param y the y coordinate of the cell.
+   * @return the key.
+   */
+  static long cellKey(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @param key the key to look up.
+   * @return the value for the key, or {@link #NO_VALUE} if there is none.
+   */
+  int get(long key) {
+    for (int i = slot(key); stamps[i] == stamp; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+    }
+    return NO_VALUE;
+  }
+
+  /**
+   * @param key the key.
+   * @param value the value, must not be negative.
+   */
+  void put(long key, int value) {
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+    int i = slot(key);
+    for (; stamps[i] == stamp; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        values[i] = value;
+        return;
+      }
+    }
+    stamps[i] = stamp;
+    keys[i] = key;
+    values[i] = value;
+    size++;
+  }
+
+  /** Removes all entries, keeping the allocated capacity. */
+  void clear() {
+    size = 0;
+    if (++stamp == 0) {
+      Arrays.fill(stamps, 0);
+      stamp = 1;
+    }
+  }
+
+  private int slot(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    stamps = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    int[] oldStamps = stamps;
+    int oldStamp = stamp;
+
+    allocate(keys.length * 2);
+    stamp = 1;
+    size = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldStamps[i] == oldStamp) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+}
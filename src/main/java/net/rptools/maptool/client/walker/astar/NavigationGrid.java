@@ -0,0 +1,447 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import net.rptools.maptool.model.CellPoint;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Grid;
+import net.rptools.maptool.model.ModelChangeEvent;
+import net.rptools.maptool.model.ModelChangeListener;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Token.TerrainModifierOperation;
+import net.rptools.maptool.model.Zone;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.locationtech.jts.awt.ShapeReader;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.valid.IsValidOp;
+
+/**
+ * The movement data of a zone shared by all the A* walkers on it: which moves between neighbouring
+ * cells are blocked by VBL/MBL, and which cells have terrain modifiers.
+ *
+ * <p>The blocking geometry is built once per topology change rather than on every path
+ * calculation, and the result of each blocked move test is kept per cell in chunks of {@value
+ * #CHUNK_SIZE}x{@value #CHUNK_SIZE} cells, filled in as the walkers ask for them. When the
+ * topology changes only the chunks near the part that changed are dropped. Terrain modifiers are
+ * collected again only when a token with a terrain modifier is added, changed or removed.
+ */
+public final class NavigationGrid implements ModelChangeListener {
+  private static final Logger log = LogManager.getLogger(NavigationGrid.class);
+
+  private static final int CHUNK_SHIFT = 4;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** Bits 0-8 of a cell entry tell which directions are known, bits 9-17 which are blocked. */
+  private static final int BLOCKED_SHIFT = 9;
+
+  private static final Map<Zone, NavigationGrid> grids =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  record TerrainModifier(TerrainModifierOperation operation, double value) {}
+
+  /** The grid geometry the cached data was built against. */
+  private record GridKey(Class<? extends Grid> type, int size, int offsetX, int offsetY) {}
+
+  /** Held weakly so that the grid does not keep its zone in the registry. */
+  private final WeakReference<Zone> zoneReference;
+
+  private GridKey gridKey;
+  private boolean topologyChanged = true;
+  private boolean terrainChanged = true;
+
+  /** The blocking layers for MBL only, and for VBL plus MBL. */
+  private final BlockingLayer[] layers = new BlockingLayer[2];
+
+  private TerrainLayer terrain;
+
+  private NavigationGrid(Zone zone) {
+    this.zoneReference = new WeakReference<>(zone);
+    zone.addModelChangeListener(this);
+  }
+
+  /**
+   * Returns the navigation grid of a zone, creating it on first use.
+   *
+   * @param zone the zone.
+   * @return the navigation grid.
+   */
+  public static NavigationGrid forZone(Zone zone) {
+    return grids.computeIfAbsent(zone, NavigationGrid::new);
+  }
+
+  /**
+   * Returns the geometry that blocks movement on the zone.
+   *
+   * @param vblBlocksMovement true if VBL blocks movement as well as MBL.
+   * @return the blocking layer.
+   */
+  synchronized BlockingLayer getBlockingLayer(boolean vblBlocksMovement) {
+    Zone zone = zoneReference.get();
+    checkGrid(zone);
+    if (topologyChanged) {
+      topologyChanged = false;
+      for (int i = 0; i < layers.length; i++) {
+        if (layers[i] != null) {
+          layers[i] = layers[i].update(zone, i == 1);
+        }
+      }
+    }
+    int index = vblBlocksMovement ? 1 : 0;
+    if (layers[index] == null) {
+      layers[index] = new BlockingLayer(zone, vblBlocksMovement);
+    }
+    return layers[index];
+  }
+
+  /** @return the terrain modifiers of the zone. */
+  synchronized TerrainLayer getTerrain() {
+    Zone zone = zoneReference.get();
+    checkGrid(zone);
+    if (terrainChanged || terrain == null) {
+      terrainChanged = false;
+      terrain = new TerrainLayer(zone);
+    }
+    return terrain;
+  }
+
+  @Override
+  public void modelChanged(ModelChangeEvent event) {
+    Object evt = event.getEvent();
+    if (evt == Zone.Event.TOPOLOGY_CHANGED) {
+      synchronized (this) {
+        topologyChanged = true;
+      }
+    } else if (evt == Zone.Event.GRID_CHANGED) {
+      synchronized (this) {
+        gridKey = null;
+      }
+    } else if (evt == Zone.Event.TOKEN_ADDED
+        || evt == Zone.Event.TOKEN_CHANGED
+        || evt == Zone.Event.TOKEN_REMOVED) {
+      synchronized (this) {
+        for (Token token : event.getTokensAsList()) {
+          if (token.hasVBL()) {
+            topologyChanged = true;
+          }
+          if (token.getTerrainModifierOperation() != TerrainModifierOperation.NONE
+              || (terrain != null && terrain.tokenIds.contains(token.getId()))) {
+            terrainChanged = true;
+          }
+        }
+      }
+    }
+  }
+
+  /** Drops all cached data if the grid geometry changed. */
+  private void checkGrid(Zone zone) {
+    Grid grid = zone.getGrid();
+    GridKey key =
+        new GridKey(grid.getClass(), grid.getSize(), grid.getOffsetX(), grid.getOffsetY());
+    if (!key.equals(gridKey)) {
+      gridKey = key;
+      layers[0] = layers[1] = null;
+      topologyChanged = false;
+      terrain = null;
+    }
+  }
+
+  /**
+   * The areas that block movement, with the cached results of blocked move tests. A layer is never
+   * modified once built, except for filling in its cache; changes to the topology produce a new
+   * layer. Layers don't refer to the zone, so that the registry of grids doesn't keep zones alive.
+   */
+  static final class BlockingLayer {
+    /** The blocking VBL, kept apart so that the VBL of a moving token can be removed from it. */
+    private final Area vbl;
+
+    private final Area mbl;
+    private final Area area;
+    private final Rectangle bounds;
+    private final PreparedGeometry geometry;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final Map<Long, int[]> chunks = new HashMap<>();
+
+    private BlockingLayer(Zone zone, boolean includeVbl) {
+      this(includeVbl ? getBlockingVbl(zone) : new Area(), zone.getTopologyTerrain());
+    }
+
+    private BlockingLayer(Area vbl, Area mbl) {
+      this.vbl = vbl;
+      this.mbl = new Area(mbl);
+      this.area = new Area(vbl);
+      this.area.add(this.mbl);
+      this.bounds = area.getBounds();
+      this.geometry = toGeometry(area);
+    }
+
+    private static Area getBlockingVbl(Zone zone) {
+      Area vbl = new Area(zone.getTopology());
+      for (Token token : zone.getTokensWithVBL()) {
+        vbl.add(token.getTransformedVBL());
+      }
+      vbl.add(zone.getHillVbl());
+      vbl.add(zone.getPitVbl());
+      return vbl;
+    }
+
+    private PreparedGeometry toGeometry(Area area) {
+      if (area.isEmpty()) {
+        return null;
+      }
+      // Using JTS because AWT Area can only intersect with Area and we want to use simple lines
+      // here.
+      try {
+        var shapeReader = new ShapeReader(geometryFactory);
+        var vblGeometry =
+            shapeReader.read(new ReverseShapePathIterator(area.getPathIterator(null)));
+
+        // polygons
+        if (!vblGeometry.isValid()) {
+          log.info(
+              "vblGeometry is invalid! May cause issues. Check for self-intersecting polygons.");
+          log.debug("Invalid vblGeometry: " + new IsValidOp(vblGeometry).getValidationError());
+        }
+
+        vblGeometry = vblGeometry.buffer(1); // .buffer always creates valid geometry.
+        return PreparedGeometryFactory.prepare(vblGeometry);
+      } catch (Exception e) {
+        log.info("vblGeometry oh oh: ", e);
+        return null;
+      }
+    }
+
+    /**
+     * Builds the layer for the current topology, keeping the cached moves of the chunks away from
+     * the part of the topology that changed.
+     */
+    private BlockingLayer update(Zone zone, boolean includeVbl) {
+      BlockingLayer updated = new BlockingLayer(zone, includeVbl);
+      Area changed = new Area(area);
+      changed.exclusiveOr(updated.area);
+      Rectangle changedBounds = changed.getBounds();
+      // Allow for the buffer around the geometry.
+      changedBounds.grow(2, 2);
+      synchronized (this) {
+        for (var entry : chunks.entrySet()) {
+          long key = entry.getKey();
+          if (changed.isEmpty()
+              || !getChunkBounds(zone.getGrid(), (int) (key >> 32), (int) key)
+                  .intersects(changedBounds)) {
+            // The chunk is only read and written under the lock of the layer using it.
+            updated.chunks.put(key, entry.getValue().clone());
+          }
+        }
+      }
+      return updated;
+    }
+
+    /**
+     * Returns a layer where the VBL of the moving token does not block it.
+     *
+     * @param tokenVbl the VBL of the token.
+     * @return the new layer, with an empty cache.
+     */
+    BlockingLayer without(Area tokenVbl) {
+      Area reduced = new Area(vbl);
+      reduced.subtract(tokenVbl);
+      return new BlockingLayer(reduced, mbl);
+    }
+
+    /** @return the bounds of the blocking areas. */
+    Rectangle getBounds() {
+      return new Rectangle(bounds);
+    }
+
+    /** @return the blocking geometry, or null if nothing blocks movement. */
+    PreparedGeometry getGeometry() {
+      return geometry;
+    }
+
+    /**
+     * Tests whether moving from a cell to a neighbouring cell is blocked, that is, whether the line
+     * between the cell centres crosses the blocking geometry.
+     *
+     * @param grid the grid of the zone.
+     * @param x the x of the cell moved from.
+     * @param y the y of the cell moved from.
+     * @param dx the x offset of the neighbour.
+     * @param dy the y offset of the neighbour.
+     * @return true if the move is blocked.
+     */
+    boolean blocksMove(Grid grid, int x, int y, int dx, int dy) {
+      if (geometry == null) {
+        return false;
+      }
+      if (dx < -1 || dx > 1 || dy < -1 || dy > 1) {
+        return testMove(grid, x, y, dx, dy);
+      }
+      int direction = (dx + 1) * 3 + (dy + 1);
+      int known = 1 << direction;
+      int blocked = known << BLOCKED_SHIFT;
+
+      int[] chunk;
+      int index = ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+      synchronized (this) {
+        chunk =
+            chunks.computeIfAbsent(
+                LongIntHashMap.cellKey(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT),
+                k -> new int[CHUNK_SIZE * CHUNK_SIZE]);
+        int entry = chunk[index];
+        if ((entry & known) != 0) {
+          return (entry & blocked) != 0;
+        }
+      }
+
+      boolean result;
+      try {
+        result = testMove(grid, x, y, dx, dy);
+      } catch (Exception e) {
+        log.info("clipped.intersects oh oh: ", e);
+        return true;
+      }
+      synchronized (this) {
+        chunk[index] |= result ? known | blocked : known;
+      }
+      return result;
+    }
+
+    private boolean testMove(Grid grid, int x, int y, int dx, int dy) {
+      Rectangle startBounds = grid.getBounds(new CellPoint(x, y));
+      Rectangle goalBounds = grid.getBounds(new CellPoint(x + dx, y + dy));
+
+      if (goalBounds.isEmpty() || startBounds.isEmpty()) {
+        return false;
+      }
+
+      LineString centerRay =
+          geometryFactory.createLineString(
+              new Coordinate[] {
+                new Coordinate(startBounds.getCenterX(), startBounds.getCenterY()),
+                new Coordinate(goalBounds.getCenterX(), goalBounds.getCenterY())
+              });
+      return geometry.intersects(centerRay);
+    }
+
+    /**
+     * Tests whether a shape overlaps the blocking geometry.
+     *
+     * @param shape the shape to test.
+     * @return true if it overlaps.
+     */
+    boolean intersects(Geometry shape) {
+      return geometry != null && geometry.intersects(shape);
+    }
+
+    /** @return the known blocked moves, as the cells moved from by the cell moved to. */
+    synchronized Map<CellPoint, Set<CellPoint>> getBlockedMoves() {
+      Map<CellPoint, Set<CellPoint>> result = new HashMap<>();
+      for (var entry : chunks.entrySet()) {
+        int chunkX = (int) (entry.getKey() >> 32);
+        int chunkY = (int) (long) entry.getKey();
+        int[] chunk = entry.getValue();
+        for (int index = 0; index < chunk.length; index++) {
+          int blocked = chunk[index] >>> BLOCKED_SHIFT;
+          for (int direction = 0; blocked != 0; direction++, blocked >>>= 1) {
+            if ((blocked & 1) == 0) {
+              continue;
+            }
+            int x = (chunkX << CHUNK_SHIFT) | (index & CHUNK_MASK);
+            int y = (chunkY << CHUNK_SHIFT) | (index >> CHUNK_SHIFT);
+            CellPoint goal = new CellPoint(x + direction / 3 - 1, y + direction % 3 - 1);
+            result.computeIfAbsent(goal, k -> new HashSet<>()).add(new CellPoint(x, y));
+          }
+        }
+      }
+      return result;
+    }
+
+    /** @return the bounds of the cells of a chunk and their neighbours, in zone coordinates. */
+    private static Rectangle getChunkBounds(Grid grid, int chunkX, int chunkY) {
+      int x1 = (chunkX << CHUNK_SHIFT) - 1;
+      int y1 = (chunkY << CHUNK_SHIFT) - 1;
+      int x2 = x1 + CHUNK_SIZE + 1;
+      int y2 = y1 + CHUNK_SIZE + 1;
+      Rectangle chunkBounds = grid.getBounds(new CellPoint(x1, y1));
+      chunkBounds.add(grid.getBounds(new CellPoint(x2, y1)));
+      chunkBounds.add(grid.getBounds(new CellPoint(x1, y2)));
+      chunkBounds.add(grid.getBounds(new CellPoint(x2, y2)));
+      chunkBounds.grow(grid.getSize(), grid.getSize());
+      return chunkBounds;
+    }
+  }
+
+  /** The terrain modifiers of the cells covered by terrain tokens. */
+  static final class TerrainLayer {
+    private final LongIntHashMap cellIndex = new LongIntHashMap(16);
+    private final List<List<TerrainModifier>> modifiers = new ArrayList<>();
+    private final Set<GUID> tokenIds = new HashSet<>();
+    private Rectangle bounds;
+
+    private TerrainLayer(Zone zone) {
+      Grid grid = zone.getGrid();
+      // Get tokens on map that may affect movement
+      for (Token token : zone.getTokensWithTerrainModifiers()) {
+        tokenIds.add(token.getId());
+        var modifier =
+            new TerrainModifier(token.getTerrainModifierOperation(), token.getTerrainModifier());
+        for (CellPoint cell : token.getOccupiedCells(grid)) {
+          long key = LongIntHashMap.cellKey(cell.x, cell.y);
+          int index = cellIndex.get(key);
+          if (index == LongIntHashMap.NO_VALUE) {
+            index = modifiers.size();
+            cellIndex.put(key, index);
+            modifiers.add(new ArrayList<>());
+            Rectangle cellBounds = grid.getBounds(cell);
+            bounds = bounds == null ? cellBounds : bounds.union(cellBounds);
+          }
+          modifiers.get(index).add(modifier);
+        }
+      }
+    }
+
+    /**
+     * @param x the x of the cell.
+     * @param y the y of the cell.
+     * @return the terrain modifiers of the cell, or null if it has none.
+     */
+    List<TerrainModifier> getModifiers(int x, int y) {
+      int index = cellIndex.get(LongIntHashMap.cellKey(x, y));
+      return index == LongIntHashMap.NO_VALUE ? null : modifiers.get(index);
+    }
+
+    /** @return the bounds of all the terrain cells, or null if there are none. */
+    Rectangle getBounds() {
+      return bounds == null ? null : new Rectangle(bounds);
+    }
+  }
+}
@@ -14,8 +14,62 @@
  */
 package net.rptools.maptool.common;
 
+import java.util.Set;
+import net.rptools.clientserver.simple.WeightedChannel;
+
 public class MapToolConstants {
-  public enum Channel {
-    IMAGE
+
+  /**
+   * The channels the commands are sent on. Each channel keeps the order of its own commands, but a
+   * command can overtake the commands of lighter channels that are waiting to be sent.
+   */
+  public enum Channel implements WeightedChannel {
+    /**
+     * Short lived state the other players watch as it happens, such as pointers and typing
+     * notifications. These commands neither depend on nor change the campaign, so they can
+     * overtake the model updates. Token drags stay on {@link #MODEL}, as they refer to tokens and
+     * zones that the model updates before them may have just added.
+     */
+    INTERACTIVE(16),
+    /** Changes to the campaign, which must be applied in the order they were made. */
+    MODEL(4),
+    /** Asset transfers, sent in chunks with what the other channels leave over. */
+    IMAGE(1);
+
+    private static final Set<String> INTERACTIVE_COMMANDS =
+        Set.of(
+            "showPointer",
+            "movePointer",
+            "hidePointer",
+            "setLiveTypingLabel",
+            "enforceNotification",
+            "heartbeat");
+
+    private static final Set<String> IMAGE_COMMANDS =
+        Set.of("startAssetTransfer", "updateAssetTransfer");
+
+    private final int weight;
+
+    Channel(int weight) {
+      this.weight = weight;
+    }
+
+    @Override
+    public int getWeight() {
+      return weight;
+    }
+
+    /**
+     * Returns the channel a client or server command is sent on.
+     *
+     * @param method the name of the command.
+     * @return the channel.
+     */
+    public static Channel forMethod(String method) {
+      if (INTERACTIVE_COMMANDS.contains(method)) {
+        return INTERACTIVE;
+      }
+      return IMAGE_COMMANDS.contains(method) ? IMAGE : MODEL;
+    }
   }
 }
@@ -156,6 +156,9 @@ public static Type fromMediaType(MediaType mediaType) {
     }
   }
 
+  /** The Tika configuration used to detect media types, read when first needed. */
+  private static TikaConfig tikaConfig;
+
   /** Extension to use for generic binary data. */
   public static final String DATA_EXTENSION = "data";
 
@@ -650,12 +653,26 @@ Object readResolve() {
     }
   }
 
+  /**
+   * Returns the Tika configuration used to detect media types. Reading the configuration is slow so
+   * it is only done once, the detector it provides is thread safe.
+   *
+   * @return the Tika configuration.
+   * @throws TikaException if the configuration cannot be read.
+   * @throws IOException if the configuration cannot be read.
+   */
+  private static synchronized TikaConfig getTikaConfig() throws TikaException, IOException {
+    if (tikaConfig == null) {
+      tikaConfig = new TikaConfig();
+    }
+    return tikaConfig;
+  }
+
   private static MediaType getMediaType(String filename, TikaInputStream tis) throws IOException {
     Metadata metadata = new Metadata();
     metadata.set(Metadata.RESOURCE_NAME_KEY, filename);
     try {
-      TikaConfig tika = new TikaConfig();
-      MediaType mediaType = tika.getDetector().detect(tis, metadata);
+      MediaType mediaType = getTikaConfig().getDetector().detect(tis, metadata);
 
       /* Workaround for Tika seeing Javascript files as Matlab scripts */
       if ("text/x-matlab".equals(mediaType.toString())) {
@@ -14,6 +14,8 @@
  */
 package net.rptools.maptool.model;
 
+import net.rptools.maptool.model.proto.AttachedLightSourceDto;
+
 public class AttachedLightSource {
 
   private GUID lightSourceId;
@@ -28,6 +30,25 @@ public AttachedLightSource(LightSource source, Direction direction) {
     this.direction = direction.name();
   }
 
+  /**
+   * @param dto the message of a campaign file.
+   * @return the attached light source described by the message.
+   */
+  public static AttachedLightSource fromDto(AttachedLightSourceDto dto) {
+    var source = new AttachedLightSource();
+    source.lightSourceId = dto.hasLightSourceId() ? GUID.valueOf(dto.getLightSourceId()) : null;
+    source.direction = dto.hasDirection() ? dto.getDirection() : null;
+    return source;
+  }
+
+  /** @return the attached light source as message of a campaign file. */
+  public AttachedLightSourceDto toDto() {
+    var dto = AttachedLightSourceDto.newBuilder();
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(lightSourceId), dto::setLightSourceId);
+    DtoUtil.setIfNotNull(direction, dto::setDirection);
+    return dto.build();
+  }
+
   public Direction getDirection() {
     return direction != null ? Direction.valueOf(direction) : Direction.CENTER;
   }
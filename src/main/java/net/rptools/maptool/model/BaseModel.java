@@ -41,15 +41,13 @@ public void removeModelChangeListener(ModelChangeListener listener) {
   }
 
   /**
-   * Send the event to each listener in listenerList
+   * Send the event to each listener in listenerList. Listeners that coalesce events get it later,
+   * see {@link ModelChangeDispatcher}.
    *
    * @param event the event
    */
   protected void fireModelChangeEvent(ModelChangeEvent event) {
-
-    for (ModelChangeListener listener : listenerList) {
-      listener.modelChanged(event);
-    }
+    ModelChangeDispatcher.fire(listenerList, event);
   }
 
   /**
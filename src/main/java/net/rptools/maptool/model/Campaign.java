@@ -14,17 +14,21 @@
  */
 package net.rptools.maptool.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import net.rptools.lib.MD5Key;
 import net.rptools.lib.net.Location;
 import net.rptools.maptool.client.MapTool;
@@ -38,6 +42,8 @@
 import net.rptools.maptool.client.ui.token.MultipleImageBarTokenOverlay;
 import net.rptools.maptool.client.ui.token.SingleImageBarTokenOverlay;
 import net.rptools.maptool.client.ui.token.TwoImageBarTokenOverlay;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * This object contains {@link Zone}s and {@link Asset}s that make up a campaign as well as links to
@@ -51,11 +57,61 @@ public class Campaign {
   /** The only built-in property type is "Basic". Any others are user-defined. */
   public static final String DEFAULT_TOKEN_PROPERTY_TYPE = "Basic";
 
+  private static final Logger log = LogManager.getLogger(Campaign.class);
+
+  /** Reads the {@link Zone}s of a campaign file that have not been needed yet. */
+  public interface ZoneLoader {
+    /**
+     * Reads a zone from the campaign file.
+     *
+     * @param zoneId the id of the zone.
+     * @return the zone.
+     * @throws IOException if the zone could not be read.
+     */
+    Zone loadZone(GUID zoneId) throws IOException;
+  }
+
+  /**
+   * The version of a zone when it was read from the campaign file, the assets it used and the size
+   * of its entry, 0 if unknown.
+   */
+  private record ReadZone(long version, Set<MD5Key> assetIds, long size) {}
+
   private GUID id = new GUID();
 
-  /** The {@link Zone}s that make up this {@code Campaign}. */
-  private final Map<GUID, Zone> zones =
-      Collections.synchronizedMap(new LinkedHashMap<GUID, Zone>());
+  /**
+   * The {@link Zone}s that make up this {@code Campaign}. Zones that are still in the campaign file
+   * are in {@link #unloadedZones} instead. Not final as it is left out of the campaign index when
+   * the zones are saved separately.
+   */
+  private Map<GUID, Zone> zones = Collections.synchronizedMap(new LinkedHashMap<GUID, Zone>());
+
+  /**
+   * Zones that are in the campaign file but have not been read yet, mapped to the assets they use.
+   * Guarded by the {@link #zones} lock.
+   */
+  private transient Map<GUID, Set<MD5Key>> unloadedZones;
+
+  /**
+   * The summaries of the zones in {@link #unloadedZones}, as recorded in the campaign index. Zones
+   * saved before summaries were recorded have none. Guarded by the {@link #zones} lock.
+   */
+  private transient Map<GUID, ZoneSummary> unloadedSummaries;
+
+  /** Zones that could not be read; they are kept in {@link #unloadedZones} so saving keeps them. */
+  private transient Set<GUID> unreadableZones;
+
+  /**
+   * Zones that have been read from the campaign file, with their version and assets at that time.
+   * A zone whose version has not changed since is still the same as in the file. Guarded by the
+   * {@link #zones} lock.
+   */
+  private transient Map<GUID, ReadZone> readZones;
+
+  /** The order of the zones in the campaign file. */
+  private transient List<GUID> zoneOrder;
+
+  private transient ZoneLoader zoneLoader;
 
   private String name; // the name of the campaign, to be displayed in the MapToolFrame title bar
 
@@ -123,6 +179,13 @@ public Campaign() {
     gmMacroButtonProperties = new ArrayList<MacroButtonProperties>();
   }
 
+  protected Object readResolve() {
+    if (zones == null) {
+      zones = Collections.synchronizedMap(new LinkedHashMap<GUID, Zone>());
+    }
+    return this;
+  }
+
   private void checkCampaignPropertyConversion() {
     if (campaignProperties == null) {
       campaignProperties = new CampaignProperties();
@@ -156,6 +219,16 @@ public List<String> getRemoteRepositoryList() {
    * @param campaign The campaign to copy from.
    */
   public Campaign(Campaign campaign) {
+    this(campaign, true);
+  }
+
+  /**
+   * Copies a campaign.
+   *
+   * @param campaign the campaign to copy.
+   * @param copyZones whether to copy the zones, otherwise the copy has no zones.
+   */
+  private Campaign(Campaign campaign, boolean copyZones) {
     name = campaign.getName();
 
     /*
@@ -164,13 +237,19 @@ public Campaign(Campaign campaign) {
      * as is done below for the campaign properties and macro buttons. Iteration over a synchronized
      *  map must lock the map.
      */
-    Map<GUID, Zone> zonesToCopy;
-    synchronized (zones) {
-      zonesToCopy = new LinkedHashMap<>(campaign.zones);
-    }
-    for (Entry<GUID, Zone> entry : zonesToCopy.entrySet()) {
-      Zone copy = new Zone(entry.getValue(), true);
-      zones.put(copy.getId(), copy);
+    if (copyZones) {
+      // Zones that are the same as in the campaign file are read from it when the copy needs them
+      Map<GUID, Set<MD5Key>> zoneAssets =
+          campaign.getZoneAssetIds(
+              zone -> {
+                Zone copy = new Zone(zone, true);
+                zones.put(copy.getId(), copy);
+                return Set.of();
+              });
+      ZoneLoader loader = campaign.getZoneLoader();
+      if (loader != null) {
+        setUnloadedZones(loader, zoneAssets, campaign.getZoneSummaries(ZoneSummary::new));
+      }
     }
     campaignProperties = new CampaignProperties(campaign.campaignProperties);
     macroButtonProperties =
@@ -362,24 +441,28 @@ public void setId(GUID id) {
 
   /**
    * Returns an <code>ArrayList</code> of all available <code>Zone</code>s from the <code>zones
-   * </code> <code>LinkedHashMap</code>.
+   * </code> <code>LinkedHashMap</code>. Zones that have not been read from the campaign file yet
+   * are read first.
    *
    * @return a list of zones
    */
   public List<Zone> getZones() {
+    loadAllZones();
     synchronized (zones) { // Must lock synchronized map while iterating over contents.
       return new ArrayList<Zone>(zones.values());
     }
   }
 
   /**
-   * Return the <code>Zone</code> with the given GUID.
+   * Return the <code>Zone</code> with the given GUID, reading it from the campaign file if it has
+   * not been needed before.
    *
    * @param id the id to look for
    * @return the Zone for the id
    */
   public Zone getZone(GUID id) {
-    return zones.get(id);
+    Zone zone = zones.get(id);
+    return zone != null ? zone : loadZone(id);
   }
 
   /**
@@ -389,11 +472,22 @@ public Zone getZone(GUID id) {
    * @param zone the zone to put into zones.
    */
   public void putZone(Zone zone) {
-    zones.put(zone.getId(), zone);
+    synchronized (zones) {
+      forgetUnloadedZone(zone.getId());
+      zones.put(zone.getId(), zone);
+    }
   }
 
   public void removeAllZones() {
-    zones.clear();
+    synchronized (zones) {
+      zones.clear();
+      unloadedZones = null;
+      unloadedSummaries = null;
+      unreadableZones = null;
+      readZones = null;
+      zoneOrder = null;
+      zoneLoader = null;
+    }
   }
 
   /**
@@ -402,7 +496,433 @@ public void removeAllZones() {
    * @param id the GUID of the zone.
    */
   public void removeZone(GUID id) {
-    zones.remove(id);
+    synchronized (zones) {
+      forgetUnloadedZone(id);
+      zones.remove(id);
+    }
+  }
+
+  /**
+   * Registers the zones of a campaign file that are to be read when they are first needed.
+   *
+   * @param loader reads the zones from the campaign file.
+   * @param zoneAssets the ids of all the zones of the campaign file, in campaign order, mapped to
+   *     the assets each zone uses.
+   */
+  public void setUnloadedZones(ZoneLoader loader, Map<GUID, Set<MD5Key>> zoneAssets) {
+    setUnloadedZones(loader, zoneAssets, Map.of());
+  }
+
+  /**
+   * Registers the zones of a campaign file that are to be read when they are first needed.
+   *
+   * @param loader reads the zones from the campaign file.
+   * @param zoneAssets the ids of all the zones of the campaign file, in campaign order, mapped to
+   *     the assets each zone uses.
+   * @param zoneSummaries the summaries of the zones, by zone id. Zones without one are read when
+   *     a summary of every zone is needed.
+   */
+  public void setUnloadedZones(
+      ZoneLoader loader,
+      Map<GUID, Set<MD5Key>> zoneAssets,
+      Map<GUID, ZoneSummary> zoneSummaries) {
+    synchronized (zones) {
+      zoneLoader = loader;
+      zoneOrder = new ArrayList<>(zoneAssets.keySet());
+      unloadedZones = new HashMap<>();
+      unloadedSummaries = new HashMap<>();
+      unreadableZones = new HashSet<>();
+      readZones = new HashMap<>();
+      for (Entry<GUID, Set<MD5Key>> entry : zoneAssets.entrySet()) {
+        if (!zones.containsKey(entry.getKey())) {
+          unloadedZones.put(entry.getKey(), new HashSet<>(entry.getValue()));
+          ZoneSummary summary = zoneSummaries.get(entry.getKey());
+          if (summary != null) {
+            unloadedSummaries.put(entry.getKey(), summary);
+          }
+        }
+      }
+    }
+  }
+
+  /** @return the loader for the zones that have not been read yet, or null if there is none. */
+  public ZoneLoader getZoneLoader() {
+    return zoneLoader;
+  }
+
+  /**
+   * Returns whether a zone is still in the campaign file only. Such zones have not been changed
+   * since the campaign was loaded.
+   *
+   * @param id the id of the zone.
+   * @return true if the zone has not been read from the campaign file.
+   */
+  public boolean isZoneUnloaded(GUID id) {
+    synchronized (zones) {
+      return unloadedZones != null && unloadedZones.containsKey(id);
+    }
+  }
+
+  /**
+   * Returns whether a zone is the same as in the campaign file, because it has not been read from
+   * the file or has not changed since it was read. Such zones can be copied from the file when
+   * saving.
+   *
+   * @param id the id of the zone.
+   * @return true if the zone is unchanged.
+   */
+  public boolean isZoneUnchanged(GUID id) {
+    synchronized (zones) {
+      return isZoneUnchanged(id, zones.get(id));
+    }
+  }
+
+  /** Must be called while holding the {@link #zones} lock. */
+  private boolean isZoneUnchanged(GUID id, Zone zone) {
+    if (unloadedZones == null) {
+      return false;
+    }
+    if (unloadedZones.containsKey(id)) {
+      return true;
+    }
+    ReadZone read = readZones.get(id);
+    return read != null && zone != null && zone.getVersion() == read.version();
+  }
+
+  /**
+   * Returns the ids of all zones in campaign order, including those that have not been read from
+   * the campaign file yet or could not be read. No zones are read.
+   *
+   * @return the list of zone ids.
+   */
+  public List<GUID> getZoneIds() {
+    Set<GUID> result = new LinkedHashSet<>();
+    synchronized (zones) {
+      if (zoneOrder != null) {
+        for (GUID zoneId : zoneOrder) {
+          if (unloadedZones.containsKey(zoneId) || zones.containsKey(zoneId)) {
+            result.add(zoneId);
+          }
+        }
+      }
+      result.addAll(zones.keySet());
+    }
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * @return the number of zones, including those that have not been read from the campaign file
+   *     yet but not those that could not be read.
+   */
+  public int getZoneCount() {
+    synchronized (zones) {
+      int count = zones.size();
+      if (unloadedZones != null) {
+        count += unloadedZones.size() - unreadableZones.size();
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Returns the ids of all zones, including those that have not been read yet, in campaign order
+   * and mapped to the assets each zone uses. No zones are read from the campaign file.
+   *
+   * @return the map of zone ids to asset ids.
+   */
+  public Map<GUID, Set<MD5Key>> getZoneAssetIds() {
+    return getZoneAssetIds(Zone::getAllAssetIds);
+  }
+
+  /**
+   * Returns the ids of all zones in campaign order, mapped to the assets each zone uses. The assets
+   * of the zones that have changed since they were read, or are not from the campaign file, are
+   * given by a function, which is called outside of any lock.
+   *
+   * @param loadedZoneAssets returns the asset ids of a zone that has changed.
+   * @return the map of zone ids to asset ids.
+   */
+  public Map<GUID, Set<MD5Key>> getZoneAssetIds(Function<Zone, Set<MD5Key>> loadedZoneAssets) {
+    List<Zone> loaded = new ArrayList<>();
+    Map<GUID, Set<MD5Key>> result = new LinkedHashMap<>();
+    synchronized (zones) {
+      for (Zone zone : zones.values()) {
+        if (!isZoneUnchanged(zone.getId(), zone)) {
+          loaded.add(zone);
+        }
+      }
+      if (zoneOrder != null) {
+        for (GUID zoneId : zoneOrder) {
+          if (unloadedZones.containsKey(zoneId)) {
+            result.put(zoneId, unloadedZones.get(zoneId));
+          } else if (isZoneUnchanged(zoneId, zones.get(zoneId))) {
+            result.put(zoneId, readZones.get(zoneId).assetIds());
+          } else if (zones.containsKey(zoneId)) {
+            result.put(zoneId, null);
+          }
+        }
+      }
+    }
+    for (Zone zone : loaded) {
+      result.put(zone.getId(), loadedZoneAssets.apply(zone));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the summaries of the zones in campaign order. The summaries of the zones that have been
+   * read are given by a function, which is called outside of any lock. Those of the other zones
+   * come from the campaign index. No zones are read, so the zones the index has no summary of are
+   * left out.
+   *
+   * @param loadedZoneSummary returns the summary of a zone that has been read.
+   * @return the map of zone ids to summaries.
+   */
+  public Map<GUID, ZoneSummary> getZoneSummaries(Function<Zone, ZoneSummary> loadedZoneSummary) {
+    List<Zone> loaded;
+    Map<GUID, ZoneSummary> summaries = new HashMap<>();
+    synchronized (zones) {
+      loaded = new ArrayList<>(zones.values());
+      if (unloadedSummaries != null) {
+        summaries.putAll(unloadedSummaries);
+      }
+    }
+    for (Zone zone : loaded) {
+      summaries.put(zone.getId(), loadedZoneSummary.apply(zone));
+    }
+    Map<GUID, ZoneSummary> result = new LinkedHashMap<>();
+    for (GUID zoneId : getZoneIds()) {
+      ZoneSummary summary = summaries.get(zoneId);
+      if (summary != null) {
+        result.put(zoneId, summary);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the summaries of all zones in campaign order. Zones the campaign index has no summary
+   * of are read first, and zones that could not be read are left out.
+   *
+   * @return the map of zone ids to summaries.
+   */
+  public Map<GUID, ZoneSummary> getZoneSummaries() {
+    loadZones(zoneId -> !unloadedSummaries.containsKey(zoneId));
+    Map<GUID, ZoneSummary> result = getZoneSummaries(ZoneSummary::new);
+    synchronized (zones) {
+      if (unreadableZones != null) {
+        result.keySet().removeAll(unreadableZones);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Estimates the size of the zones without serializing them. A zone that has not changed since it
+   * was read from the campaign file counts with the size of its entry there, and the other zones
+   * with the average size of those entries.
+   *
+   * @return the estimated size in bytes, or -1 if the size of no entry is known.
+   */
+  public long estimateZonesSize() {
+    synchronized (zones) {
+      if (unloadedZones == null) {
+        return -1;
+      }
+      long known = 0;
+      int knownCount = 0;
+      for (GUID zoneId : unloadedZones.keySet()) {
+        ZoneSummary summary = unloadedSummaries.get(zoneId);
+        if (summary != null && summary.getSize() > 0 && !unreadableZones.contains(zoneId)) {
+          known += summary.getSize();
+          knownCount++;
+        }
+      }
+      for (Entry<GUID, ReadZone> entry : readZones.entrySet()) {
+        long size = entry.getValue().size();
+        if (size > 0 && isZoneUnchanged(entry.getKey(), zones.get(entry.getKey()))) {
+          known += size;
+          knownCount++;
+        }
+      }
+      if (knownCount == 0) {
+        return -1;
+      }
+      return known + (getZoneCount() - knownCount) * (known / knownCount);
+    }
+  }
+
+  /**
+   * Returns the zones whose summary matches a filter, in campaign order. Only these zones are read
+   * from the campaign file, and those the campaign index has no summary of.
+   *
+   * @param filter the filter of the summaries.
+   * @return the list of zones.
+   */
+  public List<Zone> getZones(Predicate<ZoneSummary> filter) {
+    List<Zone> result = new ArrayList<>();
+    for (Entry<GUID, ZoneSummary> entry : getZoneSummaries().entrySet()) {
+      if (filter.test(entry.getValue())) {
+        Zone zone = getZone(entry.getKey());
+        if (zone != null) {
+          result.add(zone);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the zones that have library tokens, those named "lib:...", reading only these zones.
+   *
+   * @return the list of zones.
+   */
+  public List<Zone> getZonesWithLibTokens() {
+    return getZones(summary -> !summary.getLibTokenIds().isEmpty());
+  }
+
+  /**
+   * Returns the zones with a name, ignoring case, reading only these zones.
+   *
+   * @param name the name of the zones.
+   * @return the list of zones.
+   */
+  public List<Zone> getZonesNamed(String name) {
+    return getZones(summary -> name.equalsIgnoreCase(summary.getName()));
+  }
+
+  /**
+   * Creates a copy of the campaign whose zones are all provided by a loader, for example to save
+   * the campaign in the background without copying its zones.
+   *
+   * @param loader the loader of the zones.
+   * @param zoneAssets the ids of the zones in campaign order, mapped to the assets each zone uses.
+   * @param zoneSummaries the summaries of the zones, by zone id.
+   * @return the copy.
+   */
+  public Campaign copyWithZoneLoader(
+      ZoneLoader loader,
+      Map<GUID, Set<MD5Key>> zoneAssets,
+      Map<GUID, ZoneSummary> zoneSummaries) {
+    Campaign copy = new Campaign(this, false);
+    copy.setUnloadedZones(loader, zoneAssets, zoneSummaries);
+    return copy;
+  }
+
+  /** Must be called while holding the {@link #zones} lock. */
+  private void forgetUnloadedZone(GUID id) {
+    if (unloadedZones != null) {
+      unloadedZones.remove(id);
+      unloadedSummaries.remove(id);
+      unreadableZones.remove(id);
+      readZones.remove(id);
+    }
+  }
+
+  /**
+   * Reads a zone that is still in the campaign file.
+   *
+   * @param id the id of the zone.
+   * @return the zone, or null if there is no such zone or it could not be read.
+   */
+  private Zone loadZone(GUID id) {
+    ZoneLoader loader;
+    synchronized (zones) {
+      if (unloadedZones == null
+          || !unloadedZones.containsKey(id)
+          || unreadableZones.contains(id)) {
+        return zones.get(id);
+      }
+      loader = zoneLoader;
+    }
+    addLoadedZones(Map.of(id, readZone(loader, id)));
+    return zones.get(id);
+  }
+
+  /** Reads all zones that are still in the campaign file, in parallel. */
+  private void loadAllZones() {
+    loadZones(zoneId -> true);
+  }
+
+  /**
+   * Reads zones that are still in the campaign file, in parallel.
+   *
+   * @param filter selects the ids of the zones to read, called while holding the {@link #zones}
+   *     lock.
+   */
+  private void loadZones(Predicate<GUID> filter) {
+    List<GUID> toLoad = new ArrayList<>();
+    ZoneLoader loader;
+    synchronized (zones) {
+      if (unloadedZones == null) {
+        return;
+      }
+      for (GUID zoneId : unloadedZones.keySet()) {
+        if (!unreadableZones.contains(zoneId) && filter.test(zoneId)) {
+          toLoad.add(zoneId);
+        }
+      }
+      if (toLoad.isEmpty()) {
+        return;
+      }
+      loader = zoneLoader;
+    }
+    Map<GUID, Optional<Zone>> loaded = new HashMap<>();
+    toLoad.parallelStream()
+        .map(zoneId -> Map.entry(zoneId, readZone(loader, zoneId)))
+        .forEachOrdered(e -> loaded.put(e.getKey(), e.getValue()));
+    addLoadedZones(loaded);
+  }
+
+  private Optional<Zone> readZone(ZoneLoader loader, GUID zoneId) {
+    try {
+      return Optional.ofNullable(loader.loadZone(zoneId));
+    } catch (IOException | RuntimeException e) {
+      log.error("Could not read zone " + zoneId + " from the campaign file", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Moves zones that have been read from {@link #unloadedZones} to {@link #zones}, keeping the
+   * campaign order. Zones that were put or removed while being read are left alone.
+   */
+  private void addLoadedZones(Map<GUID, Optional<Zone>> loaded) {
+    synchronized (zones) {
+      if (unloadedZones == null) {
+        return;
+      }
+      boolean added = false;
+      for (Entry<GUID, Optional<Zone>> entry : loaded.entrySet()) {
+        if (!unloadedZones.containsKey(entry.getKey())) {
+          continue;
+        }
+        if (entry.getValue().isPresent()) {
+          Zone zone = entry.getValue().get();
+          Set<MD5Key> assetIds = unloadedZones.remove(entry.getKey());
+          ZoneSummary summary = unloadedSummaries.remove(entry.getKey());
+          long size = summary != null ? summary.getSize() : 0;
+          zones.put(entry.getKey(), zone);
+          readZones.put(entry.getKey(), new ReadZone(zone.getVersion(), assetIds, size));
+          added = true;
+        } else {
+          unreadableZones.add(entry.getKey());
+        }
+      }
+      if (!added) {
+        return;
+      }
+      Map<GUID, Zone> ordered = new LinkedHashMap<>();
+      for (GUID zoneId : zoneOrder) {
+        Zone zone = zones.get(zoneId);
+        if (zone != null) {
+          ordered.put(zoneId, zone);
+        }
+      }
+      ordered.putAll(zones);
+      zones.clear();
+      zones.putAll(ordered);
+    }
   }
 
   public boolean containsAsset(Asset asset) {
@@ -410,13 +930,7 @@ public boolean containsAsset(Asset asset) {
   }
 
   public boolean containsAsset(MD5Key key) {
-    Collection<Zone> zonesToCheck;
-    synchronized (zones) { // iteration over synchronized map must lock the map
-      zonesToCheck = zones.values();
-    }
-
-    for (Zone zone : zonesToCheck) {
-      Set<MD5Key> assetSet = zone.getAllAssetIds();
+    for (Set<MD5Key> assetSet : getZoneAssetIds().values()) {
       if (assetSet.contains(key)) {
         return true;
       }
@@ -621,8 +1135,8 @@ public Set<MD5Key> getAllAssetIds() {
 
     // Maps (tokens are implicit)
     Set<MD5Key> assetSet = new HashSet<MD5Key>();
-    for (Zone zone : getZones()) {
-      assetSet.addAll(zone.getAllAssetIds());
+    for (Set<MD5Key> zoneAssets : getZoneAssetIds().values()) {
+      assetSet.addAll(zoneAssets);
     }
 
     // States
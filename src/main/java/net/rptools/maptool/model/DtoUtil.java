@@ -0,0 +1,257 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.thoughtworks.xstream.XStream;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+import net.rptools.lib.FileUtil;
+import net.rptools.maptool.model.proto.AreaDto;
+import net.rptools.maptool.model.proto.PointDto;
+import net.rptools.maptool.model.proto.RectangleDto;
+import net.rptools.maptool.model.proto.ValueDto;
+
+/**
+ * Conversions shared by the {@code toDto()} and {@code fromDto()} methods of the model classes that
+ * are stored as protobuf messages.
+ */
+public final class DtoUtil {
+
+  /**
+   * Reads the values that earlier versions stored as XML. The zone of a grid is left out, it is set
+   * again when the grid is put back into its zone.
+   */
+  private static final XStream xstream = createXStream();
+
+  private DtoUtil() {}
+
+  private static XStream createXStream() {
+    XStream xs = FileUtil.getConfiguredXStream();
+    xs.ignoreUnknownElements();
+    xs.omitField(Grid.class, "zone");
+    return xs;
+  }
+
+  /**
+   * @param area the area, may be null.
+   * @return the area as message, or null if the area is null.
+   */
+  public static AreaDto toDto(Area area) {
+    return toPathDto(area);
+  }
+
+  /**
+   * @param shape the shape, may be null.
+   * @return the outline of the shape as message, or null if the shape is null.
+   */
+  public static AreaDto toPathDto(Shape shape) {
+    if (shape == null) {
+      return null;
+    }
+    var builder = AreaDto.newBuilder();
+    double[] coords = new double[6];
+    PathIterator it = shape.getPathIterator(null);
+    builder.setWindingRule(it.getWindingRule());
+    for (; !it.isDone(); it.next()) {
+      int type = it.currentSegment(coords);
+      builder.addSegmentTypes(type);
+      for (int i = 0; i < coordinateCount(type); i++) {
+        builder.addCoordinates(coords[i]);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the area described by the message.
+   */
+  public static Area fromDto(AreaDto dto) {
+    return new Area(toPath(dto));
+  }
+
+  /**
+   * @param dto the message.
+   * @return the outline described by the message.
+   */
+  public static Path2D toPath(AreaDto dto) {
+    Path2D.Double path = new Path2D.Double(dto.getWindingRule(), dto.getSegmentTypesCount());
+    int c = 0;
+    for (int type : dto.getSegmentTypesList()) {
+      switch (type) {
+        case PathIterator.SEG_MOVETO -> path.moveTo(
+            dto.getCoordinates(c), dto.getCoordinates(c + 1));
+        case PathIterator.SEG_LINETO -> path.lineTo(
+            dto.getCoordinates(c), dto.getCoordinates(c + 1));
+        case PathIterator.SEG_QUADTO -> path.quadTo(
+            dto.getCoordinates(c),
+            dto.getCoordinates(c + 1),
+            dto.getCoordinates(c + 2),
+            dto.getCoordinates(c + 3));
+        case PathIterator.SEG_CUBICTO -> path.curveTo(
+            dto.getCoordinates(c),
+            dto.getCoordinates(c + 1),
+            dto.getCoordinates(c + 2),
+            dto.getCoordinates(c + 3),
+            dto.getCoordinates(c + 4),
+            dto.getCoordinates(c + 5));
+        default -> path.closePath();
+      }
+      c += coordinateCount(type);
+    }
+    return path;
+  }
+
+  private static int coordinateCount(int segmentType) {
+    return switch (segmentType) {
+      case PathIterator.SEG_MOVETO, PathIterator.SEG_LINETO -> 2;
+      case PathIterator.SEG_QUADTO -> 4;
+      case PathIterator.SEG_CUBICTO -> 6;
+      default -> 0;
+    };
+  }
+
+  /**
+   * @param point the point.
+   * @return the point as message.
+   */
+  public static PointDto toDto(Point point) {
+    return PointDto.newBuilder().setX(point.x).setY(point.y).build();
+  }
+
+  /**
+   * @param point the point.
+   * @return the point as message.
+   */
+  public static PointDto toDto(AbstractPoint point) {
+    return PointDto.newBuilder().setX(point.x).setY(point.y).build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the point described by the message.
+   */
+  public static Point fromDto(PointDto dto) {
+    return new Point(dto.getX(), dto.getY());
+  }
+
+  /**
+   * @param rectangle the rectangle.
+   * @return the rectangle as message.
+   */
+  public static RectangleDto toDto(Rectangle rectangle) {
+    return RectangleDto.newBuilder()
+        .setX(rectangle.x)
+        .setY(rectangle.y)
+        .setWidth(rectangle.width)
+        .setHeight(rectangle.height)
+        .build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the rectangle described by the message.
+   */
+  public static Rectangle fromDto(RectangleDto dto) {
+    return new Rectangle(dto.getX(), dto.getY(), dto.getWidth(), dto.getHeight());
+  }
+
+  /**
+   * Converts a value of a token property or state. Strings, numbers, booleans and JSON are stored
+   * as such. Macros do not store values of other types, should there be one it is stored as its
+   * string form.
+   *
+   * @param value the value, may be null.
+   * @return the value as message.
+   */
+  public static ValueDto toDto(Object value) {
+    var builder = ValueDto.newBuilder();
+    if (value == null) {
+      builder.setNullValue(true);
+    } else if (value instanceof String s) {
+      builder.setStringValue(s);
+    } else if (value.getClass() == BigDecimal.class) {
+      builder.setDecimalValue(value.toString());
+    } else if (value instanceof Boolean b) {
+      builder.setBooleanValue(b);
+    } else if (value instanceof Integer i) {
+      builder.setIntValue(i);
+    } else if (value instanceof Long l) {
+      builder.setLongValue(l);
+    } else if (value instanceof Double d) {
+      builder.setDoubleValue(d);
+    } else if (value instanceof JsonElement json) {
+      builder.setJsonValue(json.toString());
+    } else {
+      builder.setStringValue(value.toString());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the value described by the message.
+   */
+  public static Object fromDto(ValueDto dto) {
+    return switch (dto.getValueCase()) {
+      case STRING_VALUE -> dto.getStringValue();
+      case DECIMAL_VALUE -> new BigDecimal(dto.getDecimalValue());
+      case BOOLEAN_VALUE -> dto.getBooleanValue();
+      case INT_VALUE -> dto.getIntValue();
+      case LONG_VALUE -> dto.getLongValue();
+      case DOUBLE_VALUE -> dto.getDoubleValue();
+      case JSON_VALUE -> JsonParser.parseString(dto.getJsonValue());
+      case XML_VALUE -> fromXml(dto.getXmlValue());
+      default -> null;
+    };
+  }
+
+  /**
+   * @param xml XStream XML written by an earlier version.
+   * @return the deserialized object.
+   */
+  public static Object fromXml(String xml) {
+    return xstream.fromXML(xml);
+  }
+
+  /**
+   * Sets an optional message field, protobuf builders do not accept null.
+   *
+   * @param value the value, may be null.
+   * @param setter the setter of the builder.
+   * @param <T> the type of the value.
+   */
+  public static <T> void setIfNotNull(T value, Consumer<T> setter) {
+    if (value != null) {
+      setter.accept(value);
+    }
+  }
+
+  /**
+   * @param value the value, may be null.
+   * @return the string form of the value, or null.
+   */
+  public static String toStringOrNull(Object value) {
+    return value == null ? null : value.toString();
+  }
+}
@@ -33,6 +33,7 @@
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.swing.Action;
 import javax.swing.KeyStroke;
 import net.rptools.lib.FileUtil;
@@ -44,6 +45,7 @@
 import net.rptools.maptool.client.walker.ZoneWalker;
 import net.rptools.maptool.model.TokenFootprint.OffsetTranslator;
 import net.rptools.maptool.model.Zone.Event;
+import net.rptools.maptool.model.proto.GridDto;
 import net.rptools.maptool.util.GraphicsUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -70,6 +72,12 @@ public abstract class Grid implements Cloneable {
   private static final Dimension NO_DIM = new Dimension();
   private static final DirectionCalculator calculator = new DirectionCalculator();
   private static Map<Integer, Area> gridShapeCache = new ConcurrentHashMap<>();
+
+  /** The most light and sight shapes cached before the cache is emptied. */
+  private static final int MAX_SHAPED_AREA_CACHE_SIZE = 2000;
+
+  /** The light and sight shapes made so far, centered on the origin. */
+  private static final Map<ShapeKey, Area> shapedAreaCache = new ConcurrentHashMap<>();
   protected Map<KeyStroke, Action> movementKeys = null;
   private int offsetX = 0;
   private int offsetY = 0;
@@ -86,6 +94,44 @@ public Grid(Grid grid) {
     setOffset(grid.offsetX, grid.offsetY);
   }
 
+  /**
+   * Creates the grid described by a message of a campaign file. The zone of the grid is set when
+   * the grid is put back into its zone.
+   *
+   * @param dto the message.
+   * @return the grid.
+   */
+  public static Grid fromDto(GridDto dto) {
+    Grid grid =
+        switch (dto.getType()) {
+          case GridFactory.HEX_VERT -> new HexGridVertical();
+          case GridFactory.HEX_HORI -> new HexGridHorizontal();
+          case GridFactory.ISOMETRIC -> new IsometricGrid();
+          case GridFactory.NONE -> new GridlessGrid();
+          default -> new SquareGrid();
+        };
+    if (grid instanceof HexGrid hexGrid) {
+      hexGrid.setHexRatio(dto.getHexRatio());
+    }
+    grid.setSize(dto.getSize());
+    grid.setOffset(dto.getOffsetX(), dto.getOffsetY());
+    return grid;
+  }
+
+  /** @return the grid as message of a campaign file. */
+  public GridDto toDto() {
+    var dto =
+        GridDto.newBuilder()
+            .setType(GridFactory.getGridType(this))
+            .setSize(size)
+            .setOffsetX(offsetX)
+            .setOffsetY(offsetY);
+    if (this instanceof HexGrid hexGrid) {
+      dto.setHexRatio(hexGrid.getHexRatio());
+    }
+    return dto.build();
+  }
+
   protected synchronized Map<Integer, Area> getGridShapeCache() {
     return gridShapeCache;
   }
@@ -378,16 +424,90 @@ public Area getShapedArea(
       }
     }
 
+    if (shape == ShapeType.GRID) {
+      return getGridArea(token, range, scaleWithToken, visionRange);
+    }
+    if (shape == ShapeType.CONE && token.getFacing() == null) {
+      token.setFacing(0);
+    }
+
+    // Only the cone and hex shapes depend on the token beyond the range.
+    ShapeKey key;
+    if (shape == ShapeType.CONE) {
+      Rectangle footprint = token.getFootprint(this).getBounds(this);
+      key =
+          new ShapeKey(
+              getClass(),
+              getSize(),
+              shape,
+              visionRange,
+              arcAngle,
+              offsetAngle,
+              token.getFacing(),
+              footprint);
+    } else if (shape == ShapeType.HEX) {
+      Rectangle footprint = token.getFootprint(this).getBounds(this);
+      key = new ShapeKey(getClass(), getSize(), shape, visionRange, 0, 0, 0, footprint);
+    } else {
+      key = new ShapeKey(getClass(), getSize(), shape, visionRange, 0, 0, 0, null);
+    }
+    return getCachedShape(key, this::createShapedArea);
+  }
+
+  /**
+   * The parameters a light or sight shape is made from, see {@link #getShapedArea}.
+   *
+   * @param gridType the class of the grid.
+   * @param gridSize the size of the grid.
+   * @param shape the shape.
+   * @param range the range in pixels, including the token size if scaled with it.
+   * @param arcAngle the angle of a cone.
+   * @param offsetAngle the offset of a cone from the facing.
+   * @param facing the facing of the token for a cone.
+   * @param footprint the bounds of the token footprint for cones and hexes, which must not be
+   *     changed.
+   */
+  protected record ShapeKey(
+      Class<?> gridType,
+      int gridSize,
+      ShapeType shape,
+      double range,
+      double arcAngle,
+      int offsetAngle,
+      int facing,
+      Rectangle footprint) {}
+
+  /**
+   * Returns a copy of a cached light or sight shape, making the shape if it is not cached yet. The
+   * copy shares the geometry of the cached shape until either is changed, so it is cheap to make
+   * and the caller is free to change it.
+   *
+   * @param key the parameters of the shape.
+   * @param factory makes the shape from the parameters.
+   * @return the shape.
+   */
+  protected Area getCachedShape(ShapeKey key, Function<ShapeKey, Area> factory) {
+    if (shapedAreaCache.size() > MAX_SHAPED_AREA_CACHE_SIZE) {
+      shapedAreaCache.clear();
+    }
+    return new Area(shapedAreaCache.computeIfAbsent(key, factory));
+  }
+
+  /**
+   * Makes a light or sight shape for {@link #getShapedArea}, centered on the origin.
+   *
+   * @param key the parameters of the shape.
+   * @return the shape.
+   */
+  private Area createShapedArea(ShapeKey key) {
+    double visionRange = key.range();
     Area visibleArea = new Area();
-    switch (shape) {
+    switch (key.shape()) {
       case CIRCLE:
         visibleArea =
             GraphicsUtil.createLineSegmentEllipse(
                 -visionRange, -visionRange, visionRange, visionRange, CIRCLE_SEGMENTS);
         break;
-      case GRID:
-        visibleArea = getGridArea(token, range, scaleWithToken, visionRange);
-        break;
       case SQUARE:
         visibleArea =
             new Area(
@@ -395,18 +515,14 @@ public Area getShapedArea(
                     -visionRange, -visionRange, visionRange * 2, visionRange * 2));
         break;
       case CONE:
-        if (token.getFacing() == null) {
-          token.setFacing(0);
-        }
-
         Arc2D cone =
             new Arc2D.Double(
                 -visionRange,
                 -visionRange,
                 visionRange * 2,
                 visionRange * 2,
-                360.0 - (arcAngle / 2.0) + (offsetAngle * 1.0),
-                arcAngle,
+                360.0 - (key.arcAngle() / 2.0) + (key.offsetAngle() * 1.0),
+                key.arcAngle(),
                 Arc2D.PIE);
 
         // Flatten the cone to remove 'curves'
@@ -417,9 +533,9 @@ public Area getShapedArea(
         // Rotate
         tempvisibleArea =
             tempvisibleArea.createTransformedArea(
-                AffineTransform.getRotateInstance(-Math.toRadians(token.getFacing())));
+                AffineTransform.getRotateInstance(-Math.toRadians(key.facing())));
 
-        Rectangle footprint = token.getFootprint(this).getBounds(this);
+        Rectangle footprint = new Rectangle(key.footprint());
         footprint.x = -footprint.width / 2;
         footprint.y = -footprint.height / 2;
 
@@ -427,13 +543,10 @@ public Area getShapedArea(
         visibleArea.add(tempvisibleArea);
         break;
       case HEX:
-        footprint = token.getFootprint(this).getBounds(this);
-        double x = footprint.getCenterX();
-        double y = footprint.getCenterY();
+        double x = key.footprint().getCenterX();
+        double y = key.footprint().getCenterY();
 
-        double footprintWidth = token.getFootprint(this).getBounds(this).getWidth();
-        double footprintHeight = token.getFootprint(this).getBounds(this).getHeight();
-        double adjustment = Math.min(footprintWidth, footprintHeight);
+        double adjustment = Math.min(key.footprint().getWidth(), key.footprint().getHeight());
         x -= adjustment / 2;
         y -= adjustment / 2;
 
@@ -499,6 +612,7 @@ protected Area createHex(double x, double y, double radius, double rotation) {
   private void fireGridChanged() {
     if (zone != null) {
       gridShapeCache.clear();
+      shapedAreaCache.clear();
       zone.fireModelChangeEvent(new ModelChangeEvent(this, Event.GRID_CHANGED));
     }
   }
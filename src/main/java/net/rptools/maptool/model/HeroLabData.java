@@ -36,6 +36,7 @@
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
+import net.rptools.maptool.model.proto.HeroLabDataDto;
 
 /**
  * @author Jamz
@@ -116,6 +117,64 @@ public HeroLabData(String name) {
     heroImageAssets.put(DefaultAssetKey.PORTRAIT_KEY, DEFAULT_HERO_LAB_PORTRAIT_ASSET.getMD5Key());
   }
 
+  /** Used for data read from a campaign file, it already holds its image assets. */
+  private HeroLabData() {}
+
+  /**
+   * @param dto the message of a campaign file.
+   * @return the data described by the message.
+   */
+  public static HeroLabData fromDto(HeroLabDataDto dto) {
+    var data = new HeroLabData();
+    data.heroLabStatblockAssetID =
+        dto.hasStatblockAssetId() ? new MD5Key(dto.getStatblockAssetId()) : null;
+    data.name = dto.hasName() ? dto.getName() : null;
+    data.summary = dto.hasSummary() ? dto.getSummary() : null;
+    data.playerName = dto.hasPlayerName() ? dto.getPlayerName() : null;
+    data.gameSystem = dto.hasGameSystem() ? dto.getGameSystem() : null;
+    data.heroLabIndex = dto.hasHeroLabIndex() ? dto.getHeroLabIndex() : null;
+    data.minionMasterIndex = dto.hasMinionMasterIndex() ? dto.getMinionMasterIndex() : null;
+    data.minionMasterName = dto.hasMinionMasterName() ? dto.getMinionMasterName() : null;
+    data.isAlly = dto.getIsAlly();
+    data.isDirty = dto.getIsDirty();
+    data.isMinion = dto.getIsMinion();
+    data.portfolioFile = dto.hasPortfolioFile() ? new File(dto.getPortfolioFile()) : null;
+    data.portfolioPath = dto.hasPortfolioPath() ? dto.getPortfolioPath() : null;
+    data.lastModified = dto.getLastModified();
+    dto.getHeroImageAssetsMap()
+        .forEach((key, assetId) -> data.heroImageAssets.put(key, new MD5Key(assetId)));
+    return data;
+  }
+
+  /** @return the data as message of a campaign file. */
+  public HeroLabDataDto toDto() {
+    var dto =
+        HeroLabDataDto.newBuilder()
+            .setIsAlly(isAlly)
+            .setIsDirty(isDirty)
+            .setIsMinion(isMinion)
+            .setLastModified(lastModified);
+    DtoUtil.setIfNotNull(
+        DtoUtil.toStringOrNull(heroLabStatblockAssetID), dto::setStatblockAssetId);
+    DtoUtil.setIfNotNull(name, dto::setName);
+    DtoUtil.setIfNotNull(summary, dto::setSummary);
+    DtoUtil.setIfNotNull(playerName, dto::setPlayerName);
+    DtoUtil.setIfNotNull(gameSystem, dto::setGameSystem);
+    DtoUtil.setIfNotNull(heroLabIndex, dto::setHeroLabIndex);
+    DtoUtil.setIfNotNull(minionMasterIndex, dto::setMinionMasterIndex);
+    DtoUtil.setIfNotNull(minionMasterName, dto::setMinionMasterName);
+    DtoUtil.setIfNotNull(
+        portfolioFile == null ? null : portfolioFile.getPath(), dto::setPortfolioFile);
+    DtoUtil.setIfNotNull(portfolioPath, dto::setPortfolioPath);
+    heroImageAssets.forEach(
+        (key, assetId) -> {
+          if (key != null && assetId != null) {
+            dto.putHeroImageAssets(key, assetId.toString());
+          }
+        });
+    return dto.build();
+  }
+
   /**
    * Evaluate the HeroLab XML statBlock against the supplied xPath expression, returning the results
    * as a String List with the requested delimiter.
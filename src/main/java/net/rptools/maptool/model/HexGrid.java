@@ -120,6 +120,20 @@ public HexGrid() {
     super();
   }
 
+  /** @return minorRadius / edgeLength */
+  double getHexRatio() {
+    return hexRatio;
+  }
+
+  /**
+   * Sets the ratio of a grid read from a campaign file, before its size is set.
+   *
+   * @param hexRatio minorRadius / edgeLength
+   */
+  void setHexRatio(double hexRatio) {
+    this.hexRatio = hexRatio;
+  }
+
   @Override
   public boolean isHex() {
     return true;
@@ -25,8 +25,12 @@
 import net.rptools.maptool.client.AppPreferences;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.model.InitiativePatch.Operation;
+import net.rptools.maptool.model.InitiativePatch.Type;
 import net.rptools.maptool.model.library.Library;
 import net.rptools.maptool.model.library.LibraryManager;
+import net.rptools.maptool.model.proto.InitiativeListDto;
+import net.rptools.maptool.model.proto.TokenInitiativeDto;
 import net.rptools.maptool.util.EventMacroUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -74,6 +78,15 @@ public class InitiativeList implements Serializable {
   /** Flag indicating that a full update is needed. */
   private boolean fullUpdate;
 
+  /** The number of patches made to this list, see {@link InitiativePatch}. */
+  private long sequence;
+
+  /** The changes made in the current unit of work, sent as a patch when it is finished. */
+  private transient List<Operation> operations;
+
+  /** The id of the last patch made or applied, so that a shared list isn't patched twice. */
+  private transient GUID lastPatchId;
+
   /** Hide all of the NPC's from the players. */
   private boolean hideNPC = AppPreferences.getInitHideNpcs();
 
@@ -119,6 +132,48 @@ public InitiativeList(Zone aZone) {
     setZone(aZone);
   }
 
+  /**
+   * Create the initiative list described by a message of a campaign file.
+   *
+   * @param dto The message.
+   * @param aZone The zone that owns this initiative list.
+   * @return The initiative list.
+   */
+  public static InitiativeList fromDto(InitiativeListDto dto, Zone aZone) {
+    InitiativeList list = new InitiativeList(aZone);
+    for (TokenInitiativeDto tokenDto : dto.getTokensList()) {
+      TokenInitiative ti = list.new TokenInitiative(null);
+      ti.id = tokenDto.hasTokenId() ? GUID.valueOf(tokenDto.getTokenId()) : null;
+      ti.holding = tokenDto.getHolding();
+      ti.state = tokenDto.hasState() ? tokenDto.getState() : null;
+      list.tokens.add(ti);
+    }
+    list.current = dto.getCurrent();
+    list.round = dto.getRound();
+    list.fullUpdate = dto.getFullUpdate();
+    list.sequence = dto.getSequence();
+    list.hideNPC = dto.getHideNpc();
+    return list;
+  }
+
+  /** @return The initiative list as message of a campaign file. */
+  public InitiativeListDto toDto() {
+    InitiativeListDto.Builder dto =
+        InitiativeListDto.newBuilder()
+            .setCurrent(current)
+            .setRound(round)
+            .setFullUpdate(fullUpdate)
+            .setSequence(sequence)
+            .setHideNpc(hideNPC);
+    for (TokenInitiative ti : tokens) {
+      TokenInitiativeDto.Builder tokenDto = TokenInitiativeDto.newBuilder().setHolding(ti.holding);
+      DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(ti.id), tokenDto::setTokenId);
+      DtoUtil.setIfNotNull(ti.state, tokenDto::setState);
+      dto.addTokens(tokenDto);
+    }
+    return dto.build();
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
@@ -168,6 +223,7 @@ public TokenInitiative insertToken(int index, Token token) {
     }
     TokenInitiative ti = new TokenInitiative(token);
     tokens.add(index, ti);
+    record(new Operation(Type.ADD, ti.getId(), index));
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
     finishUnitOfWork();
@@ -236,6 +292,7 @@ public Token removeToken(int index) {
     } // endif
 
     TokenInitiative ti = tokens.remove(index);
+    record(new Operation(Type.REMOVE, ti.getId(), index));
     Token old = ti.getToken();
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
@@ -265,6 +322,7 @@ public void setCurrent(int aCurrent) {
     if (aCurrent < 0 || aCurrent >= tokens.size()) aCurrent = -1; // Don't allow bad values
     int old = current;
     current = aCurrent;
+    record(new Operation(Type.SET_CURRENT, null, current));
     getPCS().firePropertyChange(CURRENT_PROP, old, current);
     finishUnitOfWork();
   }
@@ -330,6 +388,7 @@ public void setRound(int aRound) {
     startUnitOfWork();
     int old = round;
     round = aRound;
+    record(new Operation(Type.SET_ROUND, null, round));
     getPCS().firePropertyChange(ROUND_PROP, old, aRound);
     finishUnitOfWork();
   }
@@ -381,7 +440,6 @@ public void startUnitOfWork() {
 
   /** Finish the current unit of work and update the server. */
   public void finishUnitOfWork() {
-    fullUpdate = true;
     finishUnitOfWork(null);
   }
 
@@ -401,11 +459,11 @@ public void finishUnitOfWork(TokenInitiative ti) {
             + " full: "
             + fullUpdate);
     if (holdUpdate == 0) {
-      if (fullUpdate || ti == null) {
-        updateServer();
-      } else {
-        updateServer(ti);
-      } // endif
+      Zone zone = getZone();
+      if (zone != null) {
+        zone.incrementVersion();
+      }
+      updateServer();
     } // endif
   }
 
@@ -417,6 +475,9 @@ public void clearModel() {
     setRound(-1);
     if (!tokens.isEmpty()) {
       List<TokenInitiative> old = tokens;
+      for (int i = old.size() - 1; i >= 0; i--) {
+        record(new Operation(Type.REMOVE, old.get(i).getId(), i));
+      }
       tokens = new ArrayList<TokenInitiative>();
       getPCS().firePropertyChange(TOKENS_PROP, old, tokens);
     } // endif
@@ -442,6 +503,7 @@ public void update() {
         int index = tokens.indexOf(ti);
         if (index <= current) setCurrent(current - 1);
         i.remove();
+        record(new Operation(Type.REMOVE, ti.getId(), index));
         updateNeeded = true;
         getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
       } // endif
@@ -474,6 +536,7 @@ public void sort(boolean ascendingOrder) {
     final int DIRECTION = ascendingOrder ? -1 : 1;
     TokenInitiative currentInitiative =
         getTokenInitiative(getCurrent()); // Save the currently selected initiative
+    List<TokenInitiative> unsorted = new ArrayList<TokenInitiative>(tokens);
     tokens.sort(
         (o1, o2) -> {
 
@@ -510,6 +573,15 @@ public void sort(boolean ascendingOrder) {
           if (one instanceof Double) return -1 * DIRECTION; // Integers are bigger than strings
           return 1 * DIRECTION;
         });
+    // Describe the new order as the moves that make it from the old one
+    for (int i = 0; i < tokens.size(); i++) {
+      TokenInitiative ti = tokens.get(i);
+      int from = unsorted.indexOf(ti);
+      if (from != i) {
+        unsorted.add(i, unsorted.remove(from));
+        record(new Operation(Type.MOVE, ti.getId(), from).withToIndex(i));
+      }
+    }
     getPCS().firePropertyChange(TOKENS_PROP, null, tokens);
     setCurrent(indexOf(currentInitiative)); // Restore current initiative
     finishUnitOfWork();
@@ -559,20 +631,144 @@ public void moveToken(int oldIndex, int index) {
     // Add it at it's new position
     index -= index > oldIndex ? 1 : 0;
     tokens.add(index, ti);
+    record(new Operation(Type.MOVE, ti.getId(), oldIndex).withToIndex(index));
     getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
 
     // Set/restore proper initiative
     if (newInitiative == null) current = indexOf(currentInitiative);
     else setCurrent(indexOf(newInitiative));
+    record(new Operation(Type.SET_CURRENT, null, current));
     finishUnitOfWork();
   }
 
-  /** Update the server with the new list */
+  /**
+   * Update the server with the changes made in the last unit of work, or with the new list if
+   * they can't be sent as a patch.
+   */
   public void updateServer() {
-    if (zoneId == null) return;
-    LOGGER.debug("Full update");
-    // if (AppPreferences.getInitEnableServerSync())
-    MapTool.serverCommand().updateInitiative(this, null);
+    if (zoneId == null) {
+      getOperations().clear();
+      return;
+    }
+    if (fullUpdate) {
+      LOGGER.debug("Full update");
+      getOperations().clear();
+      sequence++;
+      // if (AppPreferences.getInitEnableServerSync())
+      MapTool.serverCommand().updateInitiative(this, null);
+    } else {
+      InitiativePatch patch = takePatch();
+      if (patch != null) {
+        LOGGER.debug("Patch update: " + patch.getOperations().size());
+        MapTool.serverCommand().patchInitiative(patch);
+      }
+    }
+  }
+
+  private List<Operation> getOperations() {
+    if (operations == null) operations = new ArrayList<Operation>();
+    return operations;
+  }
+
+  /** Adds a change to the patch of the current unit of work. */
+  private void record(Operation operation) {
+    getOperations().add(operation);
+  }
+
+  /**
+   * Returns the changes made since the last patch, and moves the list to the next sequence number.
+   *
+   * @return the patch, or null if nothing changed.
+   */
+  public InitiativePatch takePatch() {
+    if (getOperations().isEmpty()) return null;
+    InitiativePatch patch = new InitiativePatch(zoneId, sequence, operations);
+    operations.clear();
+    sequence = patch.getSequence();
+    lastPatchId = patch.getId();
+    return patch;
+  }
+
+  /**
+   * Applies a patch made by another copy of this list, without sending it to the server. Changes
+   * to tokens are matched by id when the indexes don't point to them, so a patch made from another
+   * sequence number still applies as closely as it can.
+   *
+   * @param patch the patch.
+   * @return true if the list was at the sequence number the patch was made from, false if the
+   *     list and the sender went out of step and the whole list should be sent again.
+   */
+  public boolean applyPatch(InitiativePatch patch) {
+    if (patch.getId().equals(lastPatchId)) return true; // Already applied to this instance
+    boolean inSequence = patch.getBaseSequence() == sequence;
+    for (Operation operation : patch.getOperations()) {
+      apply(operation);
+    }
+    sequence = inSequence ? patch.getSequence() : Math.max(sequence, patch.getSequence()) + 1;
+    lastPatchId = patch.getId();
+    return inSequence;
+  }
+
+  private void apply(Operation operation) {
+    int index;
+    TokenInitiative ti;
+    switch (operation.getType()) {
+      case ADD:
+        ti = new TokenInitiative(null);
+        ti.setId(operation.getTokenId());
+        index = Math.max(0, Math.min(operation.getIndex(), tokens.size()));
+        tokens.add(index, ti);
+        getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
+        break;
+      case REMOVE:
+        index = find(operation);
+        if (index < 0) return;
+        ti = tokens.remove(index);
+        getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
+        break;
+      case MOVE:
+        index = find(operation);
+        if (index < 0) return;
+        ti = tokens.remove(index);
+        getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, ti, null);
+        index = Math.max(0, Math.min(operation.getToIndex(), tokens.size()));
+        tokens.add(index, ti);
+        getPCS().fireIndexedPropertyChange(TOKENS_PROP, index, null, ti);
+        break;
+      case SET_CURRENT:
+        int oldCurrent = current;
+        current = operation.getIndex() < tokens.size() ? operation.getIndex() : -1;
+        getPCS().firePropertyChange(CURRENT_PROP, oldCurrent, current);
+        break;
+      case SET_ROUND:
+        int oldRound = round;
+        round = operation.getIndex();
+        getPCS().firePropertyChange(ROUND_PROP, oldRound, round);
+        break;
+      case SET_STATE:
+        index = find(operation);
+        if (index < 0) return;
+        tokens.get(index).update(operation.isHolding(), operation.getState());
+        break;
+    }
+  }
+
+  /** @return the index of the token an operation changes, or -1 if it isn't found once. */
+  private int find(Operation operation) {
+    int index = operation.getIndex();
+    if (index >= 0 && index < tokens.size()) {
+      if (tokens.get(index).getId().equals(operation.getTokenId())) return index;
+    }
+
+    // Index doesn't point to same token, try to find it
+    index = -1;
+    for (int i = 0; i < tokens.size(); i++) {
+      if (tokens.get(i).getId().equals(operation.getTokenId())) {
+        if (index >= 0) return -1; // If token in list more than one time, punt
+        index = i;
+      }
+    }
+    return index;
   }
 
   /**
@@ -609,6 +805,7 @@ public void setHideNPC(boolean hide) {
     startUnitOfWork();
     boolean old = hideNPC;
     hideNPC = hide;
+    fullUpdate = true; // Not described by patches
     getPCS().firePropertyChange(HIDE_NPCS_PROP, old, hide);
     finishUnitOfWork();
   }
@@ -841,6 +1038,7 @@ public void setHolding(boolean isHolding) {
       startUnitOfWork();
       boolean old = holding;
       holding = isHolding;
+      recordState();
       getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), old, isHolding);
       finishUnitOfWork(this);
     }
@@ -860,10 +1058,15 @@ public void setState(String aState) {
       startUnitOfWork();
       String old = state;
       state = aState;
+      recordState();
       getPCS().fireIndexedPropertyChange(TOKENS_PROP, tokens.indexOf(this), old, aState);
       finishUnitOfWork(this);
     }
 
+    private void recordState() {
+      record(new Operation(Type.SET_STATE, id, tokens.indexOf(this)).withState(holding, state));
+    }
+
     /** @return Getter for displayIcon */
     public Icon getDisplayIcon() {
       return displayIcon;
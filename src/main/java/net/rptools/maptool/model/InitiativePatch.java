@@ -0,0 +1,144 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes made to an initiative list in one unit of work, as sent with the {@code
+ * patchInitiative} command instead of the whole list. A patch is made from one sequence number of
+ * the list and results in the next one, so that a receiver whose list has another sequence number
+ * can tell that it missed a change. Patches are made with {@link InitiativeList#takePatch()} and
+ * applied with {@link InitiativeList#applyPatch(InitiativePatch)}.
+ */
+public class InitiativePatch {
+
+  /** The kinds of change to an initiative list. */
+  public enum Type {
+    /** A token is inserted at an index. */
+    ADD,
+    /** The token at an index is removed. */
+    REMOVE,
+    /** The token at an index is removed and inserted at another one. */
+    MOVE,
+    SET_CURRENT,
+    SET_ROUND,
+    /** The hold and the displayed state of a token are set. */
+    SET_STATE
+  }
+
+  /** A single change to an initiative list. */
+  public static class Operation {
+    private Type type;
+    private GUID tokenId;
+    private int index;
+    private int toIndex;
+    private boolean holding;
+    private String state;
+
+    /** Constructor used by the serialization. */
+    public Operation() {}
+
+    Operation(Type type, GUID tokenId, int index) {
+      this.type = type;
+      this.tokenId = tokenId;
+      this.index = index;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    /** @return the id of the token that changed, null for changes to the round and current. */
+    public GUID getTokenId() {
+      return tokenId;
+    }
+
+    /** @return the index of the token, or the new current or round value. */
+    public int getIndex() {
+      return index;
+    }
+
+    /** @return the index a moved token is inserted at, after it was removed. */
+    public int getToIndex() {
+      return toIndex;
+    }
+
+    public boolean isHolding() {
+      return holding;
+    }
+
+    public String getState() {
+      return state;
+    }
+
+    Operation withToIndex(int toIndex) {
+      this.toIndex = toIndex;
+      return this;
+    }
+
+    Operation withState(boolean holding, String state) {
+      this.holding = holding;
+      this.state = state;
+      return this;
+    }
+  }
+
+  private GUID id;
+  private GUID zoneId;
+  private long baseSequence;
+  private List<Operation> operations;
+
+  /** Constructor used by the serialization. */
+  public InitiativePatch() {}
+
+  /**
+   * Creates a patch.
+   *
+   * @param zoneId the id of the zone of the list.
+   * @param baseSequence the sequence number of the list the patch is made from.
+   * @param operations the changes, in the order they were made.
+   */
+  InitiativePatch(GUID zoneId, long baseSequence, List<Operation> operations) {
+    this.id = new GUID();
+    this.zoneId = zoneId;
+    this.baseSequence = baseSequence;
+    this.operations = new ArrayList<>(operations);
+  }
+
+  /** @return the id of the patch, used to tell if a list already has the patch. */
+  public GUID getId() {
+    return id;
+  }
+
+  public GUID getZoneId() {
+    return zoneId;
+  }
+
+  /** @return the sequence number of the list the patch is made from. */
+  public long getBaseSequence() {
+    return baseSequence;
+  }
+
+  /** @return the sequence number of the list once the patch is applied. */
+  public long getSequence() {
+    return baseSequence + 1;
+  }
+
+  public List<Operation> getOperations() {
+    return operations;
+  }
+}
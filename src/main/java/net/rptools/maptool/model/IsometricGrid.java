@@ -340,8 +340,33 @@ public Area getShapedArea(
     // System.out.println("this.getDefaultFootprint() " + this.getDefaultFootprint());
     // System.out.println("token.getWidth() " + token.getWidth());
 
+    if (shape == ShapeType.CONE) {
+      if (token.getFacing() == null) {
+        token.setFacing(0);
+      }
+      Rectangle footprint = token.getFootprint(this).getBounds(this);
+      return getCachedShape(
+          new ShapeKey(
+              getClass(),
+              getSize(),
+              shape,
+              visionRange,
+              arcAngle,
+              offsetAngle,
+              token.getFacing(),
+              footprint),
+          this::createShapedArea);
+    }
+    return getCachedShape(
+        new ShapeKey(getClass(), getSize(), shape, visionRange, 0, 0, 0, null),
+        this::createShapedArea);
+  }
+
+  /** Makes a light or sight shape for {@link #getShapedArea}, centered on the origin. */
+  private Area createShapedArea(ShapeKey key) {
+    double visionRange = key.range();
     Area visibleArea = new Area();
-    switch (shape) {
+    switch (key.shape()) {
       case CIRCLE:
         visionRange = (float) Math.sin(Math.toRadians(45)) * visionRange;
         // visibleArea = new Area(new Ellipse2D.Double(-visionRange * 2, -visionRange, visionRange *
@@ -356,9 +381,6 @@ public Area getShapedArea(
         visibleArea = new Area(new Polygon(x, y, 4));
         break;
       case CONE:
-        if (token.getFacing() == null) {
-          token.setFacing(0);
-        }
         // Rotate the vision range by 45 degrees for isometric view
         visionRange = (float) Math.sin(Math.toRadians(45)) * visionRange;
         // Get the cone, use degreesFromIso to convert the facing from isometric to plan
@@ -373,16 +395,15 @@ public Area getShapedArea(
                 -visionRange,
                 visionRange * 4,
                 visionRange * 2,
-                token.getFacing() - (arcAngle / 2.0) + (offsetAngle * 1.0),
-                arcAngle,
+                key.facing() - (key.arcAngle() / 2.0) + (key.offsetAngle() * 1.0),
+                key.arcAngle(),
                 Arc2D.PIE);
         GeneralPath path = new GeneralPath();
         path.append(cone.getPathIterator(null, 1), false); // Flatten the cone to remove 'curves'
         Area tempvisibleArea = new Area(path);
 
         // Get the cell footprint
-        Rectangle footprint =
-            token.getFootprint(getZone().getGrid()).getBounds(getZone().getGrid());
+        Rectangle footprint = new Rectangle(key.footprint());
         footprint.x = -footprint.width / 2;
         footprint.y = -footprint.height / 2;
         // convert the cell footprint to an area
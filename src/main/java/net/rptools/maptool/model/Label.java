@@ -15,6 +15,7 @@
 package net.rptools.maptool.model;
 
 import java.awt.Color;
+import net.rptools.maptool.model.proto.LabelDto;
 
 public class Label {
   private final GUID id;
@@ -32,15 +33,48 @@ public Label(String label) {
   }
 
   public Label(String label, int x, int y) {
-    id = new GUID();
+    this(new GUID(), label, x, y);
+  }
+
+  public Label(Label label) {
+    this(label.label, label.x, label.y);
+  }
+
+  private Label(GUID id, String label, int x, int y) {
+    this.id = id;
     this.label = label;
     this.x = x;
     this.y = y;
     showBackground = true;
   }
 
-  public Label(Label label) {
-    this(label.label, label.x, label.y);
+  /**
+   * @param dto the message of a campaign file.
+   * @return the label described by the message.
+   */
+  public static Label fromDto(LabelDto dto) {
+    var label =
+        new Label(
+            GUID.valueOf(dto.getId()),
+            dto.hasLabel() ? dto.getLabel() : null,
+            dto.getX(),
+            dto.getY());
+    label.showBackground = dto.getShowBackground();
+    label.foregroundColor = dto.getForegroundColor();
+    return label;
+  }
+
+  /** @return the label as message of a campaign file. */
+  public LabelDto toDto() {
+    var dto =
+        LabelDto.newBuilder()
+            .setId(id.toString())
+            .setX(x)
+            .setY(y)
+            .setShowBackground(showBackground)
+            .setForegroundColor(foregroundColor);
+    DtoUtil.setIfNotNull(label, dto::setLabel);
+    return dto.build();
   }
 
   public String getLabel() {
@@ -29,6 +29,7 @@
 import net.rptools.maptool.client.ui.macrobuttons.buttons.MacroButtonPrefs;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.model.proto.MacroButtonPropertiesDto;
 import net.rptools.maptool.util.StringUtil;
 import net.rptools.parser.ParserException;
 import org.apache.logging.log4j.LogManager;
@@ -1092,6 +1093,77 @@ public String getMacroUUID() {
     return macroUUID;
   }
 
+  /**
+   * Creates the macro described by a message of a campaign file.
+   *
+   * @param dto the message.
+   * @return the macro.
+   */
+  public static MacroButtonProperties fromDto(MacroButtonPropertiesDto dto) {
+    var macro = new MacroButtonProperties(dto.getIndex());
+    macro.macroUUID = dto.getMacroUuid();
+    macro.saveLocation = dto.hasSaveLocation() ? dto.getSaveLocation() : null;
+    macro.colorKey = dto.hasColorKey() ? dto.getColorKey() : null;
+    macro.hotKey = dto.hasHotKey() ? dto.getHotKey() : null;
+    macro.command = dto.hasCommand() ? dto.getCommand() : null;
+    macro.label = dto.hasLabel() ? dto.getLabel() : null;
+    macro.group = dto.hasGroup() ? dto.getGroup() : null;
+    macro.sortby = dto.hasSortby() ? dto.getSortby() : null;
+    macro.autoExecute = dto.getAutoExecute();
+    macro.includeLabel = dto.getIncludeLabel();
+    macro.applyToTokens = dto.getApplyToTokens();
+    macro.fontColorKey = dto.hasFontColorKey() ? dto.getFontColorKey() : null;
+    macro.fontSize = dto.hasFontSize() ? dto.getFontSize() : null;
+    macro.minWidth = dto.hasMinWidth() ? dto.getMinWidth() : null;
+    macro.maxWidth = dto.hasMaxWidth() ? dto.getMaxWidth() : null;
+    macro.allowPlayerEdits = dto.hasAllowPlayerEdits() ? dto.getAllowPlayerEdits() : null;
+    macro.toolTip = dto.hasToolTip() ? dto.getToolTip() : null;
+    macro.displayHotKey = dto.hasDisplayHotKey() ? dto.getDisplayHotKey() : null;
+    macro.commonMacro = dto.hasCommonMacro() ? dto.getCommonMacro() : null;
+    macro.compareGroup = dto.hasCompareGroup() ? dto.getCompareGroup() : null;
+    macro.compareSortPrefix = dto.hasCompareSortPrefix() ? dto.getCompareSortPrefix() : null;
+    macro.compareCommand = dto.hasCompareCommand() ? dto.getCompareCommand() : null;
+    macro.compareIncludeLabel =
+        dto.hasCompareIncludeLabel() ? dto.getCompareIncludeLabel() : null;
+    macro.compareAutoExecute = dto.hasCompareAutoExecute() ? dto.getCompareAutoExecute() : null;
+    macro.compareApplyToSelectedTokens =
+        dto.hasCompareApplyToSelectedTokens() ? dto.getCompareApplyToSelectedTokens() : null;
+    macro.readResolve();
+    return macro;
+  }
+
+  /** @return the macro as message of a campaign file. */
+  public MacroButtonPropertiesDto toDto() {
+    var dto = MacroButtonPropertiesDto.newBuilder();
+    dto.setMacroUuid(getMacroUUID());
+    dto.setIndex(index);
+    DtoUtil.setIfNotNull(saveLocation, dto::setSaveLocation);
+    DtoUtil.setIfNotNull(colorKey, dto::setColorKey);
+    DtoUtil.setIfNotNull(hotKey, dto::setHotKey);
+    DtoUtil.setIfNotNull(command, dto::setCommand);
+    DtoUtil.setIfNotNull(label, dto::setLabel);
+    DtoUtil.setIfNotNull(group, dto::setGroup);
+    DtoUtil.setIfNotNull(sortby, dto::setSortby);
+    dto.setAutoExecute(autoExecute);
+    dto.setIncludeLabel(includeLabel);
+    dto.setApplyToTokens(applyToTokens);
+    DtoUtil.setIfNotNull(fontColorKey, dto::setFontColorKey);
+    DtoUtil.setIfNotNull(fontSize, dto::setFontSize);
+    DtoUtil.setIfNotNull(minWidth, dto::setMinWidth);
+    DtoUtil.setIfNotNull(maxWidth, dto::setMaxWidth);
+    DtoUtil.setIfNotNull(allowPlayerEdits, dto::setAllowPlayerEdits);
+    DtoUtil.setIfNotNull(toolTip, dto::setToolTip);
+    DtoUtil.setIfNotNull(displayHotKey, dto::setDisplayHotKey);
+    DtoUtil.setIfNotNull(commonMacro, dto::setCommonMacro);
+    DtoUtil.setIfNotNull(compareGroup, dto::setCompareGroup);
+    DtoUtil.setIfNotNull(compareSortPrefix, dto::setCompareSortPrefix);
+    DtoUtil.setIfNotNull(compareCommand, dto::setCompareCommand);
+    DtoUtil.setIfNotNull(compareIncludeLabel, dto::setCompareIncludeLabel);
+    DtoUtil.setIfNotNull(compareAutoExecute, dto::setCompareAutoExecute);
+    DtoUtil.setIfNotNull(compareApplyToSelectedTokens, dto::setCompareApplyToSelectedTokens);
+    return dto.build();
+  }
+
   public Object readResolve() {
     if (commonMacro == null) commonMacro = false;
     if (compareGroup == null) compareGroup = true;
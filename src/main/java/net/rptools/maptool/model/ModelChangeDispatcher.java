@@ -0,0 +1,176 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import net.rptools.maptool.model.ModelChangeListener.Dispatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Delivers {@link ModelChangeEvent}s to the listeners of a {@link BaseModel}.
+ *
+ * <p>Listeners with {@link Dispatch#IMMEDIATE} are called right away on the thread that fired the
+ * event. For coalescing listeners the events are queued per listener and delivered later, either
+ * on the EDT or on a single background thread. While an event is the last one queued, later events
+ * of the same model and type are merged into it: events about tokens are combined into one event
+ * carrying the list of all the tokens involved, and other events are dropped if they carry the same
+ * argument. Events are never merged past an event of another kind, so they keep their order.
+ * A burst of events, such as a macro moving many tokens, therefore reaches a coalescing listener as
+ * a handful of events.
+ *
+ * <p>The number of events fired and the number of listener calls actually made are counted so
+ * that the effect of the merging can be observed.
+ */
+public final class ModelChangeDispatcher {
+
+  private static final Logger log = LogManager.getLogger(ModelChangeDispatcher.class);
+
+  private static final ThreadFactory threadFactory =
+      (new com.google.common.util.concurrent.ThreadFactoryBuilder())
+          .setNameFormat("model-change-dispatcher-%d")
+          .setDaemon(true)
+          .build();
+
+  /** Runs the deliveries to {@link Dispatch#COALESCED_BACKGROUND} listeners, in order. */
+  private static final ExecutorService backgroundExecutor =
+      Executors.newSingleThreadExecutor(threadFactory);
+
+  /** The events waiting to be delivered, by listener. */
+  private static final Map<ModelChangeListener, List<ModelChangeEvent>> pending =
+      new IdentityHashMap<>();
+
+  private static final LongAdder eventsFired = new LongAdder();
+  private static final LongAdder eventsDelivered = new LongAdder();
+
+  private ModelChangeDispatcher() {}
+
+  /**
+   * Sends an event to the listeners of a model.
+   *
+   * @param listeners the listeners of the model.
+   * @param event the event to send.
+   */
+  static void fire(List<ModelChangeListener> listeners, ModelChangeEvent event) {
+    eventsFired.increment();
+    for (ModelChangeListener listener : listeners) {
+      Dispatch dispatch = listener.getDispatch();
+      if (dispatch == Dispatch.IMMEDIATE) {
+        eventsDelivered.increment();
+        listener.modelChanged(event);
+      } else {
+        post(listener, dispatch, event);
+      }
+    }
+  }
+
+  /** @return the number of events fired by all models since startup. */
+  public static long getEventsFired() {
+    return eventsFired.sum();
+  }
+
+  /** @return the number of listener calls made since startup, after merging. */
+  public static long getEventsDelivered() {
+    return eventsDelivered.sum();
+  }
+
+  private static void post(ModelChangeListener listener, Dispatch dispatch, ModelChangeEvent e) {
+    synchronized (pending) {
+      List<ModelChangeEvent> events = pending.get(listener);
+      if (events != null) {
+        merge(events, e);
+        return; // A delivery is already scheduled.
+      }
+      events = new ArrayList<>();
+      events.add(e);
+      pending.put(listener, events);
+    }
+    Runnable delivery = () -> deliver(listener);
+    if (dispatch == Dispatch.COALESCED_EDT) {
+      EventQueue.invokeLater(delivery);
+    } else {
+      backgroundExecutor.execute(delivery);
+    }
+  }
+
+  /**
+   * Adds an event to the queue of a listener, merging it with the last queued event if that has the
+   * same model and type.
+   */
+  private static void merge(List<ModelChangeEvent> events, ModelChangeEvent event) {
+    int last = events.size() - 1;
+    ModelChangeEvent queued = events.get(last);
+    if (queued.getModel() == event.getModel()
+        && Objects.equals(queued.getEvent(), event.getEvent())) {
+      if (isTokenEvent(event) && isTokenEvent(queued)) {
+        Map<GUID, Token> tokens = new LinkedHashMap<>();
+        for (Token token : queued.getTokensAsList()) {
+          tokens.put(token.getId(), token);
+        }
+        for (Token token : event.getTokensAsList()) {
+          tokens.put(token.getId(), token);
+        }
+        events.set(
+            last,
+            new ModelChangeEvent(
+                queued.getModel(), queued.getEvent(), new ArrayList<>(tokens.values())));
+        return;
+      }
+      if (Objects.equals(queued.getArg(), event.getArg())) {
+        return; // Same notification is already queued.
+      }
+    }
+    events.add(event);
+  }
+
+  private static boolean isTokenEvent(ModelChangeEvent event) {
+    Object arg = event.getArg();
+    if (arg instanceof Token) {
+      return true;
+    }
+    if (arg instanceof List<?> list) {
+      return !list.isEmpty() && list.stream().allMatch(o -> o instanceof Token);
+    }
+    return false;
+  }
+
+  private static void deliver(ModelChangeListener listener) {
+    List<ModelChangeEvent> events;
+    synchronized (pending) {
+      events = pending.remove(listener);
+    }
+    if (events == null) {
+      return;
+    }
+    for (ModelChangeEvent event : events) {
+      eventsDelivered.increment();
+      try {
+        listener.modelChanged(event);
+      } catch (RuntimeException e) {
+        log.error("Error delivering model change event " + event.getEvent(), e);
+      }
+    }
+  }
+}
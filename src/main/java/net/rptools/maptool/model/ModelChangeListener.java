@@ -15,5 +15,28 @@
 package net.rptools.maptool.model;
 
 public interface ModelChangeListener {
+
+  /** How the events of a model are delivered to a listener. */
+  enum Dispatch {
+    /** Called on the thread that changed the model, as soon as the event is fired. */
+    IMMEDIATE,
+    /** Merged with the other events fired before the next EDT tick, then called on the EDT. */
+    COALESCED_EDT,
+    /** Merged with the other pending events, then called on the model event thread. */
+    COALESCED_BACKGROUND
+  }
+
   public void modelChanged(ModelChangeEvent event);
+
+  /**
+   * Returns how events are delivered to this listener. Coalescing listeners receive fewer events,
+   * with the tokens of the merged events combined into a list, and must not rely on being called
+   * before the model changes any further.
+   *
+   * @return the dispatch mode, {@link Dispatch#IMMEDIATE} by default.
+   * @see ModelChangeDispatcher
+   */
+  default Dispatch getDispatch() {
+    return Dispatch.IMMEDIATE;
+  }
 }
@@ -17,15 +17,53 @@
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.BiFunction;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer.SelectionSet;
 import net.rptools.maptool.client.walker.NaiveWalker;
+import net.rptools.maptool.model.proto.PathDto;
 
 public class Path<T extends AbstractPoint> {
   private final List<T> cellList = new LinkedList<T>();
   private final List<T> waypointList = new LinkedList<T>();
 
+  /**
+   * @param dto the message of a campaign file.
+   * @return the path described by the message.
+   */
+  public static Path<? extends AbstractPoint> fromDto(PathDto dto) {
+    return dto.getCellPoints() ? fromDto(dto, CellPoint::new) : fromDto(dto, ZonePoint::new);
+  }
+
+  private static <T extends AbstractPoint> Path<T> fromDto(
+      PathDto dto, BiFunction<Integer, Integer, T> factory) {
+    var path = new Path<T>();
+    addPoints(dto.getCellsList(), factory, path.cellList);
+    addPoints(dto.getWaypointsList(), factory, path.waypointList);
+    return path;
+  }
+
+  private static <T> void addPoints(
+      List<Integer> coordinates, BiFunction<Integer, Integer, T> factory, List<T> points) {
+    for (int i = 0; i + 1 < coordinates.size(); i += 2) {
+      points.add(factory.apply(coordinates.get(i), coordinates.get(i + 1)));
+    }
+  }
+
+  /** @return the path as message of a campaign file. */
+  public PathDto toDto() {
+    var dto = PathDto.newBuilder();
+    dto.setCellPoints(!cellList.isEmpty() && cellList.get(0) instanceof CellPoint);
+    for (T point : cellList) {
+      dto.addCells(point.x).addCells(point.y);
+    }
+    for (T point : waypointList) {
+      dto.addWaypoints(point.x).addWaypoints(point.y);
+    }
+    return dto.build();
+  }
+
   public void addPathCell(T point) {
     cellList.add(point);
   }
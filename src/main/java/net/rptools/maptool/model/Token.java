@@ -48,6 +48,8 @@
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer.SelectionSet;
 import net.rptools.maptool.language.I18N;
+import net.rptools.maptool.model.proto.ImageAssetDto;
+import net.rptools.maptool.model.proto.TokenDto;
 import net.rptools.maptool.util.ImageManager;
 import net.rptools.maptool.util.StringUtil;
 import net.rptools.parser.ParserException;
@@ -356,6 +358,21 @@ public String toString() {
 
   private boolean allowURIAccess = false;
 
+  /**
+   * The version of the token, increased by each patch made or applied. Sent with the whole token so
+   * that the receivers of a later patch can tell if they have the version it was made from.
+   */
+  private long version;
+
+  /** The fields changed since the last patch was taken, null if none. */
+  private transient Set<TokenPatch.Field> changedFields;
+
+  /** The states changed since the last patch was taken, null if none. */
+  private transient Set<String> changedStates;
+
+  /** The id of the last patch made from or applied to this token. */
+  private transient GUID lastPatchId;
+
   /**
    * Constructor from another token, with the option to keep the token id
    *
@@ -366,6 +383,7 @@ public Token(Token token, boolean keepId) {
     this(token);
     if (keepId) {
       this.setId(token.getId());
+      version = token.version;
     }
   }
 
@@ -875,6 +893,7 @@ public void setFacing(Integer facing) {
       facing += facing < -179 ? 360 : 0;
     }
     this.facing = facing;
+    changed(TokenPatch.Field.FACING);
   }
 
   /**
@@ -1081,6 +1100,7 @@ public synchronized void addOwner(String playerId) {
       ownerList = new HashSet<String>();
     }
     ownerList.add(playerId);
+    changed(TokenPatch.Field.OWNERS);
   }
 
   /** @return true if the token is owned by all or has explicit owners. */
@@ -1097,6 +1117,7 @@ public synchronized void removeOwner(String playerId) {
     if (ownerList.size() == 0) {
       ownerList = null;
     }
+    changed(TokenPatch.Field.OWNERS);
   }
 
   public synchronized void setOwnedByAll(boolean ownedByAll) {
@@ -1106,6 +1127,7 @@ public synchronized void setOwnedByAll(boolean ownedByAll) {
     } else {
       ownerType = OWNER_TYPE_LIST;
     }
+    changed(TokenPatch.Field.OWNERS);
   }
 
   /** @return the set of owner names of the token. */
@@ -1119,6 +1141,7 @@ public boolean isOwnedByAll() {
 
   public synchronized void clearAllOwners() {
     ownerList = null;
+    changed(TokenPatch.Field.OWNERS);
   }
 
   public synchronized boolean isOwner(String playerId) {
@@ -1140,6 +1163,7 @@ public boolean equals(Object o) {
 
   public void setZOrder(int z) {
     this.z = z;
+    changed(TokenPatch.Field.Z_ORDER);
   }
 
   public int getZOrder() {
@@ -1269,11 +1293,13 @@ public int getY() {
   public void setX(int x) {
     lastX = this.x;
     this.x = x;
+    changed(TokenPatch.Field.POSITION);
   }
 
   public void setY(int y) {
     lastY = this.y;
     this.y = y;
+    changed(TokenPatch.Field.POSITION);
   }
 
   // Lee: added functions necessary for path computations
@@ -1314,10 +1340,121 @@ public void applyMove(
                 getOriginPoint(),
                 new ZonePoint(getX(), getY()))
             : null;
+    changed(TokenPatch.Field.LAST_PATH);
   }
 
   public void setLastPath(Path<? extends AbstractPoint> path) {
     lastPath = path;
+    changed(TokenPatch.Field.LAST_PATH);
+  }
+
+  private synchronized void changed(TokenPatch.Field field) {
+    if (changedFields == null) {
+      changedFields = EnumSet.noneOf(TokenPatch.Field.class);
+    }
+    changedFields.add(field);
+  }
+
+  /** @return the version of the token, see {@link TokenPatch}. */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Makes a patch of the fields changed since the last patch was taken and moves the token to the
+   * version of the patch.
+   *
+   * @return the patch, or null if no tracked field changed.
+   */
+  public synchronized TokenPatch takePatch() {
+    if (changedFields == null) {
+      return null;
+    }
+    TokenPatch patch = new TokenPatch(id, version, changedFields);
+    if (patch.hasField(TokenPatch.Field.POSITION)) {
+      patch.setPosition(x, y, lastX, lastY);
+    }
+    if (patch.hasField(TokenPatch.Field.LAST_PATH)) {
+      patch.setLastPath(lastPath);
+    }
+    if (patch.hasField(TokenPatch.Field.Z_ORDER)) {
+      patch.setZOrder(z);
+    }
+    if (patch.hasField(TokenPatch.Field.FACING)) {
+      patch.setFacing(facing);
+    }
+    if (patch.hasField(TokenPatch.Field.STATES)) {
+      Map<String, Object> states = new HashMap<>();
+      for (String name : changedStates) {
+        states.put(name, state.get(name));
+      }
+      patch.setStates(states);
+    }
+    if (patch.hasField(TokenPatch.Field.OWNERS)) {
+      patch.setOwners(ownerType == OWNER_TYPE_ALL, ownerList);
+    }
+    lastPatchId = patch.getId();
+    version = patch.getVersion();
+    clearChanges();
+    return patch;
+  }
+
+  /**
+   * Forgets the changes made since the last patch was taken, for when the whole token is sent
+   * instead.
+   */
+  public synchronized void clearChanges() {
+    changedFields = null;
+    changedStates = null;
+  }
+
+  /**
+   * Applies a patch made from another copy of the token. A patch that was made from or already
+   * applied to this token is ignored.
+   *
+   * @param patch the patch.
+   * @return false if the token was not at the version the patch was made from, in which case the
+   *     token is moved past the version of the patch and should be sent whole.
+   */
+  public synchronized boolean applyPatch(TokenPatch patch) {
+    if (patch.getId().equals(lastPatchId)) {
+      return true;
+    }
+    boolean inSequence = version == patch.getBaseVersion();
+    if (patch.hasField(TokenPatch.Field.POSITION)) {
+      x = patch.getX();
+      y = patch.getY();
+      lastX = patch.getLastX();
+      lastY = patch.getLastY();
+    }
+    if (patch.hasField(TokenPatch.Field.LAST_PATH)) {
+      lastPath = patch.getLastPath();
+    }
+    if (patch.hasField(TokenPatch.Field.Z_ORDER)) {
+      z = patch.getZOrder();
+    }
+    if (patch.hasField(TokenPatch.Field.FACING)) {
+      facing = patch.getFacing();
+    }
+    if (patch.hasField(TokenPatch.Field.STATES)) {
+      for (Map.Entry<String, Object> entry : patch.getStates().entrySet()) {
+        if (entry.getValue() == null) {
+          state.remove(entry.getKey());
+        } else {
+          state.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    if (patch.hasField(TokenPatch.Field.OWNERS)) {
+      ownerType = patch.isOwnedByAll() ? OWNER_TYPE_ALL : OWNER_TYPE_LIST;
+      ownerList =
+          patch.isOwnedByAll() || patch.getOwners() == null
+              ? null
+              : new HashSet<>(patch.getOwners());
+    }
+    version = inSequence ? patch.getVersion() : Math.max(version, patch.getVersion()) + 1;
+    lastPatchId = patch.getId();
+    return inSequence;
   }
 
   public int getLastY() {
@@ -1745,6 +1882,11 @@ public Object getState(String property) {
    * @return The original value of the state, if any.
    */
   public Object setState(String aState, Object aValue) {
+    changed(TokenPatch.Field.STATES);
+    if (changedStates == null) {
+      changedStates = new HashSet<>();
+    }
+    changedStates.add(aState);
     if (aValue == null) {
       return state.remove(aState);
     }
@@ -2449,6 +2591,239 @@ public void renameMacroGroup(String oldMacroGroup, String newMacroGroup) {
         return Integer.compare(o1.z, o2.z);
       };
 
+  /**
+   * Creates the token described by a message of a campaign file.
+   *
+   * @param dto the message.
+   * @return the token.
+   */
+  @SuppressWarnings("unchecked")
+  public static Token fromDto(TokenDto dto) {
+    var token = new Token();
+    token.id = GUID.valueOf(dto.getId());
+    token.beingImpersonated = dto.getBeingImpersonated();
+    token.exposedAreaGUID =
+        dto.hasExposedAreaGuid() ? GUID.valueOf(dto.getExposedAreaGuid()) : null;
+    for (var asset : dto.getImageAssetsList()) {
+      token.imageAssetMap.put(
+          asset.hasName() ? asset.getName() : null, new MD5Key(asset.getAssetId()));
+    }
+    token.currentImageAsset = dto.hasCurrentImageAsset() ? dto.getCurrentImageAsset() : null;
+    token.x = dto.getX();
+    token.y = dto.getY();
+    token.z = dto.getZ();
+    token.anchorX = dto.getAnchorX();
+    token.anchorY = dto.getAnchorY();
+    token.sizeScale = dto.getSizeScale();
+    token.lastX = dto.getLastX();
+    token.lastY = dto.getLastY();
+    token.snapToScale = dto.getSnapToScale();
+    token.width = dto.getWidth();
+    token.height = dto.getHeight();
+    token.isoWidth = dto.getIsoWidth();
+    token.isoHeight = dto.getIsoHeight();
+    token.scaleX = dto.getScaleX();
+    token.scaleY = dto.getScaleY();
+    token.snapToGrid = dto.getSnapToGrid();
+    token.isVisible = dto.getIsVisible();
+    token.visibleOnlyToOwner = dto.getVisibleOnlyToOwner();
+    token.vblColorSensitivity = dto.getVblColorSensitivity();
+    token.alwaysVisibleTolerance = dto.getAlwaysVisibleTolerance();
+    token.isAlwaysVisible = dto.getIsAlwaysVisible();
+    token.vbl = dto.hasVbl() ? DtoUtil.fromDto(dto.getVbl()) : null;
+    token.name = dto.hasName() ? dto.getName() : null;
+    token.ownerList = dto.getOwnersCount() > 0 ? new HashSet<>(dto.getOwnersList()) : null;
+    token.ownerType = dto.getOwnerType();
+    token.tokenShape = dto.hasTokenShape() ? dto.getTokenShape() : null;
+    token.tokenType = dto.hasTokenType() ? dto.getTokenType() : null;
+    token.layer = dto.hasLayer() ? dto.getLayer() : null;
+    token.propertyType = dto.hasPropertyType() ? dto.getPropertyType() : null;
+    token.facing = dto.hasFacing() ? dto.getFacing() : null;
+    token.haloColorValue = dto.hasHaloColorValue() ? dto.getHaloColorValue() : null;
+    token.visionOverlayColorValue =
+        dto.hasVisionOverlayColorValue() ? dto.getVisionOverlayColorValue() : null;
+    token.tokenOpacity = dto.getTokenOpacity();
+    token.speechName = dto.hasSpeechName() ? dto.getSpeechName() : null;
+    token.terrainModifier = dto.getTerrainModifier();
+    token.terrainModifierOperation =
+        dto.hasTerrainModifierOperation()
+            ? TerrainModifierOperation.valueOf(dto.getTerrainModifierOperation())
+            : null;
+    token.terrainModifiersIgnored = new HashSet<>();
+    for (String operation : dto.getTerrainModifiersIgnoredList()) {
+      token.terrainModifiersIgnored.add(TerrainModifierOperation.valueOf(operation));
+    }
+    token.isFlippedX = dto.getIsFlippedX();
+    token.isFlippedY = dto.getIsFlippedY();
+    token.isFlippedIso = dto.hasIsFlippedIso() ? dto.getIsFlippedIso() : null;
+    token.charsheetImage = dto.hasCharsheetImage() ? new MD5Key(dto.getCharsheetImage()) : null;
+    token.portraitImage = dto.hasPortraitImage() ? new MD5Key(dto.getPortraitImage()) : null;
+    token.sightType = dto.hasSightType() ? dto.getSightType() : null;
+    token.hasSight = dto.getHasSight();
+    token.hasImageTable = dto.hasHasImageTable() ? dto.getHasImageTable() : null;
+    token.imageTableName = dto.hasImageTableName() ? dto.getImageTableName() : null;
+    token.label = dto.hasLabel() ? dto.getLabel() : null;
+    token.notes = dto.hasNotes() ? dto.getNotes() : null;
+    token.gmNotes = dto.hasGmNotes() ? dto.getGmNotes() : null;
+    token.gmName = dto.hasGmName() ? dto.getGmName() : null;
+    token.state = new HashMap<>();
+    dto.getStateMap().forEach((key, value) -> token.state.put(key, DtoUtil.fromDto(value)));
+    if (dto.getPropertiesCount() > 0) {
+      token.propertyMapCI = new CaseInsensitiveHashMap<>();
+      dto.getPropertiesMap()
+          .forEach((key, value) -> token.propertyMapCI.put(key, DtoUtil.fromDto(value)));
+    }
+    if (dto.getMacrosCount() > 0) {
+      token.macroPropertiesMap = new HashMap<>();
+      dto.getMacrosMap()
+          .forEach(
+              (key, value) ->
+                  token.macroPropertiesMap.put(key, MacroButtonProperties.fromDto(value)));
+    }
+    token.speechMap = dto.getSpeechCount() > 0 ? new HashMap<>(dto.getSpeechMap()) : null;
+    token.allowURIAccess = dto.getAllowUriAccess();
+    token.lastPath = dto.hasLastPath() ? Path.fromDto(dto.getLastPath()) : null;
+    if (dto.getSizeMapCount() > 0) {
+      token.sizeMap = new HashMap<>();
+      for (var entry : dto.getSizeMapMap().entrySet()) {
+        try {
+          token.sizeMap.put(
+              Class.forName(entry.getKey()).asSubclass(Grid.class),
+              GUID.valueOf(entry.getValue()));
+        } catch (ClassNotFoundException | ClassCastException e) {
+          log.warn("Ignoring the size of token {} for unknown grid {}", token.id, entry.getKey());
+        }
+      }
+    }
+    if (dto.getLightSourcesCount() > 0) {
+      token.lightSourceList = new ArrayList<>();
+      for (var source : dto.getLightSourcesList()) {
+        token.lightSourceList.add(AttachedLightSource.fromDto(source));
+      }
+    }
+    token.heroLabData = dto.hasHeroLabData() ? HeroLabData.fromDto(dto.getHeroLabData()) : null;
+    token.macroMap =
+        dto.getLegacyMacrosCount() > 0 ? new HashMap<>(dto.getLegacyMacrosMap()) : null;
+    if (dto.hasExtraXml()) {
+      var extra = (Map<String, Object>) DtoUtil.fromXml(dto.getExtraXml());
+      token.lastPath = (Path<? extends AbstractPoint>) extra.get("lastPath");
+      token.sizeMap = (Map<Class<? extends Grid>, GUID>) extra.get("sizeMap");
+      token.lightSourceList = (List<AttachedLightSource>) extra.get("lightSourceList");
+      token.heroLabData = (HeroLabData) extra.get("heroLabData");
+      token.propertyMap = (Map<String, Object>) extra.get("propertyMap");
+      token.macroMap = (Map<String, String>) extra.get("macroMap");
+    }
+    token.readResolve();
+    return token;
+  }
+
+  /** @return the token as message of a campaign file. */
+  public TokenDto toDto() {
+    var dto = TokenDto.newBuilder();
+    dto.setId(id.toString());
+    dto.setBeingImpersonated(beingImpersonated);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(exposedAreaGUID), dto::setExposedAreaGuid);
+    imageAssetMap.forEach(
+        (assetName, assetId) -> {
+          var asset = ImageAssetDto.newBuilder().setAssetId(assetId.toString());
+          DtoUtil.setIfNotNull(assetName, asset::setName);
+          dto.addImageAssets(asset);
+        });
+    DtoUtil.setIfNotNull(currentImageAsset, dto::setCurrentImageAsset);
+    dto.setX(x);
+    dto.setY(y);
+    dto.setZ(z);
+    dto.setAnchorX(anchorX);
+    dto.setAnchorY(anchorY);
+    dto.setSizeScale(sizeScale);
+    dto.setLastX(lastX);
+    dto.setLastY(lastY);
+    dto.setSnapToScale(snapToScale);
+    dto.setWidth(width);
+    dto.setHeight(height);
+    dto.setIsoWidth(isoWidth);
+    dto.setIsoHeight(isoHeight);
+    dto.setScaleX(scaleX);
+    dto.setScaleY(scaleY);
+    dto.setSnapToGrid(snapToGrid);
+    dto.setIsVisible(isVisible);
+    dto.setVisibleOnlyToOwner(visibleOnlyToOwner);
+    dto.setVblColorSensitivity(vblColorSensitivity);
+    dto.setAlwaysVisibleTolerance(alwaysVisibleTolerance);
+    dto.setIsAlwaysVisible(isAlwaysVisible);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(vbl), dto::setVbl);
+    DtoUtil.setIfNotNull(name, dto::setName);
+    if (ownerList != null) {
+      dto.addAllOwners(ownerList);
+    }
+    dto.setOwnerType(ownerType);
+    DtoUtil.setIfNotNull(tokenShape, dto::setTokenShape);
+    DtoUtil.setIfNotNull(tokenType, dto::setTokenType);
+    DtoUtil.setIfNotNull(layer, dto::setLayer);
+    DtoUtil.setIfNotNull(propertyType, dto::setPropertyType);
+    DtoUtil.setIfNotNull(facing, dto::setFacing);
+    DtoUtil.setIfNotNull(haloColorValue, dto::setHaloColorValue);
+    DtoUtil.setIfNotNull(visionOverlayColorValue, dto::setVisionOverlayColorValue);
+    dto.setTokenOpacity(tokenOpacity);
+    DtoUtil.setIfNotNull(speechName, dto::setSpeechName);
+    dto.setTerrainModifier(terrainModifier);
+    DtoUtil.setIfNotNull(
+        DtoUtil.toStringOrNull(terrainModifierOperation), dto::setTerrainModifierOperation);
+    if (terrainModifiersIgnored != null) {
+      for (TerrainModifierOperation operation : terrainModifiersIgnored) {
+        dto.addTerrainModifiersIgnored(operation.name());
+      }
+    }
+    dto.setIsFlippedX(isFlippedX);
+    dto.setIsFlippedY(isFlippedY);
+    DtoUtil.setIfNotNull(isFlippedIso, dto::setIsFlippedIso);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(charsheetImage), dto::setCharsheetImage);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(portraitImage), dto::setPortraitImage);
+    DtoUtil.setIfNotNull(sightType, dto::setSightType);
+    dto.setHasSight(hasSight);
+    DtoUtil.setIfNotNull(hasImageTable, dto::setHasImageTable);
+    DtoUtil.setIfNotNull(imageTableName, dto::setImageTableName);
+    DtoUtil.setIfNotNull(label, dto::setLabel);
+    DtoUtil.setIfNotNull(notes, dto::setNotes);
+    DtoUtil.setIfNotNull(gmNotes, dto::setGmNotes);
+    DtoUtil.setIfNotNull(gmName, dto::setGmName);
+    if (state != null) {
+      state.forEach((key, value) -> dto.putState(key, DtoUtil.toDto(value)));
+    }
+    if (propertyMapCI != null) {
+      propertyMapCI.forEach((key, value) -> dto.putProperties(key, DtoUtil.toDto(value)));
+    }
+    if (macroPropertiesMap != null) {
+      macroPropertiesMap.forEach((key, value) -> dto.putMacros(key, value.toDto()));
+    }
+    if (speechMap != null) {
+      dto.putAllSpeech(speechMap);
+    }
+    dto.setAllowUriAccess(allowURIAccess);
+    if (lastPath != null) {
+      dto.setLastPath(lastPath.toDto());
+    }
+    if (sizeMap != null) {
+      sizeMap.forEach(
+          (gridClass, footprintId) -> {
+            if (gridClass != null && footprintId != null) {
+              dto.putSizeMap(gridClass.getName(), footprintId.toString());
+            }
+          });
+    }
+    if (lightSourceList != null) {
+      lightSourceList.forEach(source -> dto.addLightSources(source.toDto()));
+    }
+    if (heroLabData != null) {
+      dto.setHeroLabData(heroLabData.toDto());
+    }
+    // The pre-1.3b78 propertyMap is always converted by readResolve(), only macros may be left.
+    if (macroMap != null) {
+      dto.putAllLegacyMacros(macroMap);
+    }
+    return dto.build();
+  }
+
   @Override
   protected Object readResolve() {
     super.readResolve();
@@ -0,0 +1,167 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of a token that changed since the token was last sent, as sent with the {@code
+ * patchToken} command instead of the whole token. A patch is made from one version of the token and
+ * results in the next one, so that a receiver whose token is at another version can tell that it
+ * missed a change. Patches are made with {@link Token#takePatch()} and applied with {@link
+ * Token#applyPatch(TokenPatch)}.
+ */
+public class TokenPatch {
+
+  /** The fields of a token that are tracked for patches. */
+  public enum Field {
+    /** The location of the token, and its previous location. */
+    POSITION,
+    LAST_PATH,
+    Z_ORDER,
+    FACING,
+    /** The states that changed, other states are left as they are. */
+    STATES,
+    OWNERS
+  }
+
+  private GUID id;
+  private GUID tokenGUID;
+  private long baseVersion;
+  private Set<Field> fields;
+
+  private int x;
+  private int y;
+  private int lastX;
+  private int lastY;
+  private Path<? extends AbstractPoint> lastPath;
+  private int z;
+  private Integer facing;
+  private Map<String, Object> states;
+  private boolean ownedByAll;
+  private Set<String> owners;
+
+  /** Constructor used by the serialization. */
+  public TokenPatch() {}
+
+  /**
+   * Creates an empty patch.
+   *
+   * @param tokenGUID the id of the token.
+   * @param baseVersion the version of the token the patch is made from.
+   * @param fields the fields in the patch.
+   */
+  TokenPatch(GUID tokenGUID, long baseVersion, Set<Field> fields) {
+    this.id = new GUID();
+    this.tokenGUID = tokenGUID;
+    this.baseVersion = baseVersion;
+    this.fields = new HashSet<>(fields);
+  }
+
+  /** @return the id of the patch, used to tell if a token already has the patch. */
+  public GUID getId() {
+    return id;
+  }
+
+  public GUID getTokenGUID() {
+    return tokenGUID;
+  }
+
+  /** @return the version of the token the patch is made from. */
+  public long getBaseVersion() {
+    return baseVersion;
+  }
+
+  /** @return the version of the token once the patch is applied. */
+  public long getVersion() {
+    return baseVersion + 1;
+  }
+
+  public boolean hasField(Field field) {
+    return fields.contains(field);
+  }
+
+  int getX() {
+    return x;
+  }
+
+  int getY() {
+    return y;
+  }
+
+  int getLastX() {
+    return lastX;
+  }
+
+  int getLastY() {
+    return lastY;
+  }
+
+  void setPosition(int x, int y, int lastX, int lastY) {
+    this.x = x;
+    this.y = y;
+    this.lastX = lastX;
+    this.lastY = lastY;
+  }
+
+  Path<? extends AbstractPoint> getLastPath() {
+    return lastPath;
+  }
+
+  void setLastPath(Path<? extends AbstractPoint> lastPath) {
+    this.lastPath = lastPath;
+  }
+
+  int getZOrder() {
+    return z;
+  }
+
+  void setZOrder(int z) {
+    this.z = z;
+  }
+
+  Integer getFacing() {
+    return facing;
+  }
+
+  void setFacing(Integer facing) {
+    this.facing = facing;
+  }
+
+  /** @return the changed states and their values, null for states that were removed. */
+  Map<String, Object> getStates() {
+    return states;
+  }
+
+  void setStates(Map<String, Object> states) {
+    this.states = new HashMap<>(states);
+  }
+
+  boolean isOwnedByAll() {
+    return ownedByAll;
+  }
+
+  Set<String> getOwners() {
+    return owners;
+  }
+
+  void setOwners(boolean ownedByAll, Set<String> owners) {
+    this.ownedByAll = ownedByAll;
+    this.owners = owners != null ? new HashSet<>(owners) : null;
+  }
+}
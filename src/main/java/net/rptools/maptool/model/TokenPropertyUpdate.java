@@ -0,0 +1,66 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+/**
+ * A single {@link Token.Update} of a token, as sent in a batch with the {@code
+ * updateTokenProperties} command.
+ */
+public class TokenPropertyUpdate {
+  private GUID tokenGUID;
+  private Token.Update update;
+  private Object[] parameters;
+
+  /** Constructor used by the serialization. */
+  public TokenPropertyUpdate() {}
+
+  /**
+   * Creates a new update.
+   *
+   * @param tokenGUID the id of the token to update.
+   * @param update the type of the update.
+   * @param parameters the parameters of the update.
+   */
+  public TokenPropertyUpdate(GUID tokenGUID, Token.Update update, Object[] parameters) {
+    this.tokenGUID = tokenGUID;
+    this.update = update;
+    this.parameters = parameters;
+  }
+
+  public GUID getTokenGUID() {
+    return tokenGUID;
+  }
+
+  public Token.Update getUpdate() {
+    return update;
+  }
+
+  public Object[] getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Applies the update to the token in the zone. Updates for tokens that are no longer on the zone
+   * are ignored.
+   *
+   * @param zone the zone the token is on.
+   */
+  public void apply(Zone zone) {
+    Token token = zone.getToken(tokenGUID);
+    if (token != null) {
+      token.updateProperty(zone, update, parameters);
+    }
+  }
+}
@@ -0,0 +1,347 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.rptools.maptool.model.Token.TerrainModifierOperation;
+
+/**
+ * Grid hash of the footprints of the tokens in a {@link Zone}.
+ *
+ * <p>The zone is divided into square buckets a few grid cells wide, and each token is recorded in
+ * every bucket its bounds overlap. Range, area and nearest neighbour queries then only have to
+ * look at the tokens in the buckets they touch instead of computing the bounds of every token on
+ * the map. The index is built lazily on the first query and then kept up to date by the zone as
+ * tokens are put, changed and removed. Changes to the grid geometry are detected on each query and
+ * cause a rebuild.
+ *
+ * <p>All methods are synchronized as the index is queried from macro and pathfinding threads as
+ * well as the EDT.
+ */
+final class TokenSpatialIndex {
+
+  /** The minimum width of a bucket, in zone pixels. */
+  private static final int MIN_BUCKET_SIZE = 64;
+
+  /** The width of a bucket, in grid cells. */
+  private static final int CELLS_PER_BUCKET = 4;
+
+  /**
+   * Tokens covering more buckets than this (large background stamps, mostly) are kept in a
+   * separate list that is checked by every query rather than being added to each bucket.
+   */
+  private static final int MAX_BUCKETS_PER_TOKEN = 256;
+
+  /** The grid geometry the index was built against. */
+  private record GridKey(Class<? extends Grid> type, int size, int offsetX, int offsetY) {}
+
+  private final Zone zone;
+  private final Map<Long, Set<GUID>> buckets = new HashMap<>();
+  private final Map<GUID, Rectangle> indexedBounds = new HashMap<>();
+  private final Set<GUID> oversized = new HashSet<>();
+  private final Set<GUID> terrainModifiers = new LinkedHashSet<>();
+
+  private GridKey gridKey;
+  private int bucketSize = MIN_BUCKET_SIZE;
+  private boolean built;
+
+  /* Extent of the bucket coordinates in use, only ever grows until the next rebuild. */
+  private int minBucketX, minBucketY, maxBucketX, maxBucketY;
+
+  TokenSpatialIndex(Zone zone) {
+    this.zone = zone;
+  }
+
+  /** Discards the index so that it is rebuilt on the next query. */
+  synchronized void invalidate() {
+    built = false;
+    buckets.clear();
+    indexedBounds.clear();
+    oversized.clear();
+    terrainModifiers.clear();
+  }
+
+  /**
+   * Re-indexes a token after it has been added to the zone or changed.
+   *
+   * @param token the token to index.
+   */
+  synchronized void update(Token token) {
+    if (!built) {
+      return; // Picked up when the index is built.
+    }
+    removeEntry(token.getId());
+    addEntry(token);
+  }
+
+  /**
+   * Removes a token from the index.
+   *
+   * @param id the id of the token that was removed.
+   */
+  synchronized void remove(GUID id) {
+    if (built) {
+      removeEntry(id);
+    }
+  }
+
+  /**
+   * Returns the ids of the tokens with a footprint intersecting the bounds.
+   *
+   * @param bounds the bounds, in zone coordinates.
+   * @return the ids of the intersecting tokens, or null if the index is not available.
+   */
+  synchronized Set<GUID> getIntersecting(Rectangle bounds) {
+    if (!ensureBuilt()) {
+      return null;
+    }
+    Set<GUID> result = new HashSet<>();
+    collect(bounds, result);
+    return result;
+  }
+
+  /**
+   * Returns the ids of the tokens with a footprint intersecting any of the bounds.
+   *
+   * @param boundsList the bounds, in zone coordinates.
+   * @return the ids of the intersecting tokens, or null if the index is not available.
+   */
+  synchronized Set<GUID> getIntersecting(Collection<Rectangle> boundsList) {
+    if (!ensureBuilt()) {
+      return null;
+    }
+    Set<GUID> result = new HashSet<>();
+    for (Rectangle bounds : boundsList) {
+      collect(bounds, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ids of the nearest tokens to a point, measured from the point to the closest edge
+   * of the token footprint.
+   *
+   * @param x the x coordinate of the point.
+   * @param y the y coordinate of the point.
+   * @param k the maximum number of tokens to return.
+   * @param filter only tokens matching the filter are considered, may be null.
+   * @return the ids of the nearest tokens, nearest first, or null if the index is not available.
+   */
+  synchronized List<GUID> getNearest(int x, int y, int k, Zone.Filter filter) {
+    if (!ensureBuilt()) {
+      return null;
+    }
+    List<GUID> result = new ArrayList<>();
+    if (k <= 0 || indexedBounds.isEmpty()) {
+      return result;
+    }
+
+    Map<GUID, Double> distances = new HashMap<>();
+    for (GUID id : oversized) {
+      offerNearest(id, x, y, filter, distances);
+    }
+
+    int bx = Math.floorDiv(x, bucketSize);
+    int by = Math.floorDiv(y, bucketSize);
+    int maxRing =
+        Math.max(
+            Math.max(Math.abs(bx - minBucketX), Math.abs(maxBucketX - bx)),
+            Math.max(Math.abs(by - minBucketY), Math.abs(maxBucketY - by)));
+
+    for (int ring = 0; ring <= maxRing; ring++) {
+      for (int i = bx - ring; i <= bx + ring; i++) {
+        for (int j = by - ring; j <= by + ring; j++) {
+          if (Math.max(Math.abs(i - bx), Math.abs(j - by)) != ring) {
+            continue; // Only visit the outer edge of the ring.
+          }
+          Set<GUID> bucket = buckets.get(key(i, j));
+          if (bucket != null) {
+            for (GUID id : bucket) {
+              offerNearest(id, x, y, filter, distances);
+            }
+          }
+        }
+      }
+      // Anything in a bucket not yet visited is at least this far away.
+      double reach = (double) ring * bucketSize;
+      if (distances.size() >= k && kthDistance(distances, k) <= reach) {
+        break;
+      }
+    }
+
+    distances.entrySet().stream()
+        .sorted(Map.Entry.comparingByValue())
+        .limit(k)
+        .forEach(e -> result.add(e.getKey()));
+    return result;
+  }
+
+  /** @return the ids of the tokens with a terrain modifier, or null if unavailable. */
+  synchronized Set<GUID> getTerrainModifiers() {
+    if (!ensureBuilt()) {
+      return null;
+    }
+    return new LinkedHashSet<>(terrainModifiers);
+  }
+
+  /**
+   * Calculates the area covered by a token for indexing purposes, the union of its image bounds
+   * and, on grids that support it, its footprint cells.
+   *
+   * @param zone the zone the token is on.
+   * @param token the token.
+   * @return the footprint bounds, in zone coordinates.
+   */
+  static Rectangle getFootprintBounds(Zone zone, Token token) {
+    Grid grid = zone.getGrid();
+    Rectangle bounds = token.getBounds(zone);
+    if (grid.getCapabilities().isPathingSupported()) {
+      CellPoint cell = grid.convert(new ZonePoint(token.getX(), token.getY()));
+      bounds = bounds.union(token.getFootprint(grid).getBounds(grid, cell));
+    }
+    return bounds;
+  }
+
+  private boolean ensureBuilt() {
+    Grid grid = zone.getGrid();
+    if (grid == null) {
+      return false;
+    }
+    GridKey key =
+        new GridKey(grid.getClass(), grid.getSize(), grid.getOffsetX(), grid.getOffsetY());
+    if (built && key.equals(gridKey)) {
+      return true;
+    }
+    invalidate();
+    gridKey = key;
+    bucketSize = Math.max(MIN_BUCKET_SIZE, grid.getSize() * CELLS_PER_BUCKET);
+    minBucketX = minBucketY = Integer.MAX_VALUE;
+    maxBucketX = maxBucketY = Integer.MIN_VALUE;
+    built = true;
+    for (Token token : zone.getAllTokens()) {
+      addEntry(token);
+    }
+    return true;
+  }
+
+  private void addEntry(Token token) {
+    GUID id = token.getId();
+    Rectangle bounds = getFootprintBounds(zone, token);
+    indexedBounds.put(id, bounds);
+    if (token.getTerrainModifierOperation() != TerrainModifierOperation.NONE) {
+      terrainModifiers.add(id);
+    }
+
+    int x1 = Math.floorDiv(bounds.x, bucketSize);
+    int y1 = Math.floorDiv(bounds.y, bucketSize);
+    int x2 = Math.floorDiv(bounds.x + bounds.width, bucketSize);
+    int y2 = Math.floorDiv(bounds.y + bounds.height, bucketSize);
+    if ((long) (x2 - x1 + 1) * (y2 - y1 + 1) > MAX_BUCKETS_PER_TOKEN) {
+      oversized.add(id);
+      return;
+    }
+    minBucketX = Math.min(minBucketX, x1);
+    minBucketY = Math.min(minBucketY, y1);
+    maxBucketX = Math.max(maxBucketX, x2);
+    maxBucketY = Math.max(maxBucketY, y2);
+    for (int i = x1; i <= x2; i++) {
+      for (int j = y1; j <= y2; j++) {
+        buckets.computeIfAbsent(key(i, j), k -> new HashSet<>()).add(id);
+      }
+    }
+  }
+
+  private void removeEntry(GUID id) {
+    terrainModifiers.remove(id);
+    Rectangle bounds = indexedBounds.remove(id);
+    if (bounds == null || oversized.remove(id)) {
+      return;
+    }
+    int x1 = Math.floorDiv(bounds.x, bucketSize);
+    int y1 = Math.floorDiv(bounds.y, bucketSize);
+    int x2 = Math.floorDiv(bounds.x + bounds.width, bucketSize);
+    int y2 = Math.floorDiv(bounds.y + bounds.height, bucketSize);
+    for (int i = x1; i <= x2; i++) {
+      for (int j = y1; j <= y2; j++) {
+        long key = key(i, j);
+        Set<GUID> bucket = buckets.get(key);
+        if (bucket != null) {
+          bucket.remove(id);
+          if (bucket.isEmpty()) {
+            buckets.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  private void collect(Rectangle bounds, Set<GUID> result) {
+    for (GUID id : oversized) {
+      if (indexedBounds.get(id).intersects(bounds)) {
+        result.add(id);
+      }
+    }
+    int x1 = Math.max(Math.floorDiv(bounds.x, bucketSize), minBucketX);
+    int y1 = Math.max(Math.floorDiv(bounds.y, bucketSize), minBucketY);
+    int x2 = Math.min(Math.floorDiv(bounds.x + bounds.width, bucketSize), maxBucketX);
+    int y2 = Math.min(Math.floorDiv(bounds.y + bounds.height, bucketSize), maxBucketY);
+    for (int i = x1; i <= x2; i++) {
+      for (int j = y1; j <= y2; j++) {
+        Set<GUID> bucket = buckets.get(key(i, j));
+        if (bucket == null) {
+          continue;
+        }
+        for (GUID id : bucket) {
+          if (!result.contains(id) && indexedBounds.get(id).intersects(bounds)) {
+            result.add(id);
+          }
+        }
+      }
+    }
+  }
+
+  private void offerNearest(
+      GUID id, int x, int y, Zone.Filter filter, Map<GUID, Double> distances) {
+    if (distances.containsKey(id)) {
+      return;
+    }
+    if (filter != null) {
+      Token token = zone.getToken(id);
+      if (token == null || !filter.matchToken(token)) {
+        return;
+      }
+    }
+    Rectangle r = indexedBounds.get(id);
+    double dx = Math.max(0, Math.max(r.x - x, x - (r.x + r.width)));
+    double dy = Math.max(0, Math.max(r.y - y, y - (r.y + r.height)));
+    distances.put(id, Math.sqrt(dx * dx + dy * dy));
+  }
+
+  private static double kthDistance(Map<GUID, Double> distances, int k) {
+    return distances.values().stream().sorted().skip(k - 1).findFirst().orElse(Double.MAX_VALUE);
+  }
+
+  private static long key(int bucketX, int bucketY) {
+    return ((long) bucketX << 32) | (bucketY & 0xffffffffL);
+  }
+}
@@ -19,6 +19,8 @@
 import java.awt.Rectangle;
 import java.awt.geom.Area;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import javax.annotation.Nonnull;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.AppPreferences;
@@ -38,8 +40,13 @@
 import net.rptools.maptool.model.drawing.DrawableTexturePaint;
 import net.rptools.maptool.model.drawing.DrawablesGroup;
 import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.DrawnElementIndex;
+import net.rptools.maptool.model.drawing.DrawnElementList;
 import net.rptools.maptool.model.drawing.Pen;
 import net.rptools.maptool.model.player.Player;
+import net.rptools.maptool.model.proto.DrawnElementDto;
+import net.rptools.maptool.model.proto.TopologyTypesDto;
+import net.rptools.maptool.model.proto.ZoneDto;
 import net.rptools.maptool.util.StringUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -234,10 +241,10 @@ public String toString() {
   private AStarRoundingOptions aStarRounding = AStarRoundingOptions.NONE;
   private TopologyTypeSet topologyTypes = null; // get default from AppPreferences
 
-  private List<DrawnElement> drawables = new LinkedList<DrawnElement>();
-  private List<DrawnElement> gmDrawables = new LinkedList<DrawnElement>();
-  private List<DrawnElement> objectDrawables = new LinkedList<DrawnElement>();
-  private List<DrawnElement> backgroundDrawables = new LinkedList<DrawnElement>();
+  private List<DrawnElement> drawables = new DrawnElementList();
+  private List<DrawnElement> gmDrawables = new DrawnElementList();
+  private List<DrawnElement> objectDrawables = new DrawnElementList();
+  private List<DrawnElement> backgroundDrawables = new DrawnElementList();
 
   private final Map<GUID, Label> labels = new LinkedHashMap<GUID, Label>();
   /** Map each token GUID to the corresponding token. */
@@ -296,6 +303,24 @@ public String toString() {
 
   private transient Map<String, Integer> tokenNumberCache;
 
+  /** Spatial index of the token footprints, built on demand. */
+  private transient TokenSpatialIndex tokenIndex;
+
+  /** Spatial indexes of the drawables of each layer, built on demand. */
+  private transient Map<Layer, DrawnElementIndex> drawnElementIndexes;
+
+  /** Nesting depth of {@link #beginTokenBatch()}. */
+  private transient int tokenBatchDepth;
+
+  /** Token events held back while a batch is open, by event type then token id. */
+  private transient Map<Event, Map<GUID, Token>> batchedTokenEvents;
+
+  /** Counts the changes to the zone, see {@link #getVersion()}. */
+  private transient volatile long version;
+
+  private static final AtomicLongFieldUpdater<Zone> VERSION_UPDATER =
+      AtomicLongFieldUpdater.newUpdater(Zone.class, "version");
+
   /**
    * Note: When adding new fields to this class, make sure to update all constructors, {@link
    * #imported()}, {@link #readResolve()}, and potentially {@link #optimize()}.
@@ -309,6 +334,7 @@ public Zone() {
 
   public void setBackgroundPaint(DrawablePaint paint) {
     backgroundPaint = paint;
+    incrementVersion();
   }
 
   public void setBackgroundAsset(MD5Key id) {}
@@ -320,10 +346,12 @@ public MD5Key getBackgroundAsset() {
   public void setMapAsset(MD5Key id) {
     mapAsset = id;
     boardChanged = true;
+    incrementVersion();
   }
 
   public void setTokenVisionDistance(int units) {
     tokenVisionDistance = units;
+    incrementVersion();
   }
 
   public int getTokenVisionDistance() {
@@ -336,6 +364,7 @@ public VisionType getVisionType() {
 
   public void setVisionType(VisionType visionType) {
     this.visionType = visionType;
+    incrementVersion();
   }
 
   public TokenSelection getTokenSelection() {
@@ -344,6 +373,7 @@ public TokenSelection getTokenSelection() {
 
   public void setTokenSelection(TokenSelection tokenSelection) {
     this.tokenSelection = tokenSelection;
+    incrementVersion();
   }
 
   /** @return the distance in map pixels at a 1:1 zoom */
@@ -357,6 +387,7 @@ public int getTokenVisionInPixels() {
 
   public void setFogPaint(DrawablePaint paint) {
     fogPaint = paint;
+    incrementVersion();
   }
 
   @Override
@@ -375,17 +406,17 @@ public String getPlayerAlias() {
 
   public void setName(String name) {
     this.name = name;
+    incrementVersion();
   }
 
   public boolean setPlayerAlias(String playerAlias) {
-    List<ZoneRenderer> rendererList =
-        new LinkedList<ZoneRenderer>(MapTool.getFrame().getZoneRenderers());
-    for (ZoneRenderer z : rendererList) {
-      if (z.getZone().getPlayerAlias().equals(playerAlias)) {
+    for (ZoneSummary summary : MapTool.getCampaign().getZoneSummaries().values()) {
+      if (summary.getPlayerAlias().equals(playerAlias)) {
         return false;
       }
     }
     this.playerAlias = playerAlias.equals("") || playerAlias.equals(name) ? null : playerAlias;
+    incrementVersion();
     return true;
   }
 
@@ -447,30 +478,17 @@ public Zone(Zone zone, boolean keepIds) {
     imageScaleY = zone.imageScaleY;
     playerAlias = zone.playerAlias;
 
-    // In the following blocks we allocate a new linked list then fill it with null values
-    // because the Collections.copy() method requires the destination list to already be
-    // of a large enough size. I couldn't find any method that would copy individual
-    // elements as it populated the new linked lists except those from the Apache Commons
-    // library that use a Transformer and that seemed like a lot more work. :-/
     if (zone.drawables != null && !zone.drawables.isEmpty()) {
-      drawables = new LinkedList<DrawnElement>();
-      drawables.addAll(Collections.nCopies(zone.drawables.size(), null));
-      Collections.copy(drawables, zone.drawables);
+      drawables = new DrawnElementList(zone.drawables);
     }
     if (zone.objectDrawables != null && !zone.objectDrawables.isEmpty()) {
-      objectDrawables = new LinkedList<DrawnElement>();
-      objectDrawables.addAll(Collections.nCopies(zone.objectDrawables.size(), null));
-      Collections.copy(objectDrawables, zone.objectDrawables);
+      objectDrawables = new DrawnElementList(zone.objectDrawables);
     }
     if (zone.backgroundDrawables != null && !zone.backgroundDrawables.isEmpty()) {
-      backgroundDrawables = new LinkedList<DrawnElement>();
-      backgroundDrawables.addAll(Collections.nCopies(zone.backgroundDrawables.size(), null));
-      Collections.copy(backgroundDrawables, zone.backgroundDrawables);
+      backgroundDrawables = new DrawnElementList(zone.backgroundDrawables);
     }
     if (zone.gmDrawables != null && !zone.gmDrawables.isEmpty()) {
-      gmDrawables = new LinkedList<DrawnElement>();
-      gmDrawables.addAll(Collections.nCopies(zone.gmDrawables.size(), null));
-      Collections.copy(gmDrawables, zone.gmDrawables);
+      gmDrawables = new DrawnElementList(zone.gmDrawables);
     }
     if (zone.labels != null && !zone.labels.isEmpty()) {
       for (GUID guid : zone.labels.keySet()) {
@@ -558,6 +576,7 @@ public int getHeight() {
 
   public void setHeight(int height) {
     this.height = height;
+    incrementVersion();
   }
 
   public int getWidth() {
@@ -566,6 +585,7 @@ public int getWidth() {
 
   public void setWidth(int width) {
     this.width = width;
+    incrementVersion();
   }
 
   public boolean isVisible() {
@@ -574,11 +594,13 @@ public boolean isVisible() {
 
   public void setVisible(boolean isVisible) {
     this.isVisible = isVisible;
+    incrementVersion();
   }
 
   public void setGrid(Grid grid) {
     this.grid = grid;
     grid.setZone(this);
+    getTokenIndex().invalidate();
     // tokenVisionDistance = DEFAULT_TOKEN_VISION_DISTANCE * grid.getSize() / unitsPerCell;
     fireModelChangeEvent(new ModelChangeEvent(this, Event.GRID_CHANGED));
   }
@@ -593,6 +615,7 @@ public int getGridColor() {
 
   public void setGridColor(int color) {
     gridColor = color;
+    incrementVersion();
   }
 
   /**
@@ -607,6 +630,7 @@ public boolean isBoardChanged() {
 
   public void setBoardChanged(boolean set) {
     boardChanged = set;
+    incrementVersion();
   }
 
   public void setBoard(Point position) {
@@ -642,6 +666,7 @@ public boolean drawBoard() {
 
   public void setDrawBoard(boolean draw) {
     drawBoard = draw;
+    incrementVersion();
   }
 
   //
@@ -654,6 +679,7 @@ public float getImageScaleX() {
 
   public void setImageScaleX(float imageScaleX) {
     this.imageScaleX = imageScaleX;
+    incrementVersion();
   }
 
   public float getImageScaleY() {
@@ -662,6 +688,7 @@ public float getImageScaleY() {
 
   public void setImageScaleY(float imageScaleY) {
     this.imageScaleY = imageScaleY;
+    incrementVersion();
   }
 
   //
@@ -900,6 +927,7 @@ public Area getTopologyTerrain() {
    * @param token the token that changed
    */
   public void tokenChanged(Token token) {
+    getTokenIndex().update(token);
     fireModelChangeEvent(new ModelChangeEvent(this, Event.TOKEN_CHANGED, token));
   }
 
@@ -1177,6 +1205,7 @@ public double getUnitsPerCell() {
 
   public void setUnitsPerCell(double unitsPerCell) {
     this.unitsPerCell = unitsPerCell;
+    incrementVersion();
   }
 
   public AStarRoundingOptions getAStarRounding() {
@@ -1189,6 +1218,7 @@ public AStarRoundingOptions getAStarRounding() {
 
   public void setAStarRounding(AStarRoundingOptions aStarRounding) {
     this.aStarRounding = aStarRounding;
+    incrementVersion();
   }
 
   public TopologyTypeSet getTopologyTypes() {
@@ -1201,6 +1231,7 @@ public TopologyTypeSet getTopologyTypes() {
 
   public void setTopologyTypes(TopologyTypeSet topologyTypes) {
     this.topologyTypes = topologyTypes;
+    incrementVersion();
   }
 
   public int getLargestZOrder() {
@@ -1261,6 +1292,11 @@ public void addDrawable(DrawnElement drawnElement) {
       default:
         drawables.add(drawnElement);
     }
+    Layer layer = drawnElement.getDrawable().getLayer();
+    DrawnElementIndex index = getDrawnElementIndexes().get(layer);
+    if (index != null && index.size() == getDrawnElements(layer).size() - 1) {
+      index.add(drawnElement);
+    }
     fireModelChangeEvent(new ModelChangeEvent(this, Event.DRAWABLE_ADDED, drawnElement));
   }
 
@@ -1274,15 +1310,20 @@ public void updateDrawable(DrawnElement drawnElement, Pen pen) {
     } else {
       updatePen(drawables, drawnElement, pen);
     }
+    // The pen thickness is part of the bounds
+    Layer layer = drawnElement.getDrawable().getLayer();
+    DrawnElementIndex index = getDrawnElementIndexes().get(layer);
+    if (index != null && !index.update(drawnElement.getDrawable().getId())) {
+      // A member of a group changed, which changes the bounds of the group
+      getDrawnElementIndexes().remove(layer);
+    }
     fireModelChangeEvent(new ModelChangeEvent(this, Event.DRAWABLE_ADDED, drawnElement));
   }
 
   private void updatePen(List<DrawnElement> elementList, DrawnElement drawnElement, Pen pen) {
-    for (DrawnElement de : elementList) {
-      if (de.getDrawable().getId().equals(drawnElement.getDrawable().getId())) {
-        de.setPen(new Pen(pen));
-        break;
-      }
+    DrawnElement de = ((DrawnElementList) elementList).get(drawnElement.getDrawable().getId());
+    if (de != null) {
+      de.setPen(new Pen(pen));
     }
   }
 
@@ -1291,17 +1332,18 @@ public void addDrawableRear(DrawnElement drawnElement) {
     // items that are drawn first are at the "back"
     switch (drawnElement.getDrawable().getLayer()) {
       case OBJECT:
-        ((LinkedList<DrawnElement>) objectDrawables).addFirst(drawnElement);
+        ((DrawnElementList) objectDrawables).addFirst(drawnElement);
         break;
       case BACKGROUND:
-        ((LinkedList<DrawnElement>) backgroundDrawables).addFirst(drawnElement);
+        ((DrawnElementList) backgroundDrawables).addFirst(drawnElement);
         break;
       case GM:
-        ((LinkedList<DrawnElement>) gmDrawables).addFirst(drawnElement);
+        ((DrawnElementList) gmDrawables).addFirst(drawnElement);
         break;
       default:
-        ((LinkedList<DrawnElement>) drawables).addFirst(drawnElement);
+        ((DrawnElementList) drawables).addFirst(drawnElement);
     }
+    getDrawnElementIndexes().remove(drawnElement.getDrawable().getLayer());
     fireModelChangeEvent(new ModelChangeEvent(this, Event.DRAWABLE_ADDED, drawnElement));
   }
 
@@ -1334,10 +1376,39 @@ public List<DrawnElement> getDrawnElements(Zone.Layer layer) {
     }
   }
 
+  /**
+   * Returns the spatial index of the drawables on a layer. The index is kept up to date by the
+   * methods of the zone that change the drawables, changes made to the list returned by {@link
+   * #getDrawnElements(Layer)} are only picked up if they change its size. Drawables changed in
+   * place must be passed to {@link #updateDrawable(DrawnElement, Pen)} for their new bounds to be
+   * used.
+   *
+   * @param layer the layer.
+   * @return the index.
+   */
+  public DrawnElementIndex getDrawnElementIndex(Layer layer) {
+    List<DrawnElement> list = getDrawnElements(layer);
+    Map<Layer, DrawnElementIndex> indexes = getDrawnElementIndexes();
+    DrawnElementIndex index = indexes.get(layer);
+    if (index == null || index.size() != list.size() || index.isStale()) {
+      index = new DrawnElementIndex(((DrawnElementList) list).snapshot());
+      indexes.put(layer, index);
+    }
+    return index;
+  }
+
+  private Map<Layer, DrawnElementIndex> getDrawnElementIndexes() {
+    if (drawnElementIndexes == null) {
+      drawnElementIndexes = new ConcurrentHashMap<>();
+    }
+    return drawnElementIndexes;
+  }
+
   public void removeDrawable(GUID drawableId) {
     // Since we don't know anything about the drawable, look through all the layers
     // Do we need to remove it from the Undo manager as well? Probably. Perhaps some
     // UndoPerZone method that searches and deletes the drawable ID?
+    getDrawnElementIndexes().clear();
     removeDrawable(drawables, drawableId);
     removeDrawable(backgroundDrawables, drawableId);
     removeDrawable(objectDrawables, drawableId);
@@ -1345,6 +1416,21 @@ public void removeDrawable(GUID drawableId) {
   }
 
   private void removeDrawable(List<DrawnElement> drawableList, GUID drawableId) {
+    if (drawableList instanceof DrawnElementList) {
+      DrawnElementList layerList = (DrawnElementList) drawableList;
+      DrawnElement drawable = layerList.remove(drawableId);
+      if (drawable != null) {
+        fireModelChangeEvent(new ModelChangeEvent(this, Event.DRAWABLE_REMOVED, drawable));
+        return;
+      }
+      // Only the groups need to be searched for drawables that are not on the layer itself
+      for (DrawnElement group : layerList.snapshot()) {
+        if (group.getDrawable() instanceof DrawablesGroup) {
+          removeDrawable(((DrawablesGroup) group.getDrawable()).getDrawableList(), drawableId);
+        }
+      }
+      return;
+    }
     ListIterator<DrawnElement> i = drawableList.listIterator();
     while (i.hasNext()) {
       DrawnElement drawable = i.next();
@@ -1365,6 +1451,7 @@ public void clearDrawables(List<DrawnElement> drawableList) {
       fireModelChangeEvent(new ModelChangeEvent(this, Event.DRAWABLE_REMOVED, drawable));
     }
     drawableList.clear();
+    getDrawnElementIndexes().clear();
     undo.clear(); // clears the *entire* undo queue, but finer grained control isn't available
   }
 
@@ -1408,6 +1495,7 @@ public void putToken(Token token) {
     tokenOrderedList.remove(token);
     tokenOrderedList.add(token);
     tokenOrderedList.sort(TOKEN_Z_ORDER_COMPARATOR);
+    getTokenIndex().update(token);
 
     if (newToken) {
       fireModelChangeEvent(new ModelChangeEvent(this, Event.TOKEN_ADDED, token));
@@ -1431,27 +1519,24 @@ public void editToken(Token token) {
    * </code> and passes the list of added tokens as a parameter. Ditto for <code>Event.TOKEN_CHANGED
    * </code>.
    *
-   * <p>Not currently invoked by other code, but event handling changes for multiple tokens has been
-   * made. Marked as deprecated to prevent use until the rest of the integration is completed.
-   *
    * @param tokens List of Tokens to be added to this zone
    */
-  @Deprecated
   public void putTokens(List<Token> tokens) {
-    // System.out.println("putToken() called with list of " + tokens.size() + " tokens.");
-
-    Collection<Token> values = tokenMap.values();
-
-    List<Token> addedTokens = new LinkedList<Token>(tokens);
-    addedTokens.removeAll(values);
-
-    List<Token> changedTokens = new LinkedList<Token>(tokens);
-    changedTokens.retainAll(values);
+    List<Token> addedTokens = new ArrayList<Token>();
+    List<Token> changedTokens = new ArrayList<Token>();
+    for (Token t : tokens) {
+      if (tokenMap.containsKey(t.getId())) {
+        changedTokens.add(t);
+      } else {
+        addedTokens.add(t);
+      }
+    }
 
     for (Token t : tokens) {
       tokenMap.put(t.getId(), t);
+      getTokenIndex().update(t);
     }
-    tokenOrderedList.removeAll(tokens);
+    tokenOrderedList.removeAll(new HashSet<Token>(tokens));
     tokenOrderedList.addAll(tokens);
     tokenOrderedList.sort(TOKEN_Z_ORDER_COMPARATOR);
 
@@ -1472,6 +1557,7 @@ public void removeToken(GUID id) {
     Token token = tokenMap.remove(id);
     if (token != null) {
       tokenOrderedList.remove(token);
+      getTokenIndex().remove(id);
       fireModelChangeEvent(new ModelChangeEvent(this, Event.TOKEN_REMOVED, token));
     }
   }
@@ -1488,6 +1574,7 @@ public void removeTokens(List<GUID> ids) {
         Token token = tokenMap.remove(id);
         if (token != null) {
           tokenOrderedList.remove(token);
+          getTokenIndex().remove(id);
           removedTokens.add(token);
         }
       }
@@ -1501,6 +1588,79 @@ public Token getToken(GUID id) {
     return tokenMap.get(id);
   }
 
+  /**
+   * Starts a batch of token changes. Until the matching {@link #endTokenBatch()} the token added,
+   * changed and edited events are held back, and then fired once per event type with the list of
+   * affected tokens. Batches can be nested; the events are fired when the outermost batch ends.
+   */
+  public void beginTokenBatch() {
+    synchronized (tokenMap) {
+      if (tokenBatchDepth++ == 0) {
+        batchedTokenEvents = new LinkedHashMap<>();
+      }
+    }
+  }
+
+  /** Ends a batch of token changes started with {@link #beginTokenBatch()}. */
+  public void endTokenBatch() {
+    Map<Event, Map<GUID, Token>> events;
+    synchronized (tokenMap) {
+      if (tokenBatchDepth == 0 || --tokenBatchDepth > 0) {
+        return;
+      }
+      events = batchedTokenEvents;
+      batchedTokenEvents = null;
+    }
+    for (Map.Entry<Event, Map<GUID, Token>> entry : events.entrySet()) {
+      List<Token> tokens = new ArrayList<>(entry.getValue().values());
+      super.fireModelChangeEvent(new ModelChangeEvent(this, entry.getKey(), tokens));
+    }
+  }
+
+  /**
+   * Holds back the token events fired while a batch is open.
+   *
+   * @param event the event being fired
+   * @return true if the event was added to the batch, false if it should be fired now.
+   */
+  private boolean batchTokenEvent(ModelChangeEvent event) {
+    synchronized (tokenMap) {
+      if (batchedTokenEvents == null) {
+        return false;
+      }
+      if (event.getEvent() == Event.TOKEN_REMOVED) {
+        // Don't report changes for tokens that no longer exist.
+        for (Token token : event.getTokensAsList()) {
+          for (Map<GUID, Token> tokens : batchedTokenEvents.values()) {
+            tokens.remove(token.getId());
+          }
+        }
+        return false;
+      }
+      if (event.getEvent() != Event.TOKEN_ADDED
+          && event.getEvent() != Event.TOKEN_CHANGED
+          && event.getEvent() != Event.TOKEN_EDITED
+          && event.getEvent() != Event.TOKEN_MACRO_CHANGED
+          && event.getEvent() != Event.TOKEN_PANEL_CHANGED) {
+        return false;
+      }
+      Map<GUID, Token> tokens =
+          batchedTokenEvents.computeIfAbsent((Event) event.getEvent(), e -> new LinkedHashMap<>());
+      for (Token token : event.getTokensAsList()) {
+        tokens.put(token.getId(), token);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  protected void fireModelChangeEvent(ModelChangeEvent event) {
+    incrementVersion();
+    if (!batchTokenEvent(event)) {
+      super.fireModelChangeEvent(event);
+    }
+  }
+
   /**
    * @param name the name of the token.
    * @return the first token with a given name. The name is matched case-insensitively.
@@ -1567,21 +1727,19 @@ public List<DrawnElement> getAllDrawnElements() {
   }
 
   public DrawnElement getDrawnElement(GUID id) {
-    DrawnElement result = findDrawnElement(getAllDrawnElements(), id);
-    return result;
-  }
-
-  private DrawnElement findDrawnElement(List<DrawnElement> list, GUID id) {
-    for (DrawnElement de : list) {
-      if (de.getDrawable().getId() == id) {
-        return de;
+    for (List<DrawnElement> list :
+        List.of(drawables, objectDrawables, backgroundDrawables, gmDrawables)) {
+      DrawnElement result = ((DrawnElementList) list).get(id);
+      if (result != null) {
+        return result;
       }
-      if (de.getDrawable() instanceof DrawablesGroup) {
-        DrawnElement result =
-            findDrawnElement(((DrawablesGroup) de.getDrawable()).getDrawableList(), id);
-        if (result != null) {
-          return result;
-        }
+    }
+    // Drawables inside groups are not indexed
+    for (List<DrawnElement> list :
+        List.of(drawables, objectDrawables, backgroundDrawables, gmDrawables)) {
+      DrawnElement result = ((DrawnElementList) list).find(id);
+      if (result != null) {
+        return result;
       }
     }
     return null;
@@ -1595,6 +1753,15 @@ public List<Token> getAllTokens() {
     return List.copyOf(tokenOrderedList);
   }
 
+  /** @return the ids of the library tokens of the zone, those named "lib:...". */
+  public List<GUID> getLibTokenIds() {
+    List<GUID> ids = new ArrayList<>();
+    for (Token token : getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"))) {
+      ids.add(token.getId());
+    }
+    return ids;
+  }
+
   public Set<MD5Key> getAllAssetIds() {
     Set<MD5Key> idSet = new HashSet<MD5Key>();
 
@@ -1725,8 +1892,132 @@ public List<Token> getTokensWithVBL() {
   }
 
   public List<Token> getTokensWithTerrainModifiers() {
-    return getTokensFiltered(
-        t -> !t.getTerrainModifierOperation().equals(TerrainModifierOperation.NONE));
+    Set<GUID> ids = getTokenIndex().getTerrainModifiers();
+    if (ids == null) {
+      return getTokensFiltered(
+          t -> !t.getTerrainModifierOperation().equals(TerrainModifierOperation.NONE));
+    }
+    return resolveTokens(ids);
+  }
+
+  /**
+   * Returns the tokens whose footprint intersects the given bounds. This uses the spatial index of
+   * the zone so only tokens near the bounds are examined.
+   *
+   * @param bounds the bounds in zone coordinates.
+   * @return the intersecting tokens, in z-order.
+   */
+  public List<Token> getTokensIntersecting(Rectangle bounds) {
+    Set<GUID> ids = getTokenIndex().getIntersecting(bounds);
+    if (ids == null) {
+      return getTokensFiltered(
+          t -> TokenSpatialIndex.getFootprintBounds(this, t).intersects(bounds));
+    }
+    return resolveTokens(ids);
+  }
+
+  /**
+   * Returns the tokens whose footprint intersects the given area.
+   *
+   * @param area the area in zone coordinates.
+   * @return the intersecting tokens, in z-order.
+   */
+  public List<Token> getTokensIntersecting(Area area) {
+    List<Token> candidates = getTokensIntersecting(area.getBounds());
+    List<Token> result = new ArrayList<>(candidates.size());
+    for (Token token : candidates) {
+      if (area.intersects(TokenSpatialIndex.getFootprintBounds(this, token))) {
+        result.add(token);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the tokens occupying any of the given cells. On grids that do not support pathing the
+   * cells are pixel coordinates, and a token is considered to occupy the pixels within its bounds.
+   *
+   * @param cells the cells to check.
+   * @return the tokens occupying at least one of the cells, in z-order.
+   */
+  public List<Token> getTokensAtCells(Collection<CellPoint> cells) {
+    if (cells.isEmpty()) {
+      return Collections.emptyList();
+    }
+    boolean pathing = grid.getCapabilities().isPathingSupported();
+    List<Rectangle> cellBounds = new ArrayList<>(cells.size());
+    for (CellPoint cell : cells) {
+      cellBounds.add(pathing ? grid.getBounds(cell) : new Rectangle(cell.x, cell.y, 1, 1));
+    }
+    Set<GUID> ids = getTokenIndex().getIntersecting(cellBounds);
+    List<Token> candidates = ids == null ? getAllTokens() : resolveTokens(ids);
+
+    Set<CellPoint> cellSet = cells instanceof Set ? (Set<CellPoint>) cells : new HashSet<>(cells);
+    List<Token> result = new ArrayList<>();
+    for (Token token : candidates) {
+      if (pathing) {
+        if (!Collections.disjoint(token.getOccupiedCells(grid), cellSet)) {
+          result.add(token);
+        }
+      } else {
+        Rectangle bounds = token.getBounds(this);
+        for (CellPoint cell : cells) {
+          if (bounds.contains(cell.x, cell.y)) {
+            result.add(token);
+            break;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the tokens nearest to a point, measured to the closest edge of each token footprint.
+   *
+   * @param point the point in zone coordinates.
+   * @param k the maximum number of tokens to return.
+   * @param filter only tokens matching the filter are returned, may be null.
+   * @return up to k tokens, nearest first.
+   */
+  public List<Token> getNearestTokens(ZonePoint point, int k, Filter filter) {
+    List<GUID> ids = getTokenIndex().getNearest(point.x, point.y, k, filter);
+    if (ids == null) {
+      return Collections.emptyList();
+    }
+    List<Token> result = new ArrayList<>(ids.size());
+    for (GUID id : ids) {
+      Token token = tokenMap.get(id);
+      if (token != null) {
+        result.add(token);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Maps token ids from the spatial index back to the tokens of the zone.
+   *
+   * @param ids the ids of the tokens.
+   * @return the tokens that are still on the zone, in z-order.
+   */
+  private List<Token> resolveTokens(Collection<GUID> ids) {
+    List<Token> result = new ArrayList<>(ids.size());
+    for (GUID id : ids) {
+      Token token = tokenMap.get(id);
+      if (token != null) {
+        result.add(token);
+      }
+    }
+    result.sort(TOKEN_Z_ORDER_COMPARATOR);
+    return result;
+  }
+
+  private TokenSpatialIndex getTokenIndex() {
+    if (tokenIndex == null) {
+      tokenIndex = new TokenSpatialIndex(this);
+    }
+    return tokenIndex;
   }
 
   /**
@@ -1999,11 +2290,191 @@ private void collapseDrawableLayer(List<DrawnElement> layer) {
     layer.clear();
     // If the number of elements is greater than the number of erasables, keep them all.
     if (list.size() > eraserCount) {
+      Collections.reverse(list);
       layer.addAll(list);
-      Collections.reverse(layer);
     }
   }
 
+  /**
+   * Creates the zone described by a message of a campaign file.
+   *
+   * @param dto the message.
+   * @return the zone.
+   */
+  @SuppressWarnings("unchecked")
+  public static Zone fromDto(ZoneDto dto) {
+    var zone = new Zone();
+    zone.id = GUID.valueOf(dto.getId());
+    zone.creationTime = dto.getCreationTime();
+    zone.name = dto.hasName() ? dto.getName() : null;
+    zone.playerAlias = dto.hasPlayerAlias() ? dto.getPlayerAlias() : null;
+    zone.isVisible = dto.getIsVisible();
+    zone.width = dto.getWidth();
+    zone.height = dto.getHeight();
+    zone.gridColor = dto.getGridColor();
+    zone.imageScaleX = dto.getImageScaleX();
+    zone.imageScaleY = dto.getImageScaleY();
+    zone.tokenVisionDistance = dto.getTokenVisionDistance();
+    zone.unitsPerCell = dto.getUnitsPerCell();
+    zone.aStarRounding =
+        dto.hasAStarRounding() ? AStarRoundingOptions.valueOf(dto.getAStarRounding()) : null;
+    zone.hasFog = dto.getHasFog();
+    zone.mapAsset = dto.hasMapAsset() ? new MD5Key(dto.getMapAsset()) : null;
+    zone.boardPosition = new Point(dto.getBoardX(), dto.getBoardY());
+    zone.drawBoard = dto.getDrawBoard();
+    zone.boardChanged = dto.getBoardChanged();
+    zone.visionType = dto.hasVisionType() ? VisionType.valueOf(dto.getVisionType()) : null;
+    zone.tokenSelection =
+        dto.hasTokenSelection() ? TokenSelection.valueOf(dto.getTokenSelection()) : null;
+    zone.exposedArea = dto.hasExposedArea() ? DtoUtil.fromDto(dto.getExposedArea()) : null;
+    zone.topology = dto.hasTopology() ? DtoUtil.fromDto(dto.getTopology()) : null;
+    zone.hillVbl = dto.hasHillVbl() ? DtoUtil.fromDto(dto.getHillVbl()) : null;
+    zone.pitVbl = dto.hasPitVbl() ? DtoUtil.fromDto(dto.getPitVbl()) : null;
+    zone.topologyTerrain =
+        dto.hasTopologyTerrain() ? DtoUtil.fromDto(dto.getTopologyTerrain()) : null;
+    dto.getExposedAreaMetaMap()
+        .forEach(
+            (tokenId, area) ->
+                zone.exposedAreaMeta.put(
+                    GUID.valueOf(tokenId), new ExposedAreaMetaData(DtoUtil.fromDto(area))));
+    for (var tokenDto : dto.getTokensList()) {
+      Token token = Token.fromDto(tokenDto);
+      zone.tokenMap.put(token.getId(), token);
+      zone.tokenOrderedList.add(token);
+    }
+    zone.drawables = fromDto(dto.getDrawablesList());
+    zone.gmDrawables = fromDto(dto.getGmDrawablesList());
+    zone.objectDrawables = fromDto(dto.getObjectDrawablesList());
+    zone.backgroundDrawables = fromDto(dto.getBackgroundDrawablesList());
+    zone.grid = dto.hasGrid() ? Grid.fromDto(dto.getGrid()) : null;
+    if (dto.hasTopologyTypes()) {
+      zone.topologyTypes =
+          new TopologyTypeSet(
+              dto.getTopologyTypes().getTypesList().stream()
+                  .map(TopologyType::valueOf)
+                  .toArray(TopologyType[]::new));
+    }
+    for (var labelDto : dto.getLabelsList()) {
+      Label label = Label.fromDto(labelDto);
+      zone.labels.put(label.getId(), label);
+    }
+    zone.initiativeList =
+        dto.hasInitiativeList() ? InitiativeList.fromDto(dto.getInitiativeList(), zone) : null;
+    zone.fogPaint = dto.hasFogPaint() ? DrawablePaint.fromDto(dto.getFogPaint()) : null;
+    zone.backgroundPaint =
+        dto.hasBackgroundPaint() ? DrawablePaint.fromDto(dto.getBackgroundPaint()) : null;
+
+    if (!dto.getExtraXml().isEmpty()) {
+      var extra = (Map<String, Object>) DtoUtil.fromXml(dto.getExtraXml());
+      zone.grid = (Grid) extra.get("grid");
+      zone.topologyTypes = (TopologyTypeSet) extra.get("topologyTypes");
+      zone.labels.putAll((Map<GUID, Label>) extra.get("labels"));
+      zone.initiativeList = (InitiativeList) extra.get("initiativeList");
+      zone.fogPaint = (DrawablePaint) extra.get("fogPaint");
+      zone.backgroundPaint = (DrawablePaint) extra.get("backgroundPaint");
+    }
+    if (zone.grid != null) {
+      zone.grid.setZone(zone);
+    }
+    if (zone.initiativeList != null) {
+      zone.initiativeList.setZone(zone);
+    }
+    zone.readResolve();
+    return zone;
+  }
+
+  private static List<DrawnElement> fromDto(List<DrawnElementDto> dtos) {
+    var elements = new DrawnElementList();
+    for (var dto : dtos) {
+      elements.add(DrawnElement.fromDto(dto));
+    }
+    return elements;
+  }
+
+  /**
+   * Returns the zone as message of a campaign file.
+   *
+   * @return the message of the zone.
+   */
+  public ZoneDto toDto() {
+    var dto = ZoneDto.newBuilder();
+    dto.setId(id.toString());
+    dto.setCreationTime(creationTime);
+    DtoUtil.setIfNotNull(name, dto::setName);
+    DtoUtil.setIfNotNull(playerAlias, dto::setPlayerAlias);
+    dto.setIsVisible(isVisible);
+    dto.setWidth(width);
+    dto.setHeight(height);
+    dto.setGridColor(gridColor);
+    dto.setImageScaleX(imageScaleX);
+    dto.setImageScaleY(imageScaleY);
+    dto.setTokenVisionDistance(tokenVisionDistance);
+    dto.setUnitsPerCell(unitsPerCell);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(aStarRounding), dto::setAStarRounding);
+    dto.setHasFog(hasFog);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(mapAsset), dto::setMapAsset);
+    dto.setBoardX(boardPosition.x);
+    dto.setBoardY(boardPosition.y);
+    dto.setDrawBoard(drawBoard);
+    dto.setBoardChanged(boardChanged);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(visionType), dto::setVisionType);
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(tokenSelection), dto::setTokenSelection);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(exposedArea), dto::setExposedArea);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(topology), dto::setTopology);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(hillVbl), dto::setHillVbl);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(pitVbl), dto::setPitVbl);
+    DtoUtil.setIfNotNull(DtoUtil.toDto(topologyTerrain), dto::setTopologyTerrain);
+    getExposedAreaMetaData()
+        .forEach(
+            (tokenId, meta) -> {
+              Area area = meta.getExposedAreaHistory();
+              dto.putExposedAreaMeta(
+                  tokenId.toString(), DtoUtil.toDto(area != null ? area : new Area()));
+            });
+    for (Token token : tokenOrderedList) {
+      dto.addTokens(token.toDto());
+    }
+    drawables.forEach(element -> dto.addDrawables(element.toDto()));
+    gmDrawables.forEach(element -> dto.addGmDrawables(element.toDto()));
+    objectDrawables.forEach(element -> dto.addObjectDrawables(element.toDto()));
+    backgroundDrawables.forEach(element -> dto.addBackgroundDrawables(element.toDto()));
+    if (grid != null) {
+      dto.setGrid(grid.toDto());
+    }
+    if (topologyTypes != null) {
+      var types = TopologyTypesDto.newBuilder();
+      for (TopologyType type : TopologyType.values()) {
+        if (topologyTypes.contains(type)) {
+          types.addTypes(type.name());
+        }
+      }
+      dto.setTopologyTypes(types);
+    }
+    labels.values().forEach(label -> dto.addLabels(label.toDto()));
+    if (initiativeList != null) {
+      dto.setInitiativeList(initiativeList.toDto());
+    }
+    DtoUtil.setIfNotNull(DrawablePaint.toDto(fogPaint), dto::setFogPaint);
+    DtoUtil.setIfNotNull(DrawablePaint.toDto(backgroundPaint), dto::setBackgroundPaint);
+    return dto.build();
+  }
+
+  /**
+   * Returns the version of the zone. The version changes whenever the zone fires a model change
+   * event, one of its properties is set or its initiative list changes, so a copy of the zone
+   * made at the same version is still up to date. Versions are not saved.
+   *
+   * @return the version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  void incrementVersion() {
+    // Changes can come from more than one thread, none of them may be lost
+    VERSION_UPDATER.incrementAndGet(this);
+  }
+
   ////
   // Backward compatibility
   @Override
@@ -2063,6 +2534,11 @@ protected Object readResolve() {
     if (undo == null) {
       undo = new UndoPerZone(this);
     }
+    // Layers were linked lists before they were indexed by id
+    drawables = toDrawnElementList(drawables);
+    gmDrawables = toDrawnElementList(gmDrawables);
+    objectDrawables = toDrawnElementList(objectDrawables);
+    backgroundDrawables = toDrawnElementList(backgroundDrawables);
 
     if (hillVbl == null) {
       hillVbl = new Area();
@@ -2077,6 +2553,13 @@ protected Object readResolve() {
     return this;
   }
 
+  private static List<DrawnElement> toDrawnElementList(List<DrawnElement> list) {
+    if (list instanceof DrawnElementList) {
+      return list;
+    }
+    return list == null ? new DrawnElementList() : new DrawnElementList(list);
+  }
+
   /** @return the exposedAreaMeta. */
   public Map<GUID, ExposedAreaMetaData> getExposedAreaMetaData() {
     if (exposedAreaMeta == null) {
@@ -0,0 +1,83 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the campaign index records about a {@link Zone}, so that the zone need not be read from the
+ * campaign file to find it by name, to find its library tokens or to estimate its size.
+ */
+public class ZoneSummary {
+  private final String name;
+  private final String playerAlias;
+  private final boolean visible;
+  private final List<GUID> libTokenIds;
+  private final long size;
+
+  /**
+   * Summarizes a zone as it is now.
+   *
+   * @param zone the zone.
+   */
+  public ZoneSummary(Zone zone) {
+    this(zone.getName(), zone.getPlayerAlias(), zone.isVisible(), zone.getLibTokenIds(), 0);
+  }
+
+  /**
+   * Returns a copy of this summary with the size of the entry of the zone.
+   *
+   * @param size the size of the entry of the zone in the campaign file, in bytes.
+   * @return the copy.
+   */
+  public ZoneSummary withSize(long size) {
+    return new ZoneSummary(name, playerAlias, visible, getLibTokenIds(), size);
+  }
+
+  private ZoneSummary(
+      String name, String playerAlias, boolean visible, List<GUID> libTokenIds, long size) {
+    this.name = name;
+    this.playerAlias = playerAlias;
+    this.visible = visible;
+    this.libTokenIds = new ArrayList<>(libTokenIds);
+    this.size = size;
+  }
+
+  /** @return the name of the zone. */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the name of the zone shown to players. */
+  public String getPlayerAlias() {
+    return playerAlias;
+  }
+
+  /** @return whether the zone is visible to players. */
+  public boolean isVisible() {
+    return visible;
+  }
+
+  /** @return the ids of the library tokens of the zone. */
+  public List<GUID> getLibTokenIds() {
+    return libTokenIds == null ? List.of() : libTokenIds;
+  }
+
+  /** @return the size of the entry of the zone in the campaign file in bytes, or 0 if unknown. */
+  public long getSize() {
+    return size;
+  }
+}
@@ -21,12 +21,17 @@
 import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.Stroke;
 import java.awt.image.ImageObserver;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.DtoUtil;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.proto.DrawableDto;
+import net.rptools.maptool.model.proto.LineSegmentDto;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * Abstract drawing. This class takes care of setting up the Pen since that will be the same for all
@@ -34,11 +39,139 @@
  */
 public abstract class AbstractDrawing implements Drawable, ImageObserver {
   /** The unique identifier for this drawable. It is immutable. */
-  private final GUID id = new GUID();
+  private final GUID id;
 
   private String layer;
   private String name;
 
+  protected AbstractDrawing() {
+    this(new GUID());
+  }
+
+  /** @param id the id of a drawable read from a campaign file. */
+  protected AbstractDrawing(GUID id) {
+    this.id = id;
+  }
+
+  /**
+   * Converts a drawable for a campaign file.
+   *
+   * @param drawable the drawable.
+   * @return the drawable as message.
+   */
+  static DrawableDto toDto(Drawable drawable) {
+    var dto = DrawableDto.newBuilder().setId(drawable.getId().toString());
+    Class<?> type = drawable.getClass();
+    if (type == ShapeDrawable.class) {
+      dto.setShapeDrawable(((ShapeDrawable) drawable).toDto());
+    } else if (type == LineSegment.class) {
+      var line = (LineSegment) drawable;
+      var lineDto = LineSegmentDto.newBuilder().setSquareCap(line.isSquareCap());
+      DtoUtil.setIfNotNull(line.getWidth(), lineDto::setWidth);
+      for (var point : line.getPoints()) {
+        lineDto.addPoints(point.x).addPoints(point.y);
+      }
+      dto.setLineSegment(lineDto);
+    } else if (type == Rectangle.class) {
+      dto.setRectangle(((Rectangle) drawable).toDto());
+    } else if (type == Oval.class) {
+      dto.setOval(((Oval) drawable).toDto());
+    } else if (type == Cross.class) {
+      dto.setCross(((Cross) drawable).toDto());
+    } else if (type == DrawnLabel.class) {
+      dto.setDrawnLabel(((DrawnLabel) drawable).toDto());
+    } else if (type == DrawablesGroup.class) {
+      dto.setDrawablesGroup(((DrawablesGroup) drawable).toDto());
+    } else if (drawable instanceof AbstractTemplate template) {
+      var templateDto = TemplateDto.newBuilder();
+      template.writeTo(templateDto);
+      if (type == RadiusTemplate.class) {
+        dto.setRadiusTemplate(templateDto);
+      } else if (type == ConeTemplate.class) {
+        dto.setConeTemplate(templateDto);
+      } else if (type == BlastTemplate.class) {
+        dto.setBlastTemplate(templateDto);
+      } else if (type == BurstTemplate.class) {
+        dto.setBurstTemplate(templateDto);
+      } else if (type == RadiusCellTemplate.class) {
+        dto.setRadiusCellTemplate(templateDto);
+      } else if (type == LineTemplate.class) {
+        dto.setLineTemplate(templateDto);
+      } else if (type == LineCellTemplate.class) {
+        dto.setLineCellTemplate(templateDto);
+      } else if (type == WallTemplate.class) {
+        dto.setWallTemplate(templateDto);
+      }
+    }
+    if (dto.getDrawableCase() == DrawableDto.DrawableCase.DRAWABLE_NOT_SET) {
+      throw new IllegalArgumentException("Invalid type of drawable: " + type.getName());
+    }
+    var abstractDrawing = (AbstractDrawing) drawable;
+    DtoUtil.setIfNotNull(abstractDrawing.layer, dto::setLayer);
+    DtoUtil.setIfNotNull(abstractDrawing.name, dto::setName);
+    return dto.build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the drawable described by the message.
+   */
+  static Drawable fromDto(DrawableDto dto) {
+    var id = GUID.valueOf(dto.getId());
+    AbstractDrawing drawable;
+    switch (dto.getDrawableCase()) {
+      case SHAPE_DRAWABLE -> drawable = ShapeDrawable.fromDto(id, dto.getShapeDrawable());
+      case LINE_SEGMENT -> {
+        var lineDto = dto.getLineSegment();
+        var line =
+            new LineSegment(
+                id, lineDto.hasWidth() ? lineDto.getWidth() : null, lineDto.getSquareCap());
+        for (int i = 0; i + 1 < lineDto.getPointsCount(); i += 2) {
+          line.getPoints().add(new Point(lineDto.getPoints(i), lineDto.getPoints(i + 1)));
+        }
+        drawable = line;
+      }
+      case RECTANGLE -> drawable =
+          new Rectangle(
+              id,
+              DtoUtil.fromDto(dto.getRectangle().getStartPoint()),
+              DtoUtil.fromDto(dto.getRectangle().getEndPoint()));
+      case OVAL -> drawable =
+          new Oval(
+              id,
+              DtoUtil.fromDto(dto.getOval().getStartPoint()),
+              DtoUtil.fromDto(dto.getOval().getEndPoint()));
+      case CROSS -> drawable =
+          new Cross(
+              id,
+              DtoUtil.fromDto(dto.getCross().getStartPoint()),
+              DtoUtil.fromDto(dto.getCross().getEndPoint()));
+      case DRAWN_LABEL -> drawable = new DrawnLabel(id, dto.getDrawnLabel());
+      case DRAWABLES_GROUP -> drawable = new DrawablesGroup(id, dto.getDrawablesGroup());
+      case RADIUS_TEMPLATE -> drawable = fromDto(new RadiusTemplate(id), dto.getRadiusTemplate());
+      case CONE_TEMPLATE -> drawable = fromDto(new ConeTemplate(id), dto.getConeTemplate());
+      case BLAST_TEMPLATE -> drawable = fromDto(new BlastTemplate(id), dto.getBlastTemplate());
+      case BURST_TEMPLATE -> drawable = fromDto(new BurstTemplate(id), dto.getBurstTemplate());
+      case RADIUS_CELL_TEMPLATE -> drawable =
+          fromDto(new RadiusCellTemplate(id), dto.getRadiusCellTemplate());
+      case LINE_TEMPLATE -> drawable = fromDto(new LineTemplate(id), dto.getLineTemplate());
+      case LINE_CELL_TEMPLATE -> drawable =
+          fromDto(new LineCellTemplate(id), dto.getLineCellTemplate());
+      case WALL_TEMPLATE -> drawable = fromDto(new WallTemplate(id), dto.getWallTemplate());
+      default -> {
+        return (Drawable) DtoUtil.fromXml(dto.getXml());
+      }
+    }
+    drawable.layer = dto.hasLayer() ? dto.getLayer() : null;
+    drawable.name = dto.hasName() ? dto.getName() : null;
+    return drawable;
+  }
+
+  private static AbstractTemplate fromDto(AbstractTemplate template, TemplateDto dto) {
+    template.readFrom(dto);
+    return template;
+  }
+
   /*
    * (non-Javadoc)
    *
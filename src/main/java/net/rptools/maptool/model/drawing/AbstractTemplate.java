@@ -20,9 +20,11 @@
 import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.DtoUtil;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZonePoint;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * Base class for the radius, line, and cone templates.
@@ -116,10 +118,43 @@ public enum Quadrant {
     SOUTH_WEST
   }
 
+  /*---------------------------------------------------------------------------------------------
+   * Constructors
+   *-------------------------------------------------------------------------------------------*/
+
+  protected AbstractTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  AbstractTemplate(GUID id) {
+    super(id);
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
 
+  /**
+   * Set the fields of a message of a campaign file that describe this template.
+   *
+   * @param dto The builder of the message.
+   */
+  void writeTo(TemplateDto.Builder dto) {
+    dto.setRadius(radius).setVertex(DtoUtil.toDto(vertex));
+    DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(zoneId), dto::setZoneId);
+  }
+
+  /**
+   * Restore this template from a message of a campaign file. The fields are set as they were saved,
+   * the setters aren't used as some of them compute the shape again from the grid of the zone.
+   *
+   * @param dto The message.
+   */
+  void readFrom(TemplateDto dto) {
+    radius = dto.getRadius();
+    vertex = new ZonePoint(dto.getVertex().getX(), dto.getVertex().getY());
+    zoneId = dto.hasZoneId() ? GUID.valueOf(dto.getZoneId()) : null;
+  }
+
   /**
    * Set the radius of the template in squares.
    *
@@ -21,7 +21,10 @@
 import java.awt.Shape;
 import java.awt.geom.Area;
 import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.ZonePoint;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * The blast template draws a square for DnD 4e
@@ -41,6 +44,29 @@ public class BlastTemplate extends ConeTemplate {
   private int offsetX;
   private int offsetY;
 
+  public BlastTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  BlastTemplate(GUID id) {
+    super(id);
+  }
+
+  @Override
+  void writeTo(TemplateDto.Builder dto) {
+    super.writeTo(dto);
+    dto.setOffsetX(offsetX)
+        .setOffsetY(offsetY)
+        .setRenderer(DtoUtil.toDto((Rectangle) renderer.getShape()));
+  }
+
+  @Override
+  void readFrom(TemplateDto dto) {
+    super.readFrom(dto);
+    offsetX = dto.getOffsetX();
+    offsetY = dto.getOffsetY();
+    ((Rectangle) renderer.getShape()).setBounds(DtoUtil.fromDto(dto.getRenderer()));
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
@@ -21,7 +21,10 @@
 import java.awt.Shape;
 import java.awt.geom.Area;
 import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.ZonePoint;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * Create and paint a donut burst
@@ -39,6 +42,27 @@ public class BurstTemplate extends RadiusTemplate {
   /** Renderer for the blast. The {@link Shape} is just a rectangle. */
   private final ShapeDrawable vertexRenderer = new ShapeDrawable(new Rectangle());
 
+  public BurstTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  BurstTemplate(GUID id) {
+    super(id);
+  }
+
+  @Override
+  void writeTo(TemplateDto.Builder dto) {
+    super.writeTo(dto);
+    dto.setRenderer(DtoUtil.toDto((Rectangle) renderer.getShape()))
+        .setVertexRenderer(DtoUtil.toDto((Rectangle) vertexRenderer.getShape()));
+  }
+
+  @Override
+  void readFrom(TemplateDto dto) {
+    super.readFrom(dto);
+    ((Rectangle) renderer.getShape()).setBounds(DtoUtil.fromDto(dto.getRenderer()));
+    ((Rectangle) vertexRenderer.getShape()).setBounds(DtoUtil.fromDto(dto.getVertexRenderer()));
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
@@ -18,8 +18,11 @@
 import java.awt.Rectangle;
 import java.awt.geom.Area;
 import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZonePoint;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * The cone template draws a highlight over all the squares effected from a specific spine. There
@@ -42,6 +45,25 @@ public class ConeTemplate extends RadiusTemplate {
    */
   private String direction = Direction.SOUTH_EAST.name();
 
+  public ConeTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  ConeTemplate(GUID id) {
+    super(id);
+  }
+
+  @Override
+  void writeTo(TemplateDto.Builder dto) {
+    super.writeTo(dto);
+    DtoUtil.setIfNotNull(direction, dto::setDirection);
+  }
+
+  @Override
+  void readFrom(TemplateDto dto) {
+    super.readFrom(dto);
+    direction = dto.hasDirection() ? dto.getDirection() : null;
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Instance Methods
    *-------------------------------------------------------------------------------------------*/
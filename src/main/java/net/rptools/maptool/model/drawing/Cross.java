@@ -18,6 +18,9 @@
 import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.geom.Area;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.proto.BoxDrawableDto;
 
 /** An Cross */
 public class Cross extends AbstractDrawing {
@@ -31,6 +34,25 @@ public Cross(int startX, int startY, int endX, int endY) {
     endPoint = new Point(endX, endY);
   }
 
+  /**
+   * @param id the id of a drawable read from a campaign file.
+   * @param startPoint the start point.
+   * @param endPoint the end point.
+   */
+  Cross(GUID id, Point startPoint, Point endPoint) {
+    super(id);
+    this.startPoint = startPoint;
+    this.endPoint = endPoint;
+  }
+
+  /** @return the message of a campaign file, without the fields every drawable has. */
+  BoxDrawableDto toDto() {
+    return BoxDrawableDto.newBuilder()
+        .setStartPoint(DtoUtil.toDto(startPoint))
+        .setEndPoint(DtoUtil.toDto(endPoint))
+        .build();
+  }
+
   public Area getArea() {
     return new Area(getBounds());
   }
@@ -19,8 +19,12 @@
 import java.awt.TexturePaint;
 import java.awt.image.ImageObserver;
 import java.io.Serializable;
+import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.ui.AssetPaint;
 import net.rptools.maptool.model.Asset;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.proto.DrawablePaintDto;
+import net.rptools.maptool.model.proto.TexturePaintDto;
 
 public abstract class DrawablePaint implements Serializable {
   public abstract Paint getPaint(ImageObserver... observers);
@@ -48,4 +52,39 @@ public static DrawablePaint convertPaint(Paint paint) {
     }
     throw new IllegalArgumentException("Invalid type of paint: " + paint.getClass().getName());
   }
+
+  /**
+   * @param paint the paint, may be null.
+   * @return the paint as message of a campaign file, or null if the paint is null.
+   */
+  public static DrawablePaintDto toDto(DrawablePaint paint) {
+    if (paint == null) {
+      return null;
+    }
+    var dto = DrawablePaintDto.newBuilder();
+    if (paint instanceof DrawableColorPaint color) {
+      dto.setColor(color.getColor());
+    } else if (paint instanceof DrawableTexturePaint texture) {
+      var textureDto = TexturePaintDto.newBuilder().setScale(texture.getScale());
+      DtoUtil.setIfNotNull(DtoUtil.toStringOrNull(texture.getAssetId()), textureDto::setAssetId);
+      dto.setTexture(textureDto);
+    } else {
+      throw new IllegalArgumentException("Invalid type of paint: " + paint.getClass().getName());
+    }
+    return dto.build();
+  }
+
+  /**
+   * @param dto the message.
+   * @return the paint described by the message.
+   */
+  public static DrawablePaint fromDto(DrawablePaintDto dto) {
+    return switch (dto.getPaintCase()) {
+      case COLOR -> new DrawableColorPaint(new Color(dto.getColor(), true));
+      case TEXTURE -> new DrawableTexturePaint(
+          dto.getTexture().hasAssetId() ? new MD5Key(dto.getTexture().getAssetId()) : null,
+          dto.getTexture().getScale());
+      default -> (DrawablePaint) DtoUtil.fromXml(dto.getXml());
+    };
+  }
 }
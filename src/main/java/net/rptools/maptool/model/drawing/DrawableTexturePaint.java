@@ -89,4 +89,8 @@ public Asset getAsset() {
   public MD5Key getAssetId() {
     return assetId;
   }
+
+  public double getScale() {
+    return scale;
+  }
 }
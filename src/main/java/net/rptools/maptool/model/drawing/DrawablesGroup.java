@@ -17,7 +17,10 @@
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Area;
+import java.util.ArrayList;
 import java.util.List;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.proto.DrawablesGroupDto;
 
 /**
  * @author Jagged
@@ -30,6 +33,25 @@ public DrawablesGroup(List<DrawnElement> drawableList) {
     this.drawableList = drawableList;
   }
 
+  /**
+   * @param id the id of a group read from a campaign file.
+   * @param dto the message of the group.
+   */
+  DrawablesGroup(GUID id, DrawablesGroupDto dto) {
+    super(id);
+    drawableList = new ArrayList<>(dto.getDrawablesCount());
+    for (var element : dto.getDrawablesList()) {
+      drawableList.add(DrawnElement.fromDto(element));
+    }
+  }
+
+  /** @return the message of a campaign file, without the fields every drawable has. */
+  DrawablesGroupDto toDto() {
+    var dto = DrawablesGroupDto.newBuilder();
+    drawableList.forEach(element -> dto.addDrawables(element.toDto()));
+    return dto.build();
+  }
+
   public List<DrawnElement> getDrawableList() {
     return drawableList;
   }
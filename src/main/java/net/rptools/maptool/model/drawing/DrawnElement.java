@@ -14,6 +14,8 @@
  */
 package net.rptools.maptool.model.drawing;
 
+import net.rptools.maptool.model.proto.DrawnElementDto;
+
 /** */
 public class DrawnElement {
 
@@ -25,6 +27,27 @@ public DrawnElement(Drawable drawable, Pen pen) {
     this.pen = pen;
   }
 
+  /**
+   * Creates the element described by a message of a campaign file.
+   *
+   * @param dto the message.
+   * @return the element.
+   */
+  public static DrawnElement fromDto(DrawnElementDto dto) {
+    return new DrawnElement(
+        AbstractDrawing.fromDto(dto.getDrawable()),
+        dto.hasPen() ? Pen.fromDto(dto.getPen()) : null);
+  }
+
+  /** @return the element as message of a campaign file. */
+  public DrawnElementDto toDto() {
+    var dto = DrawnElementDto.newBuilder().setDrawable(AbstractDrawing.toDto(drawable));
+    if (pen != null) {
+      dto.setPen(pen.toDto());
+    }
+    return dto.build();
+  }
+
   public Drawable getDrawable() {
     return drawable;
   }
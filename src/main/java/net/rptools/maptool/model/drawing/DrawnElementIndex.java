@@ -0,0 +1,257 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.drawing;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import net.rptools.maptool.model.GUID;
+
+/**
+ * Spatial index of the drawn elements of a layer, used to find the elements that cross an area
+ * without testing all of them. The elements are held in a packed R-tree built when the index is
+ * made, elements added later are kept in a short list that is searched in full until the index is
+ * made again. Elements changed in place are taken out of the tree and searched in full as well, see
+ * {@link #update(GUID)}.
+ *
+ * <p>The bounds of an element include the thickness of its pen. Elements are returned in the order
+ * of the layer, which is the order they are drawn in.
+ */
+public class DrawnElementIndex {
+
+  /** The most children of a node of the tree. */
+  private static final int NODE_SIZE = 16;
+
+  /** The fewest elements added after the tree was built before {@link #isStale()} is true. */
+  private static final int MIN_TAIL_SIZE = 64;
+
+  private final List<DrawnElement> elements = new ArrayList<>();
+  private final List<Rectangle2D> bounds = new ArrayList<>();
+  private final Node root;
+  private final int treeSize;
+
+  /** The positions of the elements of the tree whose bounds changed since it was built. */
+  private final BitSet changed = new BitSet();
+
+  /** A node of the tree, holding either child nodes or the positions of elements. */
+  private static class Node {
+    final Rectangle2D bounds;
+    final Node[] children;
+    final int[] entries;
+
+    Node(Rectangle2D bounds, Node[] children, int[] entries) {
+      this.bounds = bounds;
+      this.children = children;
+      this.entries = entries;
+    }
+  }
+
+  /**
+   * Builds the index of a layer.
+   *
+   * @param drawnElements the elements of the layer, in drawing order.
+   */
+  public DrawnElementIndex(List<DrawnElement> drawnElements) {
+    List<Integer> entries = new ArrayList<>();
+    for (DrawnElement element : drawnElements) {
+      Rectangle2D elementBounds = getBounds(element);
+      if (elementBounds != null) {
+        entries.add(elements.size());
+      }
+      elements.add(element);
+      bounds.add(elementBounds);
+    }
+    treeSize = elements.size();
+    root = entries.isEmpty() ? null : build(entries);
+  }
+
+  /**
+   * Returns the bounds an element is drawn in, including the thickness of the pen.
+   *
+   * @param element the element.
+   * @return the bounds, or null if the drawable has none.
+   */
+  public static Rectangle2D getBounds(DrawnElement element) {
+    java.awt.Rectangle drawableBounds = element.getDrawable().getBounds();
+    if (drawableBounds == null) {
+      return null;
+    }
+    Pen pen = element.getPen();
+    double penSize = pen == null ? 0 : pen.getThickness() / 2 + 1;
+    return new Rectangle2D.Double(
+        drawableBounds.getX() - penSize,
+        drawableBounds.getY() - penSize,
+        drawableBounds.getWidth() + penSize * 2,
+        drawableBounds.getHeight() + penSize * 2);
+  }
+
+  /** Packs the elements into a tree with the Sort-Tile-Recursive method. */
+  private Node build(List<Integer> entries) {
+    List<Node> level = new ArrayList<>();
+    for (List<Integer> group :
+        tile(entries, i -> bounds.get(i).getCenterX(), i -> bounds.get(i).getCenterY())) {
+      int[] positions = group.stream().mapToInt(Integer::intValue).toArray();
+      Rectangle2D nodeBounds = new Rectangle2D.Double();
+      nodeBounds.setRect(bounds.get(positions[0]));
+      for (int position : positions) {
+        nodeBounds.add(bounds.get(position));
+      }
+      level.add(new Node(nodeBounds, null, positions));
+    }
+    while (level.size() > 1) {
+      List<Node> parents = new ArrayList<>();
+      for (List<Node> group :
+          tile(level, n -> n.bounds.getCenterX(), n -> n.bounds.getCenterY())) {
+        Rectangle2D nodeBounds = new Rectangle2D.Double();
+        nodeBounds.setRect(group.get(0).bounds);
+        for (Node child : group) {
+          nodeBounds.add(child.bounds);
+        }
+        parents.add(new Node(nodeBounds, group.toArray(new Node[0]), null));
+      }
+      level = parents;
+    }
+    return level.get(0);
+  }
+
+  /** Splits items into groups of at most {@link #NODE_SIZE} that lie close to each other. */
+  private static <T> List<List<T>> tile(
+      List<T> items, ToDoubleFunction<T> x, ToDoubleFunction<T> y) {
+    List<T> sorted = new ArrayList<>(items);
+    sorted.sort(Comparator.comparingDouble(x));
+    int nodeCount = (int) Math.ceil(sorted.size() / (double) NODE_SIZE);
+    int sliceSize = (int) Math.ceil(Math.sqrt(nodeCount)) * NODE_SIZE;
+
+    List<List<T>> groups = new ArrayList<>();
+    for (int start = 0; start < sorted.size(); start += sliceSize) {
+      int end = Math.min(start + sliceSize, sorted.size());
+      List<T> slice = new ArrayList<>(sorted.subList(start, end));
+      slice.sort(Comparator.comparingDouble(y));
+      for (int i = 0; i < slice.size(); i += NODE_SIZE) {
+        groups.add(slice.subList(i, Math.min(i + NODE_SIZE, slice.size())));
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * Adds an element drawn after all elements of the index.
+   *
+   * @param element the element.
+   */
+  public synchronized void add(DrawnElement element) {
+    elements.add(element);
+    bounds.add(getBounds(element));
+  }
+
+  /**
+   * Updates the bounds of an element that was changed in place, such as by giving it a new pen.
+   *
+   * @param drawableId the id of the drawable of the element.
+   * @return true if the element is in the index, false if it may be part of a group in the index.
+   */
+  public synchronized boolean update(GUID drawableId) {
+    for (int position = 0; position < elements.size(); position++) {
+      DrawnElement element = elements.get(position);
+      if (element.getDrawable().getId().equals(drawableId)) {
+        bounds.set(position, getBounds(element));
+        if (position < treeSize) {
+          changed.set(position);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the number of elements in the index, including those without bounds. */
+  public synchronized int size() {
+    return elements.size();
+  }
+
+  /** @return true if the index has no elements. */
+  public synchronized boolean isEmpty() {
+    return elements.isEmpty();
+  }
+
+  /** @return true if so many elements were added since the index was built that it should be. */
+  public synchronized boolean isStale() {
+    int searched = elements.size() - treeSize + changed.cardinality();
+    return searched > Math.max(MIN_TAIL_SIZE, treeSize / 8);
+  }
+
+  /**
+   * Returns the elements whose bounds cross an area.
+   *
+   * @param area the area.
+   * @return the elements in drawing order.
+   */
+  public synchronized List<DrawnElement> query(Rectangle2D area) {
+    int[] found = new int[16];
+    int count = 0;
+    if (root != null && root.bounds.intersects(area)) {
+      List<Node> stack = new ArrayList<>();
+      stack.add(root);
+      while (!stack.isEmpty()) {
+        Node node = stack.remove(stack.size() - 1);
+        if (node.children != null) {
+          for (Node child : node.children) {
+            if (child.bounds.intersects(area)) {
+              stack.add(child);
+            }
+          }
+        } else {
+          for (int position : node.entries) {
+            // Changed elements are searched below, with their new bounds
+            if (!changed.get(position) && bounds.get(position).intersects(area)) {
+              if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+              }
+              found[count++] = position;
+            }
+          }
+        }
+      }
+    }
+    for (int position = changed.nextSetBit(0);
+        position >= 0;
+        position = changed.nextSetBit(position + 1)) {
+      Rectangle2D elementBounds = bounds.get(position);
+      if (elementBounds != null && elementBounds.intersects(area)) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, count * 2);
+        }
+        found[count++] = position;
+      }
+    }
+    Arrays.sort(found, 0, count);
+
+    List<DrawnElement> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(elements.get(found[i]));
+    }
+    for (int position = treeSize; position < elements.size(); position++) {
+      Rectangle2D elementBounds = bounds.get(position);
+      if (elementBounds != null && elementBounds.intersects(area)) {
+        result.add(elements.get(position));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,332 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.drawing;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import net.rptools.maptool.model.GUID;
+
+/**
+ * The drawn elements of a layer of a zone, in drawing order and indexed by the id of their
+ * drawable.
+ *
+ * <p>Each element holds a position key in a sorted map, so elements can be found by id in constant
+ * time and added at either end or removed in logarithmic time. Reads by position and iteration go
+ * through an array of the elements in drawing order, made again after elements are added, removed
+ * or moved. Replacing an element with {@link #set(int, DrawnElement)} updates the array in place
+ * and {@link #sort(Comparator)} rebuilds the list once, so loops over the positions stay linear.
+ * {@link #snapshot()} gives renderers a copy they can walk while the list is changed on another
+ * thread.
+ *
+ * <p>The ids of the elements are unique, adding an element whose drawable is already in the list
+ * removes the earlier one. The list is written out as a {@link LinkedList} so saved maps stay
+ * readable by older versions.
+ */
+public class DrawnElementList extends AbstractList<DrawnElement> {
+
+  private final TreeMap<Long, DrawnElement> elements = new TreeMap<>();
+  private final Map<GUID, Long> keys = new HashMap<>();
+
+  /** The ids of the elements that are groups, searched by {@link #find(GUID)}. */
+  private final Set<GUID> groups = new LinkedHashSet<>();
+
+  /** The elements in drawing order, or null if they have to be collected again. */
+  private transient ArrayList<DrawnElement> ordered;
+
+  /**
+   * The last list returned by {@link #snapshot()}, a view of {@link #ordered}. Once it is handed
+   * out, {@link #ordered} is copied before it is changed in place.
+   */
+  private transient volatile List<DrawnElement> snapshot;
+
+  /** Creates an empty list. */
+  public DrawnElementList() {}
+
+  /**
+   * Creates a list holding some elements.
+   *
+   * @param drawnElements the elements, in drawing order.
+   */
+  public DrawnElementList(Collection<? extends DrawnElement> drawnElements) {
+    addAll(drawnElements);
+  }
+
+  /**
+   * Returns the elements of the list as it is now. Later changes to the list are not seen by the
+   * returned list.
+   *
+   * @return the unmodifiable elements in drawing order.
+   */
+  public List<DrawnElement> snapshot() {
+    List<DrawnElement> result = snapshot;
+    if (result == null) {
+      synchronized (this) {
+        result = snapshot;
+        if (result == null) {
+          result = Collections.unmodifiableList(getOrdered());
+          snapshot = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Must be called while holding the lock of the list. */
+  private ArrayList<DrawnElement> getOrdered() {
+    if (ordered == null) {
+      ordered = new ArrayList<>(elements.values());
+    }
+    return ordered;
+  }
+
+  /** Must be called while holding the lock of the list, after the elements moved. */
+  private void invalidateOrder() {
+    ordered = null;
+    snapshot = null;
+  }
+
+  /**
+   * Returns the element of a drawable in the list.
+   *
+   * @param id the id of the drawable.
+   * @return the element, or null if it is not in the list.
+   */
+  public synchronized DrawnElement get(GUID id) {
+    Long key = keys.get(id);
+    return key == null ? null : elements.get(key);
+  }
+
+  /**
+   * Returns the element of a drawable in the list or in one of its groups.
+   *
+   * @param id the id of the drawable.
+   * @return the element, or null if it is not found.
+   */
+  public synchronized DrawnElement find(GUID id) {
+    DrawnElement result = get(id);
+    if (result == null) {
+      for (GUID groupId : groups) {
+        result = find(((DrawablesGroup) get(groupId).getDrawable()).getDrawableList(), id);
+        if (result != null) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static DrawnElement find(List<DrawnElement> list, GUID id) {
+    for (DrawnElement de : list) {
+      if (de.getDrawable().getId().equals(id)) {
+        return de;
+      }
+      if (de.getDrawable() instanceof DrawablesGroup) {
+        DrawnElement result = find(((DrawablesGroup) de.getDrawable()).getDrawableList(), id);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds an element before all others, so that it is drawn behind them. If the drawable of the
+   * element is already in the list, its earlier element is removed.
+   *
+   * @param element the element.
+   */
+  public synchronized void addFirst(DrawnElement element) {
+    remove(element.getDrawable().getId());
+    put(elements.isEmpty() ? 0 : elements.firstKey() - 1, element);
+  }
+
+  /**
+   * Removes the element of a drawable.
+   *
+   * @param id the id of the drawable.
+   * @return the removed element, or null if it was not in the list.
+   */
+  public synchronized DrawnElement remove(GUID id) {
+    Long key = keys.remove(id);
+    if (key == null) {
+      return null;
+    }
+    groups.remove(id);
+    invalidateOrder();
+    modCount++;
+    return elements.remove(key);
+  }
+
+  private void put(long key, DrawnElement element) {
+    GUID id = element.getDrawable().getId();
+    elements.put(key, element);
+    keys.put(id, key);
+    if (element.getDrawable() instanceof DrawablesGroup) {
+      groups.add(id);
+    }
+    invalidateOrder();
+    modCount++;
+  }
+
+  @Override
+  public synchronized DrawnElement get(int index) {
+    return getOrdered().get(index);
+  }
+
+  @Override
+  public synchronized int size() {
+    return elements.size();
+  }
+
+  @Override
+  public synchronized boolean contains(Object o) {
+    if (!(o instanceof DrawnElement)) {
+      return false;
+    }
+    DrawnElement de = (DrawnElement) o;
+    return de.equals(get(de.getDrawable().getId()));
+  }
+
+  /**
+   * Adds an element after all others, so that it is drawn in front of them. If the drawable of the
+   * element is already in the list, its earlier element is removed.
+   *
+   * @param element the element.
+   * @return true.
+   */
+  @Override
+  public synchronized boolean add(DrawnElement element) {
+    remove(element.getDrawable().getId());
+    put(elements.isEmpty() ? 0 : elements.lastKey() + 1, element);
+    return true;
+  }
+
+  @Override
+  public synchronized void add(int index, DrawnElement element) {
+    if (index == size()) {
+      add(element);
+    } else if (index == 0) {
+      addFirst(element);
+    } else {
+      List<DrawnElement> list = new ArrayList<>(getOrdered());
+      list.add(index, element);
+      clear();
+      addAll(list);
+    }
+  }
+
+  /**
+   * Replaces the element at a position. If the drawable of the new element is elsewhere in the
+   * list, its earlier element is removed.
+   *
+   * @param index the position.
+   * @param element the new element.
+   * @return the element that was at the position.
+   */
+  @Override
+  public synchronized DrawnElement set(int index, DrawnElement element) {
+    DrawnElement old = get(index);
+    GUID oldId = old.getDrawable().getId();
+    GUID id = element.getDrawable().getId();
+    long key = keys.get(oldId);
+    if (!id.equals(oldId) && keys.containsKey(id)) {
+      // The other element moves the ones after it
+      remove(oldId);
+      remove(id);
+      put(key, element);
+      return old;
+    }
+    keys.remove(oldId);
+    groups.remove(oldId);
+    elements.put(key, element);
+    keys.put(id, key);
+    if (element.getDrawable() instanceof DrawablesGroup) {
+      groups.add(id);
+    }
+    if (snapshot != null) {
+      // Renderers may be walking the snapshot, leave it as it is
+      ordered = new ArrayList<>(ordered);
+      snapshot = null;
+    }
+    getOrdered().set(index, element);
+    return old;
+  }
+
+  /**
+   * Sorts the elements, rebuilding the list once.
+   *
+   * @param c the order of the elements.
+   */
+  @Override
+  public synchronized void sort(Comparator<? super DrawnElement> c) {
+    ArrayList<DrawnElement> sorted = new ArrayList<>(getOrdered());
+    sorted.sort(c);
+    elements.clear();
+    keys.clear();
+    for (int i = 0; i < sorted.size(); i++) {
+      DrawnElement element = sorted.get(i);
+      elements.put((long) i, element);
+      keys.put(element.getDrawable().getId(), (long) i);
+    }
+    ordered = sorted;
+    snapshot = null;
+    modCount++;
+  }
+
+  @Override
+  public synchronized DrawnElement remove(int index) {
+    return remove(get(index).getDrawable().getId());
+  }
+
+  @Override
+  public synchronized boolean remove(Object o) {
+    return contains(o) && remove(((DrawnElement) o).getDrawable().getId()) != null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    elements.clear();
+    keys.clear();
+    groups.clear();
+    invalidateOrder();
+    modCount++;
+  }
+
+  @Override
+  public Object[] toArray() {
+    return snapshot().toArray();
+  }
+
+  @Override
+  public <T> T[] toArray(T[] a) {
+    return snapshot().toArray(a);
+  }
+
+  /** Writes the list as a {@link LinkedList}, the type layers had before. */
+  private Object writeReplace() {
+    return new LinkedList<>(snapshot());
+  }
+}
@@ -21,6 +21,9 @@
 import javax.swing.CellRendererPane;
 import net.rptools.maptool.client.swing.TwoToneTextPane;
 import net.rptools.maptool.client.tool.drawing.DrawnTextTool;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.proto.DrawnLabelDto;
 
 /**
  * @author jgorrell
@@ -58,6 +61,27 @@ public DrawnLabel(String theText, Rectangle theBounds, String aFont) {
     font = aFont;
   }
 
+  /**
+   * Create a drawn label read from a campaign file.
+   *
+   * @param id The id of the drawn label.
+   * @param dto The message of the drawn label.
+   */
+  DrawnLabel(GUID id, DrawnLabelDto dto) {
+    super(id);
+    text = dto.hasText() ? dto.getText() : null;
+    bounds = DtoUtil.fromDto(dto.getBounds());
+    font = dto.hasFont() ? dto.getFont() : null;
+  }
+
+  /** @return The message of a campaign file, without the fields every drawable has. */
+  DrawnLabelDto toDto() {
+    var dto = DrawnLabelDto.newBuilder().setBounds(DtoUtil.toDto(bounds));
+    DtoUtil.setIfNotNull(text, dto::setText);
+    DtoUtil.setIfNotNull(font, dto::setFont);
+    return dto.build();
+  }
+
   /**
    * @see net.rptools.maptool.model.drawing.Drawable#draw(java.awt.Graphics2D,
    *     net.rptools.maptool.model.drawing.Pen)
@@ -22,6 +22,7 @@
 import java.awt.geom.GeneralPath;
 import java.util.ArrayList;
 import java.util.List;
+import net.rptools.maptool.model.GUID;
 
 /** @author drice */
 public class LineSegment extends AbstractDrawing {
@@ -37,6 +38,12 @@ public LineSegment(float width, boolean squareCap) {
     this.squareCap = squareCap;
   }
 
+  LineSegment(GUID id, Float width, boolean squareCap) {
+    super(id);
+    this.width = width;
+    this.squareCap = squareCap;
+  }
+
   /**
    * Manipulate the points by calling {@link #getPoints} and then adding {@link Point} objects to
    * the returned {@link List}.
@@ -26,8 +26,12 @@
 import net.rptools.maptool.client.AppState;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.model.CellPoint;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZonePoint;
+import net.rptools.maptool.model.proto.PolygonDto;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * A drawing tool that will draw a line template between 2 vertices.
@@ -62,6 +66,50 @@ public class LineTemplate extends AbstractTemplate {
   /** Flag used to determine mouse position relative to vertex position */
   private boolean mouseSlopeGreater;
 
+  public LineTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  LineTemplate(GUID id) {
+    super(id);
+  }
+
+  @Override
+  void writeTo(TemplateDto.Builder dto) {
+    super.writeTo(dto);
+    dto.setDoubleWide(doubleWide).setMouseSlopeGreater(mouseSlopeGreater);
+    DtoUtil.setIfNotNull(quadrant, dto::setQuadrant);
+    if (pathVertex != null) {
+      dto.setPathVertex(DtoUtil.toDto(pathVertex));
+    }
+    if (path != null) {
+      var pathDto = PolygonDto.newBuilder();
+      for (CellPoint cell : path) {
+        pathDto.addPoints(cell.x).addPoints(cell.y);
+      }
+      dto.setPath(pathDto);
+    }
+  }
+
+  @Override
+  void readFrom(TemplateDto dto) {
+    super.readFrom(dto);
+    doubleWide = dto.getDoubleWide();
+    mouseSlopeGreater = dto.getMouseSlopeGreater();
+    quadrant = dto.hasQuadrant() ? dto.getQuadrant() : null;
+    pathVertex =
+        dto.hasPathVertex()
+            ? new ZonePoint(dto.getPathVertex().getX(), dto.getPathVertex().getY())
+            : null;
+    path = null;
+    if (dto.hasPath()) {
+      var points = dto.getPath().getPointsList();
+      path = new ArrayList<>(points.size() / 2);
+      for (int i = 0; i + 1 < points.size(); i += 2) {
+        path.add(new CellPoint(points.get(i), points.get(i + 1)));
+      }
+    }
+  }
+
   /*---------------------------------------------------------------------------------------------
    * Overridden AbstractTemplate Methods
    *-------------------------------------------------------------------------------------------*/
@@ -15,8 +15,10 @@
 package net.rptools.maptool.model.drawing;
 
 import java.awt.Graphics2D;
+import java.awt.Point;
 import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
+import net.rptools.maptool.model.GUID;
 
 /** An oval. */
 public class Oval extends Rectangle {
@@ -30,6 +32,15 @@ public Oval(int x, int y, int width, int height) {
     super(x, y, width, height);
   }
 
+  /**
+   * @param id the id of a drawable read from a campaign file.
+   * @param startPoint the start point.
+   * @param endPoint the end point.
+   */
+  Oval(GUID id, Point startPoint, Point endPoint) {
+    super(id, startPoint, endPoint);
+  }
+
   @Override
   protected void draw(Graphics2D g) {
     int minX = Math.min(startPoint.x, endPoint.x);
@@ -16,6 +16,8 @@
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.proto.PenDto;
 
 /**
  * The color and thickness to draw a {@link Drawable}with. Also used to erase by drawing {@link
@@ -55,6 +57,44 @@ public Pen(DrawablePaint paint, float thickness, boolean eraser, boolean squareC
     this.squareCap = squareCap;
   }
 
+  /**
+   * Creates the pen described by a message of a campaign file.
+   *
+   * @param dto the message.
+   * @return the pen.
+   */
+  public static Pen fromDto(PenDto dto) {
+    var pen = new Pen();
+    pen.foregroundMode = dto.getForegroundMode();
+    pen.paint = dto.hasPaint() ? DrawablePaint.fromDto(dto.getPaint()) : null;
+    pen.backgroundMode = dto.getBackgroundMode();
+    pen.backgroundPaint =
+        dto.hasBackgroundPaint() ? DrawablePaint.fromDto(dto.getBackgroundPaint()) : null;
+    pen.thickness = dto.getThickness();
+    pen.eraser = dto.getEraser();
+    pen.squareCap = dto.getSquareCap();
+    pen.opacity = dto.getOpacity();
+    pen.color = dto.getColor();
+    pen.backgroundColor = dto.getBackgroundColor();
+    return pen;
+  }
+
+  /** @return the pen as message of a campaign file. */
+  public PenDto toDto() {
+    var dto = PenDto.newBuilder();
+    dto.setForegroundMode(foregroundMode);
+    DtoUtil.setIfNotNull(DrawablePaint.toDto(paint), dto::setPaint);
+    dto.setBackgroundMode(backgroundMode);
+    DtoUtil.setIfNotNull(DrawablePaint.toDto(backgroundPaint), dto::setBackgroundPaint);
+    dto.setThickness(thickness);
+    dto.setEraser(eraser);
+    dto.setSquareCap(squareCap);
+    dto.setOpacity(opacity);
+    dto.setColor(color);
+    dto.setBackgroundColor(backgroundColor);
+    return dto.build();
+  }
+
   public Pen(Pen copy) {
     this.paint = copy.paint;
     this.foregroundMode = copy.foregroundMode;
@@ -19,10 +19,12 @@
 import java.awt.Shape;
 import java.awt.geom.Area;
 import net.rptools.maptool.client.MapTool;
+import net.rptools.maptool.model.DtoUtil;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.ZonePoint;
 import net.rptools.maptool.model.drawing.AbstractTemplate.Quadrant;
+import net.rptools.maptool.model.proto.TemplateDto;
 
 /**
  * The radius template draws a highlight over all the squares effected from a specific spine.
@@ -37,6 +39,27 @@ public class RadiusCellTemplate extends AbstractTemplate {
   /** Renderer for the blast. The {@link Shape} is just a rectangle. */
   private final ShapeDrawable vertexRenderer = new ShapeDrawable(new Rectangle());
 
+  public RadiusCellTemplate() {}
+
+  /** @param id the id of a template read from a campaign file. */
+  RadiusCellTemplate(GUID id) {
+    super(id);
+  }
+
+  @Override
+  void writeTo(TemplateDto.Builder dto) {
+    super.writeTo(dto);
+    dto.setRenderer(DtoUtil.toDto((Rectangle) renderer.getShape()))
+        .setVertexRenderer(DtoUtil.toDto((Rectangle) vertexRenderer.getShape()));
+  }
+
+  @Override
+  void readFrom(TemplateDto dto) {
+    super.readFrom(dto);
+    ((Rectangle) renderer.getShape()).setBounds(DtoUtil.fromDto(dto.getRenderer()));
+    ((Rectangle) vertexRenderer.getShape()).setBounds(DtoUtil.fromDto(dto.getVertexRenderer()));
+  }
+
   /**
    * Paint the border at a specific radius.
    *
@@ -15,9 +15,17 @@
 package net.rptools.maptool.model.drawing;
 
 import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import net.rptools.maptool.model.DtoUtil;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.proto.EllipseDto;
+import net.rptools.maptool.model.proto.PolygonDto;
+import net.rptools.maptool.model.proto.ShapeDrawableDto;
 
 /** An rectangle */
 public class ShapeDrawable extends AbstractDrawing {
@@ -33,6 +41,73 @@ public ShapeDrawable(Shape shape) {
     this(shape, true);
   }
 
+  ShapeDrawable(GUID id, Shape shape, boolean useAntiAliasing) {
+    super(id);
+    this.shape = shape;
+    this.useAntiAliasing = useAntiAliasing;
+  }
+
+  /**
+   * @param id the id of the drawable.
+   * @param dto the message of a campaign file.
+   * @return the drawable described by the message.
+   */
+  static ShapeDrawable fromDto(GUID id, ShapeDrawableDto dto) {
+    Shape shape =
+        switch (dto.getShapeCase()) {
+          case RECTANGLE -> DtoUtil.fromDto(dto.getRectangle());
+          case POLYGON -> {
+            var polygon = new Polygon();
+            var points = dto.getPolygon().getPointsList();
+            for (int i = 0; i + 1 < points.size(); i += 2) {
+              polygon.addPoint(points.get(i), points.get(i + 1));
+            }
+            yield polygon;
+          }
+          case ELLIPSE -> {
+            var ellipse = dto.getEllipse();
+            yield new Ellipse2D.Float(
+                ellipse.getX(), ellipse.getY(), ellipse.getWidth(), ellipse.getHeight());
+          }
+          case PATH -> DtoUtil.toPath(dto.getPath());
+          default -> DtoUtil.fromDto(dto.getArea());
+        };
+    return new ShapeDrawable(id, shape, dto.getUseAntiAliasing());
+  }
+
+  /**
+   * Converts the shape for a campaign file. The shapes the drawing tools create are stored as such,
+   * so that they keep their class, any other shape by its outline.
+   *
+   * @return the message, without the fields every drawable has.
+   */
+  ShapeDrawableDto toDto() {
+    var dto = ShapeDrawableDto.newBuilder().setUseAntiAliasing(useAntiAliasing);
+    if (shape instanceof Area area) {
+      dto.setArea(DtoUtil.toDto(area));
+    } else if (shape.getClass() == Rectangle.class) {
+      dto.setRectangle(DtoUtil.toDto((Rectangle) shape));
+    } else if (shape.getClass() == Polygon.class) {
+      var polygon = (Polygon) shape;
+      var polygonDto = PolygonDto.newBuilder();
+      for (int i = 0; i < polygon.npoints; i++) {
+        polygonDto.addPoints(polygon.xpoints[i]).addPoints(polygon.ypoints[i]);
+      }
+      dto.setPolygon(polygonDto);
+    } else if (shape.getClass() == Ellipse2D.Float.class) {
+      var ellipse = (Ellipse2D.Float) shape;
+      dto.setEllipse(
+          EllipseDto.newBuilder()
+              .setX(ellipse.x)
+              .setY(ellipse.y)
+              .setWidth(ellipse.width)
+              .setHeight(ellipse.height));
+    } else {
+      dto.setPath(DtoUtil.toPathDto(shape));
+    }
+    return dto.build();
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -64,6 +139,10 @@ public Shape getShape() {
     return shape;
   }
 
+  public boolean getUseAntiAliasing() {
+    return useAntiAliasing;
+  }
+
   private Object applyAA(Graphics2D g) {
     Object oldAA = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
     g.setRenderingHint(
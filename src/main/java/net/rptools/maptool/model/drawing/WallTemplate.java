@@ -16,6 +16,7 @@
 
 import java.util.List;
 import net.rptools.maptool.model.CellPoint;
+import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.ZonePoint;
 
 /**
@@ -31,6 +32,11 @@ public WallTemplate() {
     setPathVertex(new ZonePoint(0, 0));
   }
 
+  /** @param id the id of a template read from a campaign file. */
+  WallTemplate(GUID id) {
+    super(id);
+  }
+
   /** @see net.rptools.maptool.model.drawing.AbstractTemplate#getRadius() */
   @Override
   public int getRadius() {
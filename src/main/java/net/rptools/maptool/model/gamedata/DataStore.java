@@ -317,4 +317,113 @@ CompletableFuture<Void> createNamespaceWithTypes(
    * @param namespace the namespace to remove.
    */
   CompletableFuture<Void> clearNamespace(String propertyType, String namespace);
+
+  /*
+   * The methods below return the same as the methods above without a CompletableFuture, for callers
+   * such as macro functions that would otherwise wait for each read. Data stores that hold their
+   * data in memory should override them to read it directly on the calling thread.
+   */
+
+  /**
+   * Returns the types of properties that are stored in this data store, waiting for them if
+   * needed.
+   *
+   * @return the types of properties that are stored in this data store.
+   */
+  default Set<String> getPropertyTypesSync() {
+    return getPropertyTypes().join();
+  }
+
+  /**
+   * Returns the namespaces of properties that are stored in this data store for a specific
+   * propertyType, waiting for them if needed.
+   *
+   * @param type the propertyType of properties to get the namespaces of.
+   * @return the namespaces of properties for the propertyType.
+   */
+  default Set<String> getPropertyNamespacesSync(String type) {
+    return getPropertyNamespaces(type).join();
+  }
+
+  /**
+   * Checks if a property and namespace exists, waiting for the answer if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @return {@code true} if the property and namespace exists.
+   */
+  default boolean hasPropertyNamespaceSync(String type, String namespace) {
+    return hasPropertyNamespace(type, namespace).join();
+  }
+
+  /**
+   * Returns the data propertyType for a property, waiting for it if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @param name the name of the property.
+   * @return the data propertyType for the property.
+   */
+  default DataType getPropertyDataTypeSync(String type, String namespace, String name) {
+    return getPropertyDataType(type, namespace, name).join();
+  }
+
+  /**
+   * Returns the property names and their data types for a type and namespace, waiting for them if
+   * needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @return the property names and their data types for a type and namespace.
+   */
+  default Map<String, DataType> getPropertyDataTypeMapSync(String type, String namespace) {
+    return getPropertyDataTypeMap(type, namespace).join();
+  }
+
+  /**
+   * Checks if a property exists, waiting for the answer if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @param name the name of the property.
+   * @return {@code true} if the property exists.
+   */
+  default boolean hasPropertySync(String type, String namespace, String name) {
+    return hasProperty(type, namespace, name).join();
+  }
+
+  /**
+   * Checks if a property exists and has a value, waiting for the answer if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @param name the name of the property.
+   * @return {@code true} if the property exists and has a value.
+   */
+  default boolean isPropertyDefinedSync(String type, String namespace, String name) {
+    return isPropertyDefined(type, namespace, name).join();
+  }
+
+  /**
+   * Returns the value of a property, waiting for it if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @param name the name of the property.
+   * @return the value of a property.
+   */
+  default DataValue getPropertySync(String type, String namespace, String name) {
+    return getProperty(type, namespace, name).join();
+  }
+
+  /**
+   * Returns all the properties for a type and namespace, waiting for them if needed.
+   *
+   * @param type the propertyType of the property.
+   * @param namespace the namespace of the property.
+   * @return all the properties for a type and namespace.
+   */
+  default Set<DataValue> getPropertiesSync(String type, String namespace) {
+    return getProperties(type, namespace).join();
+  }
 }
@@ -14,10 +14,16 @@
  */
 package net.rptools.maptool.model.gamedata;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 
 /** Class that manages the data stores. */
 public class DataStoreManager {
@@ -29,7 +35,24 @@ public class DataStoreManager {
   private static final String MEMORY_DATA_STORE_TYPE_NAME = "default";
 
   /** The memory data store. */
-  private static final DataStore memoryDataStore = new MemoryDataStore();
+  private static final MemoryDataStore memoryDataStore = new MemoryDataStore();
+
+  /** The message of a namespace at a given version of the namespace, and its serialized form. */
+  private record NamespaceSnapshot(long version, GameDataDto dto, byte[] bytes) {}
+
+  private record NamespaceKey(String type, String namespace) {}
+
+  /**
+   * The version of a namespace, which changes each time the namespace changes and is never used for
+   * other contents of the namespace.
+   */
+  public record NamespaceVersion(String type, String namespace, long version) {}
+
+  /**
+   * The snapshots of the namespaces, kept so that the messages of namespaces that have not changed
+   * are not made again each time the data store is saved or sent to a client that joins.
+   */
+  private static final Map<NamespaceKey, NamespaceSnapshot> snapshots = new ConcurrentHashMap<>();
 
   /**
    * Returns the default data store. Any updates to the data store using the returned data store
@@ -63,15 +86,90 @@ public CompletableFuture<DataStoreDto> toDto() {
         () -> {
           var builder = DataStoreDto.newBuilder();
           builder.setDataStoreType(MEMORY_DATA_STORE_TYPE_NAME);
-          for (String propertyType : memoryDataStore.getPropertyTypes().join()) {
-            for (String namespace : memoryDataStore.getPropertyNamespaces(propertyType).join()) {
-              memoryDataStore.toDto(propertyType, namespace).thenAccept(builder::addData).join();
-            }
+          for (var snapshot : getSnapshots()) {
+            builder.addData(snapshot.dto());
           }
           return builder.build();
         });
   }
 
+  /**
+   * Returns the current version of each namespace in the data store.
+   *
+   * @return the versions of the namespaces.
+   */
+  public List<NamespaceVersion> getNamespaceVersions() {
+    var versions = new ArrayList<NamespaceVersion>();
+    for (String propertyType : memoryDataStore.getPropertyTypes().join()) {
+      for (String namespace : memoryDataStore.getPropertyNamespaces(propertyType).join()) {
+        versions.add(
+            new NamespaceVersion(
+                propertyType,
+                namespace,
+                memoryDataStore.getNamespaceVersion(propertyType, namespace)));
+      }
+    }
+    return versions;
+  }
+
+  /**
+   * Returns the serialized {@link GameDataDto} of a namespace, at the same or a newer version than
+   * the one returned by {@link #getNamespaceVersions()}. A namespace that has not changed since the
+   * last call returns the same bytes without serializing it again.
+   *
+   * @param type the property type of the namespace.
+   * @param namespace the namespace.
+   * @return a {@code CompletableFuture} containing the serialized namespace, or {@code null} if the
+   *     namespace no longer exists.
+   */
+  public CompletableFuture<byte[]> getNamespaceData(String type, String namespace) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          if (memoryDataStore.getNamespaceVersion(type, namespace) == 0) {
+            return null;
+          }
+          return getSnapshot(new NamespaceKey(type, namespace)).bytes();
+        });
+  }
+
+  /**
+   * Returns the snapshots of all namespaces, making them again for the namespaces that have
+   * changed and dropping those of namespaces that no longer exist.
+   *
+   * @return the snapshots of the namespaces.
+   */
+  private List<NamespaceSnapshot> getSnapshots() {
+    var current = new ArrayList<NamespaceSnapshot>();
+    var keys = new HashSet<NamespaceKey>();
+    for (String propertyType : memoryDataStore.getPropertyTypes().join()) {
+      for (String namespace : memoryDataStore.getPropertyNamespaces(propertyType).join()) {
+        var key = new NamespaceKey(propertyType, namespace);
+        keys.add(key);
+        current.add(getSnapshot(key));
+      }
+    }
+    snapshots.keySet().retainAll(keys);
+    return current;
+  }
+
+  /**
+   * Returns the snapshot of a namespace, making it again if the namespace has changed.
+   *
+   * @param key the namespace.
+   * @return the snapshot of the namespace.
+   */
+  private NamespaceSnapshot getSnapshot(NamespaceKey key) {
+    // Read the version first, a change while making the message is caught next time
+    long version = memoryDataStore.getNamespaceVersion(key.type(), key.namespace());
+    var snapshot = snapshots.get(key);
+    if (snapshot == null || snapshot.version() != version) {
+      var dto = memoryDataStore.toDto(key.type(), key.namespace()).join();
+      snapshot = new NamespaceSnapshot(version, dto, dto.toByteArray());
+      snapshots.put(key, snapshot);
+    }
+    return snapshot;
+  }
+
   /**
    * Returns all the {@link MD5Key} for assets in the data store.
    *
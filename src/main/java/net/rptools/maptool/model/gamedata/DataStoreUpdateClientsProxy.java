@@ -84,6 +84,51 @@ public CompletableFuture<Set<DataValue>> getProperties(String type, String names
     return dataStore.getProperties(type, namespace);
   }
 
+  @Override
+  public Set<String> getPropertyTypesSync() {
+    return dataStore.getPropertyTypesSync();
+  }
+
+  @Override
+  public Set<String> getPropertyNamespacesSync(String type) {
+    return dataStore.getPropertyNamespacesSync(type);
+  }
+
+  @Override
+  public boolean hasPropertyNamespaceSync(String type, String namespace) {
+    return dataStore.hasPropertyNamespaceSync(type, namespace);
+  }
+
+  @Override
+  public DataType getPropertyDataTypeSync(String type, String namespace, String name) {
+    return dataStore.getPropertyDataTypeSync(type, namespace, name);
+  }
+
+  @Override
+  public Map<String, DataType> getPropertyDataTypeMapSync(String type, String namespace) {
+    return dataStore.getPropertyDataTypeMapSync(type, namespace);
+  }
+
+  @Override
+  public boolean hasPropertySync(String type, String namespace, String name) {
+    return dataStore.hasPropertySync(type, namespace, name);
+  }
+
+  @Override
+  public boolean isPropertyDefinedSync(String type, String namespace, String name) {
+    return dataStore.isPropertyDefinedSync(type, namespace, name);
+  }
+
+  @Override
+  public DataValue getPropertySync(String type, String namespace, String name) {
+    return dataStore.getPropertySync(type, namespace, name);
+  }
+
+  @Override
+  public Set<DataValue> getPropertiesSync(String type, String namespace) {
+    return dataStore.getPropertiesSync(type, namespace);
+  }
+
   /**
    * Notifies remote clients of a change to a property.
    *
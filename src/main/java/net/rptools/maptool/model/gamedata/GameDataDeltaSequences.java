@@ -0,0 +1,72 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.gamedata;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps track of the sequence numbers of the game data deltas received from each source, so that
+ * deltas arriving out of order are not applied over newer ones.
+ */
+public class GameDataDeltaSequences {
+  private static final Logger log = Logger.getLogger(GameDataDeltaSequences.class);
+
+  private record DeltaSource(String source, String type, String namespace) {}
+
+  /** The sequence number of the last delta applied from each source and namespace. */
+  private final Map<DeltaSource, Long> lastSequences = new HashMap<>();
+
+  /**
+   * Checks the sequence number of a game data delta against the last delta applied from its source
+   * for the namespace. Deltas that are older than the last one applied are dropped, a gap in the
+   * sequence numbers means a delta was lost and is logged, after which the sequence continues from
+   * the delta.
+   *
+   * @param delta the delta.
+   * @return if the delta should be applied.
+   */
+  public synchronized boolean accept(GameDataDeltaDto delta) {
+    var key = new DeltaSource(delta.getSource(), delta.getType(), delta.getNamespace());
+    Long last = lastSequences.get(key);
+    if (last != null && delta.getSequence() <= last) {
+      log.warn(
+          "Ignoring out of order game data delta "
+              + delta.getSequence()
+              + " for "
+              + delta.getType()
+              + "/"
+              + delta.getNamespace()
+              + ", already at "
+              + last);
+      return false;
+    }
+    if (last != null && delta.getSequence() != last + 1) {
+      log.warn(
+          "Missed game data deltas "
+              + (last + 1)
+              + " to "
+              + (delta.getSequence() - 1)
+              + " for "
+              + delta.getType()
+              + "/"
+              + delta.getNamespace());
+    }
+    lastSequences.put(key, delta.getSequence());
+    return true;
+  }
+}
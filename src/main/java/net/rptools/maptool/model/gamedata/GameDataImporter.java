@@ -21,6 +21,7 @@
 import net.rptools.maptool.model.gamedata.data.DataType;
 import net.rptools.maptool.model.gamedata.data.DataValueFactory;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 
@@ -59,6 +60,24 @@ public void importData(GameDataDto data) throws ExecutionException, InterruptedE
     }
   }
 
+  /**
+   * Applies the changes of a delta to its namespace, which must already exist.
+   *
+   * @param delta the delta to apply.
+   * @throws ExecutionException if a change cannot be applied.
+   * @throws InterruptedException if interrupted while applying a change.
+   */
+  public void importData(GameDataDeltaDto delta) throws ExecutionException, InterruptedException {
+    String type = delta.getType();
+    String namespace = delta.getNamespace();
+    for (var value : delta.getValuesList()) {
+      importData(type, namespace, value);
+    }
+    for (String name : delta.getRemovedNamesList()) {
+      dataStore.removeProperty(type, namespace, name).get();
+    }
+  }
+
   public void importData(String type, String namespace, GameDataValueDto value)
       throws ExecutionException, InterruptedException {
     var dataValue =
@@ -18,7 +18,6 @@
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -27,6 +26,8 @@
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.model.Asset;
@@ -37,17 +38,33 @@
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import org.apache.log4j.Logger;
 
-/** Class that implements the DataStore interface. */
+/**
+ * Class that implements the DataStore interface, holding the data in memory.
+ *
+ * <p>The properties of each namespace are held in their own concurrent map, which is also the lock
+ * for changes to the namespace, so changes to different namespaces do not wait for each other and
+ * reads never wait at all. As all the data is in memory the returned {@code CompletableFuture}s are
+ * already complete, and the {@code ...Sync} read methods return the data directly.
+ */
 public class MemoryDataStore implements DataStore {
 
   private record PropertyTypeNamespace(String propertyType, String namespace) {}
 
-  /** Class used to cache definitions. */
-  private final Map<String, Set<String>> propertyTypeNamespaceMap =
-      Collections.synchronizedMap(new HashMap<>());
+  /** The namespaces of each property type. */
+  private final Map<String, Set<String>> propertyTypeNamespaceMap = new ConcurrentHashMap<>();
 
+  /**
+   * The properties of each namespace, by name. Changes to the properties of a namespace are made
+   * while holding the lock of its map.
+   */
   private final Map<PropertyTypeNamespace, Map<String, DataValue>> namespaceDataMap =
-      Collections.synchronizedMap(new HashMap<>());
+      new ConcurrentHashMap<>();
+
+  /** The version of each namespace, a new version is taken each time the namespace changes. */
+  private final Map<PropertyTypeNamespace, Long> namespaceVersions = new ConcurrentHashMap<>();
+
+  /** Source of the namespace versions, never reset so that a version is never used twice. */
+  private final AtomicLong lastVersion = new AtomicLong();
 
   /** Class for logging. */
   private static final Logger log = Logger.getLogger(MemoryDataStore.class);
@@ -55,36 +72,80 @@ private record PropertyTypeNamespace(String propertyType, String namespace) {}
   /** Creates a new MemoryDataStore. */
   MemoryDataStore() {}
 
+  /**
+   * Runs an operation on the calling thread and returns its result, or its exception, as a
+   * completed {@code CompletableFuture}.
+   *
+   * @param operation the operation to run.
+   * @param <T> the type of the result.
+   * @return the completed {@code CompletableFuture}.
+   */
+  private static <T> CompletableFuture<T> complete(Supplier<T> operation) {
+    try {
+      return CompletableFuture.completedFuture(operation.get());
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Takes a new version for a namespace after it has changed. Must be called while holding the
+   * lock of the namespace so the versions follow the order of the changes.
+   *
+   * @param propertyType the property type.
+   * @param namespace the namespace.
+   */
+  private void changed(String propertyType, String namespace) {
+    namespaceVersions.put(
+        new PropertyTypeNamespace(propertyType, namespace), lastVersion.incrementAndGet());
+  }
+
+  /**
+   * Returns the version of a namespace. The version changes each time a property of the namespace
+   * is set or removed, or the namespace is created or cleared, so a {@link #toDto(String, String)}
+   * of the namespace made at the same version can be used again.
+   *
+   * @param propertyType the property type.
+   * @param namespace the namespace.
+   * @return the version of the namespace, 0 if it does not exist.
+   */
+  long getNamespaceVersion(String propertyType, String namespace) {
+    return namespaceVersions.getOrDefault(new PropertyTypeNamespace(propertyType, namespace), 0L);
+  }
+
   /**
    * Returns if the namespace exists for the property type.
    *
    * @return if the namespace exists for the property type.
    */
   private boolean checkPropertyNamespace(String propertyType, String namespace) {
-    if (propertyTypeNamespaceMap.containsKey(propertyType)) {
-      var propertyTypeNamespaces = propertyTypeNamespaceMap.get(propertyType);
-      return propertyTypeNamespaces.contains(namespace);
-    }
-    return false;
+    var propertyTypeNamespaces = propertyTypeNamespaceMap.get(propertyType);
+    return propertyTypeNamespaces != null && propertyTypeNamespaces.contains(namespace);
   }
 
   @Override
   public CompletableFuture<Set<String>> getPropertyTypes() {
-    return CompletableFuture.completedFuture(new HashSet<>(propertyTypeNamespaceMap.keySet()));
+    return CompletableFuture.completedFuture(getPropertyTypesSync());
+  }
+
+  @Override
+  public Set<String> getPropertyTypesSync() {
+    return new HashSet<>(propertyTypeNamespaceMap.keySet());
   }
 
   @Override
   public CompletableFuture<Set<String>> getPropertyNamespaces(String type) {
+    return CompletableFuture.completedFuture(getPropertyNamespacesSync(type));
+  }
 
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var propertyTypeNamespace = propertyTypeNamespaceMap.get(type);
-          if (propertyTypeNamespace != null) {
-            return new HashSet<>(propertyTypeNamespace);
-          } else {
-            return new HashSet<>();
-          }
-        });
+  @Override
+  public Set<String> getPropertyNamespacesSync(String type) {
+    var propertyTypeNamespace = propertyTypeNamespaceMap.get(type);
+    if (propertyTypeNamespace != null) {
+      return new HashSet<>(propertyTypeNamespace);
+    } else {
+      return new HashSet<>();
+    }
   }
 
   @Override
@@ -92,6 +153,11 @@ public CompletableFuture<Boolean> hasPropertyNamespace(String type, String names
     return CompletableFuture.completedFuture(checkPropertyNamespace(type, namespace));
   }
 
+  @Override
+  public boolean hasPropertyNamespaceSync(String type, String namespace) {
+    return checkPropertyNamespace(type, namespace);
+  }
+
   /**
    * Returns the data value for the given property type, namespace and name. This will return null
    * if the data does not exist.
@@ -110,76 +176,79 @@ private DataValue getData(String type, String namespace, String name) {
   @Override
   public CompletableFuture<DataType> getPropertyDataType(
       String type, String namespace, String name) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var data = getData(type, namespace, name);
-          return data == null ? DataType.UNDEFINED : data.getDataType();
-        });
+    return CompletableFuture.completedFuture(getPropertyDataTypeSync(type, namespace, name));
+  }
+
+  @Override
+  public DataType getPropertyDataTypeSync(String type, String namespace, String name) {
+    var data = getData(type, namespace, name);
+    return data == null ? DataType.UNDEFINED : data.getDataType();
   }
 
   @Override
   public CompletableFuture<Map<String, DataType>> getPropertyDataTypeMap(
       String type, String namespace) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var dataTypeMap = new HashMap<String, DataType>();
-          var values = namespaceDataMap.get(new PropertyTypeNamespace(type, namespace));
-          if (values != null) {
-            for (var value : values.values()) {
-              dataTypeMap.put(value.getName(), value.getDataType());
-            }
-          }
+    return CompletableFuture.completedFuture(getPropertyDataTypeMapSync(type, namespace));
+  }
 
-          return dataTypeMap;
-        });
+  @Override
+  public Map<String, DataType> getPropertyDataTypeMapSync(String type, String namespace) {
+    var dataTypeMap = new HashMap<String, DataType>();
+    var values = namespaceDataMap.get(new PropertyTypeNamespace(type, namespace));
+    if (values != null) {
+      for (var value : values.values()) {
+        dataTypeMap.put(value.getName(), value.getDataType());
+      }
+    }
+
+    return dataTypeMap;
   }
 
   @Override
   public CompletableFuture<Boolean> hasProperty(String type, String namespace, String name) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var def = getData(type, namespace, name);
-          if (def != null) {
-            return Boolean.TRUE;
-          } else {
-            return Boolean.FALSE;
-          }
-        });
+    return CompletableFuture.completedFuture(hasPropertySync(type, namespace, name));
+  }
+
+  @Override
+  public boolean hasPropertySync(String type, String namespace, String name) {
+    return getData(type, namespace, name) != null;
   }
 
   @Override
   public CompletableFuture<Boolean> isPropertyDefined(String type, String namespace, String name) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var data = getData(type, namespace, name);
-          if (data != null) {
-            return !data.isUndefined();
-          } else {
-            return Boolean.FALSE;
-          }
-        });
+    return CompletableFuture.completedFuture(isPropertyDefinedSync(type, namespace, name));
+  }
+
+  @Override
+  public boolean isPropertyDefinedSync(String type, String namespace, String name) {
+    var data = getData(type, namespace, name);
+    return data != null && !data.isUndefined();
   }
 
   @Override
   public CompletableFuture<DataValue> getProperty(String type, String namespace, String name) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var prop = getData(type, namespace, name);
-          return Objects.requireNonNullElseGet(prop, () -> DataValueFactory.undefined(name));
-        });
+    return CompletableFuture.completedFuture(getPropertySync(type, namespace, name));
+  }
+
+  @Override
+  public DataValue getPropertySync(String type, String namespace, String name) {
+    var prop = getData(type, namespace, name);
+    return Objects.requireNonNullElseGet(prop, () -> DataValueFactory.undefined(name));
   }
 
   @Override
   public CompletableFuture<Set<DataValue>> getProperties(String type, String namespace) {
-    return CompletableFuture.supplyAsync(
-        () -> {
-          var values = namespaceDataMap.get(new PropertyTypeNamespace(type, namespace));
-          if (values != null) {
-            return Set.copyOf(values.values());
-          } else {
-            return Set.of();
-          }
-        });
+    return CompletableFuture.completedFuture(getPropertiesSync(type, namespace));
+  }
+
+  @Override
+  public Set<DataValue> getPropertiesSync(String type, String namespace) {
+    var values = namespaceDataMap.get(new PropertyTypeNamespace(type, namespace));
+    if (values != null) {
+      return Set.copyOf(values.values());
+    } else {
+      return Set.of();
+    }
   }
 
   /**
@@ -194,88 +263,85 @@ private DataValue setData(String type, String namespace, DataValue value) {
       throw InvalidDataOperation.createNamespaceDoesNotExist(namespace, type);
     }
 
-    DataValue setValue = value;
-    var existing = getData(type, namespace, value.getName());
-    // If no value exists we can put anything there, if a value exists we have to check type
-    // is
-    // correct
     var dataMap =
         namespaceDataMap.computeIfAbsent(
             new PropertyTypeNamespace(type, namespace), k -> new ConcurrentHashMap<>());
-    if (existing == null) {
+    synchronized (dataMap) {
+      DataValue setValue = value;
+      var existing = dataMap.get(value.getName());
+      // If no value exists we can put anything there, if a value exists we have to check type
+      // is correct
+      if (existing == null) {
+        dataMap.put(value.getName(), value);
+      } else {
+        var newValue = DataType.convert(value, existing.getDataType());
+        dataMap.put(newValue.getName(), newValue);
+        setValue = newValue;
+      }
+      changed(type, namespace);
 
-      dataMap.put(value.getName(), value);
-    } else {
-      var newValue = DataType.convert(value, existing.getDataType());
-      dataMap.put(newValue.getName(), newValue);
-      setValue = newValue;
+      return setValue;
     }
-
-    return setValue;
   }
 
   @Override
   public CompletableFuture<DataValue> setProperty(String type, String namespace, DataValue value) {
-    return CompletableFuture.supplyAsync(() -> setData(type, namespace, value));
+    return complete(() -> setData(type, namespace, value));
   }
 
   @Override
   public CompletableFuture<DataValue> setLongProperty(
       String type, String namespace, String name, long value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromLong(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromLong(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setDoubleProperty(
       String type, String namespace, String name, double value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromDouble(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromDouble(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setStringProperty(
       String type, String namespace, String name, String value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromString(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromString(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setBooleanProperty(
       String type, String namespace, String name, boolean value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromBoolean(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromBoolean(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setJsonArrayProperty(
       String type, String namespace, String name, JsonArray value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromJsonArray(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromJsonArray(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setJsonObjectProperty(
       String type, String namespace, String name, JsonObject value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromJsonObject(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromJsonObject(name, value)));
   }
 
   @Override
   public CompletableFuture<DataValue> setAssetProperty(
       String type, String namespace, String name, Asset value) {
-    return CompletableFuture.supplyAsync(
-        () -> setData(type, namespace, DataValueFactory.fromAsset(name, value)));
+    return complete(() -> setData(type, namespace, DataValueFactory.fromAsset(name, value)));
   }
 
   @Override
   public CompletableFuture<Void> removeProperty(String type, String namespace, String name) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
-          var key = new PropertyTypeNamespace(type, namespace);
-          var dataMap = namespaceDataMap.get(key);
+          var dataMap = namespaceDataMap.get(new PropertyTypeNamespace(type, namespace));
           if (dataMap != null) {
-            dataMap.remove(name);
+            synchronized (dataMap) {
+              if (dataMap.remove(name) != null) {
+                changed(type, namespace);
+              }
+            }
           }
           return null;
         });
@@ -291,24 +357,26 @@ public CompletableFuture<Void> removeProperty(String type, String namespace, Str
   private void createDataNamespace(
       String propertyType, String namespace, Collection<DataValue> initialData) {
 
-    Set<String> namespaces =
-        propertyTypeNamespaceMap.computeIfAbsent(
-            propertyType, k -> Collections.synchronizedSet(new HashSet<>()));
-
-    namespaces.add(namespace);
-
     var dataMap =
         namespaceDataMap.computeIfAbsent(
             new PropertyTypeNamespace(propertyType, namespace), k -> new ConcurrentHashMap<>());
 
-    for (var dataValue : initialData) {
-      dataMap.put(dataValue.getName(), dataValue);
+    synchronized (dataMap) {
+      for (var dataValue : initialData) {
+        dataMap.put(dataValue.getName(), dataValue);
+      }
+      changed(propertyType, namespace);
     }
+
+    // Added last so the namespace is not seen before its initial data
+    propertyTypeNamespaceMap
+        .computeIfAbsent(propertyType, k -> ConcurrentHashMap.newKeySet())
+        .add(namespace);
   }
 
   @Override
   public CompletableFuture<Void> createNamespace(String propertyType, String namespace) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
           createDataNamespace(propertyType, namespace, List.of());
           return null;
@@ -318,7 +386,7 @@ public CompletableFuture<Void> createNamespace(String propertyType, String names
   @Override
   public CompletableFuture<Void> createNamespaceWithInitialData(
       String propertyType, String namespace, Collection<DataValue> initialData) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
           createDataNamespace(propertyType, namespace, initialData);
           return null;
@@ -328,7 +396,7 @@ public CompletableFuture<Void> createNamespaceWithInitialData(
   @Override
   public CompletableFuture<Void> createNamespaceWithTypes(
       String propertyType, String namespace, Map<String, DataType> dataTypes) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
           createDataNamespace(
               propertyType,
@@ -342,12 +410,12 @@ public CompletableFuture<Void> createNamespaceWithTypes(
 
   @Override
   public CompletableFuture<GameDataDto> toDto(String type, String namespace) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
           var builder = GameDataDto.newBuilder();
           builder.setType(type);
           builder.setNamespace(namespace);
-          for (var data : getProperties(type, namespace).join()) {
+          for (var data : getPropertiesSync(type, namespace)) {
             var dataDto = gameValueToDto(data);
             builder.addValues(dataDto);
           }
@@ -357,7 +425,7 @@ public CompletableFuture<GameDataDto> toDto(String type, String namespace) {
 
   @Override
   public CompletableFuture<GameDataValueDto> toDto(DataValue data) {
-    return CompletableFuture.supplyAsync(() -> gameValueToDto(data));
+    return complete(() -> gameValueToDto(data));
   }
 
   /**
@@ -427,7 +495,7 @@ private GameDataValueDto gameValueToDto(DataValue data) {
 
   @Override
   public CompletableFuture<Set<MD5Key>> getAssets() {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () ->
             namespaceDataMap.values().stream()
                 .flatMap(m -> m.values().stream())
@@ -440,13 +508,20 @@ public CompletableFuture<Set<MD5Key>> getAssets() {
   public void clear() {
     propertyTypeNamespaceMap.clear();
     namespaceDataMap.clear();
+    namespaceVersions.clear();
   }
 
   @Override
   public CompletableFuture<Void> clearNamespace(String propertyType, String namespace) {
-    return CompletableFuture.supplyAsync(
+    return complete(
         () -> {
-          namespaceDataMap.remove(new PropertyTypeNamespace(propertyType, namespace));
+          var dataMap = namespaceDataMap.get(new PropertyTypeNamespace(propertyType, namespace));
+          if (dataMap != null) {
+            synchronized (dataMap) {
+              dataMap.clear();
+              changed(propertyType, namespace);
+            }
+          }
           return null;
         });
   }
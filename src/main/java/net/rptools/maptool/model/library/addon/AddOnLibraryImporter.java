@@ -14,15 +14,19 @@
  */
 package net.rptools.maptool.model.library.addon;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.protobuf.util.JsonFormat;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.swing.filechooser.FileFilter;
@@ -55,6 +59,13 @@ public class AddOnLibraryImporter {
   /** The name of the file with event properties. */
   public static final String EVENT_PROPERTY_FILE = "events.json";
 
+  /**
+   * The libraries imported so far, by the key of the library asset, so that a library is not
+   * imported again every time it is sent by the server.
+   */
+  private static final Cache<MD5Key, AddOnLibrary> libraryCache =
+      CacheBuilder.newBuilder().softValues().build();
+
   /**
    * Returns the {@link FileFilter} for add on library files.
    *
@@ -93,16 +104,24 @@ public static boolean isAddOnLibrary(String fileName) {
    * @throws IOException if an error occurs while reading the asset.
    */
   public AddOnLibrary importFromAsset(Asset asset) throws IOException {
+    AddOnLibrary cached = libraryCache.getIfPresent(asset.getMD5Key());
+    if (cached != null) {
+      return cached;
+    }
+
     // Copy the data to temporary file, its a bit hacky, but it works, and we can't create a
     // ZipFile from anything but a file.
     File tempFile = File.createTempFile("mtlib", "tmp");
     tempFile.deleteOnExit();
 
-    try (OutputStream outputStream = Files.newOutputStream(tempFile.toPath())) {
-      outputStream.write(asset.getData());
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(tempFile.toPath())) {
+        outputStream.write(asset.getData());
+      }
+      return importFromFile(tempFile);
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
     }
-
-    return importFromFile(tempFile);
   }
 
   /**
@@ -113,7 +132,14 @@ public AddOnLibrary importFromAsset(Asset asset) throws IOException {
    * @throws IOException if an error occurs while reading the asset.
    */
   public AddOnLibrary importFromFile(File file) throws IOException {
-    var diiBuilder = AddOnLibraryDto.newBuilder();
+    MD5Key libraryKey;
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+      libraryKey = new MD5Key(inputStream);
+    }
+    AddOnLibrary cached = libraryCache.getIfPresent(libraryKey);
+    if (cached != null) {
+      return cached;
+    }
 
     try (var zip = new ZipFile(file)) {
       ZipEntry entry = zip.getEntry(LIBRARY_INFO_FILE);
@@ -140,21 +166,26 @@ public AddOnLibrary importFromFile(File file) throws IOException {
             .merge(new InputStreamReader(zip.getInputStream(eventsZipEntry)), eventPropBuilder);
       }
       var addOnLib = builder.build();
-      byte[] data = Files.readAllBytes(file.toPath());
-      var asset = Type.MTLIB.getFactory().apply(addOnLib.getNamespace(), data);
-      addAsset(asset);
-
-      return AddOnLibrary.fromDto(
-          asset.getMD5Key(),
-          addOnLib,
-          mtsPropBuilder.build(),
-          eventPropBuilder.build(),
-          pathAssetMap);
+      if (!AssetManager.hasAsset(libraryKey)) {
+        byte[] data = Files.readAllBytes(file.toPath());
+        AssetManager.putAsset(Type.MTLIB.getFactory().apply(addOnLib.getNamespace(), data));
+      }
+
+      var addOnLibrary =
+          AddOnLibrary.fromDto(
+              libraryKey,
+              addOnLib,
+              mtsPropBuilder.build(),
+              eventPropBuilder.build(),
+              pathAssetMap);
+      libraryCache.put(libraryKey, addOnLibrary);
+      return addOnLibrary;
     }
   }
 
   /**
-   * Reads the assets from the add-on library and adds them to the asset manager.
+   * Reads the assets from the add-on library and adds them to the asset manager. The entries are
+   * processed in parallel.
    *
    * @param namespace the namespace of the add-on library.
    * @param zip the zipfile containing the add-on library.
@@ -163,13 +194,48 @@ public AddOnLibrary importFromFile(File file) throws IOException {
    */
   private Map<String, Pair<MD5Key, Type>> processAssets(String namespace, ZipFile zip)
       throws IOException {
-    var pathAssetMap = new HashMap<String, Pair<MD5Key, Type>>();
     var entries =
         zip.stream()
             .filter(e -> !e.isDirectory())
             .filter(e -> e.getName().startsWith(CONTENT_DIRECTORY))
             .toList();
-    for (var entry : entries) {
+    try {
+      return entries.parallelStream()
+          .collect(
+              Collectors.toConcurrentMap(
+                  e -> e.getName().substring(CONTENT_DIRECTORY.length()),
+                  e -> processAsset(namespace, zip, e)));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reads an asset from the add-on library and adds it to the asset manager. The entry is hashed
+   * as it is read, it is only read into memory if the asset manager does not have it yet.
+   *
+   * @param namespace the namespace of the add-on library.
+   * @param zip the zipfile containing the add-on library.
+   * @param entry the entry of the asset.
+   * @return the asset details.
+   * @throws UncheckedIOException if there is an error reading the asset.
+   */
+  private Pair<MD5Key, Type> processAsset(String namespace, ZipFile zip, ZipEntry entry) {
+    try {
+      MD5Key key;
+      try (InputStream inputStream = zip.getInputStream(entry)) {
+        key = new MD5Key(inputStream);
+      }
+      if (AssetManager.hasAsset(key)) {
+        try (InputStream inputStream = zip.getInputStream(entry)) {
+          Type type = Type.fromMediaType(Asset.getMediaType(entry.getName(), inputStream));
+          // Invalid entries are replaced by a broken image asset, which is never cached
+          if (type != Type.INVALID) {
+            return Pair.with(key, type);
+          }
+        }
+      }
+
       String path = entry.getName().substring(CONTENT_DIRECTORY.length());
       try (InputStream inputStream = zip.getInputStream(entry)) {
         byte[] bytes = inputStream.readAllBytes();
@@ -177,10 +243,11 @@ private Map<String, Pair<MD5Key, Type>> processAssets(String namespace, ZipFile
         Asset asset =
             Type.fromMediaType(mediaType).getFactory().apply(namespace + "/" + path, bytes);
         addAsset(asset);
-        pathAssetMap.put(path, Pair.with(asset.getMD5Key(), asset.getType()));
+        return Pair.with(asset.getMD5Key(), asset.getType());
       }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    return pathAssetMap;
   }
 
   /**
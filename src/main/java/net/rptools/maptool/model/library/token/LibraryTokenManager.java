@@ -150,7 +150,7 @@ public void init() {
     SwingUtilities.invokeLater(
         () -> {
           var tokens = new ArrayList<Token>();
-          for (var zone : MapTool.getCampaign().getZones()) {
+          for (var zone : MapTool.getCampaign().getZonesWithLibTokens()) {
             tokens.addAll(
                 zone.getTokensFiltered(f -> f.getName().toLowerCase().startsWith("lib:")));
           }
@@ -197,7 +197,7 @@ private CompletableFuture<List<Library>> getMatchingLibraryList(String property,
         .runOnSwingThread(
             () -> {
               List<Library> tokenList = new ArrayList<>();
-              for (var zone : MapTool.getCampaign().getZones()) {
+              for (var zone : MapTool.getCampaign().getZonesWithLibTokens()) {
                 tokenList.addAll(
                     zone
                         .getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"))
@@ -267,14 +267,14 @@ private static Library findLibrary(URL path) {
   }
 
   /**
-   * Returns a list of all tokens that match the specified name (case-insensitive)
+   * Returns a list of all library tokens that match the specified name (case-insensitive)
    *
-   * @param name the name to match.
+   * @param name the name to match, starting with "lib:".
    * @return list of tokens.
    */
   private static List<Token> getTokensWithName(String name) {
     List<Token> tokenList = new ArrayList<Token>();
-    for (var zone : MapTool.getCampaign().getZones()) {
+    for (var zone : MapTool.getCampaign().getZonesWithLibTokens()) {
       tokenList.addAll(zone.getTokensFiltered(t -> name.equalsIgnoreCase(t.getName())));
     }
 
@@ -288,7 +288,7 @@ private static List<Token> getTokensWithName(String name) {
    * @return the Token for the library.
    */
   private Token findLibrary(GUID id) {
-    for (var zone : MapTool.getCampaign().getZones()) {
+    for (var zone : MapTool.getCampaign().getZones(s -> s.getLibTokenIds().contains(id))) {
       var token = zone.getToken(id);
       if (token != null) {
         return token;
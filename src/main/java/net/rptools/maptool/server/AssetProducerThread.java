@@ -0,0 +1,60 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Sends the assets requested by clients, in chunks, for one or more servers. */
+class AssetProducerThread extends Thread {
+  private final List<MapToolServer> servers = new CopyOnWriteArrayList<>();
+  private volatile boolean stop = false;
+
+  AssetProducerThread() {
+    setName("AssetProducerThread");
+  }
+
+  void addServer(MapToolServer server) {
+    servers.add(server);
+  }
+
+  void removeServer(MapToolServer server) {
+    servers.remove(server);
+  }
+
+  @Override
+  public void run() {
+    while (!stop) {
+      boolean lookForMore = false;
+      for (MapToolServer server : servers) {
+        lookForMore |= server.sendAssetChunks();
+      }
+      if (lookForMore) {
+        continue;
+      }
+      // Sleep for a bit
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException e) {
+        // Check if we are stopped
+      }
+    }
+  }
+
+  void shutdown() {
+    stop = true;
+    interrupt();
+  }
+}
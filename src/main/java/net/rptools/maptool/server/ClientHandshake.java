@@ -83,6 +83,8 @@ public class ClientHandshake implements Handshake, MessageHandler {
   private final ClientConnection connection;
   /** The player for the client. */
   private final LocalPlayer player;
+  /** The campaign session to join, {@code null} for the default one. */
+  private final String sessionName;
   /** Observers that want to be notified when the status changes. */
   private final List<HandshakeObserver> observerList = new CopyOnWriteArrayList<>();
   /** Message for any error that has occurred, {@code null} if no error has occurred. */
@@ -105,8 +107,20 @@ public class ClientHandshake implements Handshake, MessageHandler {
   private State currentState = State.AwaitingUseAuthType;
 
   public ClientHandshake(ClientConnection connection, LocalPlayer player) {
+    this(connection, player, null);
+  }
+
+  /**
+   * Creates a handshake with a server that runs several campaign sessions.
+   *
+   * @param connection the connection to the server.
+   * @param player the player connecting.
+   * @param sessionName the name of the session to join, null for the default one.
+   */
+  public ClientHandshake(ClientConnection connection, LocalPlayer player, String sessionName) {
     this.connection = connection;
     this.player = player;
+    this.sessionName = sessionName;
   }
 
   private synchronized JDialog getEasyConnectDialog() {
@@ -133,7 +147,8 @@ public void startHandshake() throws ExecutionException, InterruptedException {
         ClientInitMsg.newBuilder()
             .setPlayerName(player.getName())
             .setVersion(MapTool.getVersion())
-            .setPublicKeyMd5(md5key.toString());
+            .setPublicKeyMd5(md5key.toString())
+            .setSessionName(sessionName == null ? "" : sessionName);
     var handshakeMsg = HandshakeMsg.newBuilder().setClientInitMsg(clientInitMsg).build();
 
     sendMessage(handshakeMsg);
@@ -166,6 +181,8 @@ public void handleMessage(String id, byte[] message) {
           errorMessage = I18N.getText("Handshake.msg.playerAlreadyConnected");
         } else if (code.equals(HandshakeResponseCodeMsg.WRONG_VERSION)) {
           errorMessage = I18N.getText("Handshake.msg.wrongVersion");
+        } else if (code.equals(HandshakeResponseCodeMsg.UNKNOWN_SESSION)) {
+          errorMessage = I18N.getText("Handshake.msg.unknownSession");
         } else {
           errorMessage = I18N.getText("Handshake.msg.invalidHandshake");
         }
@@ -0,0 +1,48 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import net.rptools.maptool.model.player.PlayerAwaitingApproval;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Host of a server that runs without a user interface. Messages go to the log, and as there is
+ * nobody to approve them, players connecting with easy connect are denied.
+ */
+public class HeadlessServerHost implements ServerHost {
+  private static final Logger log = LogManager.getLogger(HeadlessServerHost.class);
+
+  @Override
+  public void showMessage(String message) {
+    log.info(message);
+  }
+
+  @Override
+  public void showWarning(String message, Throwable cause) {
+    log.warn(message, cause);
+  }
+
+  @Override
+  public void addAwaitingApproval(PlayerAwaitingApproval player) {
+    log.warn("Denied easy connect request of " + player.name() + ", nobody can approve it.");
+    player.denyCallback().accept(player);
+  }
+
+  @Override
+  public void removeAwaitingApproval(String name) {
+    // Nothing is waiting
+  }
+}
@@ -14,34 +14,45 @@
  */
 package net.rptools.maptool.server;
 
-import static net.rptools.maptool.model.player.PlayerDatabaseFactory.PlayerDatabaseType.PERSONAL_SERVER;
+import static net.rptools.maptool.model.player.PlayerDatabaseFactory.PlayerDatabaseType.PASSWORD_FILE;
 
+import java.io.File;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
-import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.client.ClientConnection;
 import net.rptools.clientserver.simple.server.ServerObserver;
+import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.client.ClientCommand;
-import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.MapToolRegistry;
-import net.rptools.maptool.client.ui.ConnectionInfoDialog;
 import net.rptools.maptool.common.MapToolConstants;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Campaign;
 import net.rptools.maptool.model.TextMessage;
+import net.rptools.maptool.model.player.PasswordFilePlayerDatabase;
 import net.rptools.maptool.model.player.PlayerDatabase;
 import net.rptools.maptool.model.player.PlayerDatabaseFactory;
 import net.rptools.maptool.transfer.AssetChunk;
 import net.rptools.maptool.transfer.AssetProducer;
 import net.rptools.maptool.transfer.AssetTransferManager;
+import net.rptools.maptool.util.PersistenceUtil;
+import net.rptools.maptool.util.PersistenceUtil.PersistedCampaign;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-/** @author drice */
+/**
+ * The server of a campaign. It only depends on its {@link ServerHost} to talk to the person running
+ * it, so it runs the same inside the MapTool frame and headless through {@link #main(String[])}.
+ *
+ * @author drice
+ */
 public class MapToolServer {
   private static final Logger log = LogManager.getLogger(MapToolServer.class);
   private static final int ASSET_CHUNK_SIZE = 5 * 1024;
@@ -50,21 +61,46 @@ public class MapToolServer {
   private final ServerMethodHandler handler;
   private final ServerConfig config;
   private final PlayerDatabase playerDatabase;
+  private final ServerHost host;
 
   private final Map<String, AssetTransferManager> assetManagerMap =
       Collections.synchronizedMap(new HashMap<String, AssetTransferManager>());
   private final Map<String, ClientConnection> connectionMap =
       Collections.synchronizedMap(new HashMap<String, ClientConnection>());
   private final AssetProducerThread assetProducerThread;
+  private final boolean ownAssetProducerThread;
+  private final TrafficStatistics trafficStatistics = new TrafficStatistics(this);
 
   private Campaign campaign;
   private ServerPolicy policy;
   private HeartbeatThread heartbeatThread;
 
-  public MapToolServer(ServerConfig config, ServerPolicy policy, PlayerDatabase playerDb)
+  public MapToolServer(
+      ServerConfig config, ServerPolicy policy, PlayerDatabase playerDb, ServerHost host)
+      throws IOException {
+    this(config, policy, playerDb, host, null);
+  }
+
+  /**
+   * Creates a server, which may send its assets with the thread of another server.
+   *
+   * @param config the configuration of the server.
+   * @param policy the policy of the server.
+   * @param playerDb the players allowed to connect.
+   * @param host the application the server runs in.
+   * @param sharedAssetProducer the thread to send the assets with, null to start one.
+   * @throws IOException if the connection can't be created.
+   */
+  MapToolServer(
+      ServerConfig config,
+      ServerPolicy policy,
+      PlayerDatabase playerDb,
+      ServerHost host,
+      AssetProducerThread sharedAssetProducer)
       throws IOException {
     this.config = config;
     this.policy = policy;
+    this.host = host;
     handler = new ServerMethodHandler(this);
     playerDatabase = playerDb;
     conn = new MapToolServerConnection(this, playerDatabase);
@@ -72,8 +108,14 @@ public MapToolServer(ServerConfig config, ServerPolicy policy, PlayerDatabase pl
 
     campaign = new Campaign();
 
-    assetProducerThread = new AssetProducerThread();
-    assetProducerThread.start();
+    ownAssetProducerThread = sharedAssetProducer == null;
+    if (ownAssetProducerThread) {
+      assetProducerThread = new AssetProducerThread();
+      assetProducerThread.start();
+    } else {
+      assetProducerThread = sharedAssetProducer;
+    }
+    assetProducerThread.addServer(this);
 
     // Start a heartbeat if requested
     if (config.isServerRegistered()) {
@@ -92,6 +134,18 @@ public ClientConnection getClientConnection(String id) {
     return connectionMap.get(id);
   }
 
+  /** @return the connections to the clients. */
+  public Collection<ClientConnection> getClientConnections() {
+    synchronized (connectionMap) {
+      return new ArrayList<>(connectionMap.values());
+    }
+  }
+
+  /** @return the network traffic of the server. */
+  public TrafficStatistics getTrafficStatistics() {
+    return trafficStatistics;
+  }
+
   public String getConnectionId(String playerId) {
     return conn.getConnectionId(playerId);
   }
@@ -165,12 +219,34 @@ public ServerConfig getConfig() {
     return config;
   }
 
+  /** @return the application the server runs in. */
+  public ServerHost getHost() {
+    return host;
+  }
+
+  /**
+   * Sends a message to the GMs connected to the server. The player running the server is left out,
+   * as the host tells them.
+   *
+   * @param message the message.
+   */
+  private void sendGmMessage(String message) {
+    String hostId =
+        config.getHostPlayerId() == null ? null : conn.getConnectionId(config.getHostPlayerId());
+    conn.broadcastCallMethod(
+        hostId == null ? new String[0] : new String[] {hostId},
+        ClientCommand.COMMAND.message.name(),
+        TextMessage.gm(null, message));
+  }
+
   public void stop() {
     conn.close();
+    trafficStatistics.stopLog();
     if (heartbeatThread != null) {
       heartbeatThread.shutdown();
     }
-    if (assetProducerThread != null) {
+    assetProducerThread.removeServer(this);
+    if (ownAssetProducerThread) {
       assetProducerThread.shutdown();
     }
   }
@@ -179,6 +255,15 @@ public void stop() {
 
   public void start() throws IOException {
     conn.open();
+    if (config.getTrafficLogInterval() > 0) {
+      String name =
+          config.getSessionName() == null
+              ? "server"
+              : config.getSessionName().replaceAll("[^\\w.-]", "_");
+      String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+      File file = new File(AppUtil.getAppHome("logs"), "traffic-" + name + "-" + time + ".jsonl");
+      trafficStatistics.startLog(file, config.getTrafficLogInterval());
+    }
   }
 
   private class HeartbeatThread extends Thread {
@@ -192,24 +277,20 @@ private class HeartbeatThread extends Thread {
     public void run() {
       int WARNING_TIME = 2; // number of heartbeats before popup warning
       int errors = 0;
-      String IP_addr = ConnectionInfoDialog.getExternalAddress();
+      String IP_addr = MapToolRegistry.getInstance().getAddress();
       int port = getConfig().getPort();
 
       while (!stop) {
         try {
           Thread.sleep(HEARTBEAT_DELAY + (int) (HEARTBEAT_FLUX * random.nextFloat()));
           // Pulse
-          MapToolRegistry.getInstance().heartBeat();
+          MapToolRegistry.getInstance()
+              .heartBeat(conn.getPlayerCount(), getCampaign().getZoneCount());
           // If the heartbeat worked, reset the counter if the last one failed
           if (errors != 0) {
             String msg = I18N.getText("msg.info.heartbeat.registrySuccess", errors);
-            SwingUtilities.invokeLater(
-                () -> {
-                  // Write to the GM's console. (Code taken from client.functions.ChatFunction)
-                  MapTool.serverCommand().message(TextMessage.gm(null, msg));
-                  // Write to our console. (Code taken from client.functions.ChatFunction)
-                  MapTool.addServerMessage(TextMessage.me(null, msg));
-                });
+            sendGmMessage(msg);
+            host.showMessage(msg);
             errors = 0;
             WARNING_TIME = 2;
           }
@@ -232,22 +313,15 @@ public void run() {
             // We use a linear backoff so we don't inundate the user with popups!
 
             String msg = I18N.getText("msg.info.heartbeat.registryFailure", IP_addr, port, errors);
-            SwingUtilities.invokeLater(
-                () -> {
-                  // Write to the GM's console. (Code taken from client.functions.ChatFunction)
-                  MapTool.serverCommand().message(TextMessage.gm(null, msg));
-                  // Write to our console. (Code taken from client.functions.ChatFunction)
-                  MapTool.addServerMessage(TextMessage.me(null, msg));
-
-                  // This is the first time the heartbeat has failed in this stretch of time.
-                  // Only writes to the log on the first error. Should it always add an entry?
-                  if (!ever_had_an_error) {
-                    ever_had_an_error = true;
-                    // Uses a popup to tell the user what's going on. Includes a 'Logger.warn()'
-                    // message.
-                    MapTool.showWarning(msg, e);
-                  }
-                });
+            sendGmMessage(msg);
+            host.showMessage(msg);
+
+            // This is the first time the heartbeat has failed in this stretch of time.
+            // Only warns on the first error. Should it always add an entry?
+            if (!ever_had_an_error) {
+              ever_had_an_error = true;
+              host.showWarning(msg, e);
+            }
           }
         }
       }
@@ -259,60 +333,95 @@ public void shutdown() {
     }
   }
 
-  ////
-  // CLASSES
-  private class AssetProducerThread extends Thread {
-    private boolean stop = false;
-
-    public AssetProducerThread() {
-      setName("AssetProducerThread");
-    }
-
-    @Override
-    public void run() {
-      while (!stop) {
-        Entry<String, AssetTransferManager> entryForException = null;
-        try {
-          boolean lookForMore = false;
-          for (Entry<String, AssetTransferManager> entry : assetManagerMap.entrySet()) {
-            entryForException = entry;
-            AssetChunk chunk = entry.getValue().nextChunk(ASSET_CHUNK_SIZE);
-            if (chunk != null) {
-              lookForMore = true;
-              getConnection()
-                  .callMethod(
-                      entry.getKey(),
-                      MapToolConstants.Channel.IMAGE,
-                      ClientCommand.COMMAND.updateAssetTransfer.name(),
-                      chunk);
-            }
-          }
-          if (lookForMore) {
-            continue;
-          }
-          // Sleep for a bit
-          synchronized (this) {
-            Thread.sleep(500);
-          }
-        } catch (Exception e) {
-          log.info("Couldn't retrieve AssetChunk for " + entryForException.getKey(), e);
-          // keep on going
+  /**
+   * Sends the next chunk of each asset being transferred to a client.
+   *
+   * @return true if a chunk was sent, so there may be more to send.
+   */
+  boolean sendAssetChunks() {
+    boolean sent = false;
+    String connectionId = null;
+    try {
+      for (Entry<String, AssetTransferManager> entry : assetManagerMap.entrySet()) {
+        connectionId = entry.getKey();
+        AssetChunk chunk = entry.getValue().nextChunk(ASSET_CHUNK_SIZE);
+        if (chunk != null) {
+          sent = true;
+          getConnection()
+              .callMethod(
+                  connectionId,
+                  MapToolConstants.Channel.IMAGE,
+                  ClientCommand.COMMAND.updateAssetTransfer.name(),
+                  chunk);
         }
       }
+    } catch (Exception e) {
+      log.info("Couldn't retrieve AssetChunk for " + connectionId, e);
+      // keep on going
     }
-
-    public void shutdown() {
-      stop = true;
-    }
+    return sent;
   }
 
   ////
   // STANDALONE SERVER
-  public static void main(String[] args) throws IOException {
-    // This starts the server thread.
-    PlayerDatabaseFactory.setCurrentPlayerDatabase(PERSONAL_SERVER);
-    PlayerDatabase playerDatabase = PlayerDatabaseFactory.getCurrentPlayerDatabase();
+
+  /**
+   * Runs a server without a user interface. Players are authenticated with the password file of
+   * MapTool, and the time the server took to start and the memory the campaign uses are logged.
+   *
+   * <p>Usage: {@code MapToolServer [campaign file] [port]}
+   *
+   * @param args the campaign to serve, a new one if absent, and the port, {@link
+   *     ServerConfig#DEFAULT_PORT} if absent.
+   * @throws Exception if the password file or the campaign can't be read, or the port can't be
+   *     opened.
+   */
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    long startTime = System.currentTimeMillis();
+    long startMemory = getUsedMemory();
+
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : ServerConfig.DEFAULT_PORT;
+    ServerConfig config =
+        new ServerConfig(
+            null,
+            ServerConfig.getPersonalServerGMPassword(),
+            ServerConfig.getPersonalServerPlayerPassword(),
+            port,
+            null,
+            null);
+    PlayerDatabaseFactory.setServerConfig(config);
+    PlayerDatabaseFactory.setCurrentPlayerDatabase(PASSWORD_FILE);
+    PasswordFilePlayerDatabase playerDatabase =
+        (PasswordFilePlayerDatabase) PlayerDatabaseFactory.getCurrentPlayerDatabase();
+    playerDatabase.initialize();
+
     MapToolServer server =
-        new MapToolServer(new ServerConfig(), new ServerPolicy(), playerDatabase);
+        new MapToolServer(config, new ServerPolicy(), playerDatabase, new HeadlessServerHost());
+    if (args.length > 0) {
+      PersistedCampaign persistedCampaign = PersistenceUtil.loadCampaign(new File(args[0]));
+      if (persistedCampaign == null) {
+        server.stop();
+        throw new IOException("Unable to load campaign " + args[0]);
+      }
+      server.setCampaign(persistedCampaign.campaign);
+    }
+    server.start();
+
+    log.info(
+        "Server started on port "
+            + port
+            + " in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms, using "
+            + (getUsedMemory() - startMemory) / 1024
+            + " KB for the server and its campaign");
+  }
+
+  /** @return the heap in use after a garbage collection, in bytes. */
+  static long getUsedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    runtime.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
   }
 }
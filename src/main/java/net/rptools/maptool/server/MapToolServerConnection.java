@@ -18,11 +18,15 @@
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import net.rptools.clientserver.ConnectionFactory;
+import net.rptools.clientserver.hessian.MethodStatistics;
 import net.rptools.clientserver.hessian.server.MethodServerConnection;
+import net.rptools.clientserver.hessian.server.MethodServerDecorator;
 import net.rptools.clientserver.simple.client.ClientConnection;
 import net.rptools.clientserver.simple.server.HandshakeProvider;
+import net.rptools.clientserver.simple.server.RoutedServerConnection;
 import net.rptools.clientserver.simple.server.ServerObserver;
 import net.rptools.maptool.client.ClientCommand;
+import net.rptools.maptool.common.MapToolConstants.Channel;
 import net.rptools.maptool.model.player.Player;
 import net.rptools.maptool.model.player.PlayerDatabase;
 import org.apache.logging.log4j.LogManager;
@@ -36,13 +40,20 @@
   private final Map<ClientConnection, ServerHandshake> handshakeMap = new ConcurrentHashMap<>();
   private final MapToolServer server;
   private final MethodServerConnection connection;
+  private final RoutedServerConnection routedConnection;
   private final PlayerDatabase playerDatabase;
   private final boolean useEasyConnect;
 
   public MapToolServerConnection(MapToolServer server, PlayerDatabase playerDatabase)
       throws IOException {
-    this.connection =
-        ConnectionFactory.getInstance().createServerConnection(server.getConfig(), this);
+    if (server.getConfig().getSessionName() == null) {
+      this.routedConnection = null;
+      this.connection =
+          ConnectionFactory.getInstance().createServerConnection(server.getConfig(), this);
+    } else {
+      this.routedConnection = new RoutedServerConnection(this);
+      this.connection = new MethodServerDecorator(routedConnection);
+    }
     this.server = server;
     this.playerDatabase = playerDatabase;
     this.useEasyConnect = server.getConfig().getUseEasyConnect();
@@ -55,7 +66,7 @@ public MapToolServerConnection(MapToolServer server, PlayerDatabase playerDataba
    * @see net.rptools.clientserver.simple.server.ServerConnection# handleConnectionHandshake(java.net.Socket)
    */
   public Handshake getConnectionHandshake(ClientConnection conn) {
-    var handshake = new ServerHandshake(conn, playerDatabase, useEasyConnect);
+    var handshake = new ServerHandshake(server, conn, playerDatabase, useEasyConnect);
     handshakeMap.put(conn, handshake);
     handshake.addObserver(this);
     conn.addMessageHandler(handshake);
@@ -78,6 +89,11 @@ public Player getPlayer(String id) {
     return null;
   }
 
+  /** @return the number of players connected. */
+  public int getPlayerCount() {
+    return playerMap.size();
+  }
+
   public String getConnectionId(String playerId) {
     for (Map.Entry<String, Player> entry : playerMap.entrySet()) {
       if (entry.getValue().getName().equalsIgnoreCase(playerId)) {
@@ -93,6 +109,9 @@ public String getConnectionId(String playerId) {
   /** Handle late connections */
   public void connectionAdded(ClientConnection conn) {
     server.configureClientConnection(conn);
+    for (Channel channel : Channel.values()) {
+      conn.setBandwidthCap(channel, server.getConfig().getBandwidthCap(channel));
+    }
 
     Player connectedPlayer = playerMap.get(conn.getId().toUpperCase());
     for (Player player : playerMap.values()) {
@@ -109,6 +128,7 @@ public void connectionAdded(ClientConnection conn) {
             ClientCommand.COMMAND.playerConnected.name(), connectedPlayer.getTransferablePlayer());
     // if (!server.isHostId(player.getName())) {
     // Don't bother sending the campaign file if we're hosting it ourselves
+    server.getCampaign().getZones(); // the client needs every zone, including those not read yet
     server
         .getConnection()
         .callMethod(conn.getId(), ClientCommand.COMMAND.setCampaign.name(), server.getCampaign());
@@ -131,21 +151,34 @@ public void addMessageHandler(ServerMethodHandler handler) {
   }
 
   public void broadcastCallMethod(String method, Object... parameters) {
-    connection.broadcastCallMethod(method, parameters);
+    broadcastCallMethod(new String[0], method, parameters);
   }
 
   public void broadcastCallMethod(String[] exclude, String method, Object... parameters) {
-    connection.broadcastCallMethod(exclude, method, parameters);
+    connection.broadcastCallMethod(Channel.forMethod(method), exclude, method, parameters);
   }
 
   public void callMethod(String id, String method, Object... parameters) {
-    connection.callMethod(id, method, parameters);
+    connection.callMethod(id, Channel.forMethod(method), method, parameters);
   }
 
   public void callMethod(String id, Object channel, String method, Object... parameters) {
     connection.callMethod(id, channel, method, parameters);
   }
 
+  /** @return the statistics of the commands sent and handled. */
+  public MethodStatistics getStatistics() {
+    return connection.getStatistics();
+  }
+
+  /**
+   * @return the connection accepting the clients routed to this server by the listener of a {@link
+   *     MapToolSessionServer}, or null if this server has a socket of its own.
+   */
+  RoutedServerConnection getRoutedConnection() {
+    return routedConnection;
+  }
+
   public void open() throws IOException {
     connection.open();
   }
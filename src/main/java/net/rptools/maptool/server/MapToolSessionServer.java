@@ -0,0 +1,333 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.rptools.clientserver.hessian.MethodStatistics;
+import net.rptools.clientserver.simple.MessageHandler;
+import net.rptools.clientserver.simple.client.SocketClientConnection;
+import net.rptools.clientserver.simple.server.RoutedServerConnection;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.player.PasswordFilePlayerDatabase;
+import net.rptools.maptool.model.player.PlayerDatabase;
+import net.rptools.maptool.server.proto.HandshakeMsg;
+import net.rptools.maptool.server.proto.HandshakeResponseCodeMsg;
+import net.rptools.maptool.util.PersistenceUtil;
+import net.rptools.maptool.util.PersistenceUtil.PersistedCampaign;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs several campaign sessions in one process, on one port. Each session is a {@link
+ * MapToolServer} with its own campaign, player database, policy and method handler. The sessions
+ * share the asset store, the thread sending the assets, the listening socket and a scheduler.
+ *
+ * <p>A client names the session it joins in its {@code ClientInitMsg}. The first message of each
+ * connection is read here and the connection is handed to that session, which then does the rest
+ * of the handshake. Clients that don't name a session join the first one added.
+ *
+ * <p>The messages, CPU time and campaign size of each session are logged periodically.
+ */
+public class MapToolSessionServer {
+  private static final Logger log = LogManager.getLogger(MapToolSessionServer.class);
+
+  /** Minutes between two logs of the session accounting. */
+  private static final int ACCOUNTING_PERIOD = 10;
+  /** Seconds a client routed to no session has to read the error before it is disconnected. */
+  private static final int REJECT_DELAY = 10;
+
+  private final int port;
+  private final ServerHost host;
+  private final Map<String, MapToolServer> sessions = new ConcurrentHashMap<>();
+  private final SessionRouter router = new SessionRouter();
+  private final AssetProducerThread assetProducerThread = new AssetProducerThread();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread thread = new Thread(r, "MapToolSessionServer.Scheduler");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private ServerSocket socket;
+  private ListeningThread listeningThread;
+
+  /**
+   * Creates a server for campaign sessions.
+   *
+   * @param port the port shared by the sessions.
+   * @param host the application the sessions run in.
+   */
+  public MapToolSessionServer(int port, ServerHost host) {
+    this.port = port;
+    this.host = host;
+  }
+
+  /**
+   * Adds a session and starts accepting clients for it.
+   *
+   * @param name the name clients join the session with, not case sensitive.
+   * @param campaign the campaign of the session.
+   * @param playerDatabase the players allowed to join the session.
+   * @param policy the policy of the session.
+   * @return the server of the session.
+   * @throws IOException if the server of the session can't be created.
+   * @throws IllegalArgumentException if there is already a session with that name.
+   */
+  public MapToolServer addSession(
+      String name, Campaign campaign, PlayerDatabase playerDatabase, ServerPolicy policy)
+      throws IOException {
+    String key = name.toLowerCase();
+    if (sessions.containsKey(key)) {
+      throw new IllegalArgumentException("Duplicate session " + name);
+    }
+    ServerConfig config =
+        new ServerConfig(
+            null,
+            ServerConfig.getPersonalServerGMPassword(),
+            ServerConfig.getPersonalServerPlayerPassword(),
+            port,
+            null,
+            null);
+    config.setSessionName(name);
+
+    MapToolServer server =
+        new MapToolServer(config, policy, playerDatabase, host, assetProducerThread);
+    server.setCampaign(campaign);
+    server.start();
+    sessions.put(key, server);
+    router.addSession(name, server.getConnection().getRoutedConnection());
+    return server;
+  }
+
+  /**
+   * Stops a session and disconnects its clients.
+   *
+   * @param name the name of the session.
+   */
+  public void removeSession(String name) {
+    String key = name.toLowerCase();
+    router.removeSession(key);
+    MapToolServer server = sessions.remove(key);
+    if (server != null) {
+      server.stop();
+    }
+  }
+
+  /** @return the servers of the sessions, by name in lower case. */
+  public Map<String, MapToolServer> getSessions() {
+    return Collections.unmodifiableMap(sessions);
+  }
+
+  /**
+   * Opens the socket of the sessions.
+   *
+   * @throws IOException if the socket can't be opened.
+   */
+  public void start() throws IOException {
+    socket = new ServerSocket(port);
+    listeningThread = new ListeningThread();
+    listeningThread.start();
+    assetProducerThread.start();
+    scheduler.scheduleAtFixedRate(
+        this::logAccounting, ACCOUNTING_PERIOD, ACCOUNTING_PERIOD, TimeUnit.MINUTES);
+  }
+
+  /** Stops all the sessions and closes the socket. */
+  public void stop() {
+    for (String name : sessions.keySet()) {
+      removeSession(name);
+    }
+    if (listeningThread != null) {
+      listeningThread.requestStop();
+    }
+    try {
+      if (socket != null) {
+        socket.close();
+      }
+    } catch (IOException e) {
+      log.warn(e.toString());
+    }
+    assetProducerThread.shutdown();
+    scheduler.shutdownNow();
+  }
+
+  /** Logs the players, the messages handled, the CPU time and the size of each session. */
+  public void logAccounting() {
+    for (Map.Entry<String, MapToolServer> entry : sessions.entrySet()) {
+      MapToolServer server = entry.getValue();
+      MethodStatistics statistics = server.getConnection().getStatistics();
+      log.info(
+          String.format(
+              "Session %s: %d players, %d messages, %d ms CPU, campaign of about %d KB",
+              entry.getKey(),
+              server.getConnection().getPlayerCount(),
+              statistics.getHandled(),
+              TimeUnit.NANOSECONDS.toMillis(statistics.getHandleCpuTime()),
+              getCampaignSize(server) / 1024));
+    }
+  }
+
+  /**
+   * Estimates the size of the campaign of a server from the size of its zone entries in the
+   * campaign file, see {@link Campaign#estimateZonesSize()}. This is used as an estimate of the
+   * memory the campaign takes. Nothing is serialized and no lock is held, so that the session keeps
+   * handling messages.
+   *
+   * @param server the server.
+   * @return the size in bytes, or -1 if the size of no zone entry is known.
+   */
+  public static long getCampaignSize(MapToolServer server) {
+    return server.getCampaign().estimateZonesSize();
+  }
+
+  /**
+   * Hands a client to the session named in its first handshake message.
+   *
+   * @param conn the connection to the client.
+   * @param message the first message of the client.
+   */
+  private void route(SocketClientConnection conn, byte[] message) {
+    try {
+      RoutedServerConnection session = router.route(conn, message);
+      if (session == null) {
+        reject(conn);
+        return;
+      }
+      // The session now has its handshake handler, which needs the message too
+      conn.dispatchMessage(conn.getId(), message);
+    } catch (ExecutionException | InterruptedException e) {
+      log.error("Unable to route " + conn.getId(), e);
+      conn.close();
+    }
+  }
+
+  /** Tells a client there is no such session, and disconnects it if it doesn't leave. */
+  private void reject(SocketClientConnection conn) {
+    HandshakeMsg response =
+        HandshakeMsg.newBuilder()
+            .setHandshakeResponseCodeMsg(HandshakeResponseCodeMsg.UNKNOWN_SESSION)
+            .build();
+    conn.sendMessage(response.toByteArray());
+    scheduler.schedule(conn::close, REJECT_DELAY, TimeUnit.SECONDS);
+  }
+
+  /** Accepts the clients of all the sessions. */
+  private class ListeningThread extends Thread {
+    private volatile boolean stopRequested = false;
+    private int nextConnectionId = 0;
+
+    ListeningThread() {
+      setName("MapToolSessionServer.ListeningThread");
+    }
+
+    void requestStop() {
+      stopRequested = true;
+    }
+
+    @Override
+    public void run() {
+      while (!stopRequested) {
+        try {
+          Socket s = socket.accept();
+          String id = s.getInetAddress().getHostAddress() + "-" + (nextConnectionId++);
+          SocketClientConnection conn = new SocketClientConnection(id, s);
+          conn.addMessageHandler(
+              new MessageHandler() {
+                @Override
+                public void handleMessage(String connectionId, byte[] message) {
+                  conn.removeMessageHandler(this);
+                  route(conn, message);
+                }
+              });
+        } catch (IOException e) {
+          if (!stopRequested) {
+            log.error(e.getMessage(), e);
+          }
+        }
+      }
+    }
+  }
+
+  ////
+  // STANDALONE SERVER
+
+  /**
+   * Runs the sessions of several campaigns without a user interface. The players of a session are
+   * read from the file {@code <name>-passwords.json} next to its campaign file.
+   *
+   * <p>Usage: {@code MapToolSessionServer <port> <name>=<campaign file>...}
+   *
+   * @param args the port and the sessions.
+   * @throws Exception if a campaign or a password file can't be read, or the port can't be opened.
+   */
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    if (args.length < 2) {
+      System.err.println("Usage: MapToolSessionServer <port> <name>=<campaign file>...");
+      System.exit(1);
+    }
+    long startTime = System.currentTimeMillis();
+    MapToolSessionServer sessionServer =
+        new MapToolSessionServer(Integer.parseInt(args[0]), new HeadlessServerHost());
+
+    for (int i = 1; i < args.length; i++) {
+      String[] session = args[i].split("=", 2);
+      if (session.length != 2) {
+        throw new IllegalArgumentException("Not a session: " + args[i]);
+      }
+      long startMemory = MapToolServer.getUsedMemory();
+      File campaignFile = new File(session[1]);
+      PersistedCampaign persistedCampaign = PersistenceUtil.loadCampaign(campaignFile);
+      if (persistedCampaign == null) {
+        throw new IOException("Unable to load campaign " + campaignFile);
+      }
+      File passwordFile =
+          new File(campaignFile.getAbsoluteFile().getParentFile(), session[0] + "-passwords.json");
+      PasswordFilePlayerDatabase playerDatabase = new PasswordFilePlayerDatabase(passwordFile);
+      playerDatabase.initialize();
+
+      MapToolServer server =
+          sessionServer.addSession(
+              session[0], persistedCampaign.campaign, playerDatabase, new ServerPolicy());
+      log.info(
+          "Session "
+              + session[0]
+              + " uses "
+              + (MapToolServer.getUsedMemory() - startMemory) / 1024
+              + " KB, its campaign is about "
+              + getCampaignSize(server) / 1024
+              + " KB");
+    }
+    sessionServer.start();
+    log.info(
+        (args.length - 1)
+            + " sessions started on port "
+            + args[0]
+            + " in "
+            + (System.currentTimeMillis() - startTime)
+            + " ms");
+  }
+}
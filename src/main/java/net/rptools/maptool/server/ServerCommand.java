@@ -24,11 +24,14 @@
 import net.rptools.maptool.model.ExposedAreaMetaData;
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.InitiativeList;
+import net.rptools.maptool.model.InitiativePatch;
 import net.rptools.maptool.model.Label;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Pointer;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.TokenPatch;
+import net.rptools.maptool.model.TokenPropertyUpdate;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.Zone.VisionType;
 import net.rptools.maptool.model.ZonePoint;
@@ -36,6 +39,7 @@
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.drawing.Pen;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import net.rptools.maptool.model.library.addon.TransferableAddOnLibrary;
@@ -53,10 +57,13 @@ public enum COMMAND {
     getAsset,
     removeAsset,
     putToken,
+    putTokens,
     editToken,
     removeToken,
     removeTokens,
     updateTokenProperty,
+    updateTokenProperties,
+    patchToken,
     draw,
     updateDrawing,
     clearAllDrawings,
@@ -92,6 +99,7 @@ public enum COMMAND {
     updateCampaign,
     updateInitiative,
     updateTokenInitiative,
+    patchInitiative,
     setVisionType,
     updateCampaignMacros,
     updateGmMacros,
@@ -112,7 +120,8 @@ public enum COMMAND {
     updateDataNamespace,
     removeDataStore,
     removeDataNamespace,
-    removeData
+    removeData,
+    updateDataDelta
 
     // scale a player's view
     // @formatter:on
@@ -170,6 +179,15 @@ public default void removeTopology(GUID zoneGUID, Area area, Zone.TopologyTypeSe
 
   public void putToken(GUID zoneGUID, Token token);
 
+  /**
+   * Puts several tokens on a zone at once. The tokens are applied together and clients receive a
+   * single message.
+   *
+   * @param zoneGUID the ID of the zone
+   * @param tokens the tokens to put
+   */
+  public void putTokens(GUID zoneGUID, List<Token> tokens);
+
   /**
    * Removes a token from a zone.
    *
@@ -191,6 +209,43 @@ public void updateTokenProperty(
 
   public void updateTokenProperty(Token token, Token.Update update, Object... parameters);
 
+  /**
+   * Applies several token property updates on a zone at once.
+   *
+   * @param zoneGUID the ID of the zone
+   * @param updates the updates, applied in order
+   */
+  public void updateTokenProperties(GUID zoneGUID, List<TokenPropertyUpdate> updates);
+
+  /**
+   * Applies the changed fields of a token on a zone.
+   *
+   * @param zoneGUID the ID of the zone
+   * @param patch the changed fields, see {@link Token#takePatch()}
+   */
+  public void patchToken(GUID zoneGUID, TokenPatch patch);
+
+  /**
+   * Sends the fields of a token changed since it was last sent, or the whole token if the changes
+   * are not tracked.
+   *
+   * @param zoneGUID the ID of the zone
+   * @param token the changed token
+   */
+  public void patchToken(GUID zoneGUID, Token token);
+
+  /**
+   * Starts queuing the token changes made by the current thread, so that they are sent with a
+   * single {@link #putTokens} and {@link #updateTokenProperties} per zone when the matching {@link
+   * #endTokenBatch()} is called. Any other command sent by the thread sends the queued changes
+   * first, so the server receives the commands in the order they were made. The local zone is
+   * updated right away. Batches can be nested.
+   */
+  public default void beginTokenBatch() {}
+
+  /** Sends the token changes queued since {@link #beginTokenBatch()}. */
+  public default void endTokenBatch() {}
+
   public void putLabel(GUID zoneGUID, Label label);
 
   public void removeLabel(GUID zoneGUID, GUID labelGUID);
@@ -246,6 +301,13 @@ public void updateTokenProperty(
   public void updateTokenInitiative(
       GUID zone, GUID token, Boolean hold, String state, Integer index);
 
+  /**
+   * Sends the changes made to an initiative list in a unit of work instead of the whole list.
+   *
+   * @param patch the changes, see {@link InitiativeList#takePatch()}
+   */
+  public void patchInitiative(InitiativePatch patch);
+
   public void setVisionType(GUID zoneGUID, VisionType visionType);
 
   public void updateCampaignMacros(List<MacroButtonProperties> properties);
@@ -282,4 +344,6 @@ public void updateExposedAreaMeta(
   void removeDataNamespace(String type, String namespace);
 
   void removeData(String type, String namespace, String name);
+
+  void updateDataDelta(GameDataDeltaDto delta);
 }
@@ -16,7 +16,10 @@
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Random;
+import net.rptools.maptool.common.MapToolConstants.Channel;
 import net.rptools.maptool.util.PasswordGenerator;
 
 public class ServerConfig {
@@ -25,6 +28,16 @@ public class ServerConfig {
   public static final int PORT_RANGE_START = 4000;
   public static final int PORT_RANGE_END = 20000;
 
+  /**
+   * Prefix of the system properties that cap the bandwidth of a channel to each client, in bytes
+   * per second. The name of the channel follows in lower case, e.g. {@code
+   * maptool.server.bandwidth.image}.
+   */
+  public static final String BANDWIDTH_PROPERTY_PREFIX = "maptool.server.bandwidth.";
+
+  /** System property with the seconds between two readings of the network traffic log. */
+  public static final String TRAFFIC_LOG_PROPERTY = "maptool.server.trafficLogInterval";
+
   private static final String personalServerGMPassword;
 
   private static final String personalServerPlayerPassword;
@@ -49,6 +62,9 @@ public class ServerConfig {
   private String serverName;
   private String hostName;
   private final boolean useEasyConnect;
+  private String sessionName;
+  private final Map<Channel, Long> bandwidthCaps = getDefaultBandwidthCaps();
+  private int trafficLogInterval = Integer.getInteger(TRAFFIC_LOG_PROPERTY, 0);
 
   public static String getPersonalServerGMPassword() {
     return personalServerGMPassword;
@@ -143,6 +159,72 @@ public boolean getUseEasyConnect() {
     return useEasyConnect;
   }
 
+  /**
+   * Returns the name of the campaign session, when the server process runs several of them.
+   * Clients send it in their handshake to be routed to the session, servers with a session name
+   * share the socket of their {@link MapToolSessionServer}.
+   *
+   * @return the name of the session, or null for a server with a socket of its own.
+   */
+  public String getSessionName() {
+    return sessionName;
+  }
+
+  public void setSessionName(String sessionName) {
+    this.sessionName = sessionName;
+  }
+
+  /** @return the bandwidth caps set by the system properties. */
+  private static Map<Channel, Long> getDefaultBandwidthCaps() {
+    Map<Channel, Long> caps = new EnumMap<>(Channel.class);
+    for (Channel channel : Channel.values()) {
+      Long cap = Long.getLong(BANDWIDTH_PROPERTY_PREFIX + channel.name().toLowerCase());
+      if (cap != null && cap > 0) {
+        caps.put(channel, cap);
+      }
+    }
+    return caps;
+  }
+
+  /**
+   * Returns the bytes per second the server may send to each client on a channel.
+   *
+   * @param channel the channel.
+   * @return the cap, or 0 if the channel isn't capped.
+   */
+  public long getBandwidthCap(Channel channel) {
+    return bandwidthCaps.getOrDefault(channel, 0L);
+  }
+
+  /**
+   * Caps the bytes per second the server may send to each client on a channel, for the clients
+   * that connect afterwards.
+   *
+   * @param channel the channel.
+   * @param bytesPerSecond the cap, 0 for no cap.
+   */
+  public void setBandwidthCap(Channel channel, long bytesPerSecond) {
+    if (bytesPerSecond > 0) {
+      bandwidthCaps.put(channel, bytesPerSecond);
+    } else {
+      bandwidthCaps.remove(channel);
+    }
+  }
+
+  /**
+   * Returns the seconds between two readings of the {@link TrafficStatistics} the server writes to
+   * its traffic log, in the logs directory of the application home.
+   *
+   * @return the seconds, or 0 if the server doesn't write a traffic log.
+   */
+  public int getTrafficLogInterval() {
+    return trafficLogInterval;
+  }
+
+  public void setTrafficLogInterval(int trafficLogInterval) {
+    this.trafficLogInterval = trafficLogInterval;
+  }
+
   private static Random r = new Random();
 
   private static int findOpenPort(int rangeLow, int rangeHigh) {
@@ -27,7 +27,6 @@
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
-import javax.swing.SwingUtilities;
 import net.rptools.clientserver.simple.MessageHandler;
 import net.rptools.clientserver.simple.client.ClientConnection;
 import net.rptools.lib.MD5Key;
@@ -66,6 +65,9 @@ public class ServerHandshake implements Handshake, MessageHandler {
   /** Instance used for log messages. */
   private static final Logger log = LogManager.getLogger(ServerHandshake.class);
 
+  /** The server the client connects to. */
+  private final MapToolServer server;
+
   /** The database used for retrieving players. */
   private final PlayerDatabase playerDatabase;
 
@@ -110,12 +112,17 @@ public class ServerHandshake implements Handshake, MessageHandler {
   /**
    * Creates a new {@code ServerHandshake} instance.
    *
+   * @param server The server the client connects to.
    * @param connection The client connection for the handshake.
    * @param playerDatabase The database of players.
    * @param useEasyConnect If true, the client will use the easy connect method.
    */
   public ServerHandshake(
-      ClientConnection connection, PlayerDatabase playerDatabase, boolean useEasyConnect) {
+      MapToolServer server,
+      ClientConnection connection,
+      PlayerDatabase playerDatabase,
+      boolean useEasyConnect) {
+    this.server = server;
     this.connection = connection;
     this.playerDatabase = playerDatabase;
     this.useEasyConnect = useEasyConnect;
@@ -269,8 +276,7 @@ private void handle(PublicKeyUploadMsg publicKeyUploadMsg) {
             publicKeyUploadMsg.getPublicKey(),
             this::acceptNewPublicKey,
             this::denyNewPublicKey);
-    SwingUtilities.invokeLater(
-        () -> MapTool.getFrame().getConnectionPanel().addAwaitingApproval(pendingPlayer));
+    server.getHost().addAwaitingApproval(pendingPlayer);
   }
 
   private void denyNewPublicKey(PlayerAwaitingApproval p) {
@@ -334,7 +340,6 @@ private void handle(ClientAuthMsg clientAuthMessage)
   }
 
   private void sendConnectionSuccessful() throws ExecutionException, InterruptedException {
-    var server = MapTool.getServer();
     var policy = Mapper.map(server.getPolicy());
     var connectionSuccessfulMsg =
         ConnectionSuccessfulMsg.newBuilder()
@@ -365,7 +370,6 @@ private void handle(ClientInitMsg clientInitMsg)
       throws ExecutionException, InterruptedException, NoSuchPaddingException,
           IllegalBlockSizeException, NoSuchAlgorithmException, BadPaddingException,
           InvalidKeyException {
-    var server = MapTool.getServer();
     if (server.isPlayerConnected(clientInitMsg.getPlayerName())) {
       setErrorMessage(I18N.getText("Handshake.msg.duplicateName"));
       sendErrorResponseAndNotify(HandshakeResponseCodeMsg.PLAYER_ALREADY_CONNECTED);
@@ -557,8 +561,7 @@ public synchronized void removeObserver(HandshakeObserver observer) {
   /** Notifies observers that the handshake has completed or errored out.. */
   private synchronized void notifyObservers() {
     if (getEasyConnectName() != null) {
-      SwingUtilities.invokeLater(
-          () -> MapTool.getFrame().getConnectionPanel().removeAwaitingApproval(easyConnectName));
+      server.getHost().removeAwaitingApproval(easyConnectName);
     }
     for (var observer : observerList) observer.onCompleted(this);
   }
@@ -0,0 +1,57 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import net.rptools.maptool.model.player.PlayerAwaitingApproval;
+
+/**
+ * The application a {@link MapToolServer} runs in. The server tells its host about the things the
+ * person running it has to know about or act on, so that the server itself never needs a user
+ * interface.
+ *
+ * @see HeadlessServerHost
+ */
+public interface ServerHost {
+
+  /**
+   * Tells the person running the server about something that happened on the server.
+   *
+   * @param message the message, already translated.
+   */
+  void showMessage(String message);
+
+  /**
+   * Warns the person running the server about a problem.
+   *
+   * @param message the message, already translated.
+   * @param cause the exception that caused the problem, may be null.
+   */
+  void showWarning(String message, Throwable cause);
+
+  /**
+   * Asks the person running the server to approve a player that connects with easy connect. The
+   * host has to call one of the callbacks of the player.
+   *
+   * @param player the player waiting for approval.
+   */
+  void addAwaitingApproval(PlayerAwaitingApproval player);
+
+  /**
+   * Tells the host that a player no longer waits for approval.
+   *
+   * @param name the name of the player.
+   */
+  void removeAwaitingApproval(String name);
+}
@@ -19,15 +19,14 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
 import net.rptools.clientserver.hessian.AbstractMethodHandler;
 import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.ClientCommand;
 import net.rptools.maptool.client.ClientMethodHandler;
-import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.ServerCommandClientImpl;
-import net.rptools.maptool.client.ui.zone.FogUtil;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.common.MapToolConstants;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.Asset;
@@ -38,12 +37,15 @@
 import net.rptools.maptool.model.GUID;
 import net.rptools.maptool.model.Grid;
 import net.rptools.maptool.model.InitiativeList;
+import net.rptools.maptool.model.InitiativePatch;
 import net.rptools.maptool.model.InitiativeList.TokenInitiative;
 import net.rptools.maptool.model.Label;
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Pointer;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.TokenPatch;
+import net.rptools.maptool.model.TokenPropertyUpdate;
 import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.Zone.VisionType;
 import net.rptools.maptool.model.ZonePoint;
@@ -51,6 +53,7 @@
 import net.rptools.maptool.model.drawing.DrawnElement;
 import net.rptools.maptool.model.drawing.Pen;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
 import net.rptools.maptool.model.library.addon.TransferableAddOnLibrary;
@@ -70,6 +73,7 @@ public class ServerMethodHandler extends AbstractMethodHandler implements Server
   private final MapToolServer server;
   private final Object MUTEX = new Object();
   private static final Logger log = Logger.getLogger(ServerMethodHandler.class);
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
 
   public ServerMethodHandler(MapToolServer server) {
     this.server = server;
@@ -81,6 +85,8 @@ public void handleMethod(String id, String method, Object... parameters) {
 
     log.debug("from " + id + " got " + method);
 
+    long start = System.nanoTime();
+    long cpuStart = threadBean.getCurrentThreadCpuTime();
     try {
       RPCContext context = new RPCContext(id, method, parameters);
       RPCContext.setCurrent(context);
@@ -160,6 +166,15 @@ public void handleMethod(String id, String method, Object... parameters) {
         case putToken:
           putToken(context.getGUID(0), (Token) context.get(1));
           break;
+        case putTokens:
+          putTokens(context.getGUID(0), (List<Token>) context.get(1));
+          break;
+        case updateTokenProperties:
+          updateTokenProperties(context.getGUID(0), (List<TokenPropertyUpdate>) context.get(1));
+          break;
+        case patchToken:
+          patchToken(context.getGUID(0), (TokenPatch) context.get(1));
+          break;
         case editToken:
           editToken(context.getGUID(0), (Token) context.get(1));
           break;
@@ -271,6 +286,9 @@ public void handleMethod(String id, String method, Object... parameters) {
               context.getString(3),
               context.getInt(4));
           break;
+        case patchInitiative:
+          patchInitiative((InitiativePatch) context.get(0));
+          break;
         case setVisionType:
           setVisionType(context.getGUID(0), (VisionType) context.get(1));
           break;
@@ -348,9 +366,22 @@ public void handleMethod(String id, String method, Object... parameters) {
             log.error(I18N.getText("data.error.sendingUpdate"), e);
           }
           break;
+        case updateDataDelta:
+          try {
+            updateDataDelta(GameDataDeltaDto.parseFrom((byte[]) parameters[0]));
+          } catch (IOException e) {
+            log.error(I18N.getText("data.error.sendingUpdate"), e);
+          }
+          break;
       }
     } finally {
       RPCContext.setCurrent(null);
+      // The CPU time is -1 where the JVM doesn't measure it
+      long cpuTime = cpuStart < 0 ? 0 : threadBean.getCurrentThreadCpuTime() - cpuStart;
+      server
+          .getConnection()
+          .getStatistics()
+          .recordHandled(method, System.nanoTime() - start, cpuTime);
     }
   }
 
@@ -495,8 +526,7 @@ public void exposeFoW(GUID zoneGUID, Area area, Set<GUID> selectedToks) {
   }
 
   public void exposePCArea(GUID zoneGUID) {
-    ZoneRenderer renderer = MapTool.getFrame().getZoneRenderer(zoneGUID);
-    FogUtil.exposePCArea(renderer);
+    // The visible areas are computed by the clients, which send them back with exposeFoW
     server
         .getConnection()
         .broadcastCallMethod(
@@ -574,7 +604,7 @@ public void updateInitiative(InitiativeList list, Boolean ownerPermission) {
       Zone zone = server.getCampaign().getZone(list.getZone().getId());
       zone.setInitiativeList(list);
     } else if (ownerPermission != null) {
-      MapTool.getFrame().getInitiativePanel().setOwnerPermissions(ownerPermission);
+      server.getCampaign().setInitiativeOwnerPermissions(ownerPermission);
     }
     forwardToAllClients();
   }
@@ -597,6 +627,24 @@ public void updateTokenInitiative(
     forwardToAllClients();
   }
 
+  public void patchInitiative(InitiativePatch patch) {
+    Zone zone = server.getCampaign().getZone(patch.getZoneId());
+    if (zone == null) {
+      return;
+    }
+    InitiativeList list = zone.getInitiativeList();
+    boolean inSequence;
+    synchronized (MUTEX) {
+      inSequence = list.applyPatch(patch);
+    }
+    if (inSequence) {
+      forwardToClients();
+    } else {
+      // The sender missed a change, so everyone gets the merged list to get back in step.
+      broadcastToAllClients(ClientCommand.COMMAND.updateInitiative.name(), list, null);
+    }
+  }
+
   public void renameZone(GUID zoneGUID, String name) {
     Zone zone = server.getCampaign().getZone(zoneGUID);
     if (zone != null) {
@@ -665,6 +713,34 @@ public void putToken(GUID zoneGUID, Token token) {
     forwardToClients();
   }
 
+  public void putTokens(GUID zoneGUID, List<Token> tokens) {
+    Zone zone = server.getCampaign().getZone(zoneGUID);
+
+    List<TokenPropertyUpdate> zOrderUpdates = new ArrayList<>();
+    synchronized (MUTEX) {
+      // Set z-order for new tokens
+      int zOrder = zone.getLargestZOrder();
+      for (Token token : tokens) {
+        if (zone.getToken(token.getId()) == null) {
+          token.setZOrder(++zOrder);
+          zOrderUpdates.add(
+              new TokenPropertyUpdate(
+                  token.getId(), Token.Update.setZOrder, new Object[] {zOrder}));
+        }
+      }
+      zone.putTokens(tokens);
+    }
+    if (!zOrderUpdates.isEmpty()) {
+      // don't send whole tokens back to sender, instead just send new ZOrders
+      broadcastToClient(
+          RPCContext.getCurrent().id,
+          ClientCommand.COMMAND.updateTokenProperties.name(),
+          zoneGUID,
+          zOrderUpdates);
+    }
+    forwardToClients();
+  }
+
   public void putZone(Zone zone) {
     server.getCampaign().putZone(zone);
     forwardToClients();
@@ -712,9 +788,47 @@ public void updateTokenProperty(
     forwardToClients();
   }
 
+  public void updateTokenProperties(GUID zoneGUID, List<TokenPropertyUpdate> updates) {
+    Zone zone = server.getCampaign().getZone(zoneGUID);
+    synchronized (MUTEX) {
+      zone.beginTokenBatch();
+      try {
+        for (TokenPropertyUpdate update : updates) {
+          update.apply(zone); // update server version of tokens
+        }
+      } finally {
+        zone.endTokenBatch();
+      }
+    }
+    forwardToClients();
+  }
+
   /** never actually called, but necessary to satisfy interface requirements */
   public void updateTokenProperty(Token token, Token.Update update, Object... parameters) {}
 
+  public void patchToken(GUID zoneGUID, TokenPatch patch) {
+    Zone zone = server.getCampaign().getZone(zoneGUID);
+    Token token;
+    boolean inSequence;
+    synchronized (MUTEX) {
+      token = zone.getToken(patch.getTokenGUID());
+      if (token == null) {
+        return;
+      }
+      inSequence = token.applyPatch(patch);
+      zone.putToken(token);
+    }
+    if (inSequence) {
+      forwardToClients();
+    } else {
+      // The sender missed a change, so everyone gets the merged token to get back in step.
+      broadcastToAllClients(ClientCommand.COMMAND.putToken.name(), zoneGUID, token);
+    }
+  }
+
+  /** never actually called, but necessary to satisfy interface requirements */
+  public void patchToken(GUID zoneGUID, Token token) {}
+
   public void removeZone(GUID zoneGUID) {
     server.getCampaign().removeZone(zoneGUID);
     forwardToClients();
@@ -853,7 +967,6 @@ public void setTokenLocation(GUID zoneGUID, GUID tokenGUID, int x, int y) {
   public void setServerPolicy(ServerPolicy policy) {
     server.updateServerPolicy(policy); // updates the server policy, fixes #1648
     forwardToClients();
-    MapTool.getFrame().getToolbox().updateTools();
   }
 
   public void addTopology(GUID zoneGUID, Area area, Zone.TopologyType topologyType) {
@@ -870,14 +983,12 @@ public void removeTopology(GUID zoneGUID, Area area, Zone.TopologyType topologyT
 
   public void updateCampaignMacros(List<MacroButtonProperties> properties) {
     ArrayList campaignMacros = new ArrayList<MacroButtonProperties>(properties);
-    MapTool.getCampaign().setMacroButtonPropertiesArray(campaignMacros);
     server.getCampaign().setMacroButtonPropertiesArray(campaignMacros);
     forwardToClients();
   }
 
   public void updateGmMacros(List<MacroButtonProperties> properties) {
     ArrayList campaignMacros = new ArrayList<MacroButtonProperties>(properties);
-    MapTool.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros);
     server.getCampaign().setGmMacroButtonPropertiesArray(campaignMacros);
     forwardToClients();
   }
@@ -960,6 +1071,11 @@ public void removeData(String type, String namespace, String name) {
     forwardToClients();
   }
 
+  @Override
+  public void updateDataDelta(GameDataDeltaDto delta) {
+    forwardToClients();
+  }
+
   ////
   // CONTEXT
   private static class RPCContext {
@@ -0,0 +1,97 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.server.RoutedServerConnection;
+import net.rptools.maptool.server.proto.HandshakeMsg;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hands the clients of a shared socket to the sessions they name in their first handshake message.
+ * Session names are not case sensitive. Clients that don't name a session join the first one added.
+ */
+class SessionRouter {
+  private static final Logger log = LogManager.getLogger(SessionRouter.class);
+
+  private final Map<String, RoutedServerConnection> sessions = new ConcurrentHashMap<>();
+  private volatile String defaultSession;
+
+  /**
+   * Adds a session.
+   *
+   * @param name the name clients join the session with.
+   * @param connection the connection accepting the clients of the session.
+   * @throws IllegalArgumentException if there is already a session with that name.
+   */
+  synchronized void addSession(String name, RoutedServerConnection connection) {
+    String key = name.toLowerCase();
+    if (sessions.putIfAbsent(key, connection) != null) {
+      throw new IllegalArgumentException("Duplicate session " + name);
+    }
+    if (defaultSession == null) {
+      defaultSession = key;
+    }
+  }
+
+  /**
+   * Removes a session. If it was the default one, another session becomes the default.
+   *
+   * @param name the name of the session.
+   */
+  synchronized void removeSession(String name) {
+    String key = name.toLowerCase();
+    sessions.remove(key);
+    if (key.equals(defaultSession)) {
+      defaultSession = sessions.keySet().stream().findFirst().orElse(null);
+    }
+  }
+
+  /**
+   * Hands a client to the session named in its first handshake message, which starts the
+   * handshake. The message must then be dispatched to the client connection, so that the handshake
+   * of the session reads it.
+   *
+   * @param conn the connection to the client.
+   * @param message the first message of the client.
+   * @return the connection of the session, or null if the message names no session.
+   * @throws ExecutionException if the handshake can't be started.
+   * @throws InterruptedException if the handshake can't be started.
+   */
+  RoutedServerConnection route(ClientConnection conn, byte[] message)
+      throws ExecutionException, InterruptedException {
+    RoutedServerConnection session = null;
+    try {
+      HandshakeMsg handshakeMsg = HandshakeMsg.parseFrom(message);
+      if (handshakeMsg.getMessageTypeCase() == HandshakeMsg.MessageTypeCase.CLIENT_INIT_MSG) {
+        String name = handshakeMsg.getClientInitMsg().getSessionName();
+        String key = name.isEmpty() ? defaultSession : name.toLowerCase();
+        session = key == null ? null : sessions.get(key);
+      }
+    } catch (InvalidProtocolBufferException e) {
+      log.warn("Invalid handshake from " + conn.getId(), e);
+    }
+
+    if (session != null) {
+      session.addConnection(conn);
+    }
+    return session;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.rptools.clientserver.hessian.MethodStatistics;
+import net.rptools.clientserver.simple.MessageQueue;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The network traffic of a server: the commands it sent and handled, and the queue of each channel
+ * to each client. The counters only ever grow, so the traffic of a period is the difference
+ * between two readings.
+ *
+ * <p>A reading is a JSON object, see {@link #toJson()}. The server can write one to a log every few
+ * seconds, one object per line, see {@link ServerConfig#getTrafficLogInterval()}.
+ */
+public class TrafficStatistics {
+  private static final Logger log = LogManager.getLogger(TrafficStatistics.class);
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final MapToolServer server;
+  private final long startTime = System.currentTimeMillis();
+  private ScheduledExecutorService logScheduler;
+
+  TrafficStatistics(MapToolServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Returns a reading of the traffic. It has the fields
+   *
+   * <ul>
+   *   <li>{@code time}, when it was taken in milliseconds since the epoch, and {@code uptime}, the
+   *       seconds since the server started.
+   *   <li>{@code commands}, an object for each command with the number of calls {@code sent}, the
+   *       {@code messages} queued for them, their {@code serializedBytes} and {@code
+   *       compressedBytes} and the {@code serializeMillis} spent making them, and the number of
+   *       calls {@code handled} and the {@code handleMillis} and {@code handleCpuMillis} spent on
+   *       them.
+   *   <li>{@code clients}, an object for each channel of each client with the messages {@code
+   *       queued} now, and the {@code messages} and {@code bytes} sent with the {@code
+   *       meanWaitMillis} and {@code maxWaitMillis} they waited in the queue.
+   * </ul>
+   *
+   * @return the reading.
+   */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    long now = System.currentTimeMillis();
+    json.addProperty("time", now);
+    json.addProperty("uptime", (now - startTime) / 1000);
+
+    JsonArray commands = new JsonArray();
+    for (Map.Entry<String, MethodStatistics.Counters> entry :
+        server.getConnection().getStatistics().getCounters().entrySet()) {
+      MethodStatistics.Counters counters = entry.getValue();
+      JsonObject command = new JsonObject();
+      command.addProperty("command", entry.getKey());
+      command.addProperty("sent", counters.getSent());
+      command.addProperty("messages", counters.getMessages());
+      command.addProperty("serializedBytes", counters.getSerializedBytes());
+      command.addProperty("compressedBytes", counters.getCompressedBytes());
+      command.addProperty("serializeMillis", counters.getSerializeTime() / NANOS_PER_MILLI);
+      command.addProperty("handled", counters.getHandled());
+      command.addProperty("handleMillis", counters.getHandleTime() / NANOS_PER_MILLI);
+      command.addProperty("handleCpuMillis", counters.getHandleCpuTime() / NANOS_PER_MILLI);
+      commands.add(command);
+    }
+    json.add("commands", commands);
+
+    JsonArray clients = new JsonArray();
+    for (ClientConnection connection : server.getClientConnections()) {
+      for (Map.Entry<Object, MessageQueue.Statistics> entry :
+          connection.getChannelStatistics().entrySet()) {
+        MessageQueue.Statistics statistics = entry.getValue();
+        JsonObject client = new JsonObject();
+        client.addProperty("client", connection.getId());
+        client.addProperty("channel", String.valueOf(entry.getKey()));
+        client.addProperty("queued", statistics.getQueued());
+        client.addProperty("messages", statistics.getMessages());
+        client.addProperty("bytes", statistics.getBytes());
+        client.addProperty("meanWaitMillis", statistics.getMeanWait() / NANOS_PER_MILLI);
+        client.addProperty("maxWaitMillis", statistics.getMaxWait() / NANOS_PER_MILLI);
+        clients.add(client);
+      }
+    }
+    json.add("clients", clients);
+    return json;
+  }
+
+  /**
+   * Starts writing a reading to a file periodically.
+   *
+   * @param file the file, readings are added to its end.
+   * @param interval the seconds between two readings.
+   */
+  synchronized void startLog(File file, int interval) {
+    stopLog();
+    file.getParentFile().mkdirs();
+    log.info("Writing network traffic to " + file);
+    logScheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "TrafficStatistics.Log");
+              thread.setDaemon(true);
+              return thread;
+            });
+    logScheduler.scheduleAtFixedRate(() -> write(file), interval, interval, TimeUnit.SECONDS);
+  }
+
+  /** Stops writing the readings, if they are written. */
+  synchronized void stopLog() {
+    if (logScheduler != null) {
+      logScheduler.shutdownNow();
+      logScheduler = null;
+    }
+  }
+
+  private void write(File file) {
+    try {
+      Files.writeString(
+          file.toPath(),
+          toJson() + System.lineSeparator(),
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    } catch (IOException | RuntimeException e) {
+      // Keep on going, the next reading may be written
+      log.warn("Unable to write network traffic to " + file, e);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.ZoneSummary;
+import net.rptools.maptool.model.proto.ZoneDto;
+
+/**
+ * Captures campaigns so that they can be saved in the background while the original keeps
+ * changing. A capture copies only the zones whose {@link Zone#getVersion() version} has changed
+ * since the last capture, and their {@link ZoneDto} messages are made from the copies when the
+ * campaign is saved, in the background. The messages are kept between captures, so capturing a
+ * campaign where little has changed takes little time. Zones that have not been read from the
+ * campaign file, or have not changed since, are not captured at all; they are copied from the file
+ * when saving.
+ *
+ * <p>Captures must be made on the thread that changes the campaign, the event dispatch thread.
+ */
+public class CampaignSnapshots {
+
+  /**
+   * A zone at a given version, and the assets of the zone at that version. Holds a copy of the zone
+   * until its message is made.
+   */
+  private static class ZoneSnapshot {
+    private final Zone zone;
+    private final long version;
+    private final Set<MD5Key> assetIds;
+    private final ZoneSummary summary;
+    private Zone copy;
+    private ZoneDto dto;
+
+    private ZoneSnapshot(Zone zone) {
+      this.zone = zone;
+      // Read the version first, a change while copying is caught next time
+      version = zone.getVersion();
+      copy = new Zone(zone, true);
+      assetIds = copy.getAllAssetIds();
+      summary = new ZoneSummary(copy);
+    }
+
+    /** @return the message of the zone, made on the first call. */
+    private synchronized ZoneDto getDto() {
+      if (dto == null) {
+        dto = copy.toDto();
+        copy = null;
+      }
+      return dto;
+    }
+  }
+
+  /** The snapshots of the last capture, by zone id. */
+  private Map<GUID, ZoneSnapshot> snapshots = new HashMap<>();
+
+  /** The number of zones that were copied again by the last capture. */
+  private int changedZoneCount;
+
+  /**
+   * Captures a campaign.
+   *
+   * @param campaign the campaign.
+   * @return a copy of the campaign that does not change with it and can be saved with {@link
+   *     PersistenceUtil#saveCampaign(Campaign, java.io.File, String)}.
+   */
+  public Campaign capture(Campaign campaign) {
+    Map<GUID, ZoneSnapshot> previous = snapshots;
+    Map<GUID, ZoneSnapshot> current = new HashMap<>();
+    changedZoneCount = 0;
+    Map<GUID, Set<MD5Key>> zoneAssets =
+        campaign.getZoneAssetIds(
+            zone -> {
+              ZoneSnapshot snapshot = previous.get(zone.getId());
+              if (snapshot == null
+                  || snapshot.zone != zone
+                  || snapshot.version != zone.getVersion()) {
+                snapshot = new ZoneSnapshot(zone);
+                changedZoneCount++;
+              }
+              current.put(zone.getId(), snapshot);
+              return snapshot.assetIds;
+            });
+    snapshots = current;
+    // Zones that were read but not copied are unchanged, so their summary is the one of the file
+    Map<GUID, ZoneSummary> zoneSummaries =
+        campaign.getZoneSummaries(
+            zone -> {
+              ZoneSnapshot snapshot = current.get(zone.getId());
+              return snapshot != null ? snapshot.summary : new ZoneSummary(zone);
+            });
+
+    return campaign.copyWithZoneLoader(
+        new ZoneSnapshotLoader(new HashMap<>(current), campaign.getZoneLoader()),
+        zoneAssets,
+        zoneSummaries);
+  }
+
+  /** @return the number of zones that were copied again by the last capture. */
+  public int getChangedZoneCount() {
+    return changedZoneCount;
+  }
+
+  /**
+   * Provides the zones of a captured campaign. Zones that were not read from the campaign file
+   * when the campaign was captured are provided by the loader of the original campaign.
+   */
+  static class ZoneSnapshotLoader implements Campaign.ZoneLoader {
+    private final Map<GUID, ZoneSnapshot> zones;
+    private final Campaign.ZoneLoader source;
+
+    private ZoneSnapshotLoader(Map<GUID, ZoneSnapshot> zones, Campaign.ZoneLoader source) {
+      this.zones = zones;
+      this.source = source;
+    }
+
+    @Override
+    public Zone loadZone(GUID zoneId) throws IOException {
+      ZoneDto dto = getZoneDto(zoneId);
+      if (dto != null) {
+        return Zone.fromDto(dto);
+      }
+      if (source == null) {
+        throw new IOException("Zone " + zoneId + " was not captured");
+      }
+      return source.loadZone(zoneId);
+    }
+
+    /**
+     * @param zoneId the id of the zone.
+     * @return the captured message of the zone, or null if the zone was not read when the campaign
+     *     was captured.
+     */
+    ZoneDto getZoneDto(GUID zoneId) {
+      ZoneSnapshot snapshot = zones.get(zoneId);
+      return snapshot == null ? null : snapshot.getDto();
+    }
+
+    /** @return the loader of the zones that were not captured, or null. */
+    Campaign.ZoneLoader getSource() {
+      return source;
+    }
+  }
+}
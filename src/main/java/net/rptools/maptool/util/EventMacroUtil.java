@@ -20,10 +20,10 @@
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.MapToolVariableResolver;
 import net.rptools.maptool.client.functions.exceptions.*;
-import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.language.I18N;
 import net.rptools.maptool.model.TextMessage;
 import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
 import net.rptools.maptool.model.library.LibraryManager;
 import net.rptools.maptool.model.player.Player;
 import net.rptools.parser.ParserException;
@@ -34,9 +34,9 @@
 public class EventMacroUtil {
   private static final Logger LOGGER = LogManager.getLogger(EventMacroUtil.class);
   /**
-   * Scans all maps to find the first Lib:Token containing a macro that matches the given "callback"
-   * string. If more than one token has such a macro, the first one encountered is returned -
-   * because this order is unpredictable, this is very much not encouraged.
+   * Scans the maps with Lib:Tokens to find the first one containing a macro that matches the given
+   * "callback" string. If more than one token has such a macro, the first one encountered is
+   * returned - because this order is unpredictable, this is very much not encouraged.
    *
    * @param macroCallback the macro name to find
    * @return the first Lib:token found that contains the requested macro, or null if none
@@ -46,17 +46,18 @@ public static Token getEventMacroToken(final String macroCallback) {
   }
 
   /**
-   * Scans all maps to find any Lib:Tokens that contain a macro matching the given "callback" label.
+   * Scans the maps with Lib:Tokens to find any that contain a macro matching the given "callback"
+   * label.
    *
    * @param macroCallback the macro name to find
    * @return a (possibly empty) list of Lib:tokens that contain the requested macro
    */
   public static List<Token> getEventMacroTokens(final String macroCallback) {
     List<Token> found = new ArrayList<>();
-    List<ZoneRenderer> zrenderers = MapTool.getFrame().getZoneRenderers();
-    for (ZoneRenderer zr : zrenderers) {
+    // Only the zones the campaign index lists library tokens for are read
+    for (Zone zone : MapTool.getCampaign().getZonesWithLibTokens()) {
       List<Token> tokenList =
-          zr.getZone().getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"));
+          zone.getTokensFiltered(t -> t.getName().toLowerCase().startsWith("lib:"));
       for (Token token : tokenList) {
         // If the token is not owned by everyone and all owners are GMs
         // then we are in
@@ -0,0 +1,186 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import net.rptools.lib.io.PackedFile;
+import net.rptools.maptool.model.gamedata.DataStoreManager.NamespaceVersion;
+import net.rptools.maptool.model.gamedata.proto.GameDataDto;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads and writes the game data namespaces of a campaign file, each namespace in its own entry
+ * named after the namespace. Remembers which version of each namespace the entries of the last
+ * campaign file read or written hold, so that saving copies the entries of the namespaces that have
+ * not changed since instead of serializing them again.
+ */
+class GameDataEntries {
+  private static final Logger log = Logger.getLogger(GameDataEntries.class);
+
+  /** Directory of the game data namespace entries, each holding one {@link GameDataDto}. */
+  static final String NAMESPACE_DIR = "data/namespaces/";
+
+  /** The campaign file the entries were last read from or written to. */
+  private File file;
+
+  /** The version of the namespace held by each entry of {@link #file}. */
+  private Map<String, Long> versions = Map.of();
+
+  /**
+   * Returns the path of the entry of a namespace.
+   *
+   * @param type the property type of the namespace.
+   * @param namespace the namespace.
+   * @return the path of the entry.
+   */
+  static String getPath(String type, String namespace) {
+    return NAMESPACE_DIR + encode(type) + "/" + encode(namespace) + ".pb";
+  }
+
+  /** Encodes a name for use in a path, dots included so that no name can leave the directory. */
+  private static String encode(String name) {
+    return URLEncoder.encode(name, StandardCharsets.UTF_8).replace(".", "%2E").replace("*", "%2A");
+  }
+
+  /**
+   * Reads the namespace entries of a campaign file. Entries written by earlier versions, which are
+   * not named after their namespace, are read as well.
+   *
+   * @param packedFile the campaign file.
+   * @return the namespaces, by the path of their entry.
+   * @throws IOException if an entry can not be read.
+   */
+  static Map<String, GameDataDto> read(PackedFile packedFile) throws IOException {
+    var namespaces = new LinkedHashMap<String, GameDataDto>();
+    for (String path : packedFile.getPaths()) {
+      if (path.startsWith(NAMESPACE_DIR) && path.endsWith(".pb")) {
+        try (InputStream is = new BufferedInputStream(packedFile.getFileAsInputStream(path))) {
+          namespaces.put(path, GameDataDto.parseFrom(is));
+        }
+      }
+    }
+    return namespaces;
+  }
+
+  /**
+   * Remembers the campaign file that the namespaces were read from. Only entries named after their
+   * namespace are remembered, the others are written again on the next save.
+   *
+   * @param file the campaign file.
+   * @param paths the paths of the entries read from the file.
+   * @param namespaces the versions the namespaces have after reading them.
+   */
+  synchronized void setRead(File file, Set<String> paths, List<NamespaceVersion> namespaces) {
+    var read = new HashMap<String, Long>();
+    for (NamespaceVersion namespace : namespaces) {
+      read.put(getPath(namespace.type(), namespace.namespace()), namespace.version());
+    }
+    read.keySet().retainAll(paths);
+    this.file = file;
+    versions = read;
+  }
+
+  /**
+   * Remembers the campaign file that the namespaces were written to.
+   *
+   * @param file the campaign file.
+   * @param written the version of the namespace held by each entry written, as returned by {@link
+   *     #write(PackedFile, List, Function)}.
+   */
+  synchronized void setWritten(File file, Map<String, Long> written) {
+    this.file = file;
+    versions = written;
+  }
+
+  /** Forgets the campaign file, so that the next save writes all namespaces. */
+  synchronized void clear() {
+    file = null;
+    versions = Map.of();
+  }
+
+  /**
+   * Writes the entries of the namespaces. Namespaces at the version held by the last campaign file
+   * read or written are copied from that file, the others are serialized.
+   *
+   * @param target the campaign file to write to.
+   * @param namespaces the namespaces to write.
+   * @param data returns the serialized namespace, at the same or a newer version than the one
+   *     given, or {@code null} if the namespace no longer exists.
+   * @return the version of the namespace held by each entry written.
+   * @throws IOException if an entry can not be written.
+   */
+  Map<String, Long> write(
+      PackedFile target,
+      List<NamespaceVersion> namespaces,
+      Function<NamespaceVersion, byte[]> data)
+      throws IOException {
+    File source;
+    Map<String, Long> sourceVersions;
+    synchronized (this) {
+      source = file;
+      sourceVersions = versions;
+    }
+    var written = new HashMap<String, Long>();
+    PackedFile sourceFile = null;
+    try {
+      for (NamespaceVersion namespace : namespaces) {
+        String path = getPath(namespace.type(), namespace.namespace());
+        if (source != null && Objects.equals(sourceVersions.get(path), namespace.version())) {
+          try {
+            if (sourceFile == null) {
+              sourceFile = new PackedFile(source);
+            }
+            try (InputStream is = sourceFile.getFileAsInputStream(path)) {
+              target.putFile(path, is);
+            }
+            written.put(path, namespace.version());
+            continue;
+          } catch (IOException e) {
+            // The file has been moved or changed since, write the namespace instead
+            log.warn("Could not copy " + path + " from " + source, e);
+          }
+        }
+        byte[] bytes;
+        try {
+          bytes = data.apply(namespace);
+        } catch (CompletionException e) {
+          throw new IOException(e.getCause());
+        }
+        if (bytes != null) {
+          target.putFile(path, bytes);
+          written.put(path, namespace.version());
+        }
+      }
+    } finally {
+      if (sourceFile != null) {
+        sourceFile.close();
+      }
+    }
+    return written;
+  }
+}
@@ -35,6 +35,7 @@
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -64,18 +65,22 @@
 import net.rptools.maptool.model.MacroButtonProperties;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.ZoneSummary;
 import net.rptools.maptool.model.campaign.CampaignManager;
 import net.rptools.maptool.model.gamedata.DataStoreManager;
 import net.rptools.maptool.model.gamedata.GameDataImporter;
 import net.rptools.maptool.model.gamedata.proto.DataStoreDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataDto;
 import net.rptools.maptool.model.library.LibraryManager;
 import net.rptools.maptool.model.library.addon.AddOnLibrary;
 import net.rptools.maptool.model.library.addon.AddOnLibraryImporter;
 import net.rptools.maptool.model.library.proto.AddOnLibraryListDto;
+import net.rptools.maptool.model.proto.ZoneDto;
 import net.rptools.maptool.model.transform.campaign.AssetNameTransform;
 import net.rptools.maptool.model.transform.campaign.ExportInfoTransform;
 import net.rptools.maptool.model.transform.campaign.PCVisionTransform;
 import net.rptools.maptool.model.transform.campaign.TokenPropertyMapTransform;
+import net.rptools.maptool.util.CampaignSnapshots.ZoneSnapshotLoader;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -99,7 +104,10 @@ public class PersistenceUtil {
 
   private static final String GAME_DATA_FILE = GAME_DATA_DIR + "game-data.json";
 
-  private static final String CAMPAIGN_VERSION = "1.11.0";
+  /** The campaign without its zones, in campaign files that store each zone separately. */
+  private static final String CAMPAIGN_INDEX_FILE = "campaign.xml";
+
+  private static final String CAMPAIGN_VERSION = "1.12.0";
 
   // Please add a single note regarding why the campaign version number has been updated:
   // 1.3.70 ownerOnly added to model.Light (not backward compatible)
@@ -112,11 +120,18 @@ public class PersistenceUtil {
   // compatible
   // 1.11.0 Added add-on libraries, if loaded and saved with an older version then add-on
   //        libraries will be removed.
+  // 1.12.0 Zones are stored in their own protobuf entries next to a campaign index instead of
+  //        in content.xml, older versions cannot read these files. Game data namespaces are
+  //        stored in their own protobuf entries instead of game-data.json. The campaign index
+  //        (campaign.xml) and the zone fields kept in ZoneDto.extra_xml are still XStream XML.
 
   private static final ModelVersionManager campaignVersionManager = new ModelVersionManager();
   private static final ModelVersionManager assetnameVersionManager = new ModelVersionManager();
   private static final ModelVersionManager tokenVersionManager = new ModelVersionManager();
 
+  /** The game data entries of the campaign file last loaded or saved. */
+  private static final GameDataEntries gameDataEntries = new GameDataEntries();
+
   static {
     PackedFile.init(AppUtil.getAppHome("tmp")); // $NON-NLS-1$
 
@@ -180,6 +195,53 @@ public static class PersistedCampaign {
     public GUID currentZoneId;
     public Scale currentView;
     public String mapToolVersion;
+
+    /**
+     * The ids of the zones in campaign order, mapped to the assets each zone uses. Only set in the
+     * campaign index, where the zones themselves are not part of {@link #campaign}.
+     */
+    public Map<GUID, Set<MD5Key>> zoneAssets;
+
+    /**
+     * The summaries of the zones, by zone id, so that zones can be found by name or library token
+     * without being read. Only set in the campaign index, and missing from indexes saved by
+     * versions that did not record them.
+     */
+    public Map<GUID, ZoneSummary> zoneSummaries;
+  }
+
+  /** Reads the zones of a campaign file that stores each zone in its own entry. */
+  private static class ZoneEntryLoader implements Campaign.ZoneLoader {
+    private final File campaignFile;
+    private final String campaignVersion;
+
+    private ZoneEntryLoader(File campaignFile, String campaignVersion) {
+      this.campaignFile = campaignFile;
+      this.campaignVersion = campaignVersion;
+    }
+
+    @Override
+    public Zone loadZone(GUID zoneId) throws IOException {
+      try (PackedFile pakFile = new PackedFile(campaignFile)) {
+        Zone zone = ZoneEntries.read(pakFile, zoneId, campaignVersionManager, campaignVersion);
+        zone.optimize();
+        return zone;
+      }
+    }
+
+    /**
+     * Copies the entry of a zone to another campaign file, see {@link ZoneEntries#copy}.
+     *
+     * @param zoneId the id of the zone.
+     * @param target the campaign file to copy the entry to.
+     * @return the size of the copied entry, in bytes.
+     * @throws IOException if the entry could not be copied.
+     */
+    private long copyZone(GUID zoneId, PackedFile target) throws IOException {
+      try (PackedFile pakFile = new PackedFile(campaignFile)) {
+        return ZoneEntries.copy(pakFile, zoneId, campaignVersionManager, campaignVersion, target);
+      }
+    }
   }
 
   public static void saveMap(Zone z, File mapFile) throws IOException {
@@ -286,6 +348,7 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
     if (tmpFile.exists()) tmpFile.delete();
 
     PackedFile pakFile = null;
+    Map<String, Long> gameDataVersions;
     try {
       pakFile = new PackedFile(tmpFile);
       // Configure the meta file (this is for legacy support)
@@ -320,7 +383,8 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
 
       // Store the Game Data
       saveTimer.start("Save Game Data");
-      saveGameData(pakFile);
+      // Older versions expect all game data in game-data.json
+      gameDataVersions = saveGameData(pakFile, campaignVersion != null);
       saveTimer.stop("Save Game Data");
 
       try {
@@ -329,9 +393,11 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
         // If we are exporting the campaign, we will strip classes/fields that were added since the
         // specified campaignVersion
         if (campaignVersion != null) {
+          // Older versions expect all zones in content.xml
+          campaign.getZones();
           pakFile = CampaignExport.stripContent(pakFile, persistedCampaign, campaignVersion);
         } else {
-          pakFile.setContent(persistedCampaign);
+          saveZones(persistedCampaign, pakFile);
           pakFile.setProperty(PROP_CAMPAIGN_VERSION, CAMPAIGN_VERSION);
           pakFile.setProperty(PROP_VERSION, MapTool.getVersion());
         }
@@ -388,6 +454,9 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
     FileUtil.copyFile(tmpFile, campaignFile);
     tmpFile.delete();
     saveTimer.stop("Backup tmpFile");
+    if (campaignVersion == null) {
+      gameDataEntries.setWritten(campaignFile, gameDataVersions);
+    }
     if (bakFile.exists()) bakFile.delete();
     saveTimer.stop("Backup");
 
@@ -401,6 +470,79 @@ public static void saveCampaign(Campaign campaign, File campaignFile, String cam
     }
   }
 
+  /**
+   * Writes one entry per zone plus the campaign index. Zones that were not read from the campaign
+   * file they were loaded from, or have not changed since, have their entries copied rather than
+   * serialized again. Zones of a campaign captured by {@link CampaignSnapshots} are written from
+   * their captured messages.
+   *
+   * @param persistedCampaign the campaign to save.
+   * @param pakFile the file to save to.
+   * @throws IOException if a zone could not be saved.
+   */
+  private static void saveZones(PersistedCampaign persistedCampaign, PackedFile pakFile)
+      throws IOException {
+    Campaign campaign = persistedCampaign.campaign;
+    Map<GUID, Set<MD5Key>> zoneAssets = campaign.getZoneAssetIds();
+    Map<GUID, ZoneSummary> zoneSummaries = campaign.getZoneSummaries(ZoneSummary::new);
+    Campaign.ZoneLoader loader = campaign.getZoneLoader();
+    ZoneSnapshotLoader snapshots =
+        loader instanceof ZoneSnapshotLoader snapshotLoader ? snapshotLoader : null;
+    if (snapshots != null) {
+      loader = snapshots.getSource();
+    }
+    ZoneEntryLoader source = loader instanceof ZoneEntryLoader entryLoader ? entryLoader : null;
+
+    for (Iterator<GUID> it = zoneAssets.keySet().iterator(); it.hasNext(); ) {
+      GUID zoneId = it.next();
+      ZoneDto zoneDto = null;
+      if (campaign.isZoneUnchanged(zoneId)) {
+        zoneDto = snapshots != null ? snapshots.getZoneDto(zoneId) : null;
+        if (zoneDto == null && source != null) {
+          recordSize(zoneSummaries, zoneId, source.copyZone(zoneId, pakFile));
+          continue;
+        }
+      }
+      if (zoneDto == null) {
+        Zone zone = campaign.getZone(zoneId);
+        if (zone == null) {
+          // Removed while saving
+          it.remove();
+          continue;
+        }
+        zoneDto = zone.toDto();
+      }
+      ZoneEntries.write(pakFile, zoneId, zoneDto);
+      recordSize(zoneSummaries, zoneId, zoneDto.getSerializedSize());
+    }
+
+    persistedCampaign.zoneAssets = zoneAssets;
+    zoneSummaries.keySet().retainAll(zoneAssets.keySet());
+    persistedCampaign.zoneSummaries = zoneSummaries;
+    pakFile.getXStream().omitField(Campaign.class, "zones");
+    pakFile.putFile(CAMPAIGN_INDEX_FILE, persistedCampaign);
+  }
+
+  /** Records the size of the entry of a zone in its summary. */
+  private static void recordSize(Map<GUID, ZoneSummary> zoneSummaries, GUID zoneId, long size) {
+    ZoneSummary summary = zoneSummaries.get(zoneId);
+    if (summary != null) {
+      zoneSummaries.put(zoneId, summary.withSize(size));
+    }
+  }
+
+  /**
+   * Reads the campaign from either the campaign index or, for files that keep all zones in it, the
+   * content file.
+   */
+  private static Object getCampaignContent(PackedFile pakFile, String campaignVersion)
+      throws IOException {
+    if (pakFile.hasFile(CAMPAIGN_INDEX_FILE)) {
+      return pakFile.getFileObject(CAMPAIGN_INDEX_FILE, campaignVersionManager, campaignVersion);
+    }
+    return pakFile.getContent(campaignVersion);
+  }
+
   /*
    * A public function because I think it should be called when a campaign is opened as well so if it is opened then closed without saving, there is still a preview created; however, the rendering
    * of the campaign appears to complete after AppActions.loadCampaign returns, causing the preview to always appear as black if this method is called from within loadCampaign. Either need to find
@@ -456,7 +598,7 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
       campaignVersion = campaignVersion == null ? "1.3.50" : campaignVersion;
 
       try {
-        persistedCampaign = (PersistedCampaign) pakFile.getContent(campaignVersion);
+        persistedCampaign = (PersistedCampaign) getCampaignContent(pakFile, campaignVersion);
       } catch (ConversionException ce) {
         // Ignore the exception and check for "campaign == null" below...
         MapTool.showError("PersistenceUtil.error.campaignVersion", ce);
@@ -466,12 +608,26 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
         // Note that the values are all placeholders
         Set<MD5Key> allAssetIds = persistedCampaign.assetMap.keySet();
         loadAssets(allAssetIds, pakFile);
-        for (Zone zone : persistedCampaign.campaign.getZones()) {
-          zone.optimize();
+        Campaign campaign = persistedCampaign.campaign;
+        if (persistedCampaign.zoneAssets != null) {
+          campaign.setUnloadedZones(
+              new ZoneEntryLoader(campaignFile, campaignVersion),
+              persistedCampaign.zoneAssets,
+              persistedCampaign.zoneSummaries == null
+                  ? Map.of()
+                  : persistedCampaign.zoneSummaries);
+          // Only the current zone is read now, the others when they are first needed
+          if (persistedCampaign.currentZoneId != null) {
+            campaign.getZone(persistedCampaign.currentZoneId);
+          }
+        } else {
+          for (Zone zone : campaign.getZones()) {
+            zone.optimize();
+          }
         }
 
         new CampaignManager().clearCampaignData();
-        loadGameData(pakFile);
+        loadGameData(pakFile, campaignFile);
         loadAddOnLibraries(pakFile);
 
         // for (Entry<String, Map<GUID, LightSource>> entry :
@@ -491,7 +647,9 @@ public static PersistedCampaign loadCampaign(File campaignFile) throws IOExcepti
       MapTool.showWarning(
           I18N.getText(
               "PersistenceUtil.warn.campaignWrongFileType",
-              pakFile.getContent().getClass().getSimpleName()));
+              getCampaignContent(pakFile, (String) pakFile.getProperty(PROP_VERSION))
+                  .getClass()
+                  .getSimpleName()));
     } catch (RuntimeException rte) {
       MapTool.showError("PersistenceUtil.error.campaignRead", rte);
     } catch (Error e) {
@@ -790,15 +948,19 @@ private static void saveAddOnLibraries(PackedFile packedFile) throws IOException
     }
   }
 
-  private static void loadGameData(PackedFile packedFile) throws IOException {
+  private static void loadGameData(PackedFile packedFile, File campaignFile) throws IOException {
+    var builder = DataStoreDto.newBuilder();
+    Map<String, GameDataDto> namespaces = GameDataEntries.read(packedFile);
+    builder.addAllData(namespaces.values());
+    gameDataEntries.clear();
 
-    if (!packedFile.hasFile(GAME_DATA_FILE)) {
-      return; // No game data to import
+    if (builder.getDataCount() == 0) {
+      if (!packedFile.hasFile(GAME_DATA_FILE)) {
+        return; // No game data to import
+      }
+      JsonFormat.parser()
+          .merge(new InputStreamReader(packedFile.getFileAsInputStream(GAME_DATA_FILE)), builder);
     }
-
-    var builder = DataStoreDto.newBuilder();
-    JsonFormat.parser()
-        .merge(new InputStreamReader(packedFile.getFileAsInputStream(GAME_DATA_FILE)), builder);
     var dataStoreDto = builder.build();
 
     try {
@@ -807,9 +969,24 @@ private static void loadGameData(PackedFile packedFile) throws IOException {
     } catch (ExecutionException | InterruptedException e) {
       throw new IOException(e);
     }
+    if (!namespaces.isEmpty()) {
+      gameDataEntries.setRead(
+          campaignFile, namespaces.keySet(), new DataStoreManager().getNamespaceVersions());
+    }
   }
 
-  private static void saveGameData(PackedFile packedFile) throws IOException {
+  /**
+   * Saves the game data, each namespace in its own entry named after it. The entries of namespaces
+   * that have not changed since the campaign file was last loaded or saved are copied from that
+   * file, only the namespaces that changed are serialized again.
+   *
+   * @param packedFile the file to save to.
+   * @param legacy if the game data should be saved in a single JSON entry for older versions.
+   * @return the version of the namespace held by each entry, empty for the single JSON entry.
+   * @throws IOException if the game data can not be saved.
+   */
+  private static Map<String, Long> saveGameData(PackedFile packedFile, boolean legacy)
+      throws IOException {
     // Remove all the game data from the packed file first.
     for (String path : packedFile.getPaths()) {
       if (path.startsWith(GAME_DATA_DIR) && !path.equals(GAME_DATA_DIR)) {
@@ -819,12 +996,22 @@ private static void saveGameData(PackedFile packedFile) throws IOException {
 
     try {
       DataStoreManager dataStoreManager = new DataStoreManager();
-      DataStoreDto dto = dataStoreManager.toDto().get();
-      packedFile.putFile(
-          GAME_DATA_FILE, JsonFormat.printer().print(dto).getBytes(StandardCharsets.UTF_8));
+      Map<String, Long> versions = Map.of();
+      if (legacy) {
+        DataStoreDto dto = dataStoreManager.toDto().get();
+        packedFile.putFile(
+            GAME_DATA_FILE, JsonFormat.printer().print(dto).getBytes(StandardCharsets.UTF_8));
+      } else {
+        versions =
+            gameDataEntries.write(
+                packedFile,
+                dataStoreManager.getNamespaceVersions(),
+                n -> dataStoreManager.getNamespaceData(n.type(), n.namespace()).join());
+      }
 
       Set<MD5Key> assets = dataStoreManager.getAssets().get();
       saveAssets(dataStoreManager.getAssets().get(), packedFile);
+      return versions;
     } catch (ExecutionException | InterruptedException e) {
       throw new IOException(e);
     }
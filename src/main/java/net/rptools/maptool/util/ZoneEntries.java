@@ -0,0 +1,121 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import net.rptools.lib.ModelVersionManager;
+import net.rptools.lib.io.PackedFile;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.proto.ZoneDto;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Reads and writes the zone entries of a campaign file. Zones are written as {@link ZoneDto}
+ * messages; entries written as XStream XML by earlier versions are still read, and are written as
+ * messages when they are copied to another campaign file.
+ */
+class ZoneEntries {
+
+  /** Directory of the zone entries, each named after the id of the zone. */
+  static final String ZONE_DIR = "zones/";
+
+  private ZoneEntries() {}
+
+  static String getPath(GUID zoneId) {
+    return ZONE_DIR + zoneId + ".pb";
+  }
+
+  static String getXmlPath(GUID zoneId) {
+    return ZONE_DIR + zoneId + ".xml";
+  }
+
+  /**
+   * Reads the entry of a zone.
+   *
+   * @param pakFile the campaign file.
+   * @param zoneId the id of the zone.
+   * @param versionManager the transforms for XML entries written by older versions, or null.
+   * @param campaignVersion the version of the campaign file.
+   * @return the zone.
+   * @throws IOException if the entry could not be read.
+   */
+  static Zone read(
+      PackedFile pakFile, GUID zoneId, ModelVersionManager versionManager, String campaignVersion)
+      throws IOException {
+    String path = getPath(zoneId);
+    if (pakFile.hasFile(path)) {
+      try (InputStream is = new BufferedInputStream(pakFile.getFileAsInputStream(path))) {
+        return Zone.fromDto(ZoneDto.parseFrom(is));
+      }
+    }
+    // Zone entries written as XML
+    path = getXmlPath(zoneId);
+    Object content = pakFile.getFileObject(path, versionManager, campaignVersion);
+    if (!(content instanceof Zone)) {
+      throw new IOException("Unexpected content in " + path + " of " + pakFile.getPackedFile());
+    }
+    return (Zone) content;
+  }
+
+  /**
+   * Writes the entry of a zone.
+   *
+   * @param pakFile the campaign file.
+   * @param zoneId the id of the zone.
+   * @param zoneDto the message of the zone.
+   * @throws IOException if the entry could not be written.
+   */
+  static void write(PackedFile pakFile, GUID zoneId, ZoneDto zoneDto) throws IOException {
+    try (OutputStream os = new BufferedOutputStream(pakFile.getOutputStream(getPath(zoneId)))) {
+      zoneDto.writeTo(os);
+    }
+  }
+
+  /**
+   * Copies the entry of a zone to another campaign file. Message entries are copied without
+   * deserializing them, XML entries are read and written as messages.
+   *
+   * @param source the campaign file to copy the entry from.
+   * @param zoneId the id of the zone.
+   * @param versionManager the transforms for XML entries written by older versions, or null.
+   * @param campaignVersion the version of the source campaign file.
+   * @param target the campaign file to copy the entry to.
+   * @return the size of the copied entry, in bytes.
+   * @throws IOException if the entry could not be copied.
+   */
+  static long copy(
+      PackedFile source,
+      GUID zoneId,
+      ModelVersionManager versionManager,
+      String campaignVersion,
+      PackedFile target)
+      throws IOException {
+    String path = getPath(zoneId);
+    if (source.hasFile(path)) {
+      try (CountingInputStream is = new CountingInputStream(source.getFileAsInputStream(path))) {
+        target.putFile(path, is);
+        return is.getByteCount();
+      }
+    }
+    ZoneDto zoneDto = read(source, zoneId, versionManager, campaignVersion).toDto();
+    write(target, zoneId, zoneDto);
+    return zoneDto.getSerializedSize();
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.webapi;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import java.util.Map;
+
+/**
+ * Builds JSON merge patches (RFC 7396), used to send web clients only the fields that changed
+ * since the last message. In a patch a field holds its new value, a null value removes the field
+ * and an object value is itself a patch of the object in the field. Arrays are replaced whole.
+ */
+final class JsonMergePatch {
+
+  private JsonMergePatch() {}
+
+  /**
+   * Returns the patch that turns one object into another.
+   *
+   * @param source the object the web client has.
+   * @param target the object it should have.
+   * @return the patch, which has no fields if the objects are equal.
+   */
+  static JsonObject diff(JsonObject source, JsonObject target) {
+    JsonObject patch = new JsonObject();
+    for (Map.Entry<String, JsonElement> entry : target.entrySet()) {
+      JsonElement old = source.get(entry.getKey());
+      JsonElement value = entry.getValue();
+      if (old != null && old.isJsonObject() && value.isJsonObject()) {
+        JsonObject fieldPatch = diff(old.getAsJsonObject(), value.getAsJsonObject());
+        if (fieldPatch.size() > 0) {
+          patch.add(entry.getKey(), fieldPatch);
+        }
+      } else if (value.isJsonNull()) {
+        if (old != null && !old.isJsonNull()) {
+          patch.add(entry.getKey(), JsonNull.INSTANCE);
+        }
+      } else if (!value.equals(old)) {
+        patch.add(entry.getKey(), value);
+      }
+    }
+    for (String key : source.keySet()) {
+      if (!target.has(key) && !source.get(key).isJsonNull()) {
+        patch.add(key, JsonNull.INSTANCE);
+      }
+    }
+    return patch;
+  }
+}
@@ -17,11 +17,15 @@
 import com.google.gson.JsonObject;
 import java.io.IOException;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 
 public class MTWebSocket extends WebSocketAdapter {
 
+  private static final Logger log = LogManager.getLogger(MTWebSocket.class);
+
   /** The Session of this socket. */
   private Session session;
 
@@ -31,9 +35,8 @@ public class MTWebSocket extends WebSocketAdapter {
    * messages in the conversation.
    */
   public void onWebSocketConnect(Session session) {
-    System.out.println("DEBUG: Websocket Connect from " + session.getRemoteAddress().getAddress());
+    log.debug("Websocket connect from {}", session.getRemoteAddress().getAddress());
     this.session = session;
-    System.out.println("DEBUG: Connected");
     MTWebClientManager.getInstance().addClient(this);
   }
 
@@ -44,7 +47,7 @@ public void onWebSocketBinary(byte[] bytes, int x, int y) {
 
   @Override
   public void onWebSocketText(String message) {
-    System.out.println("DEBUG: Got Message" + message);
+    log.debug("Got message {}", message);
     // FIXME: need to test this is valid
     try {
       JsonObject json = JSONMacroFunctions.getInstance().asJsonElement(message).getAsJsonObject();
@@ -53,8 +56,7 @@ public void onWebSocketText(String message) {
       JsonObject data = json.get("data").getAsJsonObject();
 
       if ("initiative".equals(messageType)) {
-        System.out.println("DEBUG: Got an initiative message");
-        WebAppInitiative.getInstance().processInitiativeMessage(data);
+        WebAppInitiative.getInstance().processInitiativeMessage(this, messageId, data);
       } else if ("tokenInfo".equals(messageType) || "tokenProperties".equals(messageType)) {
         WebTokenInfo.getInstance().sendTokenInfo(this, messageId, data);
       } else if ("macro".equals(messageType)) {
@@ -63,22 +65,22 @@ public void onWebSocketText(String message) {
         WebTokenInfo.getInstance().processSetProperties(data);
       }
     } catch (Exception e) {
-      e.printStackTrace(); // FIXME: fix this to deal with error properly.
+      log.warn("Unable to process websocket message " + message, e);
     }
   }
 
   @Override
   public void onWebSocketError(Throwable cause) {
-    System.out.println("DEBUG: Websocket Error " + cause.getMessage());
-    System.out.println(
-        "DEBUG: number connections = "
-            + MTWebClientManager.getInstance().getClientSessions().size());
+    log.warn(
+        "Websocket error, number of connections = {}",
+        MTWebClientManager.getInstance().getClientSessions().size(),
+        cause);
     MTWebClientManager.getInstance().removeClient(this);
   }
 
   @Override
   public void onWebSocketClose(int statusCode, String reason) {
-    System.out.println("DEBUG: Websocket Close from " + session.getRemoteAddress().getAddress());
+    log.debug("Websocket close from {}", session.getRemoteAddress().getAddress());
     MTWebClientManager.getInstance().removeClient(this);
   }
 
@@ -103,12 +105,12 @@ void sendMessage(String messageType, String inResponseTo, JsonObject data) {
 
     try {
       session.getRemote().sendString(message.toString());
-      System.out.println("DEBUG: Wrote: " + message.toString());
+      log.debug("Wrote {}", message);
     } catch (IOException ioe) {
-      System.out.println("DEBUG: websocket write error.");
-      System.out.println(
-          "DEBUG: number connections = "
-              + MTWebClientManager.getInstance().getClientSessions().size());
+      log.warn(
+          "Websocket write error, number of connections = {}",
+          MTWebClientManager.getInstance().getClientSessions().size(),
+          ioe);
       MTWebClientManager.getInstance().removeClient(this);
     }
   }
@@ -14,127 +14,262 @@
  */
 package net.rptools.maptool.webapi;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.client.AppUtil;
 import net.rptools.maptool.model.Asset;
 import net.rptools.maptool.model.AssetManager;
 import net.rptools.maptool.model.Token;
 import net.rptools.maptool.util.ImageManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 
+/**
+ * Serves token images to the web clients.
+ *
+ * <p>Images are served by the MD5 key of their asset under {@code /token/asset/<key>}. As the
+ * content of such a URL never changes it is sent with a long lived cache header. The older {@code
+ * image}, {@code portrait} and {@code portraitOrImage} paths take the id of a token; they send the
+ * same data but the browser has to check for a newer image with the {@code ETag}, which is the key
+ * of the asset. Both answer conditional requests with 304 and support single byte ranges.
+ *
+ * <p>A {@code size} parameter asks for a PNG scaled down to fit a square of that many pixels. The
+ * size is rounded up to one of {@link #VARIANT_SIZES}, and the scaled images are kept on disk.
+ */
 public class TokenImageHandler extends AbstractHandler {
+
+  private static final Logger log = LogManager.getLogger(TokenImageHandler.class);
+
+  /** The path of the images addressed by the key of their asset. */
+  public static final String ASSET_PATH = "asset";
+
+  /** The sizes of the scaled images, in pixels. */
+  private static final int[] VARIANT_SIZES = {32, 64, 128, 256, 512};
+
+  /** Cache header of content addressed images, which never change. */
+  private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+
+  /** Cache header of images found by token, which must be checked each time they are used. */
+  private static final String CACHE_REVALIDATE = "no-cache";
+
+  private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-fA-F]{32}");
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+  /** The directory the scaled images are kept in. */
+  private final File variantDir = AppUtil.getAppHome("webcache");
+
   @Override
   public void handle(
       String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
       throws IOException {
 
     String args[] = target.replaceAll("^/", "").split("/");
+    if (args.length < 2) {
+      return;
+    }
+    int size = getVariantSize(request.getParameter("size"));
 
-    for (String s : args) {
-      System.out.println("DEBUG: ARGS: " + s);
+    if (ASSET_PATH.equalsIgnoreCase(args[0])) {
+      if (MD5_PATTERN.matcher(args[1]).matches()) {
+        MD5Key key = new MD5Key(args[1].toLowerCase());
+        baseRequest.setHandled(sendAsset(request, response, key, size, CACHE_IMMUTABLE));
+      }
+      return;
     }
 
+    Token token = WebTokenInfo.getInstance().findTokenFromId(args[1]);
+    if (token == null) {
+      log.debug("Unable to find token " + args[1]);
+      return;
+    }
+    MD5Key key;
     if ("portrait".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendPortrait(response, args[1]));
+      key = token.getPortraitImage();
     } else if ("image".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendImage(response, args[1]));
+      key = token.getImageAssetId();
     } else if ("portraitOrImage".equalsIgnoreCase(args[0])) {
-      baseRequest.setHandled(sendPortraitOrImage(response, args[1]));
-    }
-
-    /*
-     * response.setContentType("text/html; charset=utf-8"); response.setStatus(HttpServletResponse.SC_OK);
-     *
-     * PrintWriter out = response.getWriter();
-     *
-     * baseRequest.setHandled(true);
-     */
-  }
-
-  private boolean sendImage(HttpServletResponse response, String tokenId) throws IOException {
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
-      return false;
-      // FIXME: log this error
+      key = token.getPortraitImage() != null ? token.getPortraitImage() : token.getImageAssetId();
+    } else {
+      return;
     }
 
-    if (token.getImageAssetId() == null) {
+    if (key == null) {
       response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
+      response.setHeader("Cache-Control", CACHE_REVALIDATE);
       response.setStatus(HttpServletResponse.SC_OK);
+      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
+      baseRequest.setHandled(true);
     } else {
-      Asset asset = AssetManager.getAsset(token.getImageAssetId());
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
-      response.setStatus(HttpServletResponse.SC_OK);
+      baseRequest.setHandled(sendAsset(request, response, key, size, CACHE_REVALIDATE));
+    }
+  }
+
+  /**
+   * Returns the size of scaled image to send for a requested size.
+   *
+   * @param parameter the requested size, may be null.
+   * @return the size, or 0 to send the image as it is.
+   */
+  private static int getVariantSize(String parameter) {
+    if (parameter == null) {
+      return 0;
+    }
+    try {
+      int requested = Integer.parseInt(parameter);
+      for (int size : VARIANT_SIZES) {
+        if (requested <= size) {
+          return requested > 0 ? size : 0;
+        }
+      }
+    } catch (NumberFormatException e) {
+      // Not a size so send the image as it is
+    }
+    return 0;
+  }
 
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
+  private boolean sendAsset(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      MD5Key key,
+      int size,
+      String cacheControl)
+      throws IOException {
+    String etag = "\"" + key + (size > 0 ? "-" + size : "") + "\"";
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", cacheControl);
+    response.setHeader("Accept-Ranges", "bytes");
+    if (matchesETag(request.getHeader("If-None-Match"), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
     }
 
+    Asset asset = AssetManager.getAsset(key);
+    if (asset == null) {
+      response.setHeader("Cache-Control", CACHE_REVALIDATE);
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return true;
+    }
+    byte[] data = size > 0 ? getVariant(asset, size) : null;
+    String contentType = "image/png";
+    if (data == null) {
+      data = asset.getData();
+      contentType = "image/" + asset.getExtension();
+    }
+    response.setContentType(contentType);
+    sendBytes(request, response, data);
     return true;
   }
 
-  private boolean sendPortrait(HttpServletResponse response, String tokenId) throws IOException {
-
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
+  private static boolean matchesETag(String header, String etag) {
+    if (header == null) {
       return false;
-      // FIXME: log this error
     }
+    for (String tag : header.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*") || tag.replaceFirst("^W/", "").equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    if (token.getPortraitImage() == null) {
-      response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
-      response.setStatus(HttpServletResponse.SC_OK);
+  /** Sends the data, or the part of it asked for by a single byte range. */
+  private static void sendBytes(
+      HttpServletRequest request, HttpServletResponse response, byte[] data) throws IOException {
+    int start = 0;
+    int end = data.length - 1;
+    String range = request.getHeader("Range");
+    Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range.trim());
+    if (matcher != null && matcher.matches()) {
+      try {
+        if (matcher.group(1).isEmpty()) {
+          // Suffix range, the last bytes of the data
+          start = Math.max(0, data.length - Integer.parseInt(matcher.group(2)));
+        } else {
+          start = Integer.parseInt(matcher.group(1));
+          if (!matcher.group(2).isEmpty()) {
+            end = Math.min(end, Integer.parseInt(matcher.group(2)));
+          }
+        }
+      } catch (NumberFormatException e) {
+        start = data.length; // Too large to satisfy
+      }
+      if (start > end) {
+        response.setHeader("Content-Range", "bytes */" + data.length);
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        return;
+      }
+      response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
     } else {
-      Asset asset = AssetManager.getAsset(token.getPortraitImage());
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
       response.setStatus(HttpServletResponse.SC_OK);
-
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
     }
-
-    return true;
+    response.setContentLength(end - start + 1);
+    response.getOutputStream().write(data, start, end - start + 1);
   }
 
-  private boolean sendPortraitOrImage(HttpServletResponse response, String tokenId)
-      throws IOException {
-
-    System.out.println("DEBUG: Here (> 0) as well");
-    Token token = WebTokenInfo.getInstance().findTokenFromId(tokenId);
-    if (token == null) {
-      return false;
-      // FIXME: log this error
+  /**
+   * Returns an image scaled down to fit a size, as a PNG. Scaled images are made once and kept on
+   * disk, images that are already small enough are not scaled.
+   *
+   * @param asset the asset of the image.
+   * @param size the size to fit.
+   * @return the PNG data, or null if the image should be sent as it is.
+   */
+  private byte[] getVariant(Asset asset, int size) throws IOException {
+    File file = new File(variantDir, asset.getMD5Key() + "-" + size + ".png");
+    if (file.exists()) {
+      return Files.readAllBytes(file.toPath());
     }
 
-    Asset asset = null;
-    if (token.getPortraitImage() != null) {
-      asset = AssetManager.getAsset(token.getPortraitImage());
-    } else if (token.getImageAssetId() != null) {
-      asset = AssetManager.getAsset(token.getImageAssetId());
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(asset.getData()));
+    if (image == null || (image.getWidth() <= size && image.getHeight() <= size)) {
+      return null;
     }
+    double scale = Math.min(size / (double) image.getWidth(), size / (double) image.getHeight());
+    int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+    int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+    BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = scaled.createGraphics();
+    g.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    g.drawImage(image, 0, 0, width, height, null);
+    g.dispose();
 
-    if (asset != null) {
-      byte[] image = asset.getData();
-      response.setContentType("image/" + asset.getExtension());
-      response.setStatus(HttpServletResponse.SC_OK);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(scaled, "png", out);
+    byte[] data = out.toByteArray();
 
-      response.setContentLength(image.length);
-      response.getOutputStream().write(image);
-    } else {
-      response.setContentType("image/png");
-      ImageIO.write(ImageManager.BROKEN_IMAGE, "png", response.getOutputStream());
-      response.setStatus(HttpServletResponse.SC_OK);
+    // Written to a temporary file first, so other requests never read a partial image
+    File temp = null;
+    try {
+      variantDir.mkdirs();
+      temp = File.createTempFile(file.getName(), ".tmp", variantDir);
+      Files.write(temp.toPath(), data);
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Unable to keep scaled image " + file, e);
+    } finally {
+      if (temp != null) {
+        temp.delete();
+      }
     }
-
-    return true;
+    return data;
   }
 }
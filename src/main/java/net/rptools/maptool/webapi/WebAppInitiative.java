@@ -15,10 +15,13 @@
 package net.rptools.maptool.webapi;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.*;
 import net.rptools.lib.AppEvent;
 import net.rptools.lib.AppEventListener;
@@ -59,7 +62,11 @@ public void propertyChange(PropertyChangeEvent evt) {
       // This should really be run in a separate thread, but to do that I need to work out
       // concurrency issues.
       sendInitiative();
-      System.out.println("Here!");
+    }
+
+    @Override
+    public Dispatch getDispatch() {
+      return Dispatch.COALESCED_BACKGROUND;
     }
 
     public void modelChanged(ModelChangeEvent event) {
@@ -71,7 +78,6 @@ public void modelChanged(ModelChangeEvent event) {
 
     @Override
     public void handleAppEvent(AppEvent appEvent) {
-      System.out.println("Here in handleAppEvent");
       setZone((Zone) appEvent.getNewValue());
       sendInitiative();
     }
@@ -83,6 +89,15 @@ public void updateListeners() {
 
   private InitiativeListener initiativeListener;
 
+  /** The initiative as last sent to all sessions, the base of the next delta. */
+  private JsonObject sentInitiative;
+
+  /** The version of {@link #sentInitiative}, which deltas are made from. */
+  private long version;
+
+  /** Set while changes are waiting to be sent, so that a burst of them is sent once. */
+  private final AtomicBoolean sendPending = new AtomicBoolean();
+
   public static WebAppInitiative getInstance() {
     return instance;
   }
@@ -93,7 +108,6 @@ private WebAppInitiative() {
         () -> {
           MapTool.getEventDispatcher().addListener(initiativeListener, MapTool.ZoneEvent.Activated);
           initiativeListener.updateListeners();
-          System.out.println("Here...");
         });
   }
 
@@ -121,6 +135,12 @@ private JsonObject getInitiativeDetails() {
          * if (AppUtil.playerOwns(token.getToken())) { tokJSon.put("playerOwns", "true"); } else { tokJSon.put("playerOwns", "false"); }
          */
         tokJSon.addProperty("playerOwns", AppUtil.playerOwns(token.getToken()));
+        if (token.getToken().getImageAssetId() != null) {
+          tokJSon.addProperty("imageAsset", token.getToken().getImageAssetId().toString());
+        }
+        if (token.getToken().getPortraitImage() != null) {
+          tokJSon.addProperty("portraitAsset", token.getToken().getPortraitImage().toString());
+        }
         tokArray.add(tokJSon);
       }
       index++;
@@ -135,19 +155,106 @@ private JsonObject getInitiativeDetails() {
   }
 
   void sendInitiative(MTWebSocket mtws) {
-    mtws.sendMessage("initiative", getInitiativeDetails());
+    sendInitiative(mtws, null);
   }
 
-  void sendInitiative(MTWebSocket mtws, String inReponseTo) {
-    mtws.sendMessage("initiative", inReponseTo, getInitiativeDetails());
+  /**
+   * Sends the whole initiative to a client, at the version the next delta will be made from.
+   *
+   * @param mtws the web socket of the client.
+   * @param inReponseTo the message this is a response to, may be null.
+   */
+  synchronized void sendInitiative(MTWebSocket mtws, String inReponseTo) {
+    if (sentInitiative == null) {
+      sentInitiative = getInitiativeDetails();
+      version++;
+    }
+    mtws.sendMessage("initiative", inReponseTo, withVersion(sentInitiative));
   }
 
+  /**
+   * Sends the changes to the initiative to all sessions. Changes made before the send are sent
+   * together, as an {@code initiative-delta} message if the tokens in the list are the same and in
+   * the same order, otherwise as the whole initiative.
+   */
   void sendInitiative() {
+    if (sendPending.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(this::sendInitiativeChanges);
+    }
+  }
+
+  private synchronized void sendInitiativeChanges() {
+    sendPending.set(false);
     JsonObject init = getInitiativeDetails();
-    MTWebClientManager.getInstance().sendToAllSessions("initiative", init);
+    JsonObject sent = sentInitiative;
+    sentInitiative = init;
+    if (sent == null || !sameTokens(sent, init)) {
+      version++;
+      MTWebClientManager.getInstance().sendToAllSessions("initiative", withVersion(init));
+      return;
+    }
+
+    // Fields of the initiative and of its entries that changed, by the position of the entry
+    JsonArray entries = init.getAsJsonArray("initiative");
+    JsonObject delta = new JsonObject();
+    for (Map.Entry<String, JsonElement> field : JsonMergePatch.diff(sent, init).entrySet()) {
+      if (!field.getKey().equals("initiative")) {
+        delta.add(field.getKey(), field.getValue());
+      }
+    }
+    JsonObject entryChanges = new JsonObject();
+    for (int i = 0; i < entries.size(); i++) {
+      JsonObject changed =
+          JsonMergePatch.diff(
+              sent.getAsJsonArray("initiative").get(i).getAsJsonObject(),
+              entries.get(i).getAsJsonObject());
+      if (changed.size() > 0) {
+        entryChanges.add(Integer.toString(i), changed);
+      }
+    }
+    if (entryChanges.size() > 0) {
+      delta.add("entries", entryChanges);
+    }
+    if (delta.size() == 0) {
+      return; // Nothing the web clients show
+    }
+    delta.addProperty("baseVersion", version);
+    delta.addProperty("version", ++version);
+    MTWebClientManager.getInstance().sendToAllSessions("initiative-delta", delta);
+  }
+
+  /** @return true if two initiatives have the same tokens in the same order. */
+  private static boolean sameTokens(JsonObject one, JsonObject two) {
+    JsonArray entriesOne = one.getAsJsonArray("initiative");
+    JsonArray entriesTwo = two.getAsJsonArray("initiative");
+    if (entriesOne.size() != entriesTwo.size()) {
+      return false;
+    }
+    for (int i = 0; i < entriesOne.size(); i++) {
+      JsonElement idOne = entriesOne.get(i).getAsJsonObject().get("id");
+      if (!idOne.equals(entriesTwo.get(i).getAsJsonObject().get("id"))) {
+        return false;
+      }
+    }
+    return true;
   }
 
-  void processInitiativeMessage(JsonObject json) {
+  private JsonObject withVersion(JsonObject init) {
+    JsonObject json = new JsonObject();
+    for (Map.Entry<String, JsonElement> field : init.entrySet()) {
+      json.add(field.getKey(), field.getValue());
+    }
+    json.addProperty("version", version);
+    return json;
+  }
+
+  void processInitiativeMessage(MTWebSocket mtws, String messageId, JsonObject json) {
+    if ("refresh".equals(json.get("command").getAsString())) {
+      // The client missed a delta
+      sendInitiative(mtws, messageId);
+      return;
+    }
+
     InitiativeList ilist = initiativeListener.initiativeList;
     String currentInit = Integer.toString(ilist.getCurrent());
     String currentRound = Integer.toString(ilist.getRound());
@@ -164,8 +271,6 @@ void processInitiativeMessage(JsonObject json) {
 
     String command = json.get("command").getAsString();
     if ("nextInitiative".equals(command)) {
-      System.out.println("DEBUG: got next initiative call" + json.toString());
-
       if (canAdvanceInitiative()) { // Trust a web client? You gotta be joking :)
         ilist.nextInitiative();
       }
@@ -182,7 +287,6 @@ void processInitiativeMessage(JsonObject json) {
       int index = 0;
       for (InitiativeList.TokenInitiative ti : ilist.getTokens()) {
         if (ti.getId().equals(id) && tokenIndex == index) {
-          System.out.println("DEBUG: Here, index = " + index + ", id = " + ti.getId());
           tokenInit = ti;
           break;
         }
@@ -192,7 +296,6 @@ void processInitiativeMessage(JsonObject json) {
       if (tokenInit == null) {
         // FIXME: need to log this.
       } else {
-        System.out.println("DEBUG: Here, changing holding on " + tokenInit.getToken().getName());
         tokenInit.setHolding(!tokenInit.isHolding());
       }
 
@@ -15,23 +15,33 @@
 package net.rptools.maptool.webapi;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import net.rptools.lib.AppEventListener;
+import net.rptools.lib.MD5Key;
 import net.rptools.maptool.client.MapTool;
 import net.rptools.maptool.client.functions.json.JSONMacroFunctions;
 import net.rptools.maptool.client.ui.zone.ZoneRenderer;
 import net.rptools.maptool.model.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class WebTokenInfo {
 
+  private static final Logger log = LogManager.getLogger(WebTokenInfo.class);
+
   private static final WebTokenInfo instance = new WebTokenInfo();
 
   private final AppEventListener appEventListener;
   private final Map<Zone, ModelChangeListener> modelChangeListeners = new WeakHashMap<>();
 
+  /** The fields of each token as last sent to the web clients, to send only what changed. */
+  private final Map<GUID, JsonObject> sentTokenFields = new ConcurrentHashMap<>();
+
   private WebTokenInfo() {
     // Add listener for new zones.
     appEventListener =
@@ -50,15 +60,26 @@ private void addTokenChangeListeners() {
       if (modelChangeListeners.containsKey(zone) == false) {
         modelChangeListeners.put(
             zone,
-            event -> {
-              System.out.println("DEBUG: Event " + event.eventType);
-              if (event.eventType == Zone.Event.TOKEN_CHANGED) {
-                tokenChanged((Token) event.getArg());
-              } else if (event.eventType == Zone.Event.TOKEN_ADDED) {
-                tokenAdded((Token) event.getArg());
-              } else if (event.eventType == Zone.Event.TOKEN_REMOVED) {
-                for (Token token : event.getTokensAsList()) {
-                  tokenRemoved(token);
+            new ModelChangeListener() {
+              @Override
+              public Dispatch getDispatch() {
+                return Dispatch.COALESCED_BACKGROUND;
+              }
+
+              @Override
+              public void modelChanged(ModelChangeEvent event) {
+                if (event.eventType == Zone.Event.TOKEN_CHANGED) {
+                  for (Token token : event.getTokensAsList()) {
+                    tokenChanged(token);
+                  }
+                } else if (event.eventType == Zone.Event.TOKEN_ADDED) {
+                  for (Token token : event.getTokensAsList()) {
+                    tokenAdded(token);
+                  }
+                } else if (event.eventType == Zone.Event.TOKEN_REMOVED) {
+                  for (Token token : event.getTokensAsList()) {
+                    tokenRemoved(token);
+                  }
                 }
               }
             });
@@ -68,10 +89,24 @@ private void addTokenChangeListeners() {
   }
 
   private void tokenChanged(Token token) {
+    if (MTWebClientManager.getInstance().getClientSessions().isEmpty()) {
+      sentTokenFields.clear();
+      return;
+    }
+    JsonObject fields = getTokenFields(token);
+    JsonObject sent = sentTokenFields.put(token.getId(), fields);
+    JsonObject changed = JsonMergePatch.diff(sent != null ? sent : new JsonObject(), fields);
+    if (changed.size() == 0) {
+      return; // Nothing the web clients show
+    }
+
     JsonObject jobj = new JsonObject();
     JsonArray tokenArray = new JsonArray();
     tokenArray.add(token.getId().toString());
     jobj.add("tokensChanged", tokenArray);
+    JsonObject changes = new JsonObject();
+    changes.add(token.getId().toString(), changed);
+    jobj.add("changes", changes);
 
     MTWebClientManager.getInstance().sendToAllSessions("token-update", jobj);
   }
@@ -86,6 +121,7 @@ private void tokenAdded(Token token) {
   }
 
   private void tokenRemoved(Token token) {
+    sentTokenFields.remove(token.getId());
     JsonObject jobj = new JsonObject();
     JsonArray tokenArray = new JsonArray();
     tokenArray.add(token.getId().toString());
@@ -94,12 +130,41 @@ private void tokenRemoved(Token token) {
     MTWebClientManager.getInstance().sendToAllSessions("token-update", jobj);
   }
 
+  /**
+   * Returns the fields of a token shown by the web clients. The changes to these fields are sent
+   * with the {@code token-update} message as a JSON merge patch.
+   *
+   * @param token the token.
+   * @return the fields.
+   */
+  private JsonObject getTokenFields(Token token) {
+    JsonObject fields = new JsonObject();
+    fields.addProperty("name", token.getName());
+    fields.addProperty("label", token.getLabel());
+    fields.addProperty("notes", token.getNotes());
+    MD5Key image = token.getImageAssetId();
+    fields.addProperty("imageAsset", image != null ? image.toString() : null);
+    MD5Key portrait = token.getPortraitImage();
+    fields.addProperty("portraitAsset", portrait != null ? portrait.toString() : null);
+
+    JsonObject properties = new JsonObject();
+    for (TokenProperty tp : MapTool.getCampaign().getTokenPropertyList(token.getPropertyType())) {
+      Object property = token.getProperty(tp.getName());
+      properties.add(
+          tp.getName(),
+          property != null
+              ? JSONMacroFunctions.getInstance().asJsonElement(property)
+              : JsonNull.INSTANCE);
+    }
+    fields.add("properties", properties);
+    return fields;
+  }
+
   public static WebTokenInfo getInstance() {
     return instance;
   }
 
   public Token findTokenFromId(String tokenId) {
-    System.out.println("DEBUG: tokenId = " + tokenId);
     final GUID id = new GUID(tokenId);
 
     final List<Token> tokenList = new ArrayList<>();
@@ -157,9 +222,8 @@ void sendTokenProperties(MTWebSocket mtws, String inResponseTo, JsonObject data)
     Token token = findTokenFromId(tokenId);
 
     if (token == null) {
-      System.out.println("DEBUG: sendTokenInfo(): Unable to find token " + tokenId);
+      log.debug("Unable to find token {}", tokenId);
       return;
-      // FIXME: log this error
     }
 
     JsonObject jobj = new JsonObject();
@@ -196,9 +260,8 @@ void sendTokenRegisterdProperties(MTWebSocket mtws, String inResponseTo, JsonObj
     Token token = findTokenFromId(tokenId);
 
     if (token == null) {
-      System.out.println("DEBUG: sendTokenInfo(): Unable to find token " + tokenId);
+      log.debug("Unable to find token {}", tokenId);
       return;
-      // FIXME: log this error
     }
 
     JsonObject jobj = new JsonObject();
@@ -273,9 +336,8 @@ void processSetProperties(JsonObject data) {
     final Zone zone = findZoneTokenIsOn(token);
 
     if (token == null) {
-      System.out.println("DEBUG: sendTokenInfo(): Unable to find token " + tokenId);
+      log.debug("Unable to find token {}", tokenId);
       return;
-      // FIXME: log this error
     }
 
     final JsonObject props = data.get("properties").getAsJsonObject();
@@ -329,6 +329,49 @@ var MapTool = new (function() {
     }
 
 
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // Gets the url for retrieving an image by the MD5 key of its asset, such
+    // as the imageAsset and portraitAsset of the initiative entries. These
+    // never change, so the browser can keep them. If size is given the image is
+    // scaled down to fit a square of that many pixels.
+    //
+    ////////////////////////////////////////////////////////////////////////////
+    this.assetURL = function(assetKey, size) {
+        var url = '/token/asset/' + assetKey;
+        if (size) {
+            url += '?size=' + size;
+        }
+        return url;
+    }
+
+
+    ////////////////////////////////////////////////////////////////////////////
+    //
+    // Applies a JSON merge patch (RFC 7396) to an object, returning the
+    // patched copy. Null values in the patch remove fields.
+    //
+    ////////////////////////////////////////////////////////////////////////////
+    this.applyMergePatch = function(target, patch) {
+        var result = $.extend({}, target);
+        for (var field in patch) {
+            var value = patch[field];
+            if (value === null) {
+                delete result[field];
+            } else if (typeof(value) === 'object' && !$.isArray(value)) {
+                var old = result[field];
+                if (typeof(old) !== 'object' || old === null || $.isArray(old)) {
+                    old = {};
+                }
+                result[field] = this.applyMergePatch(old, value);
+            } else {
+                result[field] = value;
+            }
+        }
+        return result;
+    }
+
+
     this.sendMessage = function(messageType, data, callback) {
         __MapTool.sendMessage(messageType, data, callback);
     }
@@ -344,6 +387,9 @@ var MapTool = new (function() {
         var currentInitiative;
         var currentRound;
 
+        // The initiative deltas are applied to.
+        var initiativeData;
+
         var listenerSupport = new ListenerSupport();
 
         ////////////////////////////////////////////////////////////////////////
@@ -352,11 +398,38 @@ var MapTool = new (function() {
         //
         ////////////////////////////////////////////////////////////////////////
         var updateInitiative = function(data) {
+            initiativeData = data;
             currentInitiative = data.current;
             currentRound = data.round;
             listenerSupport.updateListeners(data);
         }
 
+        ////////////////////////////////////////////////////////////////////////
+        //
+        // Function that gets called with the fields of the initiative that
+        // changed. If a delta was missed the whole initiative is asked for.
+        //
+        ////////////////////////////////////////////////////////////////////////
+        var updateInitiativeDelta = function(delta) {
+            if (!initiativeData || initiativeData.version !== delta.baseVersion) {
+                MapTool.sendMessage('initiative', { command: 'refresh' });
+                return;
+            }
+
+            var data = $.extend({}, initiativeData);
+            data.initiative = initiativeData.initiative.slice();
+            for (var index in delta.entries) {
+                data.initiative[index] =
+                    MapTool.applyMergePatch(data.initiative[index], delta.entries[index]);
+            }
+            for (var field in delta) {
+                if (field !== 'entries' && field !== 'baseVersion') {
+                    data[field] = delta[field];
+                }
+            }
+            updateInitiative(data);
+        }
+
         ////////////////////////////////////////////////////////////////////////
         //
         // Register a listener for initiative changes.
@@ -454,6 +527,7 @@ var MapTool = new (function() {
 
         // Register the initiative listener.
         __MapTool.regisetListener("initiative", updateInitiative);
+        __MapTool.regisetListener("initiative-delta", updateInitiativeDelta);
 
     })();
 
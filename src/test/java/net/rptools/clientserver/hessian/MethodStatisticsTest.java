@@ -0,0 +1,50 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.hessian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.SortedMap;
+import org.junit.jupiter.api.Test;
+
+class MethodStatisticsTest {
+
+  @Test
+  void testCounters() {
+    MethodStatistics statistics = new MethodStatistics();
+    statistics.recordSent("putToken", 3, 200, 100, 1000);
+    statistics.recordSent("putToken", 1, 50, 40, 500);
+    statistics.recordHandled("putToken", 2000, 1500);
+    statistics.recordHandled("draw", 10, 5);
+
+    SortedMap<String, MethodStatistics.Counters> counters = statistics.getCounters();
+    assertEquals(List.of("draw", "putToken"), List.copyOf(counters.keySet()));
+
+    MethodStatistics.Counters putToken = counters.get("putToken");
+    assertEquals(2, putToken.getSent());
+    assertEquals(4, putToken.getMessages());
+    assertEquals(250, putToken.getSerializedBytes());
+    // A broadcast is queued once for each client
+    assertEquals(340, putToken.getCompressedBytes());
+    assertEquals(1500, putToken.getSerializeTime());
+    assertEquals(1, putToken.getHandled());
+    assertEquals(2000, putToken.getHandleTime());
+    assertEquals(1500, putToken.getHandleCpuTime());
+    assertEquals(2, statistics.getHandled());
+    assertEquals(1505, statistics.getHandleCpuTime());
+    assertEquals(0, counters.get("draw").getSent());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.clientserver.simple;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MessageQueueTest {
+
+  private enum TestChannel implements WeightedChannel {
+    HEAVY(4),
+    LIGHT(1);
+
+    private final int weight;
+
+    TestChannel(int weight) {
+      this.weight = weight;
+    }
+
+    @Override
+    public int getWeight() {
+      return weight;
+    }
+  }
+
+  private static byte[] message(int tag, int length) {
+    byte[] data = new byte[length];
+    data[0] = (byte) tag;
+    return data;
+  }
+
+  @Test
+  void testChannelsShareByWeight() {
+    MessageQueue queue = new MessageQueue();
+    int length = MessageQueue.QUANTUM;
+    for (int i = 0; i < 10; i++) {
+      queue.add(TestChannel.LIGHT, message(1, length));
+    }
+    for (int i = 0; i < 10; i++) {
+      queue.add(TestChannel.HEAVY, message(4, length));
+    }
+
+    List<Integer> order = new ArrayList<>();
+    byte[] data;
+    while ((data = queue.poll()) != null) {
+      order.add((int) data[0]);
+    }
+    // The heavy channel goes first and sends four messages for each one of the light channel
+    assertEquals(List.of(4, 4, 4, 4, 1, 4, 4, 4, 4, 1, 4, 4, 1), order.subList(0, 13));
+    assertEquals(20, order.size());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  void testLargeMessageIsSent() {
+    MessageQueue queue = new MessageQueue();
+    queue.add(TestChannel.LIGHT, message(1, 10 * MessageQueue.QUANTUM));
+    queue.add(null, message(2, 10));
+
+    assertEquals(2, queue.poll()[0]);
+    assertEquals(1, queue.poll()[0]);
+    assertNull(queue.poll());
+  }
+
+  @Test
+  void testBandwidthCap() {
+    MessageQueue queue = new MessageQueue();
+    queue.setBandwidthCap(TestChannel.HEAVY, 100);
+    queue.add(TestChannel.HEAVY, message(4, 150));
+    queue.add(TestChannel.HEAVY, message(4, 10));
+
+    // The first message uses more than the cap, the next one waits for the cap to refill
+    assertNotNull(queue.poll());
+    assertNull(queue.poll());
+    assertEquals(1, queue.getStatistics().get(TestChannel.HEAVY).getQueued());
+    assertEquals(150, queue.getStatistics().get(TestChannel.HEAVY).getBytes());
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.image;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class PngStreamWriterTest {
+
+  private static int pixel(int x, int y) {
+    return 0xff000000 | ((x * 7) & 0xff) << 16 | ((y * 13) & 0xff) << 8 | ((x ^ y) & 0xff);
+  }
+
+  @Test
+  void testRowsWrittenInStrips() throws IOException {
+    int width = 70;
+    int height = 45;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (PngStreamWriter png = new PngStreamWriter(out, width, height)) {
+      for (int y = 0; y < height; y += 10) {
+        int rows = Math.min(10, height - y);
+        int[] strip = new int[width * rows];
+        for (int row = 0; row < rows; row++) {
+          for (int x = 0; x < width; x++) {
+            strip[row * width + x] = pixel(x, y + row);
+          }
+        }
+        png.writeRows(strip, 0, width, rows);
+      }
+    }
+
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(width, image.getWidth());
+    assertEquals(height, image.getHeight());
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        assertEquals(pixel(x, y), image.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  void testMissingRows() throws IOException {
+    PngStreamWriter png = new PngStreamWriter(new ByteArrayOutputStream(), 10, 10);
+    png.writeRows(new int[10], 0, 10, 1);
+    assertThrows(IOException.class, png::close);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.lib.image;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ThumbnailIndexTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void testReopen() throws IOException {
+    ThumbnailIndex index = ThumbnailIndex.open(dir.toFile());
+    index.put("/maps/a.png", 10, 100, 64, 64, new byte[] {1, 2, 3});
+    index.put("/maps/b.png", 20, 200, 64, 64, new byte[] {4, 5});
+    index.put("/maps/a.png", 30, 300, 64, 64, new byte[] {6});
+    index.close();
+
+    index = ThumbnailIndex.open(dir.toFile());
+    ThumbnailIndex.Entry a = index.get("/maps/a.png");
+    assertEquals(30, a.lastModified());
+    assertEquals(300, a.length());
+    assertArrayEquals(new byte[] {6}, index.read(a));
+    assertArrayEquals(new byte[] {4, 5}, index.read(index.get("/maps/b.png")));
+    index.close();
+  }
+
+  @Test
+  void testDamagedRecordIsDropped() throws IOException {
+    ThumbnailIndex index = ThumbnailIndex.open(dir.toFile());
+    index.put("/maps/a.png", 10, 100, 64, 64, new byte[] {1, 2, 3});
+    index.put("/maps/b.png", 20, 200, 64, 64, new byte[] {4, 5});
+    index.close();
+
+    File pack = dir.toFile().listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(pack, "rw")) {
+      file.setLength(file.length() - 1);
+    }
+
+    index = ThumbnailIndex.open(dir.toFile());
+    assertArrayEquals(new byte[] {1, 2, 3}, index.read(index.get("/maps/a.png")));
+    assertNull(index.get("/maps/b.png"));
+    index.put("/maps/b.png", 20, 200, 64, 64, new byte[] {7});
+    assertArrayEquals(new byte[] {7}, index.read(index.get("/maps/b.png")));
+    index.close();
+  }
+
+  @Test
+  void testClear() throws IOException {
+    ThumbnailIndex index = ThumbnailIndex.open(dir.toFile());
+    index.put("/maps/a.png", 10, 100, 64, 64, new byte[] {1, 2, 3});
+    index.clear();
+    assertNull(index.get("/maps/a.png"));
+    index.close();
+
+    index = ThumbnailIndex.open(dir.toFile());
+    assertNull(index.get("/maps/a.png"));
+    assertEquals(1, dir.toFile().listFiles().length);
+    index.close();
+  }
+
+  @Test
+  void testOldThumbnailFilesAreDeleted() throws IOException {
+    File old = new File(dir.toFile(), "0123456789abcdef0123456789ABCDEF");
+    File other = new File(dir.toFile(), "notes.txt");
+    assertTrue(old.createNewFile());
+    assertTrue(other.createNewFile());
+
+    ThumbnailIndex index = ThumbnailIndex.open(dir.toFile());
+    assertFalse(old.exists());
+    assertTrue(other.exists());
+    index.close();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import net.rptools.maptool.model.GUID;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.TokenPropertyUpdate;
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
+import net.rptools.maptool.server.ServerCommand.COMMAND;
+import org.junit.jupiter.api.Test;
+
+class ServerCommandClientImplTest {
+
+  private final List<COMMAND> commands = new ArrayList<>();
+  private final List<Object[]> parameters = new ArrayList<>();
+  private final ServerCommandClientImpl serverCommand =
+      new ServerCommandClientImpl(
+          (command, params) -> {
+            commands.add(command);
+            parameters.add(params);
+          });
+
+  @Test
+  void testBatchIsSentBeforeOtherCommands() {
+    GUID zoneGUID = new GUID();
+    GUID first = new GUID();
+    GUID second = new GUID();
+
+    serverCommand.beginTokenBatch();
+    serverCommand.updateTokenProperty(zoneGUID, first, Token.Update.setPC, new Object[0]);
+    serverCommand.updateTokenProperty(zoneGUID, second, Token.Update.setNPC, new Object[0]);
+    assertTrue(commands.isEmpty());
+
+    serverCommand.restoreZoneView(zoneGUID);
+    serverCommand.updateTokenProperty(zoneGUID, first, Token.Update.setNPC, new Object[0]);
+    serverCommand.endTokenBatch();
+
+    assertEquals(
+        List.of(
+            COMMAND.updateTokenProperties, COMMAND.restoreZoneView, COMMAND.updateTokenProperty),
+        commands);
+    @SuppressWarnings("unchecked")
+    List<TokenPropertyUpdate> updates = (List<TokenPropertyUpdate>) parameters.get(0)[1];
+    assertEquals(first, updates.get(0).getTokenGUID());
+    assertEquals(second, updates.get(1).getTokenGUID());
+    assertEquals(first, parameters.get(2)[1]);
+  }
+
+  @Test
+  void testBatchIsSentWhenOutermostBatchEnds() {
+    GUID zoneGUID = new GUID();
+    GUID tokenGUID = new GUID();
+
+    serverCommand.beginTokenBatch();
+    serverCommand.beginTokenBatch();
+    serverCommand.updateTokenProperty(zoneGUID, tokenGUID, Token.Update.setPC, new Object[0]);
+    serverCommand.endTokenBatch();
+    assertTrue(commands.isEmpty());
+
+    serverCommand.endTokenBatch();
+    assertEquals(List.of(COMMAND.updateTokenProperty), commands);
+    assertEquals(Token.Update.setPC, parameters.get(0)[2]);
+
+    // Without a batch the changes are sent right away.
+    serverCommand.updateTokenProperty(zoneGUID, tokenGUID, Token.Update.setNPC, new Object[0]);
+    assertEquals(2, commands.size());
+  }
+
+  @Test
+  void testDataChangesAreSentBeforeOtherCommands() throws InvalidProtocolBufferException {
+    GUID zoneGUID = new GUID();
+
+    serverCommand.updateData("type", "namespace", longValue("a", 1));
+    serverCommand.updateData("type", "namespace", longValue("a", 2));
+    serverCommand.updateData("type", "namespace", longValue("b", 3));
+    serverCommand.removeData("type", "namespace", "b");
+    serverCommand.restoreZoneView(zoneGUID);
+
+    assertEquals(List.of(COMMAND.updateDataDelta, COMMAND.restoreZoneView), commands);
+    var delta = GameDataDeltaDto.parseFrom((byte[]) parameters.get(0)[0]);
+    assertEquals(1, delta.getSequence());
+    assertEquals(List.of(longValue("a", 2)), delta.getValuesList());
+    assertEquals(List.of("b"), delta.getRemovedNamesList());
+
+    serverCommand.updateData("type", "namespace", longValue("a", 4));
+    serverCommand.updateData("type", "other", longValue("a", 5));
+    serverCommand.restoreZoneView(zoneGUID);
+
+    assertEquals(5, commands.size());
+    var next = GameDataDeltaDto.parseFrom((byte[]) parameters.get(2)[0]);
+    assertEquals(2, next.getSequence());
+    assertEquals(delta.getSource(), next.getSource());
+    var other = GameDataDeltaDto.parseFrom((byte[]) parameters.get(3)[0]);
+    assertEquals("other", other.getNamespace());
+    assertEquals(1, other.getSequence());
+  }
+
+  @Test
+  void testDataChangesOfClearedNamespaceAreDropped() {
+    serverCommand.updateData("type", "namespace", longValue("a", 1));
+    serverCommand.removeDataNamespace("type", "namespace");
+
+    assertEquals(List.of(COMMAND.removeDataNamespace), commands);
+  }
+
+  private static GameDataValueDto longValue(String name, long value) {
+    return GameDataValueDto.newBuilder().setName(name).setLongValue(value).build();
+  }
+}
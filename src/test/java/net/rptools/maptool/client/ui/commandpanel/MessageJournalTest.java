@@ -0,0 +1,78 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.ui.commandpanel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MessageJournalTest {
+
+  @TempDir Path dir;
+
+  private MessageJournal journal;
+
+  @BeforeEach
+  void setup() throws IOException {
+    journal = new MessageJournal(dir.resolve("chat.journal").toFile());
+    journal.append("<div>one</div>");
+    journal.append("<div>zwei über</div>");
+    journal.append("<div>three</div>");
+  }
+
+  @Test
+  @DisplayName("Messages are read back by index")
+  void testRead() throws IOException {
+    assertEquals(3, journal.size());
+    assertEquals(List.of("<div>zwei über</div>", "<div>three</div>"), journal.read(1, 3));
+  }
+
+  @Test
+  @DisplayName("Saving appends only the new messages")
+  void testSave() throws IOException {
+    File chatLog = dir.resolve("chatlog.html").toFile();
+    journal.save(chatLog, "<html>");
+    journal.append("<div>four</div>");
+    journal.save(chatLog, "<html>");
+
+    assertEquals(
+        "<html><div>one</div><div>zwei über</div><div>three</div><div>four</div>",
+        Files.readString(chatLog.toPath(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  @DisplayName("Messages saved before clearing stay in the chat log")
+  void testClear() throws IOException {
+    File chatLog = dir.resolve("chatlog.html").toFile();
+    journal.save(chatLog, "<html>");
+    journal.clear();
+    journal.append("<div>new</div>");
+    journal.save(chatLog, "<html>");
+
+    assertEquals(1, journal.size());
+    assertEquals(
+        "<html><div>one</div><div>zwei über</div><div>three</div><div>new</div>",
+        Files.readString(chatLog.toPath(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AStarNodesTest {
+
+  @Test
+  @DisplayName("Cell keys survive growth and clearing of the map")
+  void testLongIntHashMap() {
+    LongIntHashMap map = new LongIntHashMap(4);
+    for (int i = -500; i < 500; i++) {
+      map.put(LongIntHashMap.cellKey(i, -i), i + 500);
+    }
+    assertEquals(1000, map.size());
+    for (int i = -500; i < 500; i++) {
+      assertEquals(i + 500, map.get(LongIntHashMap.cellKey(i, -i)));
+    }
+    assertEquals(LongIntHashMap.NO_VALUE, map.get(LongIntHashMap.cellKey(-1, -1)));
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(LongIntHashMap.NO_VALUE, map.get(LongIntHashMap.cellKey(3, -3)));
+    map.put(LongIntHashMap.cellKey(3, -3), 7);
+    assertEquals(7, map.get(LongIntHashMap.cellKey(3, -3)));
+  }
+
+  @Test
+  @DisplayName("Nodes come off the open list by F cost, including after decrease-key")
+  void testOpenListOrder() {
+    AStarNodes nodes = new AStarNodes();
+    Random random = new Random(42);
+    for (int i = 0; i < 3000; i++) {
+      int node = nodes.create(i, 0, false);
+      nodes.g[node] = random.nextInt(1000);
+      nodes.h[node] = random.nextInt(1000);
+      nodes.open(node);
+    }
+    for (int i = 0; i < 3000; i += 3) {
+      int node = nodes.find(i, 0, false);
+      nodes.g[node] -= 500;
+      nodes.decreased(node);
+    }
+
+    double last = Double.NEGATIVE_INFINITY;
+    int count = 0;
+    while (!nodes.isOpenListEmpty()) {
+      int node = nodes.poll();
+      assertTrue(nodes.fCost(node) >= last);
+      assertEquals(AStarNodes.CLOSED, nodes.state[node]);
+      last = nodes.fCost(node);
+      count++;
+    }
+    assertEquals(3000, count);
+  }
+
+  @Test
+  @DisplayName("Even and odd nodes of a cell are distinct")
+  void testOddNodes() {
+    AStarNodes nodes = new AStarNodes();
+    int even = nodes.create(2, 5, false);
+    nodes.close(2, 5, true);
+    int odd = nodes.find(2, 5, true);
+    assertTrue(even != odd);
+    assertEquals(AStarNodes.NEW, nodes.state[even]);
+    assertEquals(AStarNodes.CLOSED, nodes.state[odd]);
+
+    nodes.clear();
+    assertEquals(AStarNodes.NONE, nodes.find(2, 5, false));
+    assertEquals(0, nodes.size());
+  }
+}
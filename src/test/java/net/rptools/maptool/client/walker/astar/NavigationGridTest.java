@@ -0,0 +1,75 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.client.walker.astar;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import net.rptools.maptool.client.walker.astar.NavigationGrid.BlockingLayer;
+import net.rptools.maptool.model.CellPoint;
+import net.rptools.maptool.model.Grid;
+import net.rptools.maptool.model.SquareGrid;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.Zone.TopologyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NavigationGridTest {
+
+  private Zone zone;
+
+  @BeforeEach
+  void setup() {
+    zone = new Zone();
+    Grid grid = new SquareGrid();
+    grid.setSize(50);
+    zone.setGrid(grid);
+  }
+
+  @Test
+  @DisplayName("Moves across MBL are blocked")
+  void testBlockedMoves() {
+    // A wall between the first and second column of cells.
+    zone.addTopology(new Area(new Rectangle(48, 0, 4, 200)), TopologyType.MBL);
+    BlockingLayer layer = NavigationGrid.forZone(zone).getBlockingLayer(false);
+
+    assertTrue(layer.blocksMove(zone.getGrid(), 0, 0, 1, 0));
+    assertTrue(layer.blocksMove(zone.getGrid(), 1, 1, -1, 1));
+    assertFalse(layer.blocksMove(zone.getGrid(), 0, 0, 0, 1));
+    // Asked again, the answer comes from the cache.
+    assertTrue(layer.blocksMove(zone.getGrid(), 0, 0, 1, 0));
+    assertTrue(layer.getBlockedMoves().containsKey(new CellPoint(1, 0)));
+  }
+
+  @Test
+  @DisplayName("The layer is shared until the topology changes")
+  void testTopologyChange() {
+    zone.addTopology(new Area(new Rectangle(48, 0, 4, 200)), TopologyType.MBL);
+    NavigationGrid grid = NavigationGrid.forZone(zone);
+    BlockingLayer layer = grid.getBlockingLayer(false);
+    assertSame(layer, grid.getBlockingLayer(false));
+    assertTrue(layer.blocksMove(zone.getGrid(), 0, 0, 1, 0));
+
+    zone.removeTopology(new Area(new Rectangle(48, 0, 4, 200)), TopologyType.MBL);
+    BlockingLayer updated = grid.getBlockingLayer(false);
+    assertNotSame(layer, updated);
+    assertFalse(updated.blocksMove(zone.getGrid(), 0, 0, 1, 0));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.rptools.clientserver.simple.MessageQueue;
+import net.rptools.maptool.client.ClientCommand;
+import net.rptools.maptool.common.MapToolConstants.Channel;
+import org.junit.jupiter.api.Test;
+
+class MapToolConstantsTest {
+
+  @Test
+  void testTokenMovesStayOnModelChannel() {
+    // Token drags refer to tokens and zones, so they must not overtake the commands adding them
+    for (ClientCommand.COMMAND command :
+        List.of(
+            ClientCommand.COMMAND.putToken,
+            ClientCommand.COMMAND.putZone,
+            ClientCommand.COMMAND.startTokenMove,
+            ClientCommand.COMMAND.updateTokenMove,
+            ClientCommand.COMMAND.toggleTokenMoveWaypoint,
+            ClientCommand.COMMAND.stopTokenMove)) {
+      assertEquals(Channel.MODEL, Channel.forMethod(command.name()), command.name());
+    }
+    assertEquals(Channel.INTERACTIVE, Channel.forMethod(ClientCommand.COMMAND.movePointer.name()));
+    assertEquals(
+        Channel.IMAGE, Channel.forMethod(ClientCommand.COMMAND.updateAssetTransfer.name()));
+  }
+
+  @Test
+  void testModelCommandsKeepTheirOrder() {
+    List<String> sent =
+        List.of(
+            ClientCommand.COMMAND.putToken.name(),
+            ClientCommand.COMMAND.movePointer.name(),
+            ClientCommand.COMMAND.startTokenMove.name(),
+            ClientCommand.COMMAND.movePointer.name(),
+            ClientCommand.COMMAND.stopTokenMove.name(),
+            ClientCommand.COMMAND.putToken.name());
+    MessageQueue queue = new MessageQueue();
+    for (String method : sent) {
+      queue.add(Channel.forMethod(method), method.getBytes());
+    }
+
+    List<String> received = new ArrayList<>();
+    byte[] message;
+    while ((message = queue.poll()) != null) {
+      received.add(new String(message));
+    }
+    List<String> modelCommands = new ArrayList<>(sent);
+    modelCommands.removeIf(method -> Channel.forMethod(method) != Channel.MODEL);
+    received.removeIf(method -> Channel.forMethod(method) != Channel.MODEL);
+    assertEquals(modelCommands, received);
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.rptools.lib.MD5Key;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CampaignZonesTest {
+
+  private final Map<GUID, Zone> stored = new HashMap<>();
+  private final List<GUID> reads = new ArrayList<>();
+  private final Map<GUID, Set<MD5Key>> zoneAssets = new LinkedHashMap<>();
+  private final List<GUID> ids = new ArrayList<>();
+
+  private Campaign campaign;
+
+  @BeforeEach
+  void setup() {
+    for (int i = 0; i < 4; i++) {
+      Zone zone = new Zone();
+      stored.put(zone.getId(), zone);
+      ids.add(zone.getId());
+      zoneAssets.put(zone.getId(), Set.of(new MD5Key(new byte[] {(byte) i})));
+    }
+    campaign = new Campaign();
+    campaign.setUnloadedZones(
+        zoneId -> {
+          synchronized (reads) {
+            reads.add(zoneId);
+          }
+          if (zoneId.equals(ids.get(3))) {
+            throw new IOException("corrupt entry");
+          }
+          return stored.get(zoneId);
+        },
+        zoneAssets);
+  }
+
+  @Test
+  @DisplayName("Zones are read on first access and keep the campaign order")
+  void testLazyZones() {
+    assertSame(stored.get(ids.get(2)), campaign.getZone(ids.get(2)));
+    assertEquals(List.of(ids.get(2)), reads);
+    assertTrue(campaign.isZoneUnloaded(ids.get(0)));
+
+    List<Zone> zones = campaign.getZones();
+    assertSame(stored.get(ids.get(0)), zones.get(0));
+    assertSame(stored.get(ids.get(1)), zones.get(1));
+    assertSame(stored.get(ids.get(2)), zones.get(2));
+    assertEquals(3, zones.size());
+    assertFalse(campaign.isZoneUnloaded(ids.get(0)));
+  }
+
+  @Test
+  @DisplayName("Zones that cannot be read are kept for saving and not read again")
+  void testUnreadableZone() {
+    assertNull(campaign.getZone(ids.get(3)));
+    campaign.getZones();
+    campaign.getZones();
+    assertEquals(1, reads.stream().filter(ids.get(3)::equals).count());
+    assertTrue(campaign.isZoneUnloaded(ids.get(3)));
+    assertEquals(ids, new ArrayList<>(campaign.getZoneAssetIds().keySet()));
+  }
+
+  @Test
+  @DisplayName("Asset ids of unread zones are known without reading them")
+  void testAssetIds() {
+    assertTrue(campaign.getAllAssetIds().containsAll(zoneAssets.get(ids.get(1))));
+    assertTrue(campaign.containsAsset(zoneAssets.get(ids.get(0)).iterator().next()));
+    assertTrue(reads.isEmpty());
+
+    campaign.removeZone(ids.get(1));
+    assertFalse(campaign.getZoneAssetIds().containsKey(ids.get(1)));
+    assertNull(campaign.getZone(ids.get(1)));
+    assertTrue(reads.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Opening, copying and saving a campaign reads only the zones that are used")
+  void testUntouchedZonesAreNotRead() {
+    // Opening reads the current zone only
+    Zone current = campaign.getZone(ids.get(0));
+    assertEquals(List.of(ids.get(0)), reads);
+
+    // The copy of the server and the ids and assets used for saving come from the index
+    Campaign copy = new Campaign(campaign);
+    assertEquals(ids, campaign.getZoneIds());
+    assertEquals(ids, new ArrayList<>(campaign.getZoneAssetIds().keySet()));
+    assertEquals(4, campaign.getZoneCount());
+    assertEquals(List.of(ids.get(0)), reads);
+
+    // Zones that were read but did not change are copied from the file when saving
+    assertTrue(campaign.isZoneUnchanged(ids.get(0)));
+    assertTrue(campaign.isZoneUnchanged(ids.get(1)));
+    current.setName("Changed");
+    assertFalse(campaign.isZoneUnchanged(ids.get(0)));
+    assertTrue(copy.isZoneUnchanged(ids.get(1)));
+  }
+
+  @Test
+  @DisplayName("Zones are found by name or library token reading only the matching zones")
+  void testZoneSummaries() {
+    stored.get(ids.get(1)).setName("Dungeon");
+    Token lib = new Token("Lib:Macros", null);
+    stored.get(ids.get(2)).putToken(lib);
+    Map<GUID, ZoneSummary> summaries = new HashMap<>();
+    for (GUID id : ids) {
+      summaries.put(id, new ZoneSummary(stored.get(id)));
+    }
+    campaign = new Campaign();
+    campaign.setUnloadedZones(
+        zoneId -> {
+          reads.add(zoneId);
+          return stored.get(zoneId);
+        },
+        zoneAssets,
+        summaries);
+
+    assertEquals(List.of(stored.get(ids.get(2))), campaign.getZonesWithLibTokens());
+    assertEquals(List.of(ids.get(2)), reads);
+    assertEquals(List.of(stored.get(ids.get(1))), campaign.getZonesNamed("dungeon"));
+    assertEquals(List.of(ids.get(2), ids.get(1)), reads);
+    assertEquals(ids, new ArrayList<>(campaign.getZoneSummaries().keySet()));
+    assertEquals(List.of(ids.get(2), ids.get(1)), reads);
+  }
+
+  @Test
+  @DisplayName("Zones the campaign index has no summary of are read to find them")
+  void testMissingZoneSummaries() {
+    assertTrue(campaign.getZonesWithLibTokens().isEmpty());
+    assertEquals(ids.size(), reads.size());
+    assertEquals(ids.subList(0, 3), new ArrayList<>(campaign.getZoneSummaries().keySet()));
+  }
+
+  @Test
+  @DisplayName("The size of the zones is estimated from their entries without reading them")
+  void testEstimateZonesSize() {
+    Map<GUID, ZoneSummary> summaries = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      summaries.put(ids.get(i), new ZoneSummary(stored.get(ids.get(i))).withSize(100 * (i + 1)));
+    }
+    campaign = new Campaign();
+    campaign.setUnloadedZones(stored::get, zoneAssets, summaries);
+
+    // The zone without a known size counts with the average size
+    assertEquals(800, campaign.estimateZonesSize());
+    campaign.getZone(ids.get(1));
+    assertEquals(800, campaign.estimateZonesSize());
+
+    // A changed zone no longer has the size of its entry
+    campaign.getZone(ids.get(0)).setName("Changed");
+    assertEquals(1000, campaign.estimateZonesSize());
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InitiativePatchTest {
+
+  private Zone zone;
+  private List<Token> tokens;
+
+  @BeforeEach
+  void setUp() {
+    zone = new Zone();
+    tokens = List.of(new Token(), new Token(), new Token());
+    tokens.forEach(zone::putToken);
+  }
+
+  /** @return the ids, holds and states of a list, in order. */
+  private static List<String> describe(InitiativeList list) {
+    return list.getTokens().stream()
+        .map(ti -> ti.getId() + "/" + ti.isHolding() + "/" + ti.getState())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  void testPatchAppliedInSequence() {
+    InitiativeList sender = new InitiativeList(zone);
+    InitiativeList receiver = new InitiativeList(zone);
+
+    // Changes are only sent when the outer unit of work finishes
+    sender.startUnitOfWork();
+    sender.insertTokens(tokens);
+    sender.getTokenInitiative(0).setState("3");
+    sender.getTokenInitiative(2).setState("20");
+    sender.getTokenInitiative(1).setHolding(true);
+    sender.sort();
+    sender.setRound(2);
+    sender.setCurrent(1);
+    sender.moveToken(0, 3);
+    sender.removeToken(0);
+    InitiativePatch patch = sender.takePatch();
+    assertNull(sender.takePatch());
+
+    assertTrue(receiver.applyPatch(patch));
+    assertEquals(describe(sender), describe(receiver));
+    assertEquals(sender.getCurrent(), receiver.getCurrent());
+    assertEquals(2, receiver.getRound());
+  }
+
+  @Test
+  void testPatchFromOtherSequence() {
+    InitiativeList sender = new InitiativeList(zone);
+    InitiativeList receiver = new InitiativeList(zone);
+    receiver.startUnitOfWork();
+    receiver.setRound(4);
+    receiver.takePatch();
+
+    sender.startUnitOfWork();
+    sender.insertTokens(tokens);
+    assertFalse(receiver.applyPatch(sender.takePatch()));
+    assertEquals(describe(sender), describe(receiver));
+    assertEquals(4, receiver.getRound());
+  }
+
+  @Test
+  void testPatchAppliedOnce() {
+    InitiativeList list = new InitiativeList(zone);
+    list.startUnitOfWork();
+    list.insertTokens(tokens);
+    InitiativePatch patch = list.takePatch();
+
+    assertTrue(list.applyPatch(patch));
+    assertEquals(tokens.size(), list.getSize());
+  }
+}
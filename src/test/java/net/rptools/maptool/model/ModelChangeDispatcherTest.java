@@ -0,0 +1,144 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ModelChangeDispatcherTest {
+
+  /** Collects the events it receives on the background dispatch thread. */
+  private static class BackgroundListener implements ModelChangeListener {
+    private final List<ModelChangeEvent> events = new ArrayList<>();
+    private final CountDownLatch received;
+
+    /** @param expected the number of events to receive before {@link #received} opens. */
+    BackgroundListener(int expected) {
+      received = new CountDownLatch(expected);
+    }
+
+    @Override
+    public Dispatch getDispatch() {
+      return Dispatch.COALESCED_BACKGROUND;
+    }
+
+    @Override
+    public void modelChanged(ModelChangeEvent event) {
+      events.add(event);
+      received.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("Token events queued for a coalescing listener are merged")
+  void testTokenEventsMerged() throws InterruptedException {
+    Zone zone = new Zone();
+    List<Token> tokens = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Token token = new Token();
+      tokens.add(token);
+      zone.putToken(token);
+    }
+
+    // Hold the dispatch thread so that all the events below are queued before delivery.
+    CountDownLatch release = new CountDownLatch(1);
+    ModelChangeListener blocker =
+        new ModelChangeListener() {
+          @Override
+          public Dispatch getDispatch() {
+            return Dispatch.COALESCED_BACKGROUND;
+          }
+
+          @Override
+          public void modelChanged(ModelChangeEvent event) {
+            try {
+              release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    BackgroundListener listener = new BackgroundListener(1);
+    List<Thread> immediateThreads = new ArrayList<>();
+    zone.addModelChangeListener(blocker);
+    zone.addModelChangeListener(listener);
+    zone.addModelChangeListener(e -> immediateThreads.add(Thread.currentThread()));
+
+    long fired = ModelChangeDispatcher.getEventsFired();
+    for (Token token : tokens) {
+      zone.tokenChanged(token);
+      zone.tokenChanged(token);
+    }
+    assertTrue(ModelChangeDispatcher.getEventsFired() - fired >= 20);
+    release.countDown();
+
+    assertTrue(listener.received.await(5, TimeUnit.SECONDS));
+    assertEquals(1, listener.events.size());
+    assertEquals(Zone.Event.TOKEN_CHANGED, listener.events.get(0).getEvent());
+    assertEquals(tokens, listener.events.get(0).getTokensAsList());
+
+    // Immediate listeners are still called on the firing thread for every event.
+    assertEquals(20, immediateThreads.size());
+    assertTrue(immediateThreads.stream().allMatch(t -> t == Thread.currentThread()));
+  }
+
+  @Test
+  @DisplayName("Events are only merged into the last queued event")
+  void testEventsKeepOrder() throws InterruptedException {
+    Zone zone = new Zone();
+    Token token = new Token();
+
+    CountDownLatch release = new CountDownLatch(1);
+    ModelChangeListener blocker =
+        new ModelChangeListener() {
+          @Override
+          public Dispatch getDispatch() {
+            return Dispatch.COALESCED_BACKGROUND;
+          }
+
+          @Override
+          public void modelChanged(ModelChangeEvent event) {
+            try {
+              release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    BackgroundListener listener = new BackgroundListener(3);
+    zone.addModelChangeListener(blocker);
+    zone.addModelChangeListener(listener);
+
+    zone.putToken(token);
+    zone.removeToken(token.getId());
+    zone.putToken(token);
+    release.countDown();
+
+    assertTrue(listener.received.await(5, TimeUnit.SECONDS));
+    List<Zone.Event> events = new ArrayList<>();
+    for (ModelChangeEvent event : listener.events) {
+      events.add((Zone.Event) event.getEvent());
+    }
+    assertEquals(
+        List.of(Zone.Event.TOKEN_ADDED, Zone.Event.TOKEN_REMOVED, Zone.Event.TOKEN_ADDED), events);
+  }
+}
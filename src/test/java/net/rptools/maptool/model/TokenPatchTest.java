@@ -0,0 +1,72 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenPatchTest {
+
+  @Test
+  void testPatchAppliedInSequence() {
+    Token sender = new Token();
+    sender.setState("Dead", Boolean.TRUE);
+    sender.clearChanges();
+    Token receiver = new Token(sender, true);
+
+    sender.setX(50);
+    sender.setY(70);
+    sender.setState("Dead", null);
+    sender.setOwnedByAll(true);
+    TokenPatch patch = sender.takePatch();
+    assertNull(sender.takePatch());
+
+    assertTrue(receiver.applyPatch(patch));
+    assertEquals(50, receiver.getX());
+    assertEquals(70, receiver.getY());
+    assertNull(receiver.getState("Dead"));
+    assertTrue(receiver.isOwnedByAll());
+    assertEquals(sender.getVersion(), receiver.getVersion());
+  }
+
+  @Test
+  void testPatchFromOldVersion() {
+    Token sender = new Token();
+    Token receiver = new Token(sender, true);
+    receiver.setFacing(90);
+    receiver.takePatch();
+
+    sender.setZOrder(4);
+    assertFalse(receiver.applyPatch(sender.takePatch()));
+    assertEquals(4, receiver.getZOrder());
+    assertEquals(90, receiver.getFacing());
+    assertTrue(receiver.getVersion() > sender.getVersion());
+  }
+
+  @Test
+  void testPatchAppliedOnce() {
+    Token token = new Token();
+    token.setX(10);
+    TokenPatch patch = token.takePatch();
+    long version = token.getVersion();
+
+    assertTrue(token.applyPatch(patch));
+    assertEquals(version, token.getVersion());
+  }
+}
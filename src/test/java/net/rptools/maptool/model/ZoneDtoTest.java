@@ -0,0 +1,230 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.thoughtworks.xstream.XStream;
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.rptools.lib.FileUtil;
+import net.rptools.lib.MD5Key;
+import net.rptools.maptool.model.Zone.TopologyType;
+import net.rptools.maptool.model.drawing.AbstractTemplate;
+import net.rptools.maptool.model.drawing.BurstTemplate;
+import net.rptools.maptool.model.drawing.ConeTemplate;
+import net.rptools.maptool.model.drawing.Cross;
+import net.rptools.maptool.model.drawing.DrawableColorPaint;
+import net.rptools.maptool.model.drawing.DrawableTexturePaint;
+import net.rptools.maptool.model.drawing.DrawablesGroup;
+import net.rptools.maptool.model.drawing.DrawnElement;
+import net.rptools.maptool.model.drawing.DrawnLabel;
+import net.rptools.maptool.model.drawing.LineSegment;
+import net.rptools.maptool.model.drawing.LineTemplate;
+import net.rptools.maptool.model.drawing.Oval;
+import net.rptools.maptool.model.drawing.Pen;
+import net.rptools.maptool.model.drawing.ShapeDrawable;
+import net.rptools.maptool.model.proto.DrawableDto;
+import net.rptools.maptool.model.proto.DrawnElementDto;
+import net.rptools.maptool.model.proto.ZoneDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ZoneDtoTest {
+
+  private Zone zone;
+
+  @BeforeEach
+  void setup() {
+    zone = createZone(3);
+  }
+
+  /**
+   * Creates a zone with some of everything a campaign holds.
+   *
+   * @param count the number of tokens and of each kind of drawable.
+   */
+  private static Zone createZone(int count) {
+    Zone zone = new Zone();
+    zone.setName("Dungeon");
+    Grid grid = new SquareGrid();
+    grid.setSize(50);
+    grid.setOffset(5, 10);
+    zone.setGrid(grid);
+    zone.setFogPaint(new DrawableColorPaint(Color.BLACK));
+    zone.setBackgroundPaint(new DrawableTexturePaint(new MD5Key(new byte[] {9}), 0.5));
+    zone.setTopologyTypes(new Zone.TopologyTypeSet(TopologyType.WALL_VBL, TopologyType.MBL));
+    zone.addTopology(new Area(new Rectangle(0, 0, 100, 10)), TopologyType.WALL_VBL);
+    zone.addTopology(new Area(new Ellipse2D.Double(0, 0, 40, 40)), TopologyType.MBL);
+    zone.putLabel(new Label("Door", 10, 20));
+
+    LightSource torch = new LightSource("Torch");
+    var initiative = new InitiativeList(null);
+    for (int i = 0; i < count; i++) {
+      Token token = new Token("Goblin " + i, new MD5Key(new byte[] {(byte) i}));
+      token.setExposedAreaGUID(new GUID());
+      token.setX(i * 50);
+      token.setProperty("HP", new BigDecimal("7.5"));
+      token.setProperty("Notes", "Carries a torch");
+      token.setState("Dead", i == 0);
+      token.setVBL(new Area(new Rectangle(i, i, 5, 5)));
+      MacroButtonProperties macro = new MacroButtonProperties(1);
+      macro.setLabel("Attack");
+      macro.setCommand("[r: 1d20]");
+      token.saveMacro(macro);
+      token.addLightSource(torch, Direction.CENTER);
+      token.setFootprint(grid, grid.getDefaultFootprint());
+      var path = new Path<CellPoint>();
+      path.addPathCell(new CellPoint(0, 0));
+      path.addPathCell(new CellPoint(i, 1));
+      path.addWayPoint(new CellPoint(i, 1));
+      token.setLastPath(path);
+      zone.putToken(token);
+      initiative.insertToken(-1, token);
+    }
+    initiative.setRound(2);
+    zone.setInitiativeList(initiative);
+
+    for (int i = 0; i < count; i++) {
+      LineSegment line = new LineSegment(2.5f, false);
+      line.getPoints().add(new Point(0, 0));
+      line.getPoints().add(new Point(30, 40 + i));
+      zone.addDrawable(new DrawnElement(line, new Pen(new DrawableColorPaint(Color.RED), 2.5f)));
+      ShapeDrawable shape = new ShapeDrawable(new Area(new Rectangle(5, 5, 20, 20 + i)));
+      shape.setLayer(Zone.Layer.GM);
+      zone.addDrawable(new DrawnElement(shape, Pen.DEFAULT));
+      zone.addDrawable(new DrawnElement(new ShapeDrawable(new Rectangle(i, 0, 5, 5)), Pen.DEFAULT));
+      zone.addDrawable(
+          new DrawnElement(new ShapeDrawable(new Ellipse2D.Float(i, 0, 5, 5)), Pen.DEFAULT));
+      zone.addDrawable(
+          new DrawnElement(
+              new ShapeDrawable(new Polygon(new int[] {0, 5, i}, new int[] {0, 5, 0}, 3)),
+              Pen.DEFAULT));
+      zone.addDrawable(new DrawnElement(new Oval(i, 0, 10, 10), Pen.DEFAULT));
+      zone.addDrawable(
+          new DrawnElement(
+              new DrawablesGroup(
+                  List.of(
+                      new DrawnElement(new Cross(0, 0, i, 5), Pen.DEFAULT),
+                      new DrawnElement(
+                          new DrawnLabel("Here", new Rectangle(i, 0, 40, 10), "Serif-12"),
+                          Pen.DEFAULT))),
+              Pen.DEFAULT));
+
+      BurstTemplate burst = new BurstTemplate();
+      burst.setRadius(3);
+      burst.setVertex(new ZonePoint(100, 100 + i));
+      zone.addDrawable(new DrawnElement(burst, Pen.DEFAULT));
+      ConeTemplate cone = new ConeTemplate();
+      cone.setDirection(AbstractTemplate.Direction.NORTH);
+      cone.setRadius(2);
+      zone.addDrawable(new DrawnElement(cone, Pen.DEFAULT));
+      LineTemplate lineTemplate = new LineTemplate();
+      lineTemplate.setPathVertex(new ZonePoint(200, 50 + i));
+      lineTemplate.setPath(List.of(new CellPoint(1, 1), new CellPoint(2, 2)));
+      zone.addDrawable(new DrawnElement(lineTemplate, Pen.DEFAULT));
+    }
+    return zone;
+  }
+
+  @Test
+  @DisplayName("A zone survives a round trip through its message")
+  void testRoundTrip() {
+    ZoneDto dto = zone.toDto();
+    Zone restored = Zone.fromDto(dto);
+
+    assertEquals(dto, restored.toDto());
+    assertEquals(zone.getId(), restored.getId());
+    assertEquals(zone.getTokens().size(), restored.getTokens().size());
+    assertEquals(
+        zone.getTopologyTerrain(), restored.getTopologyTerrain());
+
+    Token token = restored.getTokens().get(1);
+    assertEquals(new BigDecimal("7.5"), token.getProperty("HP"));
+    assertEquals(Boolean.FALSE, token.getState("Dead"));
+    assertEquals("[r: 1d20]", token.getMacro(1, false).getCommand());
+    assertEquals(1, token.getLightSources().size());
+    assertEquals(2, token.getLastPath().getCellPath().size());
+    assertSame(restored, restored.getGrid().getZone());
+    assertEquals(5, restored.getGrid().getOffsetX());
+    assertEquals(3, restored.getDrawnElements(Zone.Layer.GM).size());
+    assertEquals(3, restored.getInitiativeList().getSize());
+    assertEquals(2, restored.getInitiativeList().getRound());
+    assertEquals("Door", restored.getLabels().get(0).getLabel());
+    assertTrue(restored.getTopologyTypes().contains(TopologyType.MBL));
+  }
+
+  @Test
+  @DisplayName("No part of the message is written as XML")
+  void testNoXml() {
+    ZoneDto dto = zone.toDto();
+
+    assertTrue(dto.getExtraXml().isEmpty());
+    dto.getTokensList().forEach(token -> assertTrue(token.getExtraXml().isEmpty()));
+    dto.getDrawablesList().forEach(ZoneDtoTest::assertNoXml);
+    dto.getGmDrawablesList().forEach(ZoneDtoTest::assertNoXml);
+  }
+
+  private static void assertNoXml(DrawnElementDto element) {
+    assertNotEquals(DrawableDto.DrawableCase.XML, element.getDrawable().getDrawableCase());
+    element
+        .getDrawable()
+        .getDrawablesGroup()
+        .getDrawablesList()
+        .forEach(ZoneDtoTest::assertNoXml);
+  }
+
+  @Test
+  @DisplayName("The message of a campaign zone is smaller and faster than its XML")
+  void testSizeAndTiming() throws InvalidProtocolBufferException {
+    Zone sample = createZone(200);
+    XStream xstream = FileUtil.getConfiguredXStream();
+
+    byte[] message = sample.toDto().toByteArray();
+    byte[] xml = xstream.toXML(sample).getBytes(StandardCharsets.UTF_8);
+    assertTrue(
+        message.length < xml.length,
+        () -> "message " + message.length + " bytes, XML " + xml.length + " bytes");
+
+    // Best of several runs, the first ones warm up the JIT.
+    long messageNanos = Long.MAX_VALUE;
+    long xmlNanos = Long.MAX_VALUE;
+    for (int run = 0; run < 5; run++) {
+      long start = System.nanoTime();
+      Zone.fromDto(ZoneDto.parseFrom(sample.toDto().toByteArray()));
+      messageNanos = Math.min(messageNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      xstream.fromXML(xstream.toXML(sample));
+      xmlNanos = Math.min(xmlNanos, System.nanoTime() - start);
+    }
+    long messageTime = messageNanos;
+    long xmlTime = xmlNanos;
+    assertTrue(
+        messageTime < xmlTime, () -> "message " + messageTime + " ns, XML " + xmlTime + " ns");
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ZoneTokenIndexTest {
+
+  private Zone zone;
+
+  @BeforeEach
+  void setup() {
+    zone = new Zone();
+    Grid grid = new SquareGrid();
+    grid.setSize(50);
+    zone.setGrid(grid);
+  }
+
+  private Token addToken(int cellX, int cellY) {
+    Token token = new Token();
+    token.setX(cellX * 50);
+    token.setY(cellY * 50);
+    zone.putToken(token);
+    return token;
+  }
+
+  @Test
+  @DisplayName("Tokens intersecting a rectangle")
+  void testIntersectingRectangle() {
+    Token near = addToken(1, 1);
+    Token far = addToken(100, 100);
+
+    List<Token> result = zone.getTokensIntersecting(new Rectangle(0, 0, 200, 200));
+    assertEquals(List.of(near), result);
+
+    result = zone.getTokensIntersecting(new Rectangle(4900, 4900, 200, 200));
+    assertEquals(List.of(far), result);
+  }
+
+  @Test
+  @DisplayName("Index follows moved and removed tokens")
+  void testMoveAndRemove() {
+    Token token = addToken(1, 1);
+    Rectangle origin = new Rectangle(0, 0, 200, 200);
+    assertEquals(1, zone.getTokensIntersecting(origin).size());
+
+    token.setX(50 * 60);
+    token.setY(50 * 60);
+    zone.putToken(token);
+    assertTrue(zone.getTokensIntersecting(origin).isEmpty());
+    assertEquals(
+        List.of(token), zone.getTokensIntersecting(new Rectangle(2950, 2950, 200, 200)));
+
+    zone.removeToken(token.getId());
+    assertTrue(zone.getTokensIntersecting(new Rectangle(2950, 2950, 200, 200)).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tokens at a set of cells")
+  void testTokensAtCells() {
+    Token a = addToken(2, 2);
+    addToken(3, 2);
+    Token c = addToken(40, 40);
+
+    List<Token> result =
+        zone.getTokensAtCells(List.of(new CellPoint(2, 2), new CellPoint(40, 40)));
+    assertEquals(2, result.size());
+    assertTrue(result.contains(a));
+    assertTrue(result.contains(c));
+  }
+
+  @Test
+  @DisplayName("K nearest tokens")
+  void testNearestTokens() {
+    Token a = addToken(0, 0);
+    Token b = addToken(5, 0);
+    Token c = addToken(50, 0);
+    addToken(200, 200);
+
+    List<Token> result = zone.getNearestTokens(new ZonePoint(10, 10), 3, null);
+    assertEquals(List.of(a, b, c), result);
+
+    result = zone.getNearestTokens(new ZonePoint(2600, 25), 1, t -> t != c);
+    assertEquals(List.of(b), result);
+  }
+
+  @Test
+  @DisplayName("Grid changes rebuild the index")
+  void testGridChange() {
+    Token token = addToken(4, 4);
+    Rectangle bounds = new Rectangle(260, 260, 10, 10);
+    assertTrue(zone.getTokensIntersecting(bounds).isEmpty());
+
+    // The token keeps its position but now covers a cell twice as large.
+    zone.getGrid().setSize(100);
+    assertEquals(List.of(token), zone.getTokensIntersecting(bounds));
+  }
+}
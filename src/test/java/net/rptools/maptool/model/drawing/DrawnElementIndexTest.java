@@ -0,0 +1,88 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.drawing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DrawnElementIndexTest {
+
+  private static DrawnElement square(int x, int y) {
+    return new DrawnElement(
+        new ShapeDrawable(new java.awt.Rectangle(x, y, 10, 10)), new Pen(null, 2));
+  }
+
+  /** Returns the elements crossing an area by testing each of them. */
+  private static List<DrawnElement> scan(List<DrawnElement> elements, Rectangle2D area) {
+    List<DrawnElement> result = new ArrayList<>();
+    for (DrawnElement element : elements) {
+      if (DrawnElementIndex.getBounds(element).intersects(area)) {
+        result.add(element);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  @DisplayName("Queries find the same elements as a full scan, in drawing order")
+  void testQuery() {
+    List<DrawnElement> elements = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      elements.add(square((i * 7919) % 3000, (i * 104729) % 3000));
+    }
+    DrawnElementIndex index = new DrawnElementIndex(elements);
+
+    for (int y = 0; y < 3000; y += 256) {
+      for (int x = 0; x < 3000; x += 256) {
+        Rectangle2D area = new Rectangle2D.Double(x, y, 256, 256);
+        assertEquals(scan(elements, area), index.query(area));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Added elements are found after the indexed ones")
+  void testAdd() {
+    List<DrawnElement> elements = new ArrayList<>(List.of(square(0, 0), square(100, 100)));
+    DrawnElementIndex index = new DrawnElementIndex(elements);
+    DrawnElement added = square(5, 5);
+    index.add(added);
+
+    assertEquals(3, index.size());
+    assertEquals(
+        List.of(elements.get(0), added), index.query(new Rectangle2D.Double(0, 0, 20, 20)));
+  }
+
+  @Test
+  @DisplayName("Elements changed in place are found with their new bounds")
+  void testUpdate() {
+    List<DrawnElement> elements = new ArrayList<>(List.of(square(0, 0), square(100, 100)));
+    DrawnElementIndex index = new DrawnElementIndex(elements);
+    Rectangle2D area = new Rectangle2D.Double(60, 60, 20, 20);
+    assertEquals(List.of(), index.query(area));
+
+    DrawnElement changed = elements.get(1);
+    changed.setPen(new Pen(null, 100));
+    assertTrue(index.update(changed.getDrawable().getId()));
+    assertEquals(List.of(changed), index.query(area));
+    assertEquals(List.of(elements.get(0)), index.query(new Rectangle2D.Double(0, 0, 5, 5)));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.drawing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Rectangle;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DrawnElementListTest {
+
+  private static DrawnElement square(int x) {
+    return new DrawnElement(new ShapeDrawable(new Rectangle(x, 0, 10, 10)), new Pen(null, 2));
+  }
+
+  @Test
+  @DisplayName("Elements keep their drawing order as they are added and removed")
+  void testOrder() {
+    DrawnElement a = square(0);
+    DrawnElement b = square(10);
+    DrawnElement c = square(20);
+    DrawnElementList list = new DrawnElementList();
+    list.add(a);
+    list.add(b);
+    list.addFirst(c);
+    assertEquals(List.of(c, a, b), list);
+
+    assertSame(a, list.remove(a.getDrawable().getId()));
+    assertEquals(List.of(c, b), list);
+    assertNull(list.get(a.getDrawable().getId()));
+    assertSame(b, list.get(b.getDrawable().getId()));
+  }
+
+  @Test
+  @DisplayName("Snapshots do not see later changes")
+  void testSnapshot() {
+    DrawnElement a = square(0);
+    DrawnElementList list = new DrawnElementList(List.of(a));
+    List<DrawnElement> snapshot = list.snapshot();
+    list.add(square(10));
+
+    assertEquals(List.of(a), snapshot);
+    assertEquals(2, list.size());
+  }
+
+  @Test
+  @DisplayName("Drawables inside groups are found by id")
+  void testFindInGroup() {
+    DrawnElement inner = square(0);
+    DrawnElement group = new DrawnElement(new DrawablesGroup(List.of(inner)), new Pen(null, 2));
+    DrawnElementList list = new DrawnElementList(List.of(group));
+
+    assertNull(list.get(inner.getDrawable().getId()));
+    assertSame(inner, list.find(inner.getDrawable().getId()));
+    list.remove(group.getDrawable().getId());
+    assertNull(list.find(inner.getDrawable().getId()));
+    assertFalse(list.contains(group));
+  }
+
+  @Test
+  @DisplayName("Replacing and sorting elements keeps the snapshots and the ids in step")
+  void testSetAndSort() {
+    DrawnElement a = square(20);
+    DrawnElement b = square(0);
+    DrawnElement c = square(10);
+    DrawnElementList list = new DrawnElementList(List.of(a, b));
+    List<DrawnElement> snapshot = list.snapshot();
+
+    assertSame(b, list.set(1, c));
+    assertEquals(List.of(a, b), snapshot);
+    assertEquals(List.of(a, c), list);
+    assertNull(list.get(b.getDrawable().getId()));
+    assertSame(c, list.get(c.getDrawable().getId()));
+
+    list.add(b);
+    list.sort(Comparator.comparingDouble(de -> de.getDrawable().getBounds().getX()));
+    assertEquals(List.of(b, c, a), list);
+    list.addFirst(a);
+    assertEquals(List.of(a, b, c), list.snapshot());
+  }
+
+  @Test
+  @DisplayName("Adding a drawable that is already in the list moves it")
+  void testAddExisting() {
+    DrawnElement a = square(0);
+    DrawnElement b = square(10);
+    DrawnElementList list = new DrawnElementList(List.of(a, b));
+    list.add(a);
+
+    assertEquals(List.of(b, a), list);
+  }
+}
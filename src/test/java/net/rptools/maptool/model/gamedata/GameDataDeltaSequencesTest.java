@@ -0,0 +1,66 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.model.gamedata;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.rptools.maptool.model.gamedata.proto.GameDataDeltaDto;
+import org.junit.jupiter.api.Test;
+
+class GameDataDeltaSequencesTest {
+
+  private final GameDataDeltaSequences sequences = new GameDataDeltaSequences();
+
+  @Test
+  void testDeltasInSequenceAreAccepted() {
+    assertTrue(sequences.accept(delta("source", "namespace", 1)));
+    assertTrue(sequences.accept(delta("source", "namespace", 2)));
+    assertTrue(sequences.accept(delta("source", "namespace", 3)));
+  }
+
+  @Test
+  void testOutOfOrderDeltasAreDropped() {
+    assertTrue(sequences.accept(delta("source", "namespace", 1)));
+    assertTrue(sequences.accept(delta("source", "namespace", 2)));
+    assertFalse(sequences.accept(delta("source", "namespace", 2)));
+    assertFalse(sequences.accept(delta("source", "namespace", 1)));
+  }
+
+  @Test
+  void testSequenceContinuesAfterMissedDeltas() {
+    assertTrue(sequences.accept(delta("source", "namespace", 1)));
+    assertTrue(sequences.accept(delta("source", "namespace", 4)));
+    assertFalse(sequences.accept(delta("source", "namespace", 3)));
+    assertTrue(sequences.accept(delta("source", "namespace", 5)));
+  }
+
+  @Test
+  void testSequencesAreKeptPerSourceAndNamespace() {
+    assertTrue(sequences.accept(delta("source", "namespace", 2)));
+    assertTrue(sequences.accept(delta("other", "namespace", 1)));
+    assertTrue(sequences.accept(delta("source", "other", 1)));
+    assertFalse(sequences.accept(delta("source", "namespace", 1)));
+  }
+
+  private static GameDataDeltaDto delta(String source, String namespace, long sequence) {
+    return GameDataDeltaDto.newBuilder()
+        .setSource(source)
+        .setType("type")
+        .setNamespace(namespace)
+        .setSequence(sequence)
+        .build();
+  }
+}
@@ -47,6 +47,46 @@ void setUp() throws ExecutionException, InterruptedException {
     emptyMds = new MemoryDataStore();
   }
 
+  @Test
+  void getNamespaceVersion() throws ExecutionException, InterruptedException {
+    long created = mds1.getNamespaceVersion("testType", "testNamespace");
+    mds1.setLongProperty("testType", "testNamespace", "long", 1).get();
+    long set = mds1.getNamespaceVersion("testType", "testNamespace");
+    mds1.removeProperty("testType", "testNamespace", "missing").get();
+    long removedMissing = mds1.getNamespaceVersion("testType", "testNamespace");
+    mds1.removeProperty("testType", "testNamespace", "long").get();
+    long removed = mds1.getNamespaceVersion("testType", "testNamespace");
+    mds1.clear();
+
+    assertAll(
+        () -> assertTrue(created > 0),
+        () -> assertTrue(set > created),
+        () -> assertEquals(set, removedMissing),
+        () -> assertTrue(removed > set),
+        () -> assertEquals(0, mds1.getNamespaceVersion("testType", "testNamespace")),
+        () -> assertEquals(0, emptyMds.getNamespaceVersion("testType", "testNamespace")));
+  }
+
+  @Test
+  void syncReads() {
+    var set = mds1.setStringProperty("testType", "testNamespace", "string1", "value");
+    assertAll(
+        () -> assertTrue(set.isDone()),
+        () ->
+            assertEquals(
+                "value", mds1.getPropertySync("testType", "testNamespace", "string1").asString()),
+        () -> assertTrue(mds1.hasPropertySync("testType", "testNamespace", "string1")),
+        () -> assertTrue(mds1.isPropertyDefinedSync("testType", "testNamespace", "string1")),
+        () ->
+            assertEquals(
+                DataType.STRING,
+                mds1.getPropertyDataTypeSync("testType", "testNamespace", "string1")),
+        () -> assertEquals(1, mds1.getPropertiesSync("testType", "testNamespace").size()),
+        () ->
+            assertTrue(mds1.getPropertySync("testType", "testNamespace", "missing").isUndefined()),
+        () -> assertFalse(mds1.hasPropertySync("testType", "testNamespace", "missing")));
+  }
+
   @Test
   void getPropertyTypes() {
     assertAll(
@@ -0,0 +1,134 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.rptools.clientserver.simple.AbstractConnection;
+import net.rptools.clientserver.simple.client.ClientConnection;
+import net.rptools.clientserver.simple.server.HandshakeProvider;
+import net.rptools.clientserver.simple.server.RoutedServerConnection;
+import net.rptools.maptool.server.proto.ClientInitMsg;
+import net.rptools.maptool.server.proto.HandshakeMsg;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SessionRouterTest {
+
+  /** Records the clients whose handshake was started. */
+  private static class StubHandshakeProvider implements HandshakeProvider {
+    private final List<ClientConnection> clients = new ArrayList<>();
+
+    @Override
+    public Handshake getConnectionHandshake(ClientConnection conn) {
+      clients.add(conn);
+      return mock(Handshake.class);
+    }
+
+    @Override
+    public void releaseHandshake(ClientConnection conn) {}
+  }
+
+  private static class StubConnection extends AbstractConnection implements ClientConnection {
+    private final String id;
+
+    StubConnection(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public void sendMessage(byte[] message) {}
+
+    @Override
+    public void sendMessage(Object channel, byte[] message) {}
+
+    @Override
+    public boolean isAlive() {
+      return true;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public String getError() {
+      return null;
+    }
+  }
+
+  private final SessionRouter router = new SessionRouter();
+  private final StubHandshakeProvider firstProvider = new StubHandshakeProvider();
+  private final StubHandshakeProvider secondProvider = new StubHandshakeProvider();
+  private final RoutedServerConnection first = new RoutedServerConnection(firstProvider);
+  private final RoutedServerConnection second = new RoutedServerConnection(secondProvider);
+
+  @BeforeEach
+  void setUp() {
+    router.addSession("First", first);
+    router.addSession("Second", second);
+  }
+
+  private static byte[] clientInit(String sessionName) {
+    return HandshakeMsg.newBuilder()
+        .setClientInitMsg(ClientInitMsg.newBuilder().setSessionName(sessionName))
+        .build()
+        .toByteArray();
+  }
+
+  @Test
+  void testDefaultSession() throws Exception {
+    var conn = new StubConnection("client");
+
+    assertSame(first, router.route(conn, clientInit("")));
+    assertEquals(List.of(conn), firstProvider.clients);
+    assertTrue(secondProvider.clients.isEmpty());
+
+    router.removeSession("first");
+    assertSame(second, router.route(conn, clientInit("")));
+  }
+
+  @Test
+  void testUnknownSession() throws Exception {
+    var conn = new StubConnection("client");
+
+    assertNull(router.route(conn, clientInit("third")));
+    assertNull(router.route(conn, new byte[] {-1, -1, -1}));
+    assertTrue(firstProvider.clients.isEmpty());
+    assertTrue(secondProvider.clients.isEmpty());
+  }
+
+  @Test
+  void testCaseInsensitiveName() throws Exception {
+    var conn = new StubConnection("client");
+
+    assertSame(second, router.route(conn, clientInit("SECOND")));
+    assertEquals(List.of(conn), secondProvider.clients);
+    assertTrue(firstProvider.clients.isEmpty());
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import net.rptools.maptool.model.Campaign;
+import net.rptools.maptool.model.Zone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CampaignSnapshotsTest {
+
+  private final CampaignSnapshots snapshots = new CampaignSnapshots();
+  private Campaign campaign;
+  private Zone first;
+  private Zone second;
+
+  @BeforeEach
+  void setup() {
+    campaign = new Campaign();
+    first = new Zone();
+    first.setName("First");
+    second = new Zone();
+    second.setName("Second");
+    campaign.putZone(first);
+    campaign.putZone(second);
+  }
+
+  @Test
+  @DisplayName("Only zones that changed since the last capture are captured again")
+  void testChangedZones() {
+    snapshots.capture(campaign);
+    assertEquals(2, snapshots.getChangedZoneCount());
+
+    snapshots.capture(campaign);
+    assertEquals(0, snapshots.getChangedZoneCount());
+
+    second.setName("Renamed");
+    Campaign captured = snapshots.capture(campaign);
+    assertEquals(1, snapshots.getChangedZoneCount());
+    assertEquals("Renamed", captured.getZone(second.getId()).getName());
+  }
+
+  @Test
+  @DisplayName("A capture does not change with the campaign")
+  void testCaptureIsStable() {
+    Campaign captured = snapshots.capture(campaign);
+    first.setName("Changed");
+
+    assertTrue(captured.isZoneUnloaded(first.getId()));
+    Zone zone = captured.getZone(first.getId());
+    assertNotSame(first, zone);
+    assertEquals("First", zone.getName());
+    assertEquals(2, captured.getZoneAssetIds().size());
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.rptools.lib.io.PackedFile;
+import net.rptools.maptool.model.gamedata.DataStoreManager.NamespaceVersion;
+import net.rptools.maptool.model.gamedata.proto.GameDataDto;
+import net.rptools.maptool.model.gamedata.proto.GameDataValueDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameDataEntriesTest {
+
+  private final GameDataEntries entries = new GameDataEntries();
+  private final List<String> serialized = new ArrayList<>();
+
+  @Test
+  void testPathsStayInNamespaceDirectory() {
+    String path = GameDataEntries.getPath("..", "../a/*");
+    assertTrue(path.startsWith(GameDataEntries.NAMESPACE_DIR));
+    assertFalse(path.contains(".."));
+    assertEquals(4, path.split("/").length);
+  }
+
+  @Test
+  void testOnlyChangedNamespacesAreWrittenAgain(@TempDir File tempDir) throws IOException {
+    var first = new NamespaceVersion("type", "first", 1);
+    var second = new NamespaceVersion("type", "second", 2);
+    File saved = new File(tempDir, "saved.cmpgn");
+    Map<String, Long> written;
+    try (PackedFile pakFile = new PackedFile(saved)) {
+      written = entries.write(pakFile, List.of(first, second), n -> data(n, "old"));
+      pakFile.save();
+    }
+    entries.setWritten(saved, written);
+    assertEquals(List.of("first", "second"), serialized);
+
+    var changed = new NamespaceVersion("type", "second", 3);
+    File savedAgain = new File(tempDir, "savedAgain.cmpgn");
+    try (PackedFile pakFile = new PackedFile(savedAgain)) {
+      written = entries.write(pakFile, List.of(first, changed), n -> data(n, "new"));
+      pakFile.save();
+    }
+    assertEquals(List.of("first", "second", "second"), serialized);
+    assertEquals(
+        Map.of(
+            GameDataEntries.getPath("type", "first"), 1L,
+            GameDataEntries.getPath("type", "second"), 3L),
+        written);
+
+    try (PackedFile pakFile = new PackedFile(savedAgain)) {
+      Map<String, GameDataDto> read = GameDataEntries.read(pakFile);
+      assertEquals(dto(first, "old"), read.get(GameDataEntries.getPath("type", "first")));
+      assertEquals(dto(changed, "new"), read.get(GameDataEntries.getPath("type", "second")));
+    }
+  }
+
+  @Test
+  void testEntriesNotNamedAfterNamespaceAreWrittenAgain(@TempDir File tempDir)
+      throws IOException {
+    var first = new NamespaceVersion("type", "first", 1);
+    var second = new NamespaceVersion("type", "second", 2);
+    File loaded = new File(tempDir, "loaded.cmpgn");
+    try (PackedFile pakFile = new PackedFile(loaded)) {
+      pakFile.putFile(GameDataEntries.getPath("type", "first"), dto(first, "loaded").toByteArray());
+      pakFile.putFile(GameDataEntries.NAMESPACE_DIR + "1.pb", dto(second, "loaded").toByteArray());
+      pakFile.save();
+    }
+
+    Map<String, GameDataDto> read;
+    try (PackedFile pakFile = new PackedFile(loaded)) {
+      read = GameDataEntries.read(pakFile);
+    }
+    assertEquals(Set.of(dto(first, "loaded"), dto(second, "loaded")), Set.copyOf(read.values()));
+    entries.setRead(loaded, read.keySet(), List.of(first, second));
+
+    File saved = new File(tempDir, "saved.cmpgn");
+    try (PackedFile pakFile = new PackedFile(saved)) {
+      entries.write(pakFile, List.of(first, second), n -> data(n, "saved"));
+      pakFile.save();
+    }
+    assertEquals(List.of("second"), serialized);
+
+    try (PackedFile pakFile = new PackedFile(saved)) {
+      assertEquals(
+          Map.of(
+              GameDataEntries.getPath("type", "first"), dto(first, "loaded"),
+              GameDataEntries.getPath("type", "second"), dto(second, "saved")),
+          GameDataEntries.read(pakFile));
+    }
+  }
+
+  @Test
+  void testNamespacesAreWrittenWhenSourceIsMissing(@TempDir File tempDir) throws IOException {
+    var first = new NamespaceVersion("type", "first", 1);
+    File missing = new File(tempDir, "missing.cmpgn");
+    entries.setWritten(missing, Map.of(GameDataEntries.getPath("type", "first"), 1L));
+
+    File saved = new File(tempDir, "saved.cmpgn");
+    try (PackedFile pakFile = new PackedFile(saved)) {
+      entries.write(pakFile, List.of(first), n -> data(n, "saved"));
+      pakFile.save();
+    }
+    assertEquals(List.of("first"), serialized);
+  }
+
+  private byte[] data(NamespaceVersion namespace, String value) {
+    serialized.add(namespace.namespace());
+    return dto(namespace, value).toByteArray();
+  }
+
+  private static GameDataDto dto(NamespaceVersion namespace, String value) {
+    return GameDataDto.newBuilder()
+        .setType(namespace.type())
+        .setNamespace(namespace.namespace())
+        .addValues(GameDataValueDto.newBuilder().setName("value").setStringValue(value))
+        .build();
+  }
+}
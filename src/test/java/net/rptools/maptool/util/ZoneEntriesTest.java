@@ -0,0 +1,99 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import net.rptools.lib.MD5Key;
+import net.rptools.lib.io.PackedFile;
+import net.rptools.maptool.model.SquareGrid;
+import net.rptools.maptool.model.Token;
+import net.rptools.maptool.model.Zone;
+import net.rptools.maptool.model.Zone.TopologyType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZoneEntriesTest {
+
+  private Zone xmlZone;
+  private Zone messageZone;
+
+  @BeforeEach
+  void setup() {
+    xmlZone = createZone("Written as XML");
+    messageZone = createZone("Written as message");
+  }
+
+  private static Zone createZone(String name) {
+    Zone zone = new Zone();
+    zone.setName(name);
+    var grid = new SquareGrid();
+    grid.setSize(60);
+    zone.setGrid(grid);
+    zone.addTopology(new Area(new Rectangle(0, 0, 100, 10)), TopologyType.WALL_VBL);
+    Token token = new Token("Goblin", new MD5Key(new byte[] {1}));
+    token.setProperty("HP", new BigDecimal("7"));
+    zone.putToken(token);
+    return zone;
+  }
+
+  @Test
+  @DisplayName("A campaign with XML and message zone entries is upgraded to message entries")
+  void testMixedCampaignUpgrade(@TempDir File tempDir) throws IOException {
+    File mixed = new File(tempDir, "mixed.cmpgn");
+    try (PackedFile pakFile = new PackedFile(mixed)) {
+      pakFile.putFile(ZoneEntries.getXmlPath(xmlZone.getId()), xmlZone);
+      ZoneEntries.write(pakFile, messageZone.getId(), messageZone.toDto());
+      pakFile.save();
+    }
+
+    File upgraded = new File(tempDir, "upgraded.cmpgn");
+    Zone readXmlZone;
+    Zone readMessageZone;
+    try (PackedFile source = new PackedFile(mixed);
+        PackedFile target = new PackedFile(upgraded)) {
+      readXmlZone = ZoneEntries.read(source, xmlZone.getId(), null, null);
+      readMessageZone = ZoneEntries.read(source, messageZone.getId(), null, null);
+      assertEquals("Written as XML", readXmlZone.getName());
+      assertEquals(60, readXmlZone.getGrid().getSize());
+      assertEquals(new BigDecimal("7"), readXmlZone.getTokens().get(0).getProperty("HP"));
+      assertEquals(messageZone.toDto(), readMessageZone.toDto());
+
+      ZoneEntries.copy(source, xmlZone.getId(), null, null, target);
+      ZoneEntries.copy(source, messageZone.getId(), null, null, target);
+      target.save();
+    }
+
+    try (PackedFile pakFile = new PackedFile(upgraded)) {
+      assertTrue(pakFile.hasFile(ZoneEntries.getPath(xmlZone.getId())));
+      assertFalse(pakFile.hasFile(ZoneEntries.getXmlPath(xmlZone.getId())));
+      assertTrue(pakFile.hasFile(ZoneEntries.getPath(messageZone.getId())));
+      assertEquals(
+          readXmlZone.toDto(), ZoneEntries.read(pakFile, xmlZone.getId(), null, null).toDto());
+      assertEquals(
+          readMessageZone.toDto(),
+          ZoneEntries.read(pakFile, messageZone.getId(), null, null).toDto());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * This software Copyright by the RPTools.net development team, and
+ * licensed under the Affero GPL Version 3 or, at your option, any later
+ * version.
+ *
+ * MapTool Source Code is distributed in the hope that it will be
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License * along with this source Code.  If not, please visit
+ * <http://www.gnu.org/licenses/> and specifically the Affero license
+ * text at <http://www.gnu.org/licenses/agpl.html>.
+ */
+package net.rptools.maptool.webapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+class JsonMergePatchTest {
+
+  private static JsonObject json(String text) {
+    return JsonParser.parseString(text).getAsJsonObject();
+  }
+
+  @Test
+  void testDiff() {
+    JsonObject source =
+        json("{'name':'Orc','label':'A','holding':false,'properties':{'HP':10,'AC':12}}");
+    JsonObject target = json("{'name':'Orc','holding':true,'properties':{'HP':7,'AC':12}}");
+
+    assertEquals(
+        json("{'label':null,'holding':true,'properties':{'HP':7}}"),
+        JsonMergePatch.diff(source, target));
+  }
+
+  @Test
+  void testDiffOfEqualObjects() {
+    JsonObject source = json("{'name':'Orc','initiative':[1,2],'notes':null}");
+    JsonObject target = json("{'name':'Orc','initiative':[1,2]}");
+
+    assertEquals(0, JsonMergePatch.diff(source, target).size());
+  }
+}